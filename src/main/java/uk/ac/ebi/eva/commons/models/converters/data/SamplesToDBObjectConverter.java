@@ -21,6 +21,7 @@ import com.mongodb.DBObject;
 import org.opencb.biodata.models.feature.Genotype;
 import org.springframework.core.convert.converter.Converter;
 
+import uk.ac.ebi.eva.commons.models.data.SamplesMatrix;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
 
 import java.util.ArrayList;
@@ -38,20 +39,29 @@ public class SamplesToDBObjectConverter implements Converter<VariantSourceEntry,
     @Override
     public DBObject convert(VariantSourceEntry object) {
         Map<Genotype, List<Integer>> genotypeCodes = new HashMap<>();
+        SamplesMatrix samples = object.getSamplesMatrix();
+
+        // Parse each distinct genotype only once
+        List<List<Integer>> samplesByCode = new ArrayList<>(samples.getNumberOfGenotypes() + 1);
+        samplesByCode.add(null);
+        for (int code = 1; code <= samples.getNumberOfGenotypes(); code++) {
+            Genotype g = new Genotype(samples.getGenotypeByCode(code));
+            List<Integer> samplesWithGenotype = genotypeCodes.get(g);
+            if (samplesWithGenotype == null) {
+                samplesWithGenotype = new ArrayList<>();
+                genotypeCodes.put(g, samplesWithGenotype);
+            }
+            samplesByCode.add(samplesWithGenotype);
+        }
 
         // Classify samples by genotype
-        for (int i = 0; i < object.getSamplesData().size(); i++) {
-            String genotype = object.getSampleData(i).get("GT");
-            if (genotype != null) {
-                Genotype g = new Genotype(genotype);
-                List<Integer> samplesWithGenotype = genotypeCodes.get(g);
-                if (samplesWithGenotype == null) {
-                    samplesWithGenotype = new ArrayList<>();
-                    genotypeCodes.put(g, samplesWithGenotype);
-                }
-                samplesWithGenotype.add(i);
+        for (int i = 0; i < samples.getNumberOfSamples(); i++) {
+            int code = samples.getGenotypeCode(i);
+            if (code != SamplesMatrix.NO_GENOTYPE) {
+                samplesByCode.get(code).add(i);
             }
         }
+        genotypeCodes.values().removeIf(List::isEmpty);
 
         // Get the most common genotype
         Map.Entry<Genotype, List<Integer>> longestList = null;
@@ -84,26 +84,12 @@ public class VariantSourceEntryToDBObjectConverter implements Converter<VariantS
         if (object.getAttributes().size() > 0) {
             BasicDBObject attrs = null;
             for (Map.Entry<String, String> entry : object.getAttributes().entrySet()) {
-                Object value = entry.getValue();
-                if (entry.getKey().equals("src")) {
-                    String[] fields = entry.getValue().split("\t");
-                    StringBuilder sb = new StringBuilder();
-                    sb.append(fields[0]);
-                    for (int i = 1; i < fields.length && i < 8; i++) {
-                        sb.append("\t").append(fields[i]);
-                    }
-                    try {
-                        value = org.opencb.commons.utils.StringUtils.gzip(sb.toString());
-                    } catch (IOException ex) {
-                        Logger.getLogger(VariantSourceEntryToDBObjectConverter.class.getName())
-                              .log(Level.SEVERE, null, ex);
-                    }
-                }
-
+                String key = convertAttributeKey(entry.getKey());
+                Object value = convertAttributeValue(entry.getKey(), entry.getValue());
                 if (attrs == null) {
-                    attrs = new BasicDBObject(entry.getKey().replace('.', CHARACTER_TO_REPLACE_DOTS), value);
+                    attrs = new BasicDBObject(key, value);
                 } else {
-                    attrs.append(entry.getKey().replace('.', CHARACTER_TO_REPLACE_DOTS), value);
+                    attrs.append(key, value);
                 }
             }
 
@@ -120,4 +106,32 @@ public class VariantSourceEntryToDBObjectConverter implements Converter<VariantS
         return mongoFile;
     }
 
+    /**
+     * Dots are not allowed in the keys of a Mongo document.
+     */
+    public static String convertAttributeKey(String key) {
+        return key.replace('.', CHARACTER_TO_REPLACE_DOTS);
+    }
+
+    /**
+     * The original line ("src" attribute) is stored compressed, and only its first 8 columns.
+     */
+    public static Object convertAttributeValue(String key, String value) {
+        if (!key.equals("src")) {
+            return value;
+        }
+        String[] fields = value.split("\t");
+        StringBuilder sb = new StringBuilder();
+        sb.append(fields[0]);
+        for (int i = 1; i < fields.length && i < 8; i++) {
+            sb.append("\t").append(fields[i]);
+        }
+        try {
+            return org.opencb.commons.utils.StringUtils.gzip(sb.toString());
+        } catch (IOException ex) {
+            Logger.getLogger(VariantSourceEntryToDBObjectConverter.class.getName()).log(Level.SEVERE, null, ex);
+            return value;
+        }
+    }
+
 }
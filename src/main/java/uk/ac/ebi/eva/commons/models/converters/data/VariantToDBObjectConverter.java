@@ -87,6 +87,8 @@ public class VariantToDBObjectConverter implements Converter<Variant, DBObject>
 
     private VariantStatsToDBObjectConverter statsConverter;
 
+    private final boolean compactIds;
+
     /**
      * Create a converter between Variant and DBObject entities when the fields of VariantSourceEntry,
      * VariantAnnotation and VariantStats should not be written.
@@ -108,15 +110,27 @@ public class VariantToDBObjectConverter implements Converter<Variant, DBObject>
             VariantSourceEntryToDBObjectConverter variantSourceEntryConverter,
             VariantAnnotationToDBObjectConverter variantAnnotationConverter,
             VariantStatsToDBObjectConverter VariantStatsConverter) {
+        this(variantSourceEntryConverter, variantAnnotationConverter, VariantStatsConverter, false);
+    }
+
+    /**
+     * @param compactIds whether the _id is built with {@link MongoDBHelper#buildCompactStorageId(Variant)} instead
+     *                   of {@link MongoDBHelper#buildStorageId(Variant)}
+     */
+    public VariantToDBObjectConverter(
+            VariantSourceEntryToDBObjectConverter variantSourceEntryConverter,
+            VariantAnnotationToDBObjectConverter variantAnnotationConverter,
+            VariantStatsToDBObjectConverter VariantStatsConverter, boolean compactIds) {
         this.variantSourceEntryConverter = variantSourceEntryConverter;
         this.variantAnnotationConverter = variantAnnotationConverter;
         this.statsConverter = VariantStatsConverter;
+        this.compactIds = compactIds;
     }
 
     @Override
     public DBObject convert(Variant object) {
-        String id = MongoDBHelper.buildStorageId(object.getChromosome(), object.getStart(), object.getReference(),
-                                   object.getAlternate());
+        Object id = MongoDBHelper.buildStorageId(object.getChromosome(), object.getStart(), object.getReference(),
+                                                 object.getAlternate(), compactIds);
 
         BasicDBObject mongoVariant = new BasicDBObject("_id", id)
                 // Do not include IDs: the MongoWriter will take care in the query using an $addToSet
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sample information of a variant in a file, stored by column instead of as one map per sample.
+ * <p>
+ * The genotypes are encoded as one byte per sample, pointing to a dictionary of the distinct genotypes of the
+ * variant (usually just a handful, like "0/0", "0/1" and "./."). The rest of FORMAT fields are stored as one array
+ * per field, indexed by the position of the sample. A missing value (e.g. a sample that omits the trailing fields)
+ * is stored as null.
+ * <p>
+ * The per-sample maps used so far (pairs like (GT, 0/1), (DP, 12)) are still available through {@link #asList()}
+ * and {@link #getSample(int)}, which build them on demand.
+ * <p>
+ * {@link #withGenotypes(UnaryOperator)} creates a matrix that shares the sample columns with this one and only
+ * changes the genotype dictionary, which is how the variants of each alternate allele of a multiallelic line get
+ * their samples without parsing them again. Shared arrays are copied before the first modification, and a column
+ * decoded from the raw text (see below) is only kept by the matrix that decoded it.
+ * <p>
+ * A matrix can also keep the samples as raw slices of a text, like the columns of a VCF line. Then only the GT
+ * field needs to be set when parsing, and the rest of fields are decoded from the raw slices the first time they
+ * are accessed, a whole column at a time. Fields that are never read, like long PL or AD arrays, are never decoded.
+ */
+public class SamplesMatrix {
+
+    public static final String GENOTYPE_FIELD = "GT";
+
+    /**
+     * Column returned by {@link #addColumn(String)} for the GT field, which is not stored as a String column
+     */
+    public static final int GENOTYPE_COLUMN = -1;
+
+    /**
+     * Genotype code of the samples without a GT field
+     */
+    public static final int NO_GENOTYPE = 0;
+
+    /**
+     * Codes are stored as unsigned bytes, and 0 is reserved for {@link #NO_GENOTYPE}
+     */
+    private static final int MAX_BYTE_GENOTYPE_CODE = 255;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Up to this number of distinct genotypes, searching the dictionary linearly is faster than hashing a new String
+     */
+    private static final int MAX_GENOTYPES_FOR_LINEAR_SEARCH = 8;
+
+    private static final char RAW_FIELD_SEPARATOR = ':';
+
+    /**
+     * Raw position of the columns and samples that are not decoded from a raw text
+     */
+    private static final int NOT_RAW = -1;
+
+    private List<String> fields;
+
+    private Map<String, Integer> columnIndexes;
+
+    /**
+     * Values of each column, or null if the column has not been decoded from the raw text yet
+     */
+    private List<String[]> columns;
+
+    /**
+     * Position of each column inside the raw sample fields, or {@link #NOT_RAW}
+     */
+    private List<Integer> rawFieldPositions;
+
+    private CharSequence rawText;
+
+    private int[] rawSampleStarts;
+
+    private int[] rawSampleEnds;
+
+    /**
+     * Distinct genotypes: the genotype with code i is in position i - 1
+     */
+    private List<String> genotypes;
+
+    private Map<String, Integer> genotypeCodes;
+
+    private byte[] sampleGenotypeCodes;
+
+    /**
+     * Only used if there are more distinct genotypes than what a byte can encode, which is very unusual
+     */
+    private int[] wideSampleGenotypeCodes;
+
+    private int capacity;
+
+    private int numberOfSamples;
+
+    /**
+     * Whether the arrays are also used by another matrix
+     */
+    private boolean shared;
+
+    private List<Map<String, String>> listView;
+
+    public SamplesMatrix() {
+        this.fields = new ArrayList<>();
+        this.columnIndexes = new HashMap<>();
+        this.columns = new ArrayList<>();
+        this.rawFieldPositions = new ArrayList<>();
+        this.genotypes = new ArrayList<>();
+        this.genotypeCodes = new HashMap<>();
+        this.capacity = 0;
+        this.numberOfSamples = 0;
+        this.sampleGenotypeCodes = new byte[0];
+        this.shared = false;
+    }
+
+    /**
+     * Creates a matrix whose samples are slices of a text, added with {@link #addRawSample(int, int)}. The fields of
+     * each slice are separated by ':' and follow the order of rawFields.
+     */
+    public SamplesMatrix(String[] rawFields, CharSequence rawText) {
+        this();
+        this.rawText = rawText;
+        this.rawSampleStarts = new int[0];
+        this.rawSampleEnds = new int[0];
+        for (int position = 0; position < rawFields.length; position++) {
+            String field = rawFields[position];
+            if (GENOTYPE_FIELD.equals(field)) {
+                continue;
+            }
+            Integer column = columnIndexes.get(field);
+            if (column == null) {
+                columnIndexes.put(field, fields.size());
+                fields.add(field);
+                columns.add(null);
+                rawFieldPositions.add(position);
+            } else {
+                rawFieldPositions.set(column, position);
+            }
+        }
+    }
+
+    /**
+     * Creates a matrix with the same samples and values, but where every distinct genotype is replaced by the result
+     * of the remapping function. The function is applied once per distinct genotype, not once per sample.
+     */
+    public SamplesMatrix withGenotypes(UnaryOperator<String> remapping) {
+        SamplesMatrix remapped = new SamplesMatrix();
+        remapped.fields = fields;
+        remapped.columnIndexes = columnIndexes;
+        remapped.columns = columns;
+        remapped.rawFieldPositions = rawFieldPositions;
+        remapped.rawText = rawText;
+        remapped.rawSampleStarts = rawSampleStarts;
+        remapped.rawSampleEnds = rawSampleEnds;
+        remapped.sampleGenotypeCodes = sampleGenotypeCodes;
+        remapped.wideSampleGenotypeCodes = wideSampleGenotypeCodes;
+        remapped.capacity = capacity;
+        remapped.numberOfSamples = numberOfSamples;
+        for (String genotype : genotypes) {
+            String remappedGenotype = remapping.apply(genotype);
+            remapped.genotypes.add(remappedGenotype);
+            remapped.genotypeCodes.putIfAbsent(remappedGenotype, remapped.genotypes.size());
+        }
+        this.shared = true;
+        remapped.shared = true;
+        return remapped;
+    }
+
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    public boolean isEmpty() {
+        return numberOfSamples == 0;
+    }
+
+    /**
+     * Appends a sample without any value.
+     *
+     * @return the index of the new sample
+     */
+    public int addSample() {
+        unshare();
+        ensureCapacity(numberOfSamples + 1);
+        if (rawText != null) {
+            rawSampleStarts[numberOfSamples] = NOT_RAW;
+            rawSampleEnds[numberOfSamples] = NOT_RAW;
+        }
+        return numberOfSamples++;
+    }
+
+    /**
+     * Appends a sample whose fields are in the region [start, end) of the raw text. Only the genotype should be set
+     * afterwards, the rest of fields will be decoded when needed.
+     *
+     * @return the index of the new sample
+     */
+    public int addRawSample(int start, int end) {
+        if (rawText == null) {
+            throw new IllegalStateException("This matrix was not created from a raw text");
+        }
+        int sampleIndex = addSample();
+        rawSampleStarts[sampleIndex] = start;
+        rawSampleEnds[sampleIndex] = end;
+        return sampleIndex;
+    }
+
+    /**
+     * Appends a sample given as pairs (field name, field value).
+     *
+     * @return the index of the new sample
+     */
+    public int addSample(Map<String, String> sampleData) {
+        int sampleIndex = addSample();
+        for (Map.Entry<String, String> field : sampleData.entrySet()) {
+            set(sampleIndex, addColumn(field.getKey()), field.getValue());
+        }
+        return sampleIndex;
+    }
+
+    /**
+     * Gets the column of a FORMAT field, creating it if needed. The GT field always returns {@link #GENOTYPE_COLUMN}.
+     */
+    public int addColumn(String field) {
+        if (GENOTYPE_FIELD.equals(field)) {
+            return GENOTYPE_COLUMN;
+        }
+        Integer column = columnIndexes.get(field);
+        if (column == null) {
+            unshare();
+            column = fields.size();
+            fields.add(field);
+            columnIndexes.put(field, column);
+            columns.add(new String[capacity]);
+            rawFieldPositions.add(NOT_RAW);
+        }
+        return column;
+    }
+
+    public void set(int sampleIndex, int column, String value) {
+        checkSampleIndex(sampleIndex);
+        unshare();
+        if (column == GENOTYPE_COLUMN) {
+            setGenotypeCode(sampleIndex, value == null ? NO_GENOTYPE : getOrAddGenotypeCode(value));
+        } else {
+            getColumnValues(column)[sampleIndex] = value;
+        }
+    }
+
+    /**
+     * Sets the GT field of a sample from a region of a text (e.g. a VCF line), only creating a String if the
+     * genotype is not in the dictionary yet.
+     */
+    public void setGenotype(int sampleIndex, CharSequence text, int start, int end) {
+        checkSampleIndex(sampleIndex);
+        unshare();
+        int code = NO_GENOTYPE;
+        if (genotypes.size() <= MAX_GENOTYPES_FOR_LINEAR_SEARCH) {
+            for (int i = 0; i < genotypes.size() && code == NO_GENOTYPE; i++) {
+                if (regionEquals(genotypes.get(i), text, start, end)) {
+                    code = i + 1;
+                }
+            }
+        }
+        if (code == NO_GENOTYPE) {
+            code = getOrAddGenotypeCode(text.subSequence(start, end).toString());
+        }
+        setGenotypeCode(sampleIndex, code);
+    }
+
+    private static boolean regionEquals(String value, CharSequence text, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String get(int sampleIndex, String field) {
+        checkSampleIndex(sampleIndex);
+        if (GENOTYPE_FIELD.equals(field)) {
+            return getGenotype(sampleIndex);
+        }
+        Integer column = columnIndexes.get(field);
+        return column == null ? null : getColumnValues(column)[sampleIndex];
+    }
+
+    /**
+     * @return the GT field of the sample, or null if it has none
+     */
+    public String getGenotype(int sampleIndex) {
+        int code = getGenotypeCode(sampleIndex);
+        return code == NO_GENOTYPE ? null : genotypes.get(code - 1);
+    }
+
+    /**
+     * @return a code between {@link #NO_GENOTYPE} and {@link #getNumberOfGenotypes()}, both included
+     */
+    public int getGenotypeCode(int sampleIndex) {
+        checkSampleIndex(sampleIndex);
+        if (wideSampleGenotypeCodes != null) {
+            return wideSampleGenotypeCodes[sampleIndex];
+        }
+        return sampleGenotypeCodes[sampleIndex] & 0xff;
+    }
+
+    /**
+     * @return the genotype with the given code, e.g. "0/1"
+     */
+    public String getGenotypeByCode(int code) {
+        return code == NO_GENOTYPE ? null : genotypes.get(code - 1);
+    }
+
+    /**
+     * @return number of distinct genotypes, which is also the highest genotype code
+     */
+    public int getNumberOfGenotypes() {
+        return genotypes.size();
+    }
+
+    /**
+     * Counts how many samples have each genotype, indexed by genotype code (position 0 counts {@link #NO_GENOTYPE}).
+     */
+    public int[] countGenotypeCodes() {
+        int[] counts = new int[genotypes.size() + 1];
+        for (int i = 0; i < numberOfSamples; i++) {
+            counts[getGenotypeCode(i)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Builds the pairs (field name, field value) of a sample. The returned map can't be modified.
+     */
+    public Map<String, String> getSample(int sampleIndex) {
+        checkSampleIndex(sampleIndex);
+        Map<String, String> sample = new TreeMap<>();
+        String genotype = getGenotype(sampleIndex);
+        if (genotype != null) {
+            sample.put(GENOTYPE_FIELD, genotype);
+        }
+        for (int column = 0; column < fields.size(); column++) {
+            String value = getColumnValues(column)[sampleIndex];
+            if (value != null) {
+                sample.put(fields.get(column), value);
+            }
+        }
+        return Collections.unmodifiableMap(sample);
+    }
+
+    /**
+     * Read-only view of the samples as one map per sample. Each map is built when it's requested.
+     */
+    public List<Map<String, String>> asList() {
+        if (listView == null) {
+            listView = new AbstractList<Map<String, String>>() {
+                @Override
+                public Map<String, String> get(int index) {
+                    return getSample(index);
+                }
+
+                @Override
+                public int size() {
+                    return numberOfSamples;
+                }
+            };
+        }
+        return listView;
+    }
+
+    private String[] getColumnValues(int column) {
+        String[] values = columns.get(column);
+        if (values == null) {
+            values = new String[capacity];
+            int position = rawFieldPositions.get(column);
+            for (int i = 0; i < numberOfSamples; i++) {
+                values[i] = decodeRawField(i, position);
+            }
+            if (shared) {
+                // the list is also used by other matrices, which may be read at the same time from other threads
+                columns = new ArrayList<>(columns);
+            }
+            columns.set(column, values);
+        }
+        return values;
+    }
+
+    /**
+     * @return the field in the given position of the raw sample, or null if the sample doesn't have it
+     */
+    private String decodeRawField(int sampleIndex, int position) {
+        int start = rawSampleStarts[sampleIndex];
+        int end = rawSampleEnds[sampleIndex];
+        if (start == NOT_RAW) {
+            return null;
+        }
+
+        // Trailing empty fields are ignored, as String.split does
+        int trimmedEnd = end;
+        while (trimmedEnd > start && rawText.charAt(trimmedEnd - 1) == RAW_FIELD_SEPARATOR) {
+            trimmedEnd--;
+        }
+        if (trimmedEnd == start && end > start) {
+            return null;
+        }
+
+        int fieldStart = start;
+        for (int i = 0; i < position; i++) {
+            int separator = indexOfSeparator(fieldStart, trimmedEnd);
+            if (separator == trimmedEnd) {
+                return null;
+            }
+            fieldStart = separator + 1;
+        }
+        return rawText.subSequence(fieldStart, indexOfSeparator(fieldStart, trimmedEnd)).toString();
+    }
+
+    private int indexOfSeparator(int start, int end) {
+        int index = start;
+        while (index < end && rawText.charAt(index) != RAW_FIELD_SEPARATOR) {
+            index++;
+        }
+        return index;
+    }
+
+    private int getOrAddGenotypeCode(String genotype) {
+        Integer code = genotypeCodes.get(genotype);
+        if (code == null) {
+            genotypes.add(genotype);
+            code = genotypes.size();
+            genotypeCodes.put(genotype, code);
+        }
+        return code;
+    }
+
+    private void setGenotypeCode(int sampleIndex, int code) {
+        if (wideSampleGenotypeCodes == null && code > MAX_BYTE_GENOTYPE_CODE) {
+            wideSampleGenotypeCodes = new int[capacity];
+            for (int i = 0; i < numberOfSamples; i++) {
+                wideSampleGenotypeCodes[i] = sampleGenotypeCodes[i] & 0xff;
+            }
+            sampleGenotypeCodes = null;
+        }
+        if (wideSampleGenotypeCodes != null) {
+            wideSampleGenotypeCodes[sampleIndex] = code;
+        } else {
+            sampleGenotypeCodes[sampleIndex] = (byte) code;
+        }
+    }
+
+    /**
+     * Copies the arrays used by other matrices, so this one can be modified.
+     */
+    private void unshare() {
+        if (!shared) {
+            return;
+        }
+        fields = new ArrayList<>(fields);
+        columnIndexes = new HashMap<>(columnIndexes);
+        List<String[]> copiedColumns = new ArrayList<>(columns.size());
+        for (String[] column : columns) {
+            copiedColumns.add(column == null ? null : column.clone());
+        }
+        columns = copiedColumns;
+        rawFieldPositions = new ArrayList<>(rawFieldPositions);
+        if (rawText != null) {
+            rawSampleStarts = rawSampleStarts.clone();
+            rawSampleEnds = rawSampleEnds.clone();
+        }
+        if (wideSampleGenotypeCodes != null) {
+            wideSampleGenotypeCodes = wideSampleGenotypeCodes.clone();
+        } else {
+            sampleGenotypeCodes = sampleGenotypeCodes.clone();
+        }
+        shared = false;
+    }
+
+    private void ensureCapacity(int minimumCapacity) {
+        if (minimumCapacity <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(Math.max(capacity * 2, INITIAL_CAPACITY), minimumCapacity);
+        if (wideSampleGenotypeCodes != null) {
+            wideSampleGenotypeCodes = Arrays.copyOf(wideSampleGenotypeCodes, newCapacity);
+        } else {
+            sampleGenotypeCodes = Arrays.copyOf(sampleGenotypeCodes, newCapacity);
+        }
+        for (int column = 0; column < columns.size(); column++) {
+            if (columns.get(column) != null) {
+                columns.set(column, Arrays.copyOf(columns.get(column), newCapacity));
+            }
+        }
+        if (rawText != null) {
+            rawSampleStarts = Arrays.copyOf(rawSampleStarts, newCapacity);
+            rawSampleEnds = Arrays.copyOf(rawSampleEnds, newCapacity);
+        }
+        capacity = newCapacity;
+    }
+
+    private void checkSampleIndex(int sampleIndex) {
+        if (sampleIndex < 0 || sampleIndex >= numberOfSamples) {
+            throw new IndexOutOfBoundsException("Sample " + sampleIndex + " out of " + numberOfSamples + " samples");
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return asList().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final SamplesMatrix other = (SamplesMatrix) obj;
+        return asList().equals(other.asList());
+    }
+
+    @Override
+    public String toString() {
+        return asList().toString();
+    }
+}
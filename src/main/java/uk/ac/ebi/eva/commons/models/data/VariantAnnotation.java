@@ -135,4 +135,23 @@ public class VariantAnnotation {
     public void setConsequenceTypes(List<ConsequenceType> consequenceTypes) {
         this.consequenceTypes = consequenceTypes;
     }
+
+    /**
+     * Appends the consequence types and HGVS of another annotation of the same variant, e.g. from another line of the
+     * VEP output.
+     */
+    public void concatenate(VariantAnnotation otherAnnotation) {
+        if (otherAnnotation.getConsequenceTypes() != null) {
+            if (consequenceTypes == null) {
+                consequenceTypes = new ArrayList<>();
+            }
+            consequenceTypes.addAll(otherAnnotation.getConsequenceTypes());
+        }
+        if (otherAnnotation.getHgvs() != null) {
+            if (hgvs == null) {
+                hgvs = new ArrayList<>();
+            }
+            hgvs.addAll(otherAnnotation.getHgvs());
+        }
+    }
 }
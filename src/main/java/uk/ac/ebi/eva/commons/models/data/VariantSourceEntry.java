@@ -16,7 +16,6 @@
  */
 package uk.ac.ebi.eva.commons.models.data;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -50,11 +49,11 @@ public class VariantSourceEntry {
     private String format;
 
     /**
-     * Genotypes and other sample-related information. The keys are the names
-     * of the samples. The values are pairs (field name, field value), such as
-     * (GT, A/C).
+     * Genotypes and other sample-related information, indexed by the position
+     * of the sample in the file. Each sample has pairs (field name, field
+     * value), such as (GT, A/C).
      */
-    private List<Map<String, String>> samplesData;
+    private SamplesMatrix samplesData;
 
     /**
      * Statistics of the genomic variation, such as its alleles/genotypes count
@@ -85,7 +84,7 @@ public class VariantSourceEntry {
         this.secondaryAlternates = secondaryAlternates;
         this.format = format;
 
-        this.samplesData = new ArrayList<>();
+        this.samplesData = new SamplesMatrix();
         this.attributes = new LinkedHashMap<>();
         this.cohortStats = new LinkedHashMap<>();
     }
@@ -122,16 +121,28 @@ public class VariantSourceEntry {
         this.format = format;
     }
 
+    /**
+     * @return read-only view of the samples, building the map of each sample when it is requested. Prefer
+     * {@link #getSamplesMatrix()} when iterating over many samples
+     */
     public List<Map<String, String>> getSamplesData() {
+        return samplesData.asList();
+    }
+
+    public SamplesMatrix getSamplesMatrix() {
         return samplesData;
     }
 
+    public void setSamplesMatrix(SamplesMatrix samplesData) {
+        this.samplesData = samplesData;
+    }
+
     public String getSampleData(int sampleIndex, String field) {
-        return getSampleData(sampleIndex).get(field.toUpperCase());
+        return samplesData.get(sampleIndex, field.toUpperCase());
     }
 
     public Map<String, String> getSampleData(int sampleIndex) {
-        return samplesData.get(sampleIndex);
+        return samplesData.getSample(sampleIndex);
     }
 
     /**
@@ -141,8 +152,7 @@ public class VariantSourceEntry {
      * @return The index where the sample was inserted
      */
     public int addSampleData(Map<String, String> sampleData) {
-        this.samplesData.add(sampleData);
-        return this.samplesData.size() - 1;
+        return this.samplesData.addSample(sampleData);
     }
 
     public VariantStats getStats() {
@@ -35,6 +35,8 @@ import java.util.Objects;
  */
 public class VariantStats {
 
+    private static final String MISSING_GENOTYPE = "./.";
+
     private String refAllele;
 
     private String altAllele;
@@ -400,74 +402,83 @@ public class VariantStats {
                 + '}';
     }
 
-    public VariantStats calculate(List<Map<String, String>> samplesData, Map<String, String> attributes,
-                                  Pedigree pedigree) {
+    /**
+     * Each distinct genotype is parsed only once, and then counted as many times as samples have it. Samples without
+     * a GT field are counted as missing genotypes, the same as "./.".
+     */
+    public VariantStats calculate(SamplesMatrix samples, Map<String, String> attributes, Pedigree pedigree) {
         int[] allelesCount = new int[2];
         int totalAllelesCount = 0, totalGenotypesCount = 0;
 
         float controlsDominant = 0, casesDominant = 0;
         float controlsRecessive = 0, casesRecessive = 0;
 
-        this.setNumSamples(samplesData.size());
+        this.setNumSamples(samples.getNumberOfSamples());
         this.setMissingAlleles(0);
         this.setMissingGenotypes(0);
         if (pedigree != null) {
             this.setMendelianErrors(0);
         }
 
-        for (Map<String, String> sample : samplesData) {
-            Genotype g = new Genotype(sample.get("GT"), this.getRefAllele(), this.getAltAllele());
-            this.addGenotype(g);
+        int homozygousRef = 0, heterozygous = 0, homozygousAlt = 0;
+        int[] samplesPerGenotype = samples.countGenotypeCodes();
+        for (int code = 0; code < samplesPerGenotype.length; code++) {
+            int count = samplesPerGenotype[code];
+            if (count == 0) {
+                continue;
+            }
+            String genotype = code == SamplesMatrix.NO_GENOTYPE ? MISSING_GENOTYPE : samples.getGenotypeByCode(code);
+            Genotype g = new Genotype(genotype, this.getRefAllele(), this.getAltAllele());
+            this.addGenotype(g, count);
 
             // Check missing alleles and genotypes
             switch (g.getCode()) {
                 case ALLELES_OK:
                     // Both alleles set
-                    allelesCount[g.getAllele(0)]++;
-                    allelesCount[g.getAllele(1)]++;
+                    allelesCount[g.getAllele(0)] += count;
+                    allelesCount[g.getAllele(1)] += count;
 
-                    totalAllelesCount += 2;
-                    totalGenotypesCount++;
+                    totalAllelesCount += 2 * count;
+                    totalGenotypesCount += count;
 
                     // Counting genotypes for Hardy-Weinberg (all phenotypes)
                     if (g.isAlleleRef(0) && g.isAlleleRef(1)) { // 0|0
-                        this.getHw().incN_AA();
+                        homozygousRef += count;
                     } else if ((g.isAlleleRef(0) && g.getAllele(1) == 1)
                             || (g.getAllele(0) == 1 && g.isAlleleRef(1))) {  // 0|1, 1|0
-                        this.getHw().incN_Aa();
-
+                        heterozygous += count;
                     } else if (g.getAllele(0) == 1 && g.getAllele(1) == 1) {
-                        this.getHw().incN_aa();
+                        homozygousAlt += count;
                     }
 
                     break;
                 case HAPLOID:
                     // Haploid (chromosome X/Y)
-                    allelesCount[g.getAllele(0)]++;
-                    totalAllelesCount++;
+                    allelesCount[g.getAllele(0)] += count;
+                    totalAllelesCount += count;
                     break;
                 case MULTIPLE_ALTERNATES:
                     // Alternate with different "index" than the one that is being handled
                     break;
                 default:
                     // Missing genotype (one or both alleles missing)
-                    this.setMissingGenotypes(this.getMissingGenotypes() + 1);
+                    this.setMissingGenotypes(this.getMissingGenotypes() + count);
                     if (g.getAllele(0) < 0) {
-                        this.setMissingAlleles(this.getMissingAlleles() + 1);
+                        this.setMissingAlleles(this.getMissingAlleles() + count);
                     } else {
-                        allelesCount[g.getAllele(0)]++;
-                        totalAllelesCount++;
+                        allelesCount[g.getAllele(0)] += count;
+                        totalAllelesCount += count;
                     }
 
                     if (g.getAllele(1) < 0) {
-                        this.setMissingAlleles(this.getMissingAlleles() + 1);
+                        this.setMissingAlleles(this.getMissingAlleles() + count);
                     } else {
-                        allelesCount[g.getAllele(1)]++;
-                        totalAllelesCount++;
+                        allelesCount[g.getAllele(1)] += count;
+                        totalAllelesCount += count;
                     }
                     break;
             }
-        }  // Finish all samples loop
+        }  // Finish all genotypes loop
 
         // Set counts for each allele
         this.setRefAlleleCount(allelesCount[0]);
@@ -478,6 +489,9 @@ public class VariantStats {
         this.calculateGenotypeFrequencies(totalGenotypesCount);
 
         // Calculate Hardy-Weinberg statistic
+        this.getHw().setN_AA(homozygousRef);
+        this.getHw().setN_Aa(heterozygous);
+        this.getHw().setN_aa(homozygousAlt);
         this.getHw().calculate();
 
         // Update variables finally used to update file_stats_t structure
@@ -520,7 +534,7 @@ public class VariantStats {
         for (Variant variant : variants) {
             for (VariantSourceEntry file : variant.getSourceEntries().values()) {
                 VariantStats stats = new VariantStats(variant)
-                        .calculate(file.getSamplesData(), file.getAttributes(), ped);
+                        .calculate(file.getSamplesMatrix(), file.getAttributes(), ped);
                 file.setStats(stats); // TODO Correct?
             }
         }
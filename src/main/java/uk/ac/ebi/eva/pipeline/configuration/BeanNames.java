@@ -24,11 +24,16 @@ public class BeanNames {
     public static final String NON_ANNOTATED_VARIANTS_READER = "non-annotated-variants-reader";
     public static final String VARIANT_ANNOTATION_READER = "variant-annotation-reader";
     public static final String VARIANT_READER = "variant-reader";
+    public static final String STRING_ID_VARIANTS_READER = "string-id-variants-reader";
+    public static final String VEP_ANNOTATION_STREAM_READER = "vep-annotation-stream-reader";
 
     public static final String GENE_WRITER = "gene-writer";
     public static final String VEP_INPUT_WRITER = "vep-input-writer";
     public static final String VARIANT_ANNOTATION_WRITER = "variant-annotation-writer";
     public static final String VARIANT_WRITER = "variant-writer";
+    public static final String COMPACT_ID_VARIANTS_WRITER = "compact-id-variants-writer";
+
+    public static final String VARIANT_WRITER_MONGO_CLIENT = "variant-writer-mongo-client";
 
     public static final String ANNOTATION_SKIP_STEP_DECIDER = "annotation-skip-step-decider";
     public static final String STATISTICS_SKIP_STEP_DECIDER = "statistics-skip-step-decider";
@@ -38,19 +43,29 @@ public class BeanNames {
     public static final String PARALLEL_STATISTICS_AND_ANNOTATION = "parallel-statistics-and-annotation-flow";
     public static final String CALCULATE_STATISTICS_FLOW = "calculate-statistics-flow";
     public static final String CALCULATE_STATISTICS_OPTIONAL_FLOW = "calculate-statistics-optional-flow";
+    public static final String LOAD_VARIANTS_FLOW = "load-variants-flow";
 
     public static final String LOAD_VEP_ANNOTATION_STEP = "load-vep-annotation-step";
+    public static final String STREAM_VEP_ANNOTATION_STEP = "stream-vep-annotation-step";
     public static final String CALCULATE_STATISTICS_STEP = "calculate-statistics-step";
     public static final String CREATE_DATABASE_INDEXES_STEP = "create-database-indexes-step";
+    public static final String CREATE_VARIANT_INDEXES_STEP = "create-variant-indexes-step";
     public static final String GENES_LOAD_STEP = "genes-load-step";
     public static final String GENERATE_VEP_ANNOTATION_STEP = "generate-vep-annotation";
+    public static final String GENERATE_VEP_ANNOTATION_PARTITIONED_STEP = "generate-vep-annotation-partitioned-step";
+    public static final String GENERATE_VEP_ANNOTATION_PARTITION_STEP = "generate-vep-annotation-partition-step";
+    public static final String MERGE_VEP_ANNOTATION_STEP = "merge-vep-annotation-step";
     public static final String LOAD_STATISTICS_STEP = "load-statistics-step";
     public static final String LOAD_VARIANTS_STEP = "load-variants-step";
+    public static final String LOAD_VARIANTS_PARTITIONED_STEP = "load-variants-partitioned-step";
+    public static final String LOAD_VARIANTS_PARTITION_STEP = "load-variants-partition-step";
     public static final String LOAD_FILE_STEP = "load-file-step";
     public static final String GENERATE_VEP_INPUT_STEP = "generate-vep-input-step";
     public static final String DROP_SINGLE_STUDY_VARIANTS_STEP = "drop-single-study-variants-step";
     public static final String PULL_FILES_AND_STATISTICS_BY_STUDY_STEP = "pull-files-and-statistics-by-study-step";
     public static final String DROP_FILES_BY_STUDY_STEP = "drop-files-by-study-step";
+    public static final String MIGRATE_VARIANT_IDS_STEP = "migrate-variant-ids-step";
+    public static final String CREATE_COMPACT_VARIANT_INDEXES_STEP = "create-compact-variant-indexes-step";
 
     public static final String AGGREGATED_VCF_JOB = "aggregated-vcf-job";
     public static final String ANNOTATE_VARIANTS_JOB = "annotate-variants-job";
@@ -58,4 +73,5 @@ public class BeanNames {
     public static final String GENOTYPED_VCF_JOB = "genotyped-vcf-job";
     public static final String CALCULATE_STATISTICS_JOB = "calculate-statistics-job";
     public static final String DROP_STUDY_JOB = "drop-study-job";
+    public static final String MIGRATE_VARIANT_IDS_JOB = "migrate-variant-ids-job";
 }
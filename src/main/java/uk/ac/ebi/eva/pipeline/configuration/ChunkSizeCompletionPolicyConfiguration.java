@@ -16,22 +16,28 @@
 package uk.ac.ebi.eva.pipeline.configuration;
 
 import org.springframework.batch.core.configuration.annotation.StepScope;
-import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
 import uk.ac.ebi.eva.pipeline.parameters.ChunkSizeParameters;
 
 /**
- * Spring configuration to inject a SimplecompletionPolicy that modifies the chunk size with the configured
- * JobParameters chunk size.
+ * Spring configuration to inject a completion policy that uses the configured JobParameters chunk size, and adapts it
+ * while the step runs if requested. The policy must be registered as a listener of the step as well.
  */
 @Configuration
 public class ChunkSizeCompletionPolicyConfiguration {
 
     @Bean
     @StepScope
-    public SimpleCompletionPolicy chunkSizecompletionPolicy(ChunkSizeParameters chunkSizeParameters) {
-        return new SimpleCompletionPolicy(chunkSizeParameters.getChunkSize());
+    public AdaptiveChunkSizeCompletionPolicy chunkSizecompletionPolicy(ChunkSizeParameters chunkSizeParameters) {
+        if (chunkSizeParameters.isAdaptive()) {
+            return new AdaptiveChunkSizeCompletionPolicy(chunkSizeParameters.getChunkSize(),
+                                                         chunkSizeParameters.getMinChunkSize(),
+                                                         chunkSizeParameters.getMaxChunkSize());
+        } else {
+            return new AdaptiveChunkSizeCompletionPolicy(chunkSizeParameters.getChunkSize());
+        }
     }
 
 }
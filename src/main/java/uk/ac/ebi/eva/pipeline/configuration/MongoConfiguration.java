@@ -16,10 +16,14 @@
 package uk.ac.ebi.eva.pipeline.configuration;
 
 import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoCredential;
+import com.mongodb.WriteConcern;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
@@ -28,15 +32,23 @@ import org.springframework.data.mongodb.core.convert.DbRefResolver;
 import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import uk.ac.ebi.eva.pipeline.listeners.JournalBarrierListener;
 import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
 import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
 import uk.ac.ebi.eva.utils.MongoDBHelper;
 
 import java.net.UnknownHostException;
 import java.util.Collections;
+import java.util.Objects;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_WRITER_MONGO_CLIENT;
 
 /**
  * Utility class dealing with MongoDB connections using pipeline options
+ * <p>
+ * A single client, with its pool of connections, is shared by all the steps of the application. Each step gets its
+ * own template, because the database to use is a job parameter, and so are the write concerns of the template.
+ * The variant writer is the exception, see {@link #variantWriterMongoClient(MongoConnection)}.
  */
 @Configuration
 public class MongoConfiguration {
@@ -46,18 +58,64 @@ public class MongoConfiguration {
         return new MongoMappingContext();
     }
 
+    @Bean(destroyMethod = "close")
+    @Primary
+    public MongoClient mongoClient(MongoConnection mongoConnection) throws UnknownHostException {
+        return getMongoClient(mongoConnection);
+    }
+
+    /**
+     * Client only used by the variant writer, which sets an encoder in its handle of the variants collection to send
+     * the documents that are already serialized. The databases of a client cache the handles of their collections, so
+     * the encoder would otherwise apply to everyone that uses that collection through the shared client. It is only
+     * created when a step writes variants, and all of them (e.g. the partitions of a step) share it.
+     */
+    @Bean(name = VARIANT_WRITER_MONGO_CLIENT, destroyMethod = "close")
+    @Lazy
+    public MongoClient variantWriterMongoClient(MongoConnection mongoConnection) throws UnknownHostException {
+        return getMongoClient(mongoConnection);
+    }
+
     @Bean
     @StepScope
-    public MongoOperations mongoTemplate(DatabaseParameters databaseParameters, MongoMappingContext mongoMappingContext)
-            throws UnknownHostException {
-        return getMongoOperations(databaseParameters.getDatabaseName(),databaseParameters.getMongoConnection(),
-                mongoMappingContext);
+    public MongoOperations mongoTemplate(DatabaseParameters databaseParameters, MongoClient mongoClient,
+                                         MongoMappingContext mongoMappingContext) {
+        MongoTemplate mongoTemplate = getMongoOperations(databaseParameters.getDatabaseName(), mongoClient,
+                                                         mongoMappingContext);
+        String filesCollectionName = databaseParameters.getCollectionFilesName();
+        WriteConcern metadataWriteConcern = databaseParameters.getMetadataWriteConcern();
+        WriteConcern loadWriteConcern = databaseParameters.getLoadWriteConcern();
+        mongoTemplate.setWriteConcernResolver(action -> {
+            WriteConcern writeConcern = Objects.equals(filesCollectionName, action.getCollectionName()) ?
+                    metadataWriteConcern : loadWriteConcern;
+            return writeConcern != null ? writeConcern : action.getDefaultWriteConcern();
+        });
+        return mongoTemplate;
+    }
+
+    /**
+     * Waits for the journal after writing each chunk when the load steps use a write concern that doesn't wait for
+     * it, so that the chunks committed in the job repository are never lost.
+     */
+    @Bean
+    @StepScope
+    public JournalBarrierListener journalBarrierListener(DatabaseParameters databaseParameters,
+                                                         MongoClient mongoClient) {
+        return new JournalBarrierListener(mongoClient, databaseParameters.getLoadWriteConcern());
     }
 
+    /**
+     * Creates a template with its own client. Use the one from the application context where possible, so the
+     * connections are reused.
+     */
     public static MongoOperations getMongoOperations(String databaseName, MongoConnection mongoConnection,
                                                      MongoMappingContext mongoMappingContext)
             throws UnknownHostException {
-        MongoClient mongoClient = getMongoClient(mongoConnection);
+        return getMongoOperations(databaseName, getMongoClient(mongoConnection), mongoMappingContext);
+    }
+
+    public static MongoTemplate getMongoOperations(String databaseName, MongoClient mongoClient,
+                                                   MongoMappingContext mongoMappingContext) {
         MongoDbFactory mongoFactory = getMongoDbFactory(mongoClient, databaseName);
         MappingMongoConverter mappingMongoConverter = getMappingMongoConverter(mongoFactory, mongoMappingContext);
         return new MongoTemplate(mongoFactory, mappingMongoConverter);
@@ -85,19 +143,40 @@ public class MongoConfiguration {
             password = mongoConnection.getPassword();
         }
         
+        MongoClientOptions options = getMongoClientOptions(mongoConnection);
         if (user == null || password == null) {
-            mongoClient = new MongoClient(MongoDBHelper.parseServerAddresses(mongoConnection.getHosts()));
+            mongoClient = new MongoClient(MongoDBHelper.parseServerAddresses(mongoConnection.getHosts()), options);
         } else {
             mongoClient = new MongoClient(
                     MongoDBHelper.parseServerAddresses(mongoConnection.getHosts()),
                     Collections.singletonList(MongoCredential.createCredential(mongoConnection.getUser(),
-                            authenticationDatabase, mongoConnection.getPassword().toCharArray())));
+                            authenticationDatabase, mongoConnection.getPassword().toCharArray())),
+                    options);
         }
-        mongoClient.setReadPreference(mongoConnection.getReadPreference());
 
         return mongoClient;
     }
 
+    private static MongoClientOptions getMongoClientOptions(MongoConnection mongoConnection) {
+        MongoClientOptions.Builder options = MongoClientOptions.builder()
+                .readPreference(mongoConnection.getReadPreference());
+
+        WriteConcern writeConcern = mongoConnection.getWriteConcern();
+        if (writeConcern != null) {
+            options.writeConcern(writeConcern);
+        }
+        if (mongoConnection.getConnectionsPerHost() != null) {
+            options.connectionsPerHost(mongoConnection.getConnectionsPerHost());
+        }
+        if (mongoConnection.getConnectTimeout() != null) {
+            options.connectTimeout(mongoConnection.getConnectTimeout());
+        }
+        if (mongoConnection.getSocketTimeout() != null) {
+            options.socketTimeout(mongoConnection.getSocketTimeout());
+        }
+        return options.build();
+    }
+
     private static MappingMongoConverter getMappingMongoConverter(MongoDbFactory mongoFactory,
                                                                   MongoMappingContext mongoMappingContext) {
         DbRefResolver dbRefResolver = new DefaultDbRefResolver(mongoFactory);
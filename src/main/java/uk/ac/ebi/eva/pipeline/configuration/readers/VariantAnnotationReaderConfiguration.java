@@ -21,9 +21,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
 import uk.ac.ebi.eva.pipeline.io.readers.AnnotationFlatFileReader;
+import uk.ac.ebi.eva.pipeline.io.readers.GroupingVariantAnnotationReader;
 import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
 
+import java.io.File;
+
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_ANNOTATION_READER;
 
 /**
@@ -32,10 +36,22 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_ANNOTATION_
 @Configuration
 public class VariantAnnotationReaderConfiguration {
 
+    /**
+     * The lines of each variant are merged into one annotation. When there is an annotation cache, the annotations
+     * read are added to it.
+     */
     @Bean(VARIANT_ANNOTATION_READER)
     @StepScope
     public ItemStreamReader<VariantAnnotation> variantAnnotationReader(AnnotationParameters annotationParameters) {
-        return new AnnotationFlatFileReader(annotationParameters.getVepOutput());
+        if (annotationParameters.getAnnotationCachePath() == null) {
+            return new GroupingVariantAnnotationReader(
+                    new AnnotationFlatFileReader(annotationParameters.getVepOutput()));
+        }
+        AnnotationCache annotationCache = new AnnotationCache(new File(annotationParameters.getAnnotationCachePath()),
+                                                              annotationParameters.getVepCacheSpecies(),
+                                                              annotationParameters.getVepCacheVersion());
+        return new GroupingVariantAnnotationReader(
+                new AnnotationFlatFileReader(annotationParameters.getVepOutput(), annotationCache));
     }
 
 }
@@ -15,55 +15,58 @@
  */
 package uk.ac.ebi.eva.pipeline.configuration.readers;
 
-import org.opencb.biodata.models.variant.VariantSource;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import uk.ac.ebi.eva.commons.models.data.Variant;
-import uk.ac.ebi.eva.pipeline.io.readers.AggregatedVcfReader;
-import uk.ac.ebi.eva.pipeline.io.readers.UnwindingItemStreamReader;
-import uk.ac.ebi.eva.pipeline.io.readers.VcfReader;
+import org.springframework.core.io.Resource;
+import uk.ac.ebi.eva.pipeline.io.BgzfLazyResource;
+import uk.ac.ebi.eva.pipeline.io.readers.VcfLineReader;
+import uk.ac.ebi.eva.pipeline.model.VcfLine;
 import uk.ac.ebi.eva.pipeline.parameters.InputParameters;
+import uk.ac.ebi.eva.utils.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_READER;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.REGION_END_VIRTUAL_OFFSET;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.REGION_START_VIRTUAL_OFFSET;
 
 /**
- * Configuration to inject a VcfReader as a Variant Reader bean.
+ * Configuration to inject a VcfLineReader as a Variant Reader bean. The lines are parsed by a
+ * {@link uk.ac.ebi.eva.pipeline.jobs.steps.processors.VcfLineProcessor}.
  */
 @Configuration
 public class VcfReaderConfiguration {
 
-    @Bean(VARIANT_READER)
-    @StepScope
-    public ItemStreamReader<Variant> unwindingReader(VcfReader vcfReader) {
-        return new UnwindingItemStreamReader<>(vcfReader);
-    }
+    private static final String STEP_CONTEXT = "#{stepExecutionContext['";
+    private static final String END = "']}";
 
     /**
-     * The aggregation type is passed so that spring won't cache the instance of VcfReader if it is already built
-     * with other aggregation type.
+     * When the step is a partition created by
+     * {@link uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VcfIndexPartitioner} only the region of the partition is
+     * read.
      *
-     * @return a VcfReader for the given aggregation type.
+     * @return a VcfLineReader for the whole file or the region of the partition.
      * @throws IOException if the file doesn't exist, because it has to be read to see if it's compressed.
      */
-    @Bean
+    @Bean(VARIANT_READER)
     @StepScope
-    public VcfReader vcfReader(InputParameters parameters) throws IOException {
-        String fileId = parameters.getVcfId();
-        String studyId = parameters.getStudyId();
+    public ItemStreamReader<VcfLine> vcfLineReader(
+            InputParameters parameters,
+            @Value(STEP_CONTEXT + REGION_START_VIRTUAL_OFFSET + END) Long regionStart,
+            @Value(STEP_CONTEXT + REGION_END_VIRTUAL_OFFSET + END) Long regionEnd) throws IOException {
         File vcfFile = new File(parameters.getVcf());
-        VariantSource.Aggregation vcfAggregation = parameters.getVcfAggregation();
 
-        if (VariantSource.Aggregation.NONE.equals(vcfAggregation)) {
-            return new VcfReader(fileId, studyId, vcfFile);
+        Resource resource;
+        if (regionStart != null && regionEnd != null) {
+            resource = new BgzfLazyResource(vcfFile, regionStart, regionEnd);
         } else {
-            return new AggregatedVcfReader(fileId, studyId, vcfAggregation, parameters.getAggregatedMappingFile(),
-                    vcfFile);
+            resource = FileUtils.getResource(vcfFile);
         }
+        return new VcfLineReader(resource);
     }
 
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration.readers;
+
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
+import uk.ac.ebi.eva.pipeline.io.readers.GroupingVariantAnnotationReader;
+import uk.ac.ebi.eva.pipeline.io.readers.VepAnnotationStreamReader;
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+import uk.ac.ebi.eva.pipeline.parameters.ChunkSizeParameters;
+import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
+import uk.ac.ebi.eva.pipeline.parameters.InputParameters;
+
+import java.io.File;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_STREAM_READER;
+
+/**
+ * Configuration to inject a VepAnnotationStreamReader bean that annotates the variants of a mongo database with VEP
+ */
+@Configuration
+public class VepAnnotationStreamReaderConfiguration {
+
+    /**
+     * The annotations of a whole chunk can be parsed while the previous one is written, and the lines of each variant
+     * are merged into one annotation. When there is an annotation cache, the annotations written by VEP are added to
+     * it.
+     */
+    @Bean(VEP_ANNOTATION_STREAM_READER)
+    @StepScope
+    public ItemStreamReader<VariantAnnotation> vepAnnotationStreamReader(MongoOperations mongoOperations,
+                                                                         DatabaseParameters databaseParameters,
+                                                                         InputParameters inputParameters,
+                                                                         AnnotationParameters annotationParameters,
+                                                                         ChunkSizeParameters chunkSizeParameters) {
+        int bufferSize = chunkSizeParameters.isAdaptive() ? chunkSizeParameters.getMaxChunkSize()
+                : chunkSizeParameters.getChunkSize();
+        VepAnnotationStreamReader reader = new VepAnnotationStreamReader(
+                mongoOperations,
+                databaseParameters.getCollectionVariantsName(),
+                inputParameters.getStudyId(),
+                annotationParameters.getVepCommand(null),
+                new File(annotationParameters.getVepOutput() + ".errors.txt"),
+                bufferSize);
+        if (annotationParameters.getAnnotationCachePath() != null) {
+            reader.setAnnotationCache(new AnnotationCache(new File(annotationParameters.getAnnotationCachePath()),
+                                                          annotationParameters.getVepCacheSpecies(),
+                                                          annotationParameters.getVepCacheVersion()));
+        }
+        return new GroupingVariantAnnotationReader(reader);
+    }
+
+}
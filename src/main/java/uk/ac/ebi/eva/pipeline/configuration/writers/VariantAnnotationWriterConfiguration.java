@@ -37,6 +37,11 @@ public class VariantAnnotationWriterConfiguration {
     @Profile(Application.VARIANT_ANNOTATION_MONGO_PROFILE)
     public ItemWriter<VariantAnnotation> variantAnnotationItemWriter(MongoOperations mongoOperations,
                                                                      DatabaseParameters databaseParameters) {
-        return new VepAnnotationMongoWriter(mongoOperations, databaseParameters.getCollectionVariantsName());
+        VepAnnotationMongoWriter writer = new VepAnnotationMongoWriter(mongoOperations,
+                                                                       databaseParameters.getCollectionVariantsName(),
+                                                                       databaseParameters.isCompactIds());
+        writer.setWriteConcern(databaseParameters.getLoadWriteConcern());
+        writer.setWriteRetries(databaseParameters.getWriteRetries());
+        return writer;
     }
 }
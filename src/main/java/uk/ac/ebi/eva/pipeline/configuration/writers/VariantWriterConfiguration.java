@@ -15,37 +15,76 @@
  */
 package uk.ac.ebi.eva.pipeline.configuration.writers;
 
+import com.mongodb.MongoClient;
 import org.opencb.biodata.models.variant.VariantSource;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.pipeline.Application;
+import uk.ac.ebi.eva.pipeline.configuration.MongoConfiguration;
 import uk.ac.ebi.eva.pipeline.io.writers.VariantMongoWriter;
 import uk.ac.ebi.eva.pipeline.model.converters.data.VariantToMongoDbObjectConverter;
+import uk.ac.ebi.eva.pipeline.model.converters.data.VariantToRawDBObjectConverter;
+import uk.ac.ebi.eva.pipeline.parameters.ConcurrencyParameters;
 import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
 import uk.ac.ebi.eva.pipeline.parameters.InputParameters;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_WRITER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_WRITER_MONGO_CLIENT;
 
 @Configuration
 public class VariantWriterConfiguration {
 
+    /**
+     * The writer gets a template of its own client, see {@link MongoConfiguration#variantWriterMongoClient}
+     */
     @Bean(VARIANT_WRITER)
     @StepScope
     @Profile(Application.VARIANT_WRITER_MONGO_PROFILE)
-    public ItemWriter<Variant> variantMongoWriter(InputParameters inputParameters, MongoOperations mongoOperations,
-                                                  DatabaseParameters databaseParameters) {
-        return new VariantMongoWriter(databaseParameters.getCollectionVariantsName(), mongoOperations,
-                variantToMongoDbObjectConverter(inputParameters));
+    public ItemWriter<Variant> variantMongoWriter(InputParameters inputParameters,
+                                                  @Qualifier(VARIANT_WRITER_MONGO_CLIENT) MongoClient mongoClient,
+                                                  MongoMappingContext mongoMappingContext,
+                                                  DatabaseParameters databaseParameters,
+                                                  ConcurrencyParameters concurrencyParameters,
+                                                  AsyncTaskExecutor variantWriterTaskExecutor) {
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(databaseParameters.getDatabaseName(),
+                                                                                mongoClient, mongoMappingContext);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(
+                databaseParameters.getCollectionVariantsName(), mongoOperations,
+                variantToMongoDbObjectConverter(inputParameters, databaseParameters), variantWriterTaskExecutor,
+                concurrencyParameters.getWriteThreads(), databaseParameters.isInsertNewVariants(),
+                databaseParameters.isDeferIndexes());
+        variantMongoWriter.setWriteConcern(databaseParameters.getLoadWriteConcern());
+        variantMongoWriter.setWriteRetries(databaseParameters.getWriteRetries());
+        return variantMongoWriter;
     }
 
+    /**
+     * Pool of threads that send the bulks of a chunk to MongoDB. The threads are only started when there is more
+     * than one bulk per chunk, and the pool is shut down when the step ends.
+     */
     @Bean
     @StepScope
-    public VariantToMongoDbObjectConverter variantToMongoDbObjectConverter(InputParameters inputParameters) {
+    public ThreadPoolTaskExecutor variantWriterTaskExecutor(ConcurrencyParameters concurrencyParameters) {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(concurrencyParameters.getWriteThreads());
+        taskExecutor.setMaxPoolSize(concurrencyParameters.getWriteThreads());
+        taskExecutor.setThreadNamePrefix("variant-writer-");
+        return taskExecutor;
+    }
+
+    @Bean
+    @StepScope
+    public VariantToMongoDbObjectConverter variantToMongoDbObjectConverter(InputParameters inputParameters,
+                                                                           DatabaseParameters databaseParameters) {
         boolean includeSamples, includeStats;
         if (VariantSource.Aggregation.NONE.equals(inputParameters.getVcfAggregation())) {
             includeSamples = true;
@@ -54,7 +93,7 @@ public class VariantWriterConfiguration {
             includeSamples = false;
             includeStats = true;
         }
-        return new VariantToMongoDbObjectConverter(includeStats, includeSamples);
+        return new VariantToRawDBObjectConverter(includeStats, includeSamples, databaseParameters.isCompactIds());
     }
 
 }
@@ -19,19 +19,44 @@ import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
+import uk.ac.ebi.eva.pipeline.io.writers.AnnotationCacheVepInputWriter;
+import uk.ac.ebi.eva.pipeline.io.writers.VepAnnotationMongoWriter;
 import uk.ac.ebi.eva.pipeline.io.writers.VepInputFlatFileWriter;
 import uk.ac.ebi.eva.pipeline.model.VariantWrapper;
 import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
+
+import java.io.File;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_INPUT_WRITER;
 
 @Configuration
 public class VepInputFlatFileWriterConfiguration {
 
+    /**
+     * When there is an annotation cache, the variants found in it are not written to the VEP input, and their
+     * annotations are loaded instead.
+     */
     @Bean(VEP_INPUT_WRITER)
     @StepScope
-    public ItemStreamWriter<VariantWrapper> vepInputFlatFileWriter(AnnotationParameters annotationParameters) {
-        return new VepInputFlatFileWriter(annotationParameters.getVepInput());
+    public ItemStreamWriter<VariantWrapper> vepInputFlatFileWriter(AnnotationParameters annotationParameters,
+                                                                   MongoOperations mongoOperations,
+                                                                   DatabaseParameters databaseParameters) {
+        VepInputFlatFileWriter vepInputWriter = new VepInputFlatFileWriter(annotationParameters.getVepInput());
+        if (annotationParameters.getAnnotationCachePath() == null) {
+            return vepInputWriter;
+        }
+
+        VepAnnotationMongoWriter annotationWriter = new VepAnnotationMongoWriter(
+                mongoOperations, databaseParameters.getCollectionVariantsName(), databaseParameters.isCompactIds());
+        annotationWriter.setWriteConcern(databaseParameters.getLoadWriteConcern());
+        annotationWriter.setWriteRetries(databaseParameters.getWriteRetries());
+        AnnotationCache annotationCache = new AnnotationCache(new File(annotationParameters.getAnnotationCachePath()),
+                                                              annotationParameters.getVepCacheSpecies(),
+                                                              annotationParameters.getVepCacheVersion());
+        return new AnnotationCacheVepInputWriter(vepInputWriter, annotationWriter, annotationCache);
     }
 
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Local cache of the VEP output lines of the variants already annotated, so that the variants shared by several
+ * studies or databases are only sent once to VEP.
+ * <p>
+ * The lines are stored in an embedded HSQLDB database in a directory, and are looked up by the id of the variant as
+ * built by {@link uk.ac.ebi.eva.utils.MongoDBHelper#buildStorageId(String, int, String, String)}, the species and the
+ * version of the VEP cache, because a new version of the VEP cache may annotate the same variant differently.
+ * <p>
+ * All the lines of a variant are stored together in a single row, so a variant is either in the cache with all its
+ * lines or not at all.
+ * <p>
+ * The database can only be opened by a process at the same time, so jobs running in different processes at the same
+ * time must use different directories.
+ */
+public class AnnotationCache implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationCache.class);
+
+    private static final String DATABASE_NAME = "vep-annotations";
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private static final String COUNT_TABLES = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+            + "WHERE TABLE_NAME = 'VEP_VARIANT_ANNOTATIONS'";
+
+    private static final String CREATE_TABLE = "CREATE CACHED TABLE VEP_VARIANT_ANNOTATIONS ("
+            + "VARIANT_ID VARCHAR(500) NOT NULL, SPECIES VARCHAR(100) NOT NULL, CACHE_VERSION VARCHAR(20) NOT NULL, "
+            + "LINES LONGVARCHAR NOT NULL, PRIMARY KEY (VARIANT_ID, SPECIES, CACHE_VERSION))";
+
+    private static final String SELECT_LINES = "SELECT LINES FROM VEP_VARIANT_ANNOTATIONS "
+            + "WHERE VARIANT_ID = ? AND SPECIES = ? AND CACHE_VERSION = ?";
+
+    private static final String MERGE_LINES = "MERGE INTO VEP_VARIANT_ANNOTATIONS A "
+            + "USING (VALUES (CAST(? AS VARCHAR(500)), CAST(? AS VARCHAR(100)), CAST(? AS VARCHAR(20)), "
+            + "CAST(? AS LONGVARCHAR))) AS V (VARIANT_ID, SPECIES, CACHE_VERSION, LINES) "
+            + "ON A.VARIANT_ID = V.VARIANT_ID AND A.SPECIES = V.SPECIES AND A.CACHE_VERSION = V.CACHE_VERSION "
+            + "WHEN MATCHED THEN UPDATE SET A.LINES = V.LINES "
+            + "WHEN NOT MATCHED THEN INSERT VALUES V.VARIANT_ID, V.SPECIES, V.CACHE_VERSION, V.LINES";
+
+    private final SingleConnectionDataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String species;
+
+    private final String cacheVersion;
+
+    /**
+     * Opens the cache in the directory, creating it if it's empty.
+     *
+     * @param species species of the VEP cache used to annotate the variants
+     * @param cacheVersion version of the VEP cache used to annotate the variants
+     */
+    public AnnotationCache(File directory, String species, String cacheVersion) {
+        if (species == null || cacheVersion == null) {
+            throw new IllegalArgumentException("The species and version of the VEP cache are needed to use the "
+                                                       + "annotation cache");
+        }
+        this.species = species;
+        this.cacheVersion = cacheVersion;
+
+        // the database is shut down, which writes its files, when the last connection of the process is closed
+        String url = "jdbc:hsqldb:file:" + new File(directory, DATABASE_NAME).getPath() + ";shutdown=true";
+        dataSource = new SingleConnectionDataSource(url, "SA", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        if (jdbcTemplate.queryForObject(COUNT_TABLES, Integer.class) == 0) {
+            jdbcTemplate.execute(CREATE_TABLE);
+        }
+        logger.debug("Annotation cache opened in {}", directory);
+    }
+
+    /**
+     * @return the VEP output lines of the variant, or an empty list if it was never annotated with this species and
+     * VEP cache version
+     */
+    public synchronized List<String> getLines(String variantId) {
+        List<String> lines = jdbcTemplate.queryForList(SELECT_LINES, String.class, variantId, species, cacheVersion);
+        if (lines.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(lines.get(0).split(LINE_SEPARATOR));
+    }
+
+    /**
+     * Stores all the VEP output lines of the variant, replacing the ones already in the cache, if any.
+     */
+    public synchronized void putLines(String variantId, List<String> lines) {
+        jdbcTemplate.update(MERGE_LINES, variantId, species, cacheVersion, String.join(LINE_SEPARATOR, lines));
+    }
+
+    @Override
+    public void close() {
+        dataSource.destroy();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Resource for BGZF (bgzip) compressed files, whose blocks are inflated in parallel by a
+ * {@link ParallelBgzfInputStream}.
+ * <p>
+ * Like {@link GzipLazyResource}, the file is not opened until {@link #getInputStream()} is called.
+ * <p>
+ * A range of virtual offsets can be given to read only a region of the file, e.g. a chromosome, using the offsets
+ * of a {@link VcfIndex}.
+ */
+public class BgzfLazyResource extends FileSystemResource {
+
+    private final int threads;
+
+    private final long startVirtualOffset;
+
+    private final long endVirtualOffset;
+
+    public BgzfLazyResource(File file) {
+        this(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BgzfLazyResource(File file, int threads) {
+        this(file, threads, 0, ParallelBgzfInputStream.NO_END_VIRTUAL_OFFSET);
+    }
+
+    public BgzfLazyResource(File file, long startVirtualOffset, long endVirtualOffset) {
+        this(file, Runtime.getRuntime().availableProcessors(), startVirtualOffset, endVirtualOffset);
+    }
+
+    public BgzfLazyResource(File file, int threads, long startVirtualOffset, long endVirtualOffset) {
+        super(file);
+        this.threads = threads;
+        this.startVirtualOffset = startVirtualOffset;
+        this.endVirtualOffset = endVirtualOffset;
+    }
+
+    public BgzfLazyResource(String path) {
+        this(new File(path));
+    }
+
+    /**
+     * @return a resource for the same file and range, but starting at the given virtual offset
+     */
+    public BgzfLazyResource fromVirtualOffset(long startVirtualOffset) {
+        return new BgzfLazyResource(getFile(), threads, startVirtualOffset, endVirtualOffset);
+    }
+
+    @Override
+    public ParallelBgzfInputStream getInputStream() throws IOException {
+        FileInputStream inputStream = new FileInputStream(getFile());
+        try {
+            inputStream.getChannel().position(ParallelBgzfInputStream.getBlockOffset(startVirtualOffset));
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+        return new ParallelBgzfInputStream(inputStream, threads, startVirtualOffset, endVirtualOffset);
+    }
+
+}
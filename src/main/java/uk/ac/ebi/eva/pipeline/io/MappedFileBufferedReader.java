@@ -0,0 +1,267 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Line reader for uncompressed files that maps the file in memory instead of copying it through a stream. The
+ * newlines are searched directly in the mapped region, and lines that only contain ASCII characters (all of them in
+ * a valid VCF, apart from maybe some INFO descriptions) are converted to String without going through a charset
+ * decoder.
+ * <p>
+ * The reader can be restricted to a region of the file: it returns the lines that start in [startOffset, endOffset),
+ * where startOffset must be the start of a line. The end of the last line returned is available through
+ * {@link #getOffset()}, so it can be used to restart the reading.
+ * <p>
+ * The file is mapped in windows of {@link #DEFAULT_MAP_SIZE} bytes, so files over 2GB can be read too. A window is
+ * enlarged if a single line doesn't fit in it.
+ * <p>
+ * It extends {@link BufferedReader} to be used by {@link org.springframework.batch.item.file.FlatFileItemReader}.
+ * Lines end in "\n" or "\r\n". The characters of the lines can also be read with {@link #read()}, but the line
+ * terminators are always returned as '\n'.
+ */
+public class MappedFileBufferedReader extends BufferedReader implements OffsetTrackingReader {
+
+    public static final int DEFAULT_MAP_SIZE = 256 * 1024 * 1024;
+
+    private static final int INITIAL_LINE_SIZE = 1024;
+
+    private static final int ASCII_MASK = 0x80;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final Charset charset;
+
+    private final long endOffset;
+
+    private final int mapSize;
+
+    private MappedByteBuffer buffer;
+
+    /**
+     * Offset in the file of the first byte of the buffer
+     */
+    private long bufferOffset;
+
+    private long offset;
+
+    private byte[] line;
+
+    private boolean closed;
+
+    /**
+     * Line being read by {@link #read()}, with its terminator
+     */
+    private String partialLine;
+
+    private int partialLinePosition;
+
+    public MappedFileBufferedReader(File file, Charset charset) throws IOException {
+        this(file, 0, file.length(), charset);
+    }
+
+    /**
+     * @param startOffset position of the first line to read
+     * @param endOffset lines that start at or after this position are not read
+     */
+    public MappedFileBufferedReader(File file, long startOffset, long endOffset, Charset charset) throws IOException {
+        this(file, startOffset, endOffset, charset, DEFAULT_MAP_SIZE);
+    }
+
+    MappedFileBufferedReader(File file, long startOffset, long endOffset, Charset charset, int mapSize)
+            throws IOException {
+        super(new StringReader(""), 1);
+        if (startOffset < 0 || startOffset > endOffset) {
+            throw new IllegalArgumentException("Invalid region [" + startOffset + ", " + endOffset + ")");
+        }
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.charset = charset;
+        this.endOffset = Math.min(endOffset, channel.size());
+        this.mapSize = mapSize;
+        this.bufferOffset = startOffset;
+        this.offset = startOffset;
+        this.line = new byte[INITIAL_LINE_SIZE];
+        this.closed = false;
+    }
+
+    /**
+     * @return position of the next line that {@link #readLine()} will return, which is also the end (newline
+     * included) of the last line returned, or of the line being read by {@link #read()}
+     */
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            String restOfLine = partialLine.substring(partialLinePosition, partialLine.length() - 1);
+            partialLine = null;
+            return restOfLine;
+        }
+        partialLine = null;
+        return nextLine();
+    }
+
+    private String nextLine() throws IOException {
+        long end = findLineEnd();
+        if (end < 0) {
+            return null;
+        }
+        String value = decode((int) (end - offset));
+        offset = Math.min(end + 1, channel.size());
+        return value;
+    }
+
+    /**
+     * @return position of the newline that ends the next line (or the end of the file), or -1 if there are no more
+     * lines to read
+     */
+    private long findLineEnd() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (offset >= endOffset) {
+            return -1;
+        }
+        long fileSize = channel.size();
+        int windowSize = mapSize;
+        while (true) {
+            if (buffer == null || offset < bufferOffset || offset >= bufferOffset + buffer.limit()) {
+                map(offset, windowSize);
+            }
+            int position = (int) (offset - bufferOffset);
+            int limit = buffer.limit();
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            if (position < limit || bufferOffset + limit >= fileSize) {
+                return bufferOffset + position;
+            }
+            // the line continues after the mapped window
+            if (bufferOffset == offset) {
+                windowSize = (int) Math.min(Integer.MAX_VALUE, 2L * windowSize);
+            }
+            map(offset, windowSize);
+        }
+    }
+
+    private void map(long position, int size) throws IOException {
+        long length = Math.min(size, channel.size() - position);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        bufferOffset = position;
+    }
+
+    /**
+     * Decodes the line of the given length that starts at the current offset, without the trailing '\r'.
+     */
+    private String decode(int length) {
+        int start = (int) (offset - bufferOffset);
+        if (length > 0 && buffer.get(start + length - 1) == '\r') {
+            length--;
+        }
+        if (length > line.length) {
+            line = Arrays.copyOf(line, Math.max(length, line.length * 2));
+        }
+        buffer.position(start);
+        buffer.get(line, 0, length);
+        int nonAscii = 0;
+        for (int i = 0; i < length; i++) {
+            nonAscii |= line[i] & ASCII_MASK;
+        }
+        if (nonAscii == 0) {
+            // every byte is a character, and ISO-8859-1 maps each byte to the character with the same value
+            return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+        }
+        return new String(line, 0, length, charset);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillPartialLine()) {
+            return -1;
+        }
+        return partialLine.charAt(partialLinePosition++);
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > chars.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (!fillPartialLine()) {
+            return -1;
+        }
+        int count = Math.min(length, partialLine.length() - partialLinePosition);
+        partialLine.getChars(partialLinePosition, partialLinePosition + count, chars, offset);
+        partialLinePosition += count;
+        return count;
+    }
+
+    /**
+     * Decodes the next line if the previous one has been completely read.
+     *
+     * @return false at the end of the region
+     */
+    private boolean fillPartialLine() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            return true;
+        }
+        String line = nextLine();
+        if (line == null) {
+            partialLine = null;
+            return false;
+        }
+        partialLine = line + '\n';
+        partialLinePosition = 0;
+        return true;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            return true;
+        }
+        return !closed && offset < endOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            buffer = null;
+            partialLine = null;
+            file.close();
+        }
+    }
+}
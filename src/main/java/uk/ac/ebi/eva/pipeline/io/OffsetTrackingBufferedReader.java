@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Line reader that knows the position in the file of the next line to read, so that the reading can be resumed
+ * from that line without reading the previous ones again.
+ * <p>
+ * For BGZF files the position is a virtual offset (see {@link ParallelBgzfInputStream#getVirtualOffset()}), and for
+ * uncompressed files it is the offset in bytes.
+ * <p>
+ * It extends {@link BufferedReader} to be used by {@link org.springframework.batch.item.file.FlatFileItemReader}.
+ * Lines end in "\n" or "\r\n". The characters of the lines can also be read with {@link #read()}, but the line
+ * terminators are always returned as '\n'.
+ */
+public class OffsetTrackingBufferedReader extends BufferedReader implements OffsetTrackingReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int INITIAL_LINE_SIZE = 1024;
+
+    private final InputStream inputStream;
+
+    /**
+     * Same as inputStream for BGZF files, null for uncompressed files
+     */
+    private final ParallelBgzfInputStream bgzfInputStream;
+
+    private final Charset charset;
+
+    private final byte[] buffer;
+
+    private int bufferPosition;
+
+    private int bufferLength;
+
+    /**
+     * Offset of the first byte in the buffer. For BGZF files, the whole buffer is in the same block.
+     */
+    private long bufferOffset;
+
+    private byte[] line;
+
+    private boolean endOfStream;
+
+    private boolean closed;
+
+    private long offsetAtClose;
+
+    /**
+     * Line being read by {@link #read()}, with its terminator
+     */
+    private String partialLine;
+
+    private int partialLinePosition;
+
+    /**
+     * Reads a BGZF file, which must be already positioned at the start of a line.
+     */
+    public OffsetTrackingBufferedReader(ParallelBgzfInputStream inputStream, Charset charset) {
+        this(inputStream, inputStream, 0, charset);
+    }
+
+    /**
+     * Reads an uncompressed file.
+     *
+     * @param startOffset offset in the file where inputStream is positioned, at the start of a line
+     */
+    public OffsetTrackingBufferedReader(InputStream inputStream, long startOffset, Charset charset) {
+        this(inputStream, null, startOffset, charset);
+    }
+
+    private OffsetTrackingBufferedReader(InputStream inputStream, ParallelBgzfInputStream bgzfInputStream,
+                                         long startOffset, Charset charset) {
+        super(new StringReader(""), 1);
+        this.inputStream = inputStream;
+        this.bgzfInputStream = bgzfInputStream;
+        this.charset = charset;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.bufferPosition = 0;
+        this.bufferLength = 0;
+        this.bufferOffset = startOffset;
+        this.line = new byte[INITIAL_LINE_SIZE];
+        this.endOfStream = false;
+        this.closed = false;
+    }
+
+    /**
+     * @return position of the next line that {@link #readLine()} will return, which is the one after the line being
+     * read by {@link #read()}, if any
+     */
+    @Override
+    public long getOffset() throws IOException {
+        if (closed) {
+            return offsetAtClose;
+        }
+        if (bgzfInputStream != null && bufferPosition >= bufferLength) {
+            return bgzfInputStream.getVirtualOffset();
+        }
+        // in a BGZF block the offset inside the block is in the lower bits, so this is valid for both cases
+        return bufferOffset + bufferPosition;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            String restOfLine = partialLine.substring(partialLinePosition, partialLine.length() - 1);
+            partialLine = null;
+            return restOfLine;
+        }
+        partialLine = null;
+        return nextLine();
+    }
+
+    private String nextLine() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        int lineLength = 0;
+        while (true) {
+            if (bufferPosition >= bufferLength && !fillBuffer()) {
+                return lineLength == 0 ? null : decode(lineLength);
+            }
+            int start = bufferPosition;
+            int end = start;
+            while (end < bufferLength && buffer[end] != '\n') {
+                end++;
+            }
+            lineLength = appendToLine(lineLength, start, end);
+            if (end < bufferLength) {
+                bufferPosition = end + 1;
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return decode(lineLength);
+            }
+            bufferPosition = end;
+        }
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (endOfStream) {
+            return false;
+        }
+        if (bgzfInputStream != null) {
+            bufferOffset = bgzfInputStream.getVirtualOffset();
+        } else {
+            bufferOffset += bufferLength;
+        }
+        bufferPosition = 0;
+        bufferLength = 0;
+        int count = inputStream.read(buffer, 0, buffer.length);
+        if (count == -1) {
+            endOfStream = true;
+            return false;
+        }
+        bufferLength = count;
+        return true;
+    }
+
+    private int appendToLine(int lineLength, int start, int end) {
+        int newLength = lineLength + end - start;
+        if (newLength > line.length) {
+            line = Arrays.copyOf(line, Math.max(newLength, line.length * 2));
+        }
+        System.arraycopy(buffer, start, line, lineLength, end - start);
+        return newLength;
+    }
+
+    private String decode(int lineLength) {
+        return new String(line, 0, lineLength, charset);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillPartialLine()) {
+            return -1;
+        }
+        return partialLine.charAt(partialLinePosition++);
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > chars.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (!fillPartialLine()) {
+            return -1;
+        }
+        int count = Math.min(length, partialLine.length() - partialLinePosition);
+        partialLine.getChars(partialLinePosition, partialLinePosition + count, chars, offset);
+        partialLinePosition += count;
+        return count;
+    }
+
+    /**
+     * Reads the next line if the previous one has been completely read.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fillPartialLine() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            return true;
+        }
+        String line = nextLine();
+        if (line == null) {
+            partialLine = null;
+            return false;
+        }
+        partialLine = line + '\n';
+        partialLinePosition = 0;
+        return true;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            return true;
+        }
+        return !closed && (bufferPosition < bufferLength || inputStream.available() > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            offsetAtClose = getOffset();
+            closed = true;
+            partialLine = null;
+            inputStream.close();
+        }
+    }
+}
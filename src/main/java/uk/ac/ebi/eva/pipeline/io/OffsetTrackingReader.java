@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.io.IOException;
+
+/**
+ * Line reader that knows the position in the file of the next line to read, so that the reading can be resumed
+ * from that line without reading the previous ones again.
+ */
+public interface OffsetTrackingReader {
+
+    /**
+     * @return position of the next line that readLine() will return
+     */
+    long getOffset() throws IOException;
+
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses a BGZF file (the blocked gzip format produced by bgzip) inflating several blocks at the same time.
+ * <p>
+ * Every BGZF block is an independent gzip member that declares its own compressed size, so the raw blocks can be
+ * read sequentially and handed to a pool of workers. The inflated blocks are returned in the same order they were
+ * read, so the consumer sees exactly the same bytes that a {@link java.util.zip.GZIPInputStream} would return.
+ * <p>
+ * At most a fixed number of blocks are kept in flight, so the memory usage is bounded regardless of the file size.
+ * <p>
+ * The stream can be limited to a range of BGZF virtual offsets, as found in tabix and CSI indexes, to read only the
+ * records of a region. The virtual offset of the next byte to read is available with {@link #getVirtualOffset()},
+ * so that the reading can be resumed later from that point.
+ * <p>
+ * Every call to {@link #read(byte[], int, int)} returns bytes from a single BGZF block.
+ */
+public class ParallelBgzfInputStream extends InputStream {
+
+    private static final int GZIP_MAGIC_1 = 0x1f;
+
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    private static final int DEFLATE_METHOD = 8;
+
+    private static final int FLAG_EXTRA = 4;
+
+    private static final int BGZF_SUBFIELD_ID_1 = 'B';
+
+    private static final int BGZF_SUBFIELD_ID_2 = 'C';
+
+    /**
+     * Fixed part of the gzip header (ID1, ID2, CM, FLG, MTIME, XFL, OS) plus XLEN
+     */
+    private static final int HEADER_LENGTH = 12;
+
+    /**
+     * CRC32 and ISIZE
+     */
+    private static final int FOOTER_LENGTH = 8;
+
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+
+    private static final Block EMPTY_BLOCK = new Block(0, 0, new byte[0]);
+
+    public static final long NO_END_VIRTUAL_OFFSET = -1;
+
+    private final DataInputStream compressedStream;
+
+    private final ExecutorService executor;
+
+    private final int maxBlocksInFlight;
+
+    private final Deque<Future<Block>> pendingBlocks;
+
+    private final long endVirtualOffset;
+
+    private long compressedPosition;
+
+    private int firstBlockSkip;
+
+    private Block currentBlock;
+
+    private int currentBlockPosition;
+
+    private boolean endOfCompressedStream;
+
+    private boolean closed;
+
+    public ParallelBgzfInputStream(InputStream compressedStream) {
+        this(compressedStream, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelBgzfInputStream(InputStream compressedStream, int threads) {
+        this(compressedStream, threads, 0, NO_END_VIRTUAL_OFFSET);
+    }
+
+    /**
+     * @param compressedStream stream already positioned at the BGZF block where startVirtualOffset points to
+     * @param startVirtualOffset first byte to return
+     * @param endVirtualOffset end of the range (exclusive), or {@link #NO_END_VIRTUAL_OFFSET} to read until the end
+     */
+    public ParallelBgzfInputStream(InputStream compressedStream, int threads, long startVirtualOffset,
+                                   long endVirtualOffset) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of decompression threads must be at least 1");
+        }
+        this.compressedStream = new DataInputStream(compressedStream);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bgzf-inflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxBlocksInFlight = threads * BLOCKS_IN_FLIGHT_PER_THREAD;
+        this.pendingBlocks = new ArrayDeque<>(maxBlocksInFlight);
+        this.currentBlock = EMPTY_BLOCK;
+        this.currentBlockPosition = 0;
+        this.endOfCompressedStream = false;
+        this.closed = false;
+        this.compressedPosition = getBlockOffset(startVirtualOffset);
+        this.firstBlockSkip = getOffsetInBlock(startVirtualOffset);
+        this.endVirtualOffset = endVirtualOffset;
+    }
+
+    public static long getBlockOffset(long virtualOffset) {
+        return virtualOffset >>> 16;
+    }
+
+    public static int getOffsetInBlock(long virtualOffset) {
+        return (int) (virtualOffset & 0xffff);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureDataAvailable()) {
+            return -1;
+        }
+        return currentBlock.data[currentBlockPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || length > buffer.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureDataAvailable()) {
+            return -1;
+        }
+        int bytesToCopy = Math.min(length, currentBlock.data.length - currentBlockPosition);
+        System.arraycopy(currentBlock.data, currentBlockPosition, buffer, offset, bytesToCopy);
+        currentBlockPosition += bytesToCopy;
+        return bytesToCopy;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : currentBlock.data.length - currentBlockPosition;
+    }
+
+    /**
+     * Virtual offset of the next byte that will be read. At the end of the stream, it points to the end of the last
+     * block read.
+     */
+    public long getVirtualOffset() throws IOException {
+        if (!ensureDataAvailable()) {
+            return compressedPosition << 16;
+        }
+        return (currentBlock.compressedOffset << 16) | (currentBlock.offsetInBlock + currentBlockPosition);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            executor.shutdownNow();
+            pendingBlocks.clear();
+            compressedStream.close();
+        }
+    }
+
+    /**
+     * Moves to the next non-empty inflated block if the current one has been consumed.
+     *
+     * @return false if there is no more data to read
+     */
+    private boolean ensureDataAvailable() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (currentBlockPosition >= currentBlock.data.length) {
+            fillPendingBlocks();
+            if (pendingBlocks.isEmpty()) {
+                return false;
+            }
+            currentBlock = waitForBlock(pendingBlocks.removeFirst());
+            currentBlockPosition = 0;
+        }
+        return true;
+    }
+
+    private void fillPendingBlocks() throws IOException {
+        while (!endOfCompressedStream && pendingBlocks.size() < maxBlocksInFlight) {
+            long blockOffset = compressedPosition;
+            int from = firstBlockSkip;
+            int to = Integer.MAX_VALUE;
+            if (endVirtualOffset != NO_END_VIRTUAL_OFFSET) {
+                long endBlockOffset = getBlockOffset(endVirtualOffset);
+                if (blockOffset > endBlockOffset
+                        || (blockOffset == endBlockOffset && getOffsetInBlock(endVirtualOffset) == 0)) {
+                    endOfCompressedStream = true;
+                    break;
+                } else if (blockOffset == endBlockOffset) {
+                    to = getOffsetInBlock(endVirtualOffset);
+                }
+            }
+
+            byte[] rawBlock = readRawBlock();
+            if (rawBlock == null) {
+                endOfCompressedStream = true;
+            } else {
+                compressedPosition += rawBlock.length;
+                firstBlockSkip = 0;
+                int rangeStart = from;
+                int rangeEnd = to;
+                pendingBlocks.addLast(executor.submit(
+                        () -> new Block(blockOffset, rangeStart, slice(inflateBlock(rawBlock), rangeStart, rangeEnd))));
+            }
+        }
+    }
+
+    private static byte[] slice(byte[] block, int from, int to) throws ZipException {
+        if (from == 0 && to >= block.length) {
+            return block;
+        }
+        if (from > block.length) {
+            throw new ZipException("Virtual offset out of the BGZF block");
+        }
+        return Arrays.copyOfRange(block, from, Math.min(to, block.length));
+    }
+
+    private Block waitForBlock(Future<Block> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decompressing BGZF block", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Could not decompress BGZF block", cause);
+        }
+    }
+
+    /**
+     * Reads a whole BGZF block, header included, without inflating it.
+     *
+     * @return the raw block, or null if the end of the stream was reached
+     */
+    private byte[] readRawBlock() throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        int firstByte = compressedStream.read();
+        if (firstByte == -1) {
+            return null;
+        }
+        header[0] = (byte) firstByte;
+        compressedStream.readFully(header, 1, HEADER_LENGTH - 1);
+
+        if ((header[0] & 0xff) != GZIP_MAGIC_1 || (header[1] & 0xff) != GZIP_MAGIC_2
+                || (header[2] & 0xff) != DEFLATE_METHOD || (header[3] & FLAG_EXTRA) == 0) {
+            throw new ZipException("Not in BGZF format");
+        }
+
+        int extraLength = readUnsignedShort(header, 10);
+        byte[] extra = new byte[extraLength];
+        compressedStream.readFully(extra);
+        int blockSize = getBlockSize(extra) + 1;
+
+        byte[] block = new byte[blockSize];
+        System.arraycopy(header, 0, block, 0, HEADER_LENGTH);
+        System.arraycopy(extra, 0, block, HEADER_LENGTH, extraLength);
+        try {
+            compressedStream.readFully(block, HEADER_LENGTH + extraLength, blockSize - HEADER_LENGTH - extraLength);
+        } catch (EOFException e) {
+            throw new ZipException("Truncated BGZF block");
+        }
+        return block;
+    }
+
+    private static int getBlockSize(byte[] extra) throws ZipException {
+        int position = 0;
+        while (position + 4 <= extra.length) {
+            int subfieldLength = readUnsignedShort(extra, position + 2);
+            if (extra[position] == BGZF_SUBFIELD_ID_1 && extra[position + 1] == BGZF_SUBFIELD_ID_2
+                    && subfieldLength == 2) {
+                return readUnsignedShort(extra, position + 4);
+            }
+            position += 4 + subfieldLength;
+        }
+        throw new ZipException("Missing BGZF block size subfield");
+    }
+
+    private static byte[] inflateBlock(byte[] block) throws IOException {
+        int extraLength = readUnsignedShort(block, 10);
+        int dataOffset = HEADER_LENGTH + extraLength;
+        int footerOffset = block.length - FOOTER_LENGTH;
+        int uncompressedSize = readInt(block, footerOffset + 4);
+        int expectedCrc = readInt(block, footerOffset);
+
+        byte[] uncompressed = new byte[uncompressedSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(block, dataOffset, footerOffset - dataOffset);
+            int inflated = 0;
+            while (inflated < uncompressedSize) {
+                int count = inflater.inflate(uncompressed, inflated, uncompressedSize - inflated);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != uncompressedSize) {
+                throw new ZipException("Corrupt BGZF block: expected " + uncompressedSize + " bytes but got "
+                                               + inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt BGZF block: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(uncompressed, 0, uncompressedSize);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new ZipException("Corrupt BGZF block: CRC mismatch");
+        }
+        return uncompressed;
+    }
+
+    private static int readUnsignedShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xff) | ((buffer[offset + 1] & 0xff) << 8);
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return readUnsignedShort(buffer, offset) | (readUnsignedShort(buffer, offset + 2) << 16);
+    }
+
+    /**
+     * Inflated data of a BGZF block, possibly starting after the beginning of the block
+     */
+    private static class Block {
+
+        private final long compressedOffset;
+
+        private final int offsetInBlock;
+
+        private final byte[] data;
+
+        Block(long compressedOffset, int offsetInBlock, byte[] data) {
+            this.compressedOffset = compressedOffset;
+            this.offsetInBlock = offsetInBlock;
+            this.data = data;
+        }
+    }
+}
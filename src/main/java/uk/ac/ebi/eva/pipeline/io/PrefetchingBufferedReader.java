@@ -0,0 +1,307 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Line reader that reads (and decompresses) the lines of another reader in a background thread, so the I/O overlaps
+ * with the processing of the lines in the calling thread.
+ * <p>
+ * The lines are kept in a ring buffer of fixed capacity: the background thread waits when it is full, and
+ * {@link #readLine()} waits when it is empty.
+ * <p>
+ * If the source is an {@link OffsetTrackingReader}, the offset after each line is kept along with it, and
+ * {@link #getOffset()} returns the offset of the next line that this reader (not the background thread) will return,
+ * so it can be used to restart the reading.
+ * <p>
+ * The characters of the lines can also be read with {@link #read()}, but the line terminators are always returned as
+ * '\n'.
+ */
+public class PrefetchingBufferedReader extends BufferedReader {
+
+    private static final long NO_OFFSET = -1;
+
+    private final BufferedReader source;
+
+    private final OffsetTrackingReader offsetTrackingSource;
+
+    private final String[] lines;
+
+    private final long[] offsets;
+
+    private final ReentrantLock lock;
+
+    private final Condition notEmpty;
+
+    private final Condition notFull;
+
+    private final Thread prefetchThread;
+
+    /**
+     * Position in the ring of the next line to return
+     */
+    private int head;
+
+    private int size;
+
+    private boolean endOfSource;
+
+    private IOException sourceException;
+
+    private volatile boolean closed;
+
+    private long offset;
+
+    /**
+     * Line being returned by {@link #read(char[], int, int)}, including its terminator, or null if there is none
+     */
+    private String partialLine;
+
+    private int partialLinePosition;
+
+    public PrefetchingBufferedReader(BufferedReader source, int capacity) throws IOException {
+        super(new StringReader(""), 1);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The number of lines to prefetch must be at least 1");
+        }
+        this.source = source;
+        this.offsetTrackingSource = source instanceof OffsetTrackingReader ? (OffsetTrackingReader) source : null;
+        this.lines = new String[capacity];
+        this.offsets = new long[capacity];
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.head = 0;
+        this.size = 0;
+        this.endOfSource = false;
+        this.closed = false;
+        this.offset = offsetTrackingSource != null ? offsetTrackingSource.getOffset() : NO_OFFSET;
+
+        this.prefetchThread = new Thread(this::prefetch, "vcf-prefetch");
+        this.prefetchThread.setDaemon(true);
+        this.prefetchThread.start();
+    }
+
+    /**
+     * @return offset in the source of the next line that {@link #readLine()} will return
+     * @throws IllegalStateException if the source is not an {@link OffsetTrackingReader}
+     */
+    public long getOffset() {
+        if (offsetTrackingSource == null) {
+            throw new IllegalStateException("The source reader doesn't track the offset of the lines");
+        }
+        lock.lock();
+        try {
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void prefetch() {
+        try {
+            String line;
+            do {
+                line = source.readLine();
+                long lineEndOffset = offsetTrackingSource != null ? offsetTrackingSource.getOffset() : NO_OFFSET;
+                if (!put(line, lineEndOffset)) {
+                    return;
+                }
+            } while (line != null);
+        } catch (IOException e) {
+            finishWithException(e);
+        } catch (InterruptedException e) {
+            // closed while waiting for free space
+        } catch (RuntimeException | Error e) {
+            finishWithException(new IOException("Could not read the next line", e));
+        }
+    }
+
+    /**
+     * Adds a line to the ring, or marks the end of the source if it is null.
+     *
+     * @return false if the reader was closed
+     */
+    private boolean put(String line, long lineEndOffset) throws InterruptedException {
+        lock.lock();
+        try {
+            while (size == lines.length && !closed) {
+                notFull.await();
+            }
+            if (closed) {
+                return false;
+            }
+            if (line == null) {
+                endOfSource = true;
+            } else {
+                int tail = (head + size) % lines.length;
+                lines[tail] = line;
+                offsets[tail] = lineEndOffset;
+                size++;
+            }
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finishWithException(IOException exception) {
+        lock.lock();
+        try {
+            sourceException = exception;
+            endOfSource = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            String restOfLine = partialLine.substring(partialLinePosition, partialLine.length() - 1);
+            partialLine = null;
+            return restOfLine;
+        }
+        partialLine = null;
+        return takeLine();
+    }
+
+    private String takeLine() throws IOException {
+        lock.lock();
+        try {
+            while (size == 0 && !endOfSource && !closed) {
+                notEmpty.await();
+            }
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (size == 0) {
+                if (sourceException != null) {
+                    throw sourceException;
+                }
+                return null;
+            }
+            String line = lines[head];
+            lines[head] = null;
+            offset = offsets[head];
+            head = (head + 1) % lines.length;
+            size--;
+            notFull.signal();
+            return line;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the next line");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillPartialLine()) {
+            return -1;
+        }
+        return partialLine.charAt(partialLinePosition++);
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > chars.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (!fillPartialLine()) {
+            return -1;
+        }
+        int count = Math.min(length, partialLine.length() - partialLinePosition);
+        partialLine.getChars(partialLinePosition, partialLinePosition + count, chars, offset);
+        partialLinePosition += count;
+        return count;
+    }
+
+    /**
+     * Takes the next line if the previous one has been completely read.
+     *
+     * @return false at the end of the source
+     */
+    private boolean fillPartialLine() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            return true;
+        }
+        String line = takeLine();
+        if (line == null) {
+            partialLine = null;
+            return false;
+        }
+        partialLine = line + '\n';
+        partialLinePosition = 0;
+        return true;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        if (partialLine != null && partialLinePosition < partialLine.length()) {
+            return true;
+        }
+        lock.lock();
+        try {
+            return size > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background thread and closes the source reader once the thread has finished, so they never use the
+     * source at the same time. The background thread stops after the line it is reading, if any.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (prefetchThread.isAlive()) {
+            try {
+                prefetchThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the sequence names and the BGZF virtual offsets of each sequence from a tabix (.tbi) or CSI (.csi) index.
+ * <p>
+ * A virtual offset is the position of a BGZF block in the compressed file, shifted 16 bits, plus the position
+ * inside the uncompressed block. Only the first and last offset of each sequence are kept, which is what is needed to
+ * read all the records of a chromosome using {@link BgzfLazyResource}.
+ * <p>
+ * Formats described in https://samtools.github.io/hts-specs/tabix.pdf and
+ * https://samtools.github.io/hts-specs/CSIv1.pdf
+ */
+public class VcfIndex {
+
+    public static final String TABIX_EXTENSION = ".tbi";
+
+    public static final String CSI_EXTENSION = ".csi";
+
+    private static final byte[] TABIX_MAGIC = {'T', 'B', 'I', 1};
+
+    private static final byte[] CSI_MAGIC = {'C', 'S', 'I', 1};
+
+    private static final int TABIX_DEPTH = 5;
+
+    /**
+     * Size of the tabix header fields after the magic and n_ref: format, col_seq, col_beg, col_end, meta, skip and l_nm
+     */
+    private static final int TABIX_AUX_HEADER_LENGTH = 28;
+
+    private final List<Region> regions;
+
+    private VcfIndex(List<Region> regions) {
+        this.regions = Collections.unmodifiableList(regions);
+    }
+
+    /**
+     * @return the regions of every sequence with records, in the same order as in the VCF file
+     */
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Looks for "file.vcf.gz.tbi" and then "file.vcf.gz.csi".
+     *
+     * @return the index file, or null if there is none
+     */
+    public static File findIndexFile(File vcfFile) {
+        for (String extension : Arrays.asList(TABIX_EXTENSION, CSI_EXTENSION)) {
+            File indexFile = new File(vcfFile.getPath() + extension);
+            if (indexFile.isFile()) {
+                return indexFile;
+            }
+        }
+        return null;
+    }
+
+    public static VcfIndex read(File indexFile) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(uncompress(indexFile)).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            byte[] magic = new byte[4];
+            buffer.get(magic);
+            if (Arrays.equals(magic, TABIX_MAGIC)) {
+                return readTabix(buffer);
+            } else if (Arrays.equals(magic, CSI_MAGIC)) {
+                return readCsi(buffer);
+            } else {
+                throw new IOException("File " + indexFile + " is not a tabix or CSI index");
+            }
+        } catch (BufferUnderflowException | BufferOverflowException | IllegalArgumentException e) {
+            throw new IOException("Index file " + indexFile + " is truncated or corrupt", e);
+        }
+    }
+
+    private static VcfIndex readTabix(ByteBuffer buffer) throws IOException {
+        int numberOfSequences = buffer.getInt();
+        List<String> names = readSequenceNames(buffer);
+        checkNumberOfSequences(numberOfSequences, names);
+
+        long pseudoBin = getPseudoBin(TABIX_DEPTH);
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0; i < numberOfSequences; i++) {
+            Region region = readSequenceBins(buffer, names.get(i), pseudoBin, false);
+            int linearIndexSize = buffer.getInt();
+            buffer.position(buffer.position() + linearIndexSize * Long.BYTES);
+            if (region != null) {
+                regions.add(region);
+            }
+        }
+        return new VcfIndex(sortByOffset(regions));
+    }
+
+    private static VcfIndex readCsi(ByteBuffer buffer) throws IOException {
+        buffer.getInt();    // min_shift
+        int depth = buffer.getInt();
+        int auxLength = buffer.getInt();
+        if (auxLength < TABIX_AUX_HEADER_LENGTH) {
+            throw new IOException("CSI index doesn't contain the sequence names");
+        }
+        int auxEnd = buffer.position() + auxLength;
+        List<String> names = readSequenceNames(buffer);
+        buffer.position(auxEnd);
+        int numberOfSequences = buffer.getInt();
+        checkNumberOfSequences(numberOfSequences, names);
+
+        long pseudoBin = getPseudoBin(depth);
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0; i < numberOfSequences; i++) {
+            Region region = readSequenceBins(buffer, names.get(i), pseudoBin, true);
+            if (region != null) {
+                regions.add(region);
+            }
+        }
+        return new VcfIndex(sortByOffset(regions));
+    }
+
+    /**
+     * Reads the tabix configuration (format, columns, meta character, lines to skip) and returns the sequence names.
+     */
+    private static List<String> readSequenceNames(ByteBuffer buffer) {
+        buffer.position(buffer.position() + TABIX_AUX_HEADER_LENGTH - Integer.BYTES);
+        int namesLength = buffer.getInt();
+        byte[] names = new byte[namesLength];
+        buffer.get(names);
+
+        List<String> sequenceNames = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < namesLength; i++) {
+            if (names[i] == 0) {
+                sequenceNames.add(new String(names, start, i - start, StandardCharsets.US_ASCII));
+                start = i + 1;
+            }
+        }
+        return sequenceNames;
+    }
+
+    private static void checkNumberOfSequences(int numberOfSequences, List<String> names) throws IOException {
+        if (numberOfSequences != names.size()) {
+            throw new IOException("The index declares " + numberOfSequences + " sequences but has " + names.size()
+                                          + " sequence names");
+        }
+    }
+
+    /**
+     * The pseudo-bin stores metadata (counts of mapped and unmapped reads) instead of actual chunks.
+     */
+    private static long getPseudoBin(int depth) {
+        return ((1L << ((depth + 1) * 3)) - 1) / 7 + 1;
+    }
+
+    /**
+     * @return the region that spans all the chunks of the sequence, or null if it has no chunks
+     */
+    private static Region readSequenceBins(ByteBuffer buffer, String name, long pseudoBin, boolean csi) {
+        long start = Long.MAX_VALUE;
+        long end = 0;
+        int numberOfBins = buffer.getInt();
+        for (int i = 0; i < numberOfBins; i++) {
+            long bin = Integer.toUnsignedLong(buffer.getInt());
+            if (csi) {
+                buffer.getLong();   // loffset
+            }
+            int numberOfChunks = buffer.getInt();
+            for (int j = 0; j < numberOfChunks; j++) {
+                long chunkStart = buffer.getLong();
+                long chunkEnd = buffer.getLong();
+                if (bin != pseudoBin) {
+                    start = Math.min(start, chunkStart);
+                    end = Math.max(end, chunkEnd);
+                }
+            }
+        }
+        return start == Long.MAX_VALUE ? null : new Region(name, start, end);
+    }
+
+    private static List<Region> sortByOffset(List<Region> regions) {
+        regions.sort((first, second) -> Long.compare(first.getStartVirtualOffset(), second.getStartVirtualOffset()));
+        return regions;
+    }
+
+    private static byte[] uncompress(File indexFile) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(indexFile))) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Records of a sequence (chromosome), between two BGZF virtual offsets. The end offset is exclusive.
+     */
+    public static class Region {
+
+        private final String chromosome;
+
+        private final long startVirtualOffset;
+
+        private final long endVirtualOffset;
+
+        public Region(String chromosome, long startVirtualOffset, long endVirtualOffset) {
+            this.chromosome = chromosome;
+            this.startVirtualOffset = startVirtualOffset;
+            this.endVirtualOffset = endVirtualOffset;
+        }
+
+        public String getChromosome() {
+            return chromosome;
+        }
+
+        public long getStartVirtualOffset() {
+            return startVirtualOffset;
+        }
+
+        public long getEndVirtualOffset() {
+            return endVirtualOffset;
+        }
+
+        @Override
+        public String toString() {
+            return chromosome + "[" + startVirtualOffset + ", " + endVirtualOffset + ")";
+        }
+    }
+}
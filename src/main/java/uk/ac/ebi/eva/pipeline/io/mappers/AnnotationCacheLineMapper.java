@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.mappers;
+
+import org.springframework.batch.item.file.LineMapper;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps a line in VEP output file to {@link VariantAnnotation} with another {@link LineMapper}, and adds the lines
+ * that could be mapped to an {@link AnnotationCache}, so the variant doesn't need to be annotated again.
+ * <p>
+ * VEP writes all the lines of a variant one after the other, so the lines of a variant are only added to the cache
+ * once the first line of the next variant is mapped, or after {@link #flush()} is called at the end of the output.
+ * If a line can't be mapped, it may belong to the variant being mapped or, unless more lines of that variant follow,
+ * to the next one, so neither of them is added to the cache. This way the cache never has only some of the lines of
+ * a variant, which would be used instead of annotating it again.
+ */
+public class AnnotationCacheLineMapper implements LineMapper<VariantAnnotation> {
+
+    private final LineMapper<VariantAnnotation> lineMapper;
+
+    private final AnnotationCache annotationCache;
+
+    private String variantId;
+
+    private List<String> variantLines;
+
+    private boolean variantIncomplete;
+
+    private boolean nextVariantIncomplete;
+
+    public AnnotationCacheLineMapper(LineMapper<VariantAnnotation> lineMapper, AnnotationCache annotationCache) {
+        this.lineMapper = lineMapper;
+        this.annotationCache = annotationCache;
+        this.variantLines = new ArrayList<>();
+    }
+
+    @Override
+    public VariantAnnotation mapLine(String line, int lineNumber) throws Exception {
+        VariantAnnotation variantAnnotation;
+        try {
+            variantAnnotation = lineMapper.mapLine(line, lineNumber);
+        } catch (Exception e) {
+            variantIncomplete = true;
+            nextVariantIncomplete = true;
+            throw e;
+        }
+
+        String id = MongoDBHelper.buildStorageId(variantAnnotation.getChromosome(), variantAnnotation.getStart(),
+                                                 variantAnnotation.getReferenceAllele(),
+                                                 variantAnnotation.getAlternativeAllele());
+        if (id.equals(variantId)) {
+            // the line that couldn't be mapped, if any, was one of this variant
+            nextVariantIncomplete = false;
+        } else {
+            flush();
+            variantId = id;
+            variantIncomplete = nextVariantIncomplete;
+            nextVariantIncomplete = false;
+        }
+        variantLines.add(line);
+        return variantAnnotation;
+    }
+
+    /**
+     * Adds the lines of the last variant mapped to the cache. Must only be called when all its lines have been
+     * mapped, e.g. at the end of a VEP output that finished successfully.
+     */
+    public void flush() {
+        if (variantId != null && !variantIncomplete) {
+            annotationCache.putLines(variantId, variantLines);
+        }
+        variantId = null;
+        variantLines = new ArrayList<>();
+        variantIncomplete = false;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.mappers;
+
+/**
+ * Cursor over the fields of a delimited {@link CharSequence} that doesn't copy the text: each call to
+ * {@link #next()} just moves the bounds of the current token, and a String is only created when {@link #token()}
+ * is called.
+ * <p>
+ * The tokens are the same that {@link String#split(String)} would return for a single-character delimiter,
+ * including the removal of trailing empty tokens.
+ * <p>
+ * Instances are not thread-safe, but can be reused calling {@link #reset(CharSequence, int, int)}.
+ */
+public class FieldTokenizer {
+
+    private static final int MAX_SAFE_INT_DIGITS = 9;
+
+    private final char delimiter;
+
+    private CharSequence text;
+
+    private int end;
+
+    private int position;
+
+    private int tokenStart;
+
+    private int tokenEnd;
+
+    public FieldTokenizer(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public FieldTokenizer(char delimiter, CharSequence text) {
+        this(delimiter);
+        reset(text);
+    }
+
+    public FieldTokenizer reset(CharSequence text) {
+        return reset(text, 0, text.length());
+    }
+
+    /**
+     * Starts tokenizing the region [start, end) of the text.
+     */
+    public FieldTokenizer reset(CharSequence text, int start, int end) {
+        this.text = text;
+        this.position = start;
+        this.tokenStart = start;
+        this.tokenEnd = start;
+
+        // String.split drops trailing empty tokens, unless the whole input is empty
+        int trimmedEnd = end;
+        while (trimmedEnd > start && text.charAt(trimmedEnd - 1) == delimiter) {
+            trimmedEnd--;
+        }
+        if (trimmedEnd == start && end > start) {
+            this.end = start;
+            this.position = start + 1;    // only delimiters: no tokens at all
+        } else {
+            this.end = trimmedEnd;
+        }
+        return this;
+    }
+
+    /**
+     * Starts tokenizing the current token of another tokenizer, e.g. the subfields of a column.
+     */
+    public FieldTokenizer reset(FieldTokenizer outer) {
+        return reset(outer.text, outer.tokenStart, outer.tokenEnd);
+    }
+
+    public boolean hasNext() {
+        return position <= end;
+    }
+
+    /**
+     * Moves the cursor to the next token.
+     *
+     * @return false if there are no more tokens
+     */
+    public boolean next() {
+        if (!hasNext()) {
+            return false;
+        }
+        tokenStart = position;
+        int index = position;
+        while (index < end && text.charAt(index) != delimiter) {
+            index++;
+        }
+        tokenEnd = index;
+        position = index + 1;
+        return true;
+    }
+
+    /**
+     * Skips the given number of tokens.
+     *
+     * @return false if there were not enough tokens
+     */
+    public boolean skip(int tokens) {
+        for (int i = 0; i < tokens; i++) {
+            if (!next()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the tokens not consumed yet, without moving the cursor.
+     */
+    public int countRemaining() {
+        if (!hasNext()) {
+            return 0;
+        }
+        int count = 1;
+        for (int index = position; index < end; index++) {
+            if (text.charAt(index) == delimiter) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    public int tokenLength() {
+        return tokenEnd - tokenStart;
+    }
+
+    /**
+     * Offset where the next token starts, i.e. the end of the region already consumed plus the delimiter.
+     */
+    public int position() {
+        return position;
+    }
+
+    public boolean tokenEquals(String value) {
+        int length = tokenLength();
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(tokenStart + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a String with the current token. This is the only method that copies the text.
+     */
+    public String token() {
+        return text.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    /**
+     * Parses the current token as an int, with the same behaviour as {@link Integer#parseInt(String)}.
+     */
+    public int tokenAsInt() throws NumberFormatException {
+        int length = tokenLength();
+        int index = tokenStart;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+            negative = text.charAt(index) == '-';
+            index++;
+        }
+        int digits = tokenEnd - index;
+        if (digits == 0 || digits > MAX_SAFE_INT_DIGITS) {
+            return Integer.parseInt(token());
+        }
+        int value = 0;
+        for (; index < tokenEnd; index++) {
+            int digit = Character.digit(text.charAt(index), 10);
+            if (digit < 0) {
+                throw new NumberFormatException("For input string: \"" + token() + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
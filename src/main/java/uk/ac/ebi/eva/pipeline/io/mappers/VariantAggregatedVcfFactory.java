@@ -19,6 +19,7 @@ package uk.ac.ebi.eva.pipeline.io.mappers;
 import org.opencb.biodata.models.feature.Genotype;
 import org.opencb.biodata.models.variant.exceptions.NonStandardCompliantSampleField;
 
+import uk.ac.ebi.eva.commons.models.data.SamplesMatrix;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
 import uk.ac.ebi.eva.commons.models.data.VariantStats;
@@ -109,13 +110,13 @@ public class VariantAggregatedVcfFactory extends VariantVcfFactory {
     }
 
     @Override
-    protected void parseSplitSampleData(Variant variant, String fileId, String studyId, String[] fields,
-                                        String[] alternateAlleles, String[] secondaryAlternates, int alternateAlleleIdx)
+    protected SamplesMatrix parseSampleData(String line, int formatColumnOffset, String format)
             throws NonStandardCompliantSampleField {
-        if (fields.length > 8) {
+        if (formatColumnOffset != NO_FORMAT_COLUMN) {
             throw new IllegalArgumentException("Aggregated VCFs should not have column FORMAT nor " +
                     "further sample columns, i.e. there should be only 8 columns");
         }
+        return null;
     }
 
     @Override
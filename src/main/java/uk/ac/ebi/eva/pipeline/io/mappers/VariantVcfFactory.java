@@ -22,17 +22,15 @@ import org.opencb.biodata.models.variant.VariantFactory;
 import org.opencb.biodata.models.variant.exceptions.NonStandardCompliantSampleField;
 import org.opencb.biodata.models.variant.exceptions.NotAVariantException;
 
+import uk.ac.ebi.eva.commons.models.data.SamplesMatrix;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +41,11 @@ import static java.lang.Math.max;
  */
 public class VariantVcfFactory {
 
+    /**
+     * Value of the FORMAT column offset when the line only has the 8 mandatory columns
+     */
+    protected static final int NO_FORMAT_COLUMN = -1;
+
     /**
      * Creates a list of Variant objects using the fields in a record of a VCF
      * file. A new Variant object is created per allele, so several of them can
@@ -59,25 +62,40 @@ public class VariantVcfFactory {
      */
     public List<Variant> create(String fileId, String studyId,
                                 String line) throws IllegalArgumentException, NotAVariantException {
-        String[] fields = line.split("\t");
-        if (fields.length < 8) {
+        FieldTokenizer columns = new FieldTokenizer('\t', line);
+        if (!columns.skip(8)) {
             throw new IllegalArgumentException("Not enough fields provided (min 8)");
         }
-
-        String chromosome = getChromosomeWithoutPrefix(fields);
-        int position = getPosition(fields);
-        Set<String> ids = getIds(fields);
-        String reference = getReference(fields);
-        String[] alternateAlleles = getAlternateAlleles(fields, chromosome, position, reference);
-        float quality = getQuality(fields);
-        String filter = getFilter(fields);
-        String info = getInfo(fields);
-        String format = getFormat(fields);
+        columns.reset(line);
+
+        String chromosome = getChromosomeWithoutPrefix(columns);
+        int position = getPosition(columns);
+        Set<String> ids = getIds(columns);
+        String reference = getReference(columns);
+        String[] alternateAlleles = getAlternateAlleles(columns, chromosome, position, reference);
+        float quality = getQuality(columns);
+        String filter = getFilter(columns);
+        String info = getInfo(columns);
+        int formatColumnOffset = columns.hasNext() ? columns.position() : NO_FORMAT_COLUMN;
+        String format = getFormat(columns);
 
         List<VariantKeyFields> generatedKeyFields = buildVariantKeyFields(chromosome, position, reference,
                 alternateAlleles);
 
         List<Variant> variants = new LinkedList<>();
+
+        // The samples are parsed once, and shared by the variants of every alternate allele
+        SamplesMatrix lineSamples;
+        try {
+            lineSamples = parseSampleData(line, formatColumnOffset, format);
+        } catch (NonStandardCompliantSampleField ex) {
+            Logger.getLogger(VariantFactory.class.getName())
+                  .log(Level.SEVERE,
+                       String.format("Variant %s:%d:%s>%s will not be saved\n%s", chromosome, position, reference,
+                                     String.join(",", alternateAlleles), ex.getMessage()));
+            return variants;
+        }
+
         // Now create all the Variant objects read from the VCF record
         for (int altAlleleIdx = 0; altAlleleIdx < alternateAlleles.length; altAlleleIdx++) {
             VariantKeyFields keyFields = generatedKeyFields.get(altAlleleIdx);
@@ -88,7 +106,8 @@ public class VariantVcfFactory {
             variant.addSourceEntry(file);
 
             try {
-                parseSplitSampleData(variant, fileId, studyId, fields, alternateAlleles, secondaryAlternates, altAlleleIdx);
+                parseSplitSampleData(variant, fileId, studyId, lineSamples, alternateAlleles, secondaryAlternates,
+                                     altAlleleIdx);
                 // Fill the rest of fields (after samples because INFO depends on them)
                 setOtherFields(variant, fileId, studyId, ids, quality, filter, info, format, keyFields.getNumAllele(),
                                alternateAlleles, line);
@@ -108,56 +127,73 @@ public class VariantVcfFactory {
      * Replace "chr" references only at the beginning of the chromosome name.
      * For instance, tomato has SL2.40ch00 and that should be kept that way
      */
-    private String getChromosomeWithoutPrefix(String[] fields) {
-        String chromosome = fields[0];
+    private String getChromosomeWithoutPrefix(FieldTokenizer columns) {
+        columns.next();
         boolean ignoreCase = true;
-        int startOffset = 0;
         String prefixToRemove = "chr";
+        int startOffset = 0;
+        String chromosome = columns.token();
         if (chromosome.regionMatches(ignoreCase, startOffset, prefixToRemove, startOffset, prefixToRemove.length())) {
             return chromosome.substring(prefixToRemove.length());
         }
         return chromosome;
     }
 
-    private int getPosition(String[] fields) {
-        return Integer.parseInt(fields[1]);
+    private int getPosition(FieldTokenizer columns) {
+        columns.next();
+        return columns.tokenAsInt();
     }
 
-    private Set<String> getIds(String[] fields) {
+    private Set<String> getIds(FieldTokenizer columns) {
+        columns.next();
         Set<String> ids = new HashSet<>();
-        if (!fields[2].equals(".")) {    // note!: we store a "." as an empty set, not a set with an empty string
-            ids.addAll(Arrays.asList(fields[2].split(";")));
+        if (!columns.tokenEquals(".")) {    // note!: we store a "." as an empty set, not a set with an empty string
+            FieldTokenizer idTokenizer = new FieldTokenizer(';').reset(columns);
+            while (idTokenizer.next()) {
+                ids.add(idTokenizer.token());
+            }
         }
         return ids;
     }
 
-    private String getReference(String[] fields) {
-        return fields[3].equals(".") ? "" : fields[3];
+    private String getReference(FieldTokenizer columns) {
+        columns.next();
+        return columns.tokenEquals(".") ? "" : columns.token();
     }
 
-    private String[] getAlternateAlleles(String[] fields, String chromosome, int position, String reference) {
-        if (fields[4].equals(".")) {
+    private String[] getAlternateAlleles(FieldTokenizer columns, String chromosome, int position, String reference) {
+        columns.next();
+        if (columns.tokenEquals(".")) {
             throw new NotAVariantException(
                     "Alternative allele is a '.'. This is not an actual variant but a reference position. " +
-                            "Variant found as: " + chromosome + ":" + position + ":" + reference + ">" + fields[4]);
+                            "Variant found as: " + chromosome + ":" + position + ":" + reference + ">"
+                            + columns.token());
         }
-        return fields[4].split(",");
+        FieldTokenizer alleleTokenizer = new FieldTokenizer(',').reset(columns);
+        String[] alternateAlleles = new String[alleleTokenizer.countRemaining()];
+        for (int i = 0; alleleTokenizer.next(); i++) {
+            alternateAlleles[i] = alleleTokenizer.token();
+        }
+        return alternateAlleles;
     }
 
-    private float getQuality(String[] fields) {
-        return fields[5].equals(".") ? -1 : Float.parseFloat(fields[5]);
+    private float getQuality(FieldTokenizer columns) {
+        columns.next();
+        return columns.tokenEquals(".") ? -1 : Float.parseFloat(columns.token());
     }
 
-    private String getFilter(String[] fields) {
-        return fields[6].equals(".") ? "" : fields[6];
+    private String getFilter(FieldTokenizer columns) {
+        columns.next();
+        return columns.tokenEquals(".") ? "" : columns.token();
     }
 
-    private String getInfo(String[] fields) {
-        return fields[7].equals(".") ? "" : fields[7];
+    private String getInfo(FieldTokenizer columns) {
+        columns.next();
+        return columns.tokenEquals(".") ? "" : columns.token();
     }
 
-    private String getFormat(String[] fields) {
-        return (fields.length <= 8 || fields[8].equals(".")) ? "" : fields[8];
+    private String getFormat(FieldTokenizer columns) {
+        return (!columns.next() || columns.tokenEquals(".")) ? "" : columns.token();
     }
 
     private List<VariantKeyFields> buildVariantKeyFields(String chromosome, int position, String reference,
@@ -228,46 +264,65 @@ public class VariantVcfFactory {
         return secondaryAlternates;
     }
 
-    protected void parseSplitSampleData(Variant variant, String fileId, String studyId, String[] fields,
-                                        String[] alternateAlleles, String[] secondaryAlternates,
-                                        int alternateAlleleIdx) throws NonStandardCompliantSampleField {
-        String[] formatFields = variant.getSourceEntry(fileId, studyId).getFormat().split(":");
-
-        for (int i = 9; i < fields.length; i++) {
-            Map<String, String> map = new TreeMap<>();
+    /**
+     * Parses the FORMAT and sample columns of a line, without changing the genotypes. This is done once per line,
+     * regardless of the number of alternate alleles.
+     * <p>
+     * Only the genotypes are decoded here. The rest of FORMAT fields are kept as slices of the line, and decoded if
+     * and when they are read (e.g. DP and GQ are read by {@link #parseInfo} if the INFO column has those keys).
+     *
+     * @param line whole VCF line
+     * @param formatColumnOffset position in the line where the FORMAT column starts, or {@link #NO_FORMAT_COLUMN}
+     * @param format contents of the FORMAT column
+     * @return the sample columns, or null if the line has no FORMAT column
+     */
+    protected SamplesMatrix parseSampleData(String line, int formatColumnOffset, String format)
+            throws NonStandardCompliantSampleField {
+        if (formatColumnOffset == NO_FORMAT_COLUMN) {
+            return null;
+        }
+        String[] formatFields = format.split(":");
+        int genotypePosition = -1;
+        for (int i = 0; i < formatFields.length && genotypePosition < 0; i++) {
+            if (formatFields[i].equalsIgnoreCase(SamplesMatrix.GENOTYPE_FIELD)) {
+                // the genotype is stored as "GT" whatever its case in the file
+                formatFields[i] = SamplesMatrix.GENOTYPE_FIELD;
+                genotypePosition = i;
+            }
+        }
+        SamplesMatrix samples = new SamplesMatrix(formatFields, line);
 
-            // Fill map of a sample
-            String[] sampleFields = fields[i].split(":");
+        FieldTokenizer columns = new FieldTokenizer('\t').reset(line, formatColumnOffset, line.length());
+        columns.next();     // skip FORMAT
+        FieldTokenizer sampleFields = new FieldTokenizer(':');
 
-            // Samples may remove the trailing fields (only GT is mandatory),
-            // so the loop iterates to sampleFields.length, not formatFields.length
-            for (int j = 0; j < sampleFields.length; j++) {
-                String formatField = formatFields[j];
-                String sampleField = processSampleField(alternateAlleleIdx, formatField, sampleFields[j]);
+        while (columns.next()) {
+            int sampleIndex = samples.addRawSample(columns.tokenStart(), columns.tokenEnd());
 
-                map.put(formatField, sampleField);
+            // Samples may remove the trailing fields (only GT is mandatory), so the GT may be missing as well
+            if (genotypePosition >= 0 && sampleFields.reset(columns).skip(genotypePosition + 1)) {
+                samples.setGenotype(sampleIndex, line, sampleFields.tokenStart(), sampleFields.tokenEnd());
             }
-
-            // Add sample to the variant entry in the source file
-            variant.getSourceEntry(fileId, studyId).addSampleData(map);
         }
+        return samples;
     }
 
     /**
-     * If this is a field other than the genotype (GT), return unmodified. Otherwise,
-     * see {@link VariantVcfFactory#processGenotypeField(int, java.lang.String)}
+     * Adds the samples of the line to the variant of one of its alternate alleles. Each alternate gets a view of the
+     * samples where the distinct genotypes are interned and, for the secondary alternates, their allele indexes are
+     * remapped, see {@link VariantVcfFactory#processGenotypeField(int, java.lang.String)}
      *
-     * @param alternateAlleleIdx current alternate being processed. 0 for first alternate, 1 or more for a secondary alternate.
-     * @param formatField as shown in the FORMAT column. most probably the GT field.
-     * @param sampleField parsed value in a column of a sample, such as a genotype, e.g. "0/0".
-     * @return processed sample field, ready to be stored.
+     * @param lineSamples samples parsed by {@link #parseSampleData(String, int, String)}, or null if there are none
      */
-    private String processSampleField(int alternateAlleleIdx, String formatField, String sampleField) {
-        if (formatField.equalsIgnoreCase("GT")) {
-            return processGenotypeField(alternateAlleleIdx, sampleField);
-        } else {
-            return sampleField;
+    protected void parseSplitSampleData(Variant variant, String fileId, String studyId, SamplesMatrix lineSamples,
+                                        String[] alternateAlleles, String[] secondaryAlternates,
+                                        int alternateAlleleIdx) throws NonStandardCompliantSampleField {
+        if (lineSamples == null) {
+            return;
         }
+        SamplesMatrix samples = lineSamples.withGenotypes(
+                genotype -> processGenotypeField(alternateAlleleIdx, genotype));
+        variant.getSourceEntry(fileId, studyId).setSamplesMatrix(samples);
     }
 
     /**
@@ -321,50 +376,53 @@ public class VariantVcfFactory {
 
     protected void parseInfo(Variant variant, String fileId, String studyId, String info, int numAllele) {
         VariantSourceEntry file = variant.getSourceEntry(fileId, studyId);
-
-        for (String var : info.split(";")) {
-            String[] splits = var.split("=");
-            if (splits.length == 2) {
-                switch (splits[0]) {
+        SamplesMatrix samples = file.getSamplesMatrix();
+
+        FieldTokenizer infoFields = new FieldTokenizer(';', info);
+        FieldTokenizer assignment = new FieldTokenizer('=');
+        while (infoFields.next()) {
+            assignment.reset(infoFields);
+            if (assignment.countRemaining() == 2) {
+                assignment.next();
+                String key = assignment.token();
+                assignment.next();
+                switch (key) {
                     case "ACC":
                         // Managing accession ID for the allele
-                        String[] ids = splits[1].split(",");
-                        file.addAttribute(splits[0], ids[numAllele]);
+                        file.addAttribute(key, getAlleleValue(assignment, numAllele));
                         break;
                     case "AC":
                         // TODO For now, only one alternate is supported
-                        String[] counts = splits[1].split(",");
-                        file.addAttribute(splits[0], counts[numAllele]);
+                        file.addAttribute(key, getAlleleValue(assignment, numAllele));
                         break;
                     case "AF":
                         // TODO For now, only one alternate is supported
-                        String[] frequencies = splits[1].split(",");
-                        file.addAttribute(splits[0], frequencies[numAllele]);
+                        file.addAttribute(key, getAlleleValue(assignment, numAllele));
                         break;
 //                    case "AN":
 //                        // TODO For now, only two alleles (reference and one alternate) are supported, but this should be changed
-//                        file.addAttribute(splits[0], "2");
+//                        file.addAttribute(key, "2");
 //                        break;
                     case "NS":
                         // Count the number of samples that are associated with the allele
-                        file.addAttribute(splits[0], String.valueOf(file.getSamplesData().size()));
+                        file.addAttribute(key, String.valueOf(samples.getNumberOfSamples()));
                         break;
                     case "DP":
                         int dp = 0;
-                        for (Map<String, String> sampleData : file.getSamplesData()) {
-                            String sampleDp = sampleData.get("DP");
+                        for (int i = 0; i < samples.getNumberOfSamples(); i++) {
+                            String sampleDp = samples.get(i, "DP");
                             if (StringUtils.isNumeric(sampleDp)) {
                                 dp += Integer.parseInt(sampleDp);
                             }
                         }
-                        file.addAttribute(splits[0], String.valueOf(dp));
+                        file.addAttribute(key, String.valueOf(dp));
                         break;
                     case "MQ":
                     case "MQ0":
                         int mq = 0;
                         int mq0 = 0;
-                        for (Map<String, String> sampleData : file.getSamplesData()) {
-                            String sampleGq = sampleData.get("GQ");
+                        for (int i = 0; i < samples.getNumberOfSamples(); i++) {
+                            String sampleGq = samples.get(i, "GQ");
                             if (StringUtils.isNumeric(sampleGq)) {
                                 int gq = Integer.parseInt(sampleGq);
                                 mq += gq * gq;
@@ -377,15 +435,28 @@ public class VariantVcfFactory {
                         file.addAttribute("MQ0", String.valueOf(mq0));
                         break;
                     default:
-                        file.addAttribute(splits[0], splits[1]);
+                        file.addAttribute(key, assignment.token());
                         break;
                 }
             } else {
-                variant.getSourceEntry(fileId, studyId).addAttribute(splits[0], "");
+                String key = assignment.next() ? assignment.token() : "";
+                variant.getSourceEntry(fileId, studyId).addAttribute(key, "");
             }
         }
     }
 
+    /**
+     * Takes the value of the allele numAllele from a comma-separated list such as "AC=3,5", without splitting the
+     * whole list.
+     */
+    private String getAlleleValue(FieldTokenizer assignment, int numAllele) {
+        FieldTokenizer values = new FieldTokenizer(',').reset(assignment);
+        if (!values.skip(numAllele + 1)) {
+            throw new ArrayIndexOutOfBoundsException(numAllele);
+        }
+        return values.token();
+    }
+
     protected class VariantKeyFields {
 
         int start, end, numAllele;
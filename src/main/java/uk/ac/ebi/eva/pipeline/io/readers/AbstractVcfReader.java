@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import uk.ac.ebi.eva.pipeline.io.BgzfLazyResource;
+import uk.ac.ebi.eva.pipeline.io.GzipLazyResource;
+import uk.ac.ebi.eva.pipeline.io.MappedFileBufferedReader;
+import uk.ac.ebi.eva.pipeline.io.OffsetTrackingBufferedReader;
+import uk.ac.ebi.eva.pipeline.io.OffsetTrackingReader;
+import uk.ac.ebi.eva.pipeline.io.PrefetchingBufferedReader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Reader of the lines of a VCF file (compressed or not), that maps each line with a {@link LineMapper}. A
+ * {@link Resource} can be provided instead of a file to read only a region of the VCF.
+ * <p>
+ * For bgzipped and uncompressed files, the position of the next line to read is saved in the ExecutionContext along
+ * with the number of lines read, so a restart seeks directly to that position instead of reading and discarding all
+ * the lines already processed. Files compressed with plain gzip can't be accessed randomly, so they are still
+ * restarted by skipping lines.
+ * <p>
+ * Uncompressed files are read with a {@link MappedFileBufferedReader}, which maps the file in memory instead of
+ * copying it through a stream.
+ * <p>
+ * The lines are read and decompressed in a background thread by a {@link PrefetchingBufferedReader}, so that the
+ * mapping in the step thread overlaps with the I/O. See {@link #setPrefetchSize(int)}.
+ *
+ * @param <T> type of the items the lines are mapped to
+ */
+public abstract class AbstractVcfReader<T> extends FlatFileItemReader<T> {
+
+    private static final String READ_OFFSET = "read.offset";
+
+    private static final long NO_OFFSET = -1;
+
+    public static final int DEFAULT_PREFETCH_SIZE = 1000;
+
+    private int prefetchSize = DEFAULT_PREFETCH_SIZE;
+
+    private long restartOffset = NO_OFFSET;
+
+    private OffsetTrackingReader offsetTrackingReader;
+
+    private PrefetchingBufferedReader prefetchingReader;
+
+    protected AbstractVcfReader(LineMapper<T> lineMapper, Resource resource) {
+        setResource(resource);
+        setLineMapper(lineMapper);
+        setBufferedReaderFactory(this::createBufferedReader);
+    }
+
+    /**
+     * @param prefetchSize number of lines that can be read in advance in a background thread, or 0 to read them in
+     * the calling thread
+     */
+    public void setPrefetchSize(int prefetchSize) {
+        this.prefetchSize = prefetchSize;
+    }
+
+    private BufferedReader createBufferedReader(Resource resource, String encoding) throws IOException {
+        BufferedReader reader = createFileReader(resource, encoding);
+        if (prefetchSize > 0) {
+            prefetchingReader = new PrefetchingBufferedReader(reader, prefetchSize);
+            return prefetchingReader;
+        }
+        prefetchingReader = null;
+        return reader;
+    }
+
+    private BufferedReader createFileReader(Resource resource, String encoding) throws IOException {
+        long startOffset = restartOffset == NO_OFFSET ? 0 : restartOffset;
+        if (resource instanceof BgzfLazyResource) {
+            BgzfLazyResource bgzfResource = (BgzfLazyResource) resource;
+            if (restartOffset != NO_OFFSET) {
+                bgzfResource = bgzfResource.fromVirtualOffset(restartOffset);
+            }
+            OffsetTrackingBufferedReader reader = new OffsetTrackingBufferedReader(bgzfResource.getInputStream(),
+                                                                                   Charset.forName(encoding));
+            offsetTrackingReader = reader;
+            return reader;
+        } else if (resource instanceof FileSystemResource && !(resource instanceof GzipLazyResource)) {
+            File file = resource.getFile();
+            MappedFileBufferedReader reader = new MappedFileBufferedReader(file, startOffset, file.length(),
+                                                                           Charset.forName(encoding));
+            offsetTrackingReader = reader;
+            return reader;
+        } else {
+            offsetTrackingReader = null;
+            return new BufferedReader(new InputStreamReader(resource.getInputStream(), encoding));
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        String offsetKey = getExecutionContextKey(READ_OFFSET);
+        if (isSaveState() && executionContext.containsKey(offsetKey)) {
+            restartOffset = executionContext.getLong(offsetKey);
+        } else {
+            restartOffset = NO_OFFSET;
+        }
+        super.open(executionContext);
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        if (restartOffset == NO_OFFSET || offsetTrackingReader == null) {
+            super.jumpToItem(itemIndex);
+        }
+        // otherwise the file is already open at the first line not read
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (isSaveState() && offsetTrackingReader != null) {
+            try {
+                long offset = prefetchingReader != null ? prefetchingReader.getOffset()
+                        : offsetTrackingReader.getOffset();
+                executionContext.putLong(getExecutionContextKey(READ_OFFSET), offset);
+            } catch (IOException e) {
+                throw new ItemStreamException("Could not get the position of the next line to read", e);
+            }
+        }
+    }
+
+}
@@ -19,7 +19,9 @@ import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.core.io.Resource;
 
 import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
 import uk.ac.ebi.eva.pipeline.io.GzipLazyResource;
+import uk.ac.ebi.eva.pipeline.io.mappers.AnnotationCacheLineMapper;
 import uk.ac.ebi.eva.pipeline.io.mappers.AnnotationLineMapper;
 
 import java.io.File;
@@ -36,6 +38,10 @@ import java.io.File;
  */
 public class AnnotationFlatFileReader extends FlatFileItemReader<VariantAnnotation> {
 
+    private AnnotationCache annotationCache;
+
+    private AnnotationCacheLineMapper annotationCacheLineMapper;
+
     public AnnotationFlatFileReader(File file) {
         Resource resource = new GzipLazyResource(file);
         setResource(resource);
@@ -45,4 +51,35 @@ public class AnnotationFlatFileReader extends FlatFileItemReader<VariantAnnotati
     public AnnotationFlatFileReader(String string) {
         this(new File(string));
     }
+
+    /**
+     * Adds the lines read to an annotation cache, which is closed when the reader is closed. The last variant is only
+     * added when the end of the file is reached.
+     */
+    public AnnotationFlatFileReader(String string, AnnotationCache annotationCache) {
+        this(string);
+        this.annotationCache = annotationCache;
+        this.annotationCacheLineMapper = new AnnotationCacheLineMapper(new AnnotationLineMapper(), annotationCache);
+        setLineMapper(annotationCacheLineMapper);
+    }
+
+    @Override
+    protected VariantAnnotation doRead() throws Exception {
+        VariantAnnotation variantAnnotation = super.doRead();
+        if (variantAnnotation == null && annotationCacheLineMapper != null) {
+            annotationCacheLineMapper.flush();
+        }
+        return variantAnnotation;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            if (annotationCache != null) {
+                annotationCache.close();
+            }
+        }
+    }
 }
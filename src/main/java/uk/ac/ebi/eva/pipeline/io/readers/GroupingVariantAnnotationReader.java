@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.SingleItemPeekableItemReader;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+/**
+ * Merges the consecutive annotations of the same variant into a single {@link VariantAnnotation}. VEP writes a line
+ * per variant and feature (e.g. transcript), and the lines of a variant are always next to each other, so each read
+ * returns a variant with all its consequence types and HGVS, and the chunks of a step count variants instead of lines.
+ * <p>
+ * The next annotation is peeked with a {@link SingleItemPeekableItemReader}, which saves the state of the delegate
+ * before the peeked item, so a restarted step doesn't lose it.
+ * <p>
+ * If peeking the next annotation fails (e.g. a malformed line), the variant read so far is returned, and the error is
+ * thrown in the next read, so that it can be skipped like in the delegate.
+ */
+public class GroupingVariantAnnotationReader implements ItemStreamReader<VariantAnnotation> {
+
+    private final SingleItemPeekableItemReader<VariantAnnotation> reader;
+
+    private Exception pendingError;
+
+    public GroupingVariantAnnotationReader(ItemStreamReader<VariantAnnotation> delegate) {
+        reader = new SingleItemPeekableItemReader<>();
+        reader.setDelegate(delegate);
+    }
+
+    @Override
+    public VariantAnnotation read() throws Exception {
+        if (pendingError != null) {
+            Exception error = pendingError;
+            pendingError = null;
+            throw error;
+        }
+
+        VariantAnnotation variantAnnotation = reader.read();
+        if (variantAnnotation == null) {
+            return null;
+        }
+
+        String storageId = buildStorageId(variantAnnotation);
+        while (true) {
+            VariantAnnotation nextAnnotation;
+            try {
+                nextAnnotation = reader.peek();
+            } catch (Exception e) {
+                pendingError = e;
+                break;
+            }
+            if (nextAnnotation == null || !storageId.equals(buildStorageId(nextAnnotation))) {
+                break;
+            }
+            variantAnnotation.concatenate(reader.read());
+        }
+        return variantAnnotation;
+    }
+
+    private String buildStorageId(VariantAnnotation variantAnnotation) {
+        return MongoDBHelper.buildStorageId(variantAnnotation.getChromosome(), variantAnnotation.getStart(),
+                                            variantAnnotation.getReferenceAllele(),
+                                            variantAnnotation.getAlternativeAllele());
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        pendingError = null;
+        reader.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        reader.update(executionContext);
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+}
@@ -161,7 +161,7 @@ public class MongoDbCursorItemReader extends AbstractItemCountingItemStreamItemR
         BasicDBObject sort = new BasicDBObject();
 
         for (Map.Entry<String, Sort.Direction> currSort : sorts.entrySet()) {
-            sort.append(currSort.getKey(), currSort.getValue());
+            sort.append(currSort.getKey(), currSort.getValue() == Sort.Direction.ASC ? 1 : -1);
         }
 
         return sort;
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collections;
+
+/**
+ * Reads the whole documents of the variants that have string ids, in the order of their ids.
+ * <p>
+ * When the reader is restarted, instead of skipping again all the documents read before, the query starts after the
+ * last id read, which is saved in the execution context. This only takes a look-up in the _id index, however big
+ * the collection is.
+ */
+public class StringIdVariantsMongoReader extends MongoDbCursorItemReader {
+
+    private static final String ID_FIELD = "_id";
+
+    private static final String LAST_ID_KEY = "last.id";
+
+    private static final int BSON_STRING_TYPE = 2;
+
+    private String lastId;
+
+    public StringIdVariantsMongoReader(MongoOperations template, String collectionsVariantsName) {
+        setName(ClassUtils.getShortName(StringIdVariantsMongoReader.class));
+        setTemplate(template);
+        setCollection(collectionsVariantsName);
+        setQuery(buildQuery(null));
+        setSort(Collections.singletonMap(ID_FIELD, Sort.Direction.ASC));
+    }
+
+    private static DBObject buildQuery(String lastId) {
+        BasicDBObject idCondition = new BasicDBObject("$type", BSON_STRING_TYPE);
+        if (lastId != null) {
+            idCondition.append("$gt", lastId);
+        }
+        return new BasicDBObject(ID_FIELD, idCondition);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (executionContext.containsKey(getExecutionContextKey(LAST_ID_KEY))) {
+            lastId = executionContext.getString(getExecutionContextKey(LAST_ID_KEY));
+            setQuery(buildQuery(lastId));
+        }
+        super.open(executionContext);
+    }
+
+    /**
+     * The documents before the last id are already excluded by the query.
+     */
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+    }
+
+    @Override
+    protected DBObject doRead() throws Exception {
+        DBObject document = super.doRead();
+        if (document != null) {
+            lastId = (String) document.get(ID_FIELD);
+        }
+        return document;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (lastId != null) {
+            executionContext.putString(getExecutionContextKey(LAST_ID_KEY), lastId);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import org.springframework.core.io.Resource;
+
+import uk.ac.ebi.eva.pipeline.model.VcfLine;
+import uk.ac.ebi.eva.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * VCF file reader that doesn't parse the lines, so that the parsing can be done by an
+ * {@link org.springframework.batch.item.ItemProcessor} in several threads, see
+ * {@link uk.ac.ebi.eva.pipeline.jobs.steps.processors.VcfLineProcessor}.
+ * <p>
+ * See {@link AbstractVcfReader} for how restarts and prefetching work.
+ */
+public class VcfLineReader extends AbstractVcfReader<VcfLine> {
+
+    public VcfLineReader(File file) throws IOException {
+        this(FileUtils.getResource(file));
+    }
+
+    public VcfLineReader(Resource resource) {
+        super(VcfLine::new, resource);
+    }
+
+}
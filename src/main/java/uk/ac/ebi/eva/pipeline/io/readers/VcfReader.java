@@ -15,7 +15,6 @@
  */
 package uk.ac.ebi.eva.pipeline.io.readers;
 
-import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.LineMapper;
 import org.springframework.core.io.Resource;
 
@@ -33,9 +32,12 @@ import java.util.List;
  * This Reader uses a {@link VcfLineMapper} to parse each line.
  * <p>
  * It receives a VariantSource (which needs to be completely filled, including the samples, possibly by
- * {@link VcfHeaderReader}), and a file (compressed or not).
+ * {@link VcfHeaderReader}), and a file (compressed or not). A {@link Resource} can be provided instead of a file
+ * to read only a region of the VCF.
+ * <p>
+ * See {@link AbstractVcfReader} for how restarts and prefetching work.
  */
-public class VcfReader extends FlatFileItemReader<List<Variant>> {
+public class VcfReader extends AbstractVcfReader<List<Variant>> {
 
     public VcfReader(String fileId, String studyId, String file)
             throws IOException {
@@ -47,10 +49,16 @@ public class VcfReader extends FlatFileItemReader<List<Variant>> {
         this(new VcfLineMapper(fileId, studyId), file);
     }
 
+    public VcfReader(String fileId, String studyId, Resource resource) {
+        this(new VcfLineMapper(fileId, studyId), resource);
+    }
+
     public VcfReader(LineMapper<List<Variant>> lineMapper, File file) throws IOException {
-        Resource resource = FileUtils.getResource(file);
-        setResource(resource);
-        setLineMapper(lineMapper);
+        this(lineMapper, FileUtils.getResource(file));
+    }
+
+    public VcfReader(LineMapper<List<Variant>> lineMapper, Resource resource) {
+        super(lineMapper, resource);
     }
 
 }
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.util.ClassUtils;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
+import uk.ac.ebi.eva.pipeline.io.mappers.AnnotationCacheLineMapper;
+import uk.ac.ebi.eva.pipeline.io.mappers.AnnotationLineMapper;
+import uk.ac.ebi.eva.pipeline.io.writers.VepInputFlatFileWriter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.processors.AnnotationProcessor;
+import uk.ac.ebi.eva.pipeline.model.VariantWrapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Annotates the variants that have no annotation yet by streaming them through a VEP process, and returns the
+ * annotations as soon as VEP writes them, without intermediate files.
+ * <p>
+ * A thread reads the variants from MongoDB and writes them to the standard input of VEP, in the format of
+ * {@link VepInputFlatFileWriter}, and another thread parses the standard output of VEP with
+ * {@link AnnotationLineMapper}. The parsed annotations wait in a bounded queue until they are read, and the pipes of
+ * the process are bounded too, so VEP and the reading of variants pause while the annotations are being written.
+ * Malformed lines are returned as a {@link FlatFileParseException}, like {@link AnnotationFlatFileReader} does, so
+ * that the step can skip them.
+ * <p>
+ * On a restart only the variants that are still not annotated are sent to VEP, plus the ones at the position of the
+ * last annotation read before the last commit: VEP writes one line per variant and feature, so that chunk may have
+ * included only some of the lines of that variant. The annotations are added to sets, so writing again the lines
+ * already stored doesn't change them.
+ * <p>
+ * If there is an {@link AnnotationCache}, the annotations written by VEP are added to it, but all the variants are
+ * sent to VEP anyway: the annotations of the cached variants would be returned out of order with the ones written by
+ * VEP, and the position of the last annotation read couldn't be used to restart. The cache is only used to skip VEP
+ * when the annotations are generated in files, see
+ * {@link uk.ac.ebi.eva.pipeline.io.writers.AnnotationCacheVepInputWriter}.
+ */
+public class VepAnnotationStreamReader extends ItemStreamSupport implements ItemStreamReader<VariantAnnotation> {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepAnnotationStreamReader.class);
+
+    private static final String LAST_CHROMOSOME_KEY = "last.chromosome";
+
+    private static final String LAST_START_KEY = "last.start";
+
+    private static final String COMMENT_PREFIX = "#";
+
+    private static final String[] VARIANT_FIELDS = {"chr", "start", "end", "ref", "alt"};
+
+    private static final Object END_OF_OUTPUT = new Object();
+
+    private final MongoOperations template;
+
+    private final String collection;
+
+    private final String studyId;
+
+    private final List<String> vepCommand;
+
+    private final File errorLog;
+
+    private final BlockingQueue<Object> annotations;
+
+    private LineMapper<VariantAnnotation> lineMapper;
+
+    private AnnotationCache annotationCache;
+
+    private AnnotationCacheLineMapper annotationCacheLineMapper;
+
+    private Process process;
+
+    private Thread inputWriter;
+
+    private Thread outputParser;
+
+    private volatile Exception inputError;
+
+    private volatile IOException outputError;
+
+    private boolean finished;
+
+    private String lastChromosome;
+
+    private Integer lastStart;
+
+    /**
+     * @param studyId only annotate the variants of this study, or all the variants of the collection if empty
+     * @param vepCommand command line that runs VEP reading the variants from its standard input and writing the
+     *                   annotations to its standard output
+     * @param errorLog file where the standard error of VEP is written
+     * @param bufferSize maximum number of annotations parsed but still not read
+     */
+    public VepAnnotationStreamReader(MongoOperations template, String collection, String studyId,
+                                     List<String> vepCommand, File errorLog, int bufferSize) {
+        setName(ClassUtils.getShortName(VepAnnotationStreamReader.class));
+        this.template = template;
+        this.collection = collection;
+        this.studyId = studyId;
+        this.vepCommand = vepCommand;
+        this.errorLog = errorLog;
+        this.annotations = new ArrayBlockingQueue<>(bufferSize);
+        this.lineMapper = new AnnotationLineMapper();
+    }
+
+    /**
+     * Adds the lines written by VEP to an annotation cache, which is closed when the reader is closed. The cache is
+     * not used to skip the annotation of any variant.
+     */
+    public void setAnnotationCache(AnnotationCache annotationCache) {
+        this.annotationCache = annotationCache;
+        this.annotationCacheLineMapper = new AnnotationCacheLineMapper(new AnnotationLineMapper(), annotationCache);
+        this.lineMapper = annotationCacheLineMapper;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (executionContext.containsKey(getExecutionContextKey(LAST_CHROMOSOME_KEY))) {
+            lastChromosome = executionContext.getString(getExecutionContextKey(LAST_CHROMOSOME_KEY));
+            lastStart = executionContext.getInt(getExecutionContextKey(LAST_START_KEY));
+            logger.info("Resuming the annotation after variant {}:{}", lastChromosome, lastStart);
+        }
+
+        List<ItemStreamReader<DBObject>> variantReaders;
+        try {
+            variantReaders = createVariantReaders(lastChromosome, lastStart);
+        } catch (Exception e) {
+            throw new ItemStreamException("Could not read the variants to annotate", e);
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder(vepCommand).redirectError(errorLog);
+        logger.debug("VEP annotation parameters = " + vepCommand);
+        try {
+            process = processBuilder.start();
+        } catch (IOException e) {
+            throw new ItemStreamException("Could not start VEP", e);
+        }
+        finished = false;
+
+        OutputStream vepInput = process.getOutputStream();
+        InputStream vepOutput = process.getInputStream();
+        inputWriter = startThread("vep-input-writer", () -> writeVariants(variantReaders, vepInput));
+        outputParser = startThread("vep-output-parser", () -> parseAnnotations(vepOutput));
+    }
+
+    /**
+     * The readers are opened with an empty context, instead of restoring the number of variants they had read,
+     * because the variants annotated since then are not returned by the query anymore.
+     *
+     * @param lastChromosome chromosome of the last annotation of the last committed chunk, or null if there is none
+     * @param lastStart start of the last annotation of the last committed chunk, or null if there is none
+     * @return readers of the variants to send to VEP, in order
+     */
+    protected List<ItemStreamReader<DBObject>> createVariantReaders(String lastChromosome, Integer lastStart)
+            throws Exception {
+        List<ItemStreamReader<DBObject>> variantReaders = new ArrayList<>();
+        if (lastChromosome != null) {
+            // VEP moves the start of some indels one position, so the neighbours are annotated again too
+            MongoDbCursorItemReader lastVariantsReader = new MongoDbCursorItemReader();
+            lastVariantsReader.setTemplate(template);
+            lastVariantsReader.setCollection(collection);
+            lastVariantsReader.setQuery(new BasicDBObject("chr", lastChromosome)
+                                                .append("start", new BasicDBObject("$gte", lastStart - 1)
+                                                        .append("$lte", lastStart + 1)));
+            lastVariantsReader.setFields(VARIANT_FIELDS);
+            lastVariantsReader.afterPropertiesSet();
+            variantReaders.add(lastVariantsReader);
+        }
+
+        NonAnnotatedVariantsMongoReader nonAnnotatedVariantsReader = new NonAnnotatedVariantsMongoReader(template,
+                                                                                                         collection,
+                                                                                                         studyId);
+        nonAnnotatedVariantsReader.afterPropertiesSet();
+        variantReaders.add(nonAnnotatedVariantsReader);
+        return variantReaders;
+    }
+
+    private static Thread startThread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void writeVariants(List<ItemStreamReader<DBObject>> variantReaders, OutputStream vepInput) {
+        AnnotationProcessor processor = new AnnotationProcessor();
+        LineAggregator<VariantWrapper> lineAggregator = VepInputFlatFileWriter.buildLineAggregator();
+        long written = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(vepInput, StandardCharsets.UTF_8))) {
+            for (ItemStreamReader<DBObject> variantReader : variantReaders) {
+                variantReader.open(new ExecutionContext());
+                try {
+                    DBObject variant;
+                    while ((variant = variantReader.read()) != null) {
+                        writer.write(lineAggregator.aggregate(processor.process(variant)));
+                        writer.write('\n');
+                        written++;
+                    }
+                } finally {
+                    variantReader.close();
+                }
+            }
+        } catch (Exception e) {
+            inputError = e;
+        }
+        logger.info("Variants sent to VEP: {}", written);
+    }
+
+    private void parseAnnotations(InputStream vepOutput) {
+        try {
+            int lineNumber = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(vepOutput,
+                                                                                  StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.startsWith(COMMENT_PREFIX)) {
+                        continue;
+                    }
+                    annotations.put(mapLine(line, lineNumber));
+                }
+            } catch (IOException e) {
+                outputError = e;
+            }
+            annotations.put(END_OF_OUTPUT);
+        } catch (InterruptedException e) {
+            // the reader was closed before reading all the annotations
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object mapLine(String line, int lineNumber) {
+        try {
+            return lineMapper.mapLine(line, lineNumber);
+        } catch (Exception e) {
+            return new FlatFileParseException("Parsing error at line: " + lineNumber + " of the VEP output, input=["
+                                                      + line + "]", e, line, lineNumber);
+        }
+    }
+
+    /**
+     * @return the next annotation, or null when VEP finished successfully and all its annotations were read
+     * @throws FlatFileParseException if a line of the VEP output is malformed; the following ones can still be read
+     * @throws Exception if VEP failed or didn't read all the variants to annotate, or the reading of those variants
+     * failed
+     */
+    @Override
+    public VariantAnnotation read() throws Exception {
+        if (finished) {
+            return null;
+        }
+
+        Object item = annotations.take();
+        if (item == END_OF_OUTPUT) {
+            finished = true;
+            checkVepFinishedSuccessfully();
+            return null;
+        } else if (item instanceof FlatFileParseException) {
+            throw (FlatFileParseException) item;
+        }
+
+        VariantAnnotation annotation = (VariantAnnotation) item;
+        lastChromosome = annotation.getChromosome();
+        lastStart = annotation.getStart();
+        return annotation;
+    }
+
+    private void checkVepFinishedSuccessfully() throws Exception {
+        int exitValue = process.waitFor();
+        inputWriter.join();
+        if (exitValue != 0) {
+            throw new Exception("Error while running VEP (exit status " + exitValue + "). See " + errorLog
+                                        + " for the errors description from VEP.");
+        }
+        if (outputError != null) {
+            throw new ItemStreamException("Could not read the output of VEP", outputError);
+        }
+        if (inputError instanceof IOException) {
+            // the variants that didn't reach VEP are still not annotated, so a restart will send them again
+            throw new ItemStreamException("VEP finished without reading all the variants to annotate", inputError);
+        } else if (inputError != null) {
+            throw new ItemStreamException("Could not read the variants to annotate", inputError);
+        }
+        if (annotationCacheLineMapper != null) {
+            // VEP finished successfully, so the last variant has all its lines
+            annotationCacheLineMapper.flush();
+        }
+        if (errorLog.length() == 0) {
+            errorLog.delete();
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (lastChromosome != null) {
+            executionContext.putString(getExecutionContextKey(LAST_CHROMOSOME_KEY), lastChromosome);
+            executionContext.putInt(getExecutionContextKey(LAST_START_KEY), lastStart);
+        }
+    }
+
+    /**
+     * Stops VEP if the annotations were not read until the end, e.g. because the step failed.
+     */
+    @Override
+    public void close() throws ItemStreamException {
+        if (process != null && process.isAlive()) {
+            logger.warn("Stopping VEP before reading all the annotations");
+            process.destroy();
+        }
+        if (outputParser != null) {
+            outputParser.interrupt();
+        }
+        process = null;
+        annotations.clear();
+        if (annotationCache != null) {
+            annotationCache.close();
+        }
+    }
+}
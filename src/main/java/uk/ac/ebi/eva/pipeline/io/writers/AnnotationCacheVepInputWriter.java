@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
+import uk.ac.ebi.eva.pipeline.io.mappers.AnnotationLineMapper;
+import uk.ac.ebi.eva.pipeline.model.VariantWrapper;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes to the VEP input only the variants that are not in an {@link AnnotationCache}. The annotations of the
+ * variants found in the cache are written straight away with another writer, e.g. {@link VepAnnotationMongoWriter},
+ * so they don't need to be annotated by VEP.
+ * <p>
+ * The annotation cache is closed when this writer is closed.
+ */
+public class AnnotationCacheVepInputWriter implements ItemStreamWriter<VariantWrapper> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationCacheVepInputWriter.class);
+
+    private final ItemStreamWriter<VariantWrapper> vepInputWriter;
+
+    private final ItemWriter<VariantAnnotation> annotationWriter;
+
+    private final AnnotationCache annotationCache;
+
+    private final AnnotationLineMapper lineMapper;
+
+    private long cachedVariants;
+
+    private long notCachedVariants;
+
+    public AnnotationCacheVepInputWriter(ItemStreamWriter<VariantWrapper> vepInputWriter,
+                                         ItemWriter<VariantAnnotation> annotationWriter,
+                                         AnnotationCache annotationCache) {
+        this.vepInputWriter = vepInputWriter;
+        this.annotationWriter = annotationWriter;
+        this.annotationCache = annotationCache;
+        this.lineMapper = new AnnotationLineMapper();
+    }
+
+    @Override
+    public void write(List<? extends VariantWrapper> variants) throws Exception {
+        List<VariantWrapper> notCached = new ArrayList<>();
+        List<VariantAnnotation> cachedAnnotations = new ArrayList<>();
+        for (VariantWrapper variant : variants) {
+            List<String> lines = annotationCache.getLines(MongoDBHelper.buildStorageId(variant.getChr(),
+                                                                                       variant.getStart(),
+                                                                                       variant.getReference(),
+                                                                                       variant.getAlternate()));
+            if (lines.isEmpty()) {
+                notCached.add(variant);
+            } else {
+                for (String line : lines) {
+                    cachedAnnotations.add(lineMapper.mapLine(line, 0));
+                }
+            }
+        }
+
+        if (!cachedAnnotations.isEmpty()) {
+            annotationWriter.write(cachedAnnotations);
+        }
+        if (!notCached.isEmpty()) {
+            vepInputWriter.write(notCached);
+        }
+        cachedVariants += variants.size() - notCached.size();
+        notCachedVariants += notCached.size();
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        vepInputWriter.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        vepInputWriter.update(executionContext);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        try {
+            vepInputWriter.close();
+        } finally {
+            annotationCache.close();
+        }
+        logger.info("{} variants annotated from the annotation cache, {} variants left for VEP", cachedVariants,
+                    notCachedVariants);
+    }
+}
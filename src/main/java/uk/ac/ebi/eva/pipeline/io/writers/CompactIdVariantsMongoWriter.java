@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.util.Assert;
+
+import uk.ac.ebi.eva.commons.models.converters.data.VariantToDBObjectConverter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Inserts whole variant documents, which already have their compact ids, into the collection a variants collection
+ * is migrated to.
+ * <p>
+ * A document that is already in the collection is skipped, because the chunk that inserted it may have failed after
+ * writing it, and then it is inserted again when the job is restarted. If the document in the collection is another
+ * variant (two variants with the same hash of their alleles) the write fails instead.
+ */
+public class CompactIdVariantsMongoWriter extends SynchronousMongoItemWriter<DBObject> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactIdVariantsMongoWriter.class);
+
+    private static final int DUPLICATE_KEY_ERROR_CODE = 11000;
+
+    private static final List<String> VARIANT_FIELDS = Arrays.asList(VariantToDBObjectConverter.CHROMOSOME_FIELD,
+                                                                     VariantToDBObjectConverter.START_FIELD,
+                                                                     VariantToDBObjectConverter.REFERENCE_FIELD,
+                                                                     VariantToDBObjectConverter.ALTERNATE_FIELD);
+
+    private final MongoOperations mongoOperations;
+
+    private final String collection;
+
+    private WriteConcern writeConcern;
+
+    public CompactIdVariantsMongoWriter(MongoOperations mongoOperations, String collection) {
+        Assert.notNull(mongoOperations, "A Mongo instance is required");
+        Assert.hasText(collection, "A collection name is required");
+        this.mongoOperations = mongoOperations;
+        this.collection = collection;
+        setTemplate(mongoOperations);
+        setCollection(collection);
+    }
+
+    /**
+     * @param writeConcern write concern of the inserts, or null to use the one of the collection
+     */
+    public void setWriteConcern(WriteConcern writeConcern) {
+        this.writeConcern = writeConcern;
+    }
+
+    @Override
+    protected void doWrite(List<? extends DBObject> variants) {
+        if (variants.isEmpty()) {
+            return;
+        }
+        DBCollection dbCollection = mongoOperations.getCollection(collection);
+        BulkWriteOperation bulk = dbCollection.initializeUnorderedBulkOperation();
+        for (DBObject variant : variants) {
+            bulk.insert(variant);
+        }
+
+        try {
+            if (writeConcern != null) {
+                bulk.execute(writeConcern);
+            } else {
+                bulk.execute();
+            }
+        } catch (BulkWriteException e) {
+            if (e.getWriteConcernError() != null) {
+                throw e;
+            }
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR_CODE) {
+                    throw e;
+                }
+                checkSameVariant(dbCollection, variants.get(error.getIndex()));
+            }
+            logger.debug("{} variants were already migrated", e.getWriteErrors().size());
+        }
+    }
+
+    private void checkSameVariant(DBCollection dbCollection, DBObject variant) {
+        BasicDBObject fields = new BasicDBObject();
+        for (String field : VARIANT_FIELDS) {
+            fields.append(field, 1);
+        }
+        DBObject storedVariant = dbCollection.findOne(new BasicDBObject("_id", variant.get("_id")), fields);
+        for (String field : VARIANT_FIELDS) {
+            if (!Objects.equals(storedVariant.get(field), variant.get(field))) {
+                throw new IllegalStateException(
+                        "The variants " + storedVariant + " and " + variant + " have the same compact id");
+            }
+        }
+    }
+}
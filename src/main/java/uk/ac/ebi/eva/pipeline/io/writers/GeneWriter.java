@@ -15,7 +15,6 @@
  */
 package uk.ac.ebi.eva.pipeline.io.writers;
 
-import org.springframework.batch.item.data.MongoItemWriter;
 import org.springframework.data.mongodb.core.MongoOperations;
 import uk.ac.ebi.eva.pipeline.model.FeatureCoordinates;
 
@@ -25,7 +24,7 @@ import uk.ac.ebi.eva.pipeline.model.FeatureCoordinates;
  * This is a thin helper wrapper over MongoItemWriter, which automatically converts beans into DBObjects, given
  * a MongoOperations and a collection name.
  */
-public class GeneWriter extends MongoItemWriter<FeatureCoordinates> {
+public class GeneWriter extends SynchronousMongoItemWriter<FeatureCoordinates> {
 
     public GeneWriter(MongoOperations mongoOperations, String collectionName) {
         super();
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import org.springframework.batch.item.data.MongoItemWriter;
+
+import java.util.List;
+
+/**
+ * {@link MongoItemWriter} that sends the items to MongoDB when they are written, instead of keeping them in a buffer
+ * until the transaction of the chunk is about to commit.
+ * <p>
+ * The writes of a chunk are then done when the listeners that run after the write are called, like
+ * {@link uk.ac.ebi.eva.pipeline.listeners.JournalBarrierListener}, so they can wait for those writes before the chunk
+ * is committed. MongoDB doesn't take part in the transaction anyway: if the chunk fails after the write, its documents
+ * are kept and written again when the step is restarted, so the subclasses must write in a way that can be repeated.
+ */
+public abstract class SynchronousMongoItemWriter<T> extends MongoItemWriter<T> {
+
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        doWrite(items);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Passes all the elements of the collections of a chunk, in order, to the delegate writer in a single call, e.g. the
+ * variants of the lines parsed by a {@link uk.ac.ebi.eva.pipeline.jobs.steps.processors.VcfLineProcessor}.
+ *
+ * @param <T> type of the elements written by the delegate
+ */
+public class UnwindingItemWriter<T> implements ItemWriter<Collection<? extends T>> {
+
+    private final ItemWriter<T> delegate;
+
+    public UnwindingItemWriter(ItemWriter<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(List<? extends Collection<? extends T>> items) throws Exception {
+        List<T> unwoundItems = new ArrayList<>();
+        for (Collection<? extends T> collection : items) {
+            if (collection != null) {
+                unwoundItems.addAll(collection);
+            }
+        }
+        delegate.write(unwoundItems);
+    }
+}
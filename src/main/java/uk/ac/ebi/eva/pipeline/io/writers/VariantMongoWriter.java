@@ -16,11 +16,15 @@
 package uk.ac.ebi.eva.pipeline.io.writers;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
 import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.batch.item.data.MongoItemWriter;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.util.Assert;
 
@@ -28,15 +32,58 @@ import uk.ac.ebi.eva.commons.models.converters.data.VariantSourceEntryToDBObject
 import uk.ac.ebi.eva.commons.models.converters.data.VariantToDBObjectConverter;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.pipeline.model.converters.data.VariantToMongoDbObjectConverter;
+import uk.ac.ebi.eva.utils.BulkWriteReplayer;
 import uk.ac.ebi.eva.utils.MongoDBHelper;
+import uk.ac.ebi.eva.utils.RawDBObjectEncoder;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Write a list of {@link Variant} into MongoDB
  * See also {@link org.opencb.opencga.storage.mongodb.variant.VariantMongoDBWriter}
+ * <p>
+ * If an executor is provided, the variants of a chunk are split in several bulks that are converted and sent to
+ * MongoDB at the same time, each one by a thread of the executor. The conversion and round trip of a bulk overlap
+ * with those of the other bulks of the same chunk, but not with the previous chunk, which has already been written
+ * when the next one is converted. Without an executor, the chunk is converted and then sent as a single bulk. The
+ * write returns when all the bulks have finished, which is before the chunk is committed, so a failed bulk still
+ * fails (and rolls back) the chunk. The same variant always goes to the same bulk, so two upserts of the same
+ * document never race against each other, and can be merged into one.
+ * <p>
+ * When inserting new variants is enabled, the chunks whose region (the span of positions of each chromosome) has no
+ * variants in the collection yet are written as plain inserts of the whole documents, which the server applies
+ * much faster than upserts. If another writer inserts any of those variants in the meantime, the inserts that fail
+ * with a duplicate key are retried as upserts.
+ * <p>
+ * The indexes of the collection are created in background before writing, unless their creation is deferred to
+ * be done at once after loading all the variants, which is much faster than maintaining them while writing. As
+ * queries are very slow without indexes, this is only allowed if the collection doesn't have them yet, which means
+ * that nobody is reading from it.
+ * <p>
+ * The collection is set to send the documents that are already serialized, like the ones from
+ * {@link uk.ac.ebi.eva.pipeline.model.converters.data.VariantToRawDBObjectConverter}, without encoding them again.
+ * The handles of the collections are shared by everyone that uses the same client, so the template should come from a
+ * client that only the variant writers use, like
+ * {@link uk.ac.ebi.eva.pipeline.configuration.MongoConfiguration#variantWriterMongoClient}.
+ * <p>
+ * The kind of _id (string or compact binary) is decided by the converter, and it must be the same that the
+ * variants already in the collection have. With compact ids, the alleles are also part of the query of the upserts,
+ * so in the unlikely case of two variants with the same hash of their alleles, the second one fails with a duplicate
+ * key instead of being added to the document of the first one.
+ * <p>
+ * If some operations of a bulk fail with a transient error, like the primary of the replica set stepping down, only
+ * those are sent again (see {@link BulkWriteReplayer}), instead of failing the whole chunk. This is safe because the
+ * upserts only use $addToSet and $setOnInsert, so applying one twice leaves the same document.
  */
-public class VariantMongoWriter extends MongoItemWriter<Variant> {
+public class VariantMongoWriter extends SynchronousMongoItemWriter<Variant> {
 
     private static final Logger logger = LoggerFactory.getLogger(VariantMongoWriter.class);
 
@@ -44,76 +91,325 @@ public class VariantMongoWriter extends MongoItemWriter<Variant> {
 
     private static final String ANNOTATION_XREF_ID_FIELD = "annot.xrefs.id";
 
+    private static final int DUPLICATE_KEY_ERROR_CODE = 11000;
+
+    private static final DBObject REGION_INDEX = new BasicDBObject(VariantToDBObjectConverter.CHROMOSOME_FIELD, 1)
+            .append(VariantToDBObjectConverter.START_FIELD, 1).append(VariantToDBObjectConverter.END_FIELD, 1);
+
     private final MongoOperations mongoOperations;
 
     private final String collection;
 
     private final VariantToMongoDbObjectConverter variantToMongoDbObjectConverter;
 
+    private final AsyncTaskExecutor bulkExecutor;
+
+    private final int concurrentBulks;
+
+    private final boolean insertNewVariants;
+
+    private final boolean deferIndexes;
+
+    private WriteConcern writeConcern;
+
+    private BulkWriteReplayer bulkWriteReplayer;
+
     public VariantMongoWriter(String collection, MongoOperations mongoOperations,
                               VariantToMongoDbObjectConverter variantToMongoDbObjectConverter) {
+        this(collection, mongoOperations, variantToMongoDbObjectConverter, null, 1);
+    }
+
+    /**
+     * @param bulkExecutor executor that sends the bulks to MongoDB, with at least concurrentBulks threads
+     * @param concurrentBulks maximum number of bulks of a chunk sent at the same time
+     */
+    public VariantMongoWriter(String collection, MongoOperations mongoOperations,
+                              VariantToMongoDbObjectConverter variantToMongoDbObjectConverter,
+                              AsyncTaskExecutor bulkExecutor, int concurrentBulks) {
+        this(collection, mongoOperations, variantToMongoDbObjectConverter, bulkExecutor, concurrentBulks, false,
+             false);
+    }
+
+    /**
+     * @param insertNewVariants whether to insert the variants of a chunk instead of upserting them, when there are
+     *                          no variants in its region yet
+     * @param deferIndexes whether to skip the creation of the indexes, that must be created with
+     *                     {@link #getIndexes()} when all the variants are written
+     * @throws IllegalStateException if the indexes are deferred but the collection already has them, or if the
+     * variants of the collection have another kind of _id than the ones of the converter
+     */
+    public VariantMongoWriter(String collection, MongoOperations mongoOperations,
+                              VariantToMongoDbObjectConverter variantToMongoDbObjectConverter,
+                              AsyncTaskExecutor bulkExecutor, int concurrentBulks, boolean insertNewVariants,
+                              boolean deferIndexes) {
         Assert.notNull(mongoOperations, "A Mongo instance is required");
         Assert.hasText(collection, "A collection name is required");
+        Assert.isTrue(concurrentBulks == 1 || bulkExecutor != null,
+                      "An executor is required to send several bulks at the same time");
 
         this.variantToMongoDbObjectConverter = variantToMongoDbObjectConverter;
         this.mongoOperations = mongoOperations;
         this.collection = collection;
+        this.bulkExecutor = bulkExecutor;
+        this.concurrentBulks = Math.max(1, concurrentBulks);
+        this.insertNewVariants = insertNewVariants;
+        this.deferIndexes = deferIndexes;
+        this.bulkWriteReplayer = new BulkWriteReplayer(0);
         setTemplate(mongoOperations);
+        mongoOperations.getCollection(collection).setDBEncoderFactory(RawDBObjectEncoder.FACTORY);
+        MongoDBHelper.checkStorageIdFormat(mongoOperations.getCollection(collection),
+                                           variantToMongoDbObjectConverter.isCompactIds());
 
+        if (deferIndexes) {
+            checkIndexesCanBeDeferred();
+        }
         createIndexes();
     }
 
+    /**
+     * @param writeConcern write concern of the bulks, or null to use the one of the collection
+     */
+    public void setWriteConcern(WriteConcern writeConcern) {
+        this.writeConcern = writeConcern;
+    }
+
+    /**
+     * @param writeRetries maximum number of times that the operations that failed with a transient error are sent
+     *                     again, 0 (the default) to fail the write straight away
+     */
+    public void setWriteRetries(int writeRetries) {
+        this.bulkWriteReplayer = new BulkWriteReplayer(writeRetries);
+    }
+
+    /**
+     * @return the keys of the indexes of a variants collection
+     */
+    public static List<DBObject> getIndexes() {
+        String filesStudyIdField = String.format("%s.%s", VariantToDBObjectConverter.FILES_FIELD,
+                                                 VariantSourceEntryToDBObjectConverter.STUDYID_FIELD);
+        String filesFileIdField = String.format("%s.%s", VariantToDBObjectConverter.FILES_FIELD,
+                                                VariantSourceEntryToDBObjectConverter.FILEID_FIELD);
+        return Arrays.asList(
+                new BasicDBObject(REGION_INDEX.toMap()),
+                new BasicDBObject(VariantToDBObjectConverter.IDS_FIELD, 1),
+                new BasicDBObject(filesStudyIdField, 1).append(filesFileIdField, 1),
+                new BasicDBObject(ANNOTATION_XREF_ID_FIELD, 1),
+                new BasicDBObject(ANNOTATION_CT_SO_FIELD, 1));
+    }
+
     @Override
     protected void doWrite(List<? extends Variant> variants) {
-        BulkWriteOperation bulk = mongoOperations.getCollection(collection).initializeUnorderedBulkOperation();
+        // checked before splitting the chunk, otherwise a bulk could see the variants inserted by another one
+        boolean insert = insertNewVariants && isNewRegion(variants);
+
+        int numberOfBulks = Math.min(concurrentBulks, variants.size());
+        if (numberOfBulks <= 1) {
+            writeBulk(variants, insert);
+            return;
+        }
+
+        List<List<Variant>> bulks = new ArrayList<>(numberOfBulks);
+        for (int i = 0; i < numberOfBulks; i++) {
+            bulks.add(new ArrayList<>());
+        }
+        for (Variant variant : variants) {
+            Object id = getKey(variantToMongoDbObjectConverter.buildStorageId(variant));
+            int bulkIndex = Math.floorMod(id.hashCode(), numberOfBulks);
+            bulks.get(bulkIndex).add(variant);
+        }
+
+        List<Future<?>> pendingBulks = new ArrayList<>(numberOfBulks);
+        for (List<Variant> bulk : bulks) {
+            pendingBulks.add(bulkExecutor.submit(() -> writeBulk(bulk, insert)));
+        }
+        waitForBulks(pendingBulks);
+    }
+
+    /**
+     * Looks for any variant in the collection between the first and last position of each chromosome of the chunk.
+     * If there is none, no variant of the chunk can be in the collection either.
+     */
+    private boolean isNewRegion(List<? extends Variant> variants) {
+        Map<String, int[]> positionsByChromosome = new LinkedHashMap<>();
         for (Variant variant : variants) {
-            String id = MongoDBHelper.buildStorageId(variant.getChromosome(), variant.getStart(),
-                                                     variant.getReference(), variant.getAlternate());
+            int[] positions = positionsByChromosome.get(variant.getChromosome());
+            if (positions == null) {
+                positionsByChromosome.put(variant.getChromosome(), new int[]{variant.getStart(), variant.getStart()});
+            } else {
+                positions[0] = Math.min(positions[0], variant.getStart());
+                positions[1] = Math.max(positions[1], variant.getStart());
+            }
+        }
+
+        DBCollection dbCollection = mongoOperations.getCollection(collection);
+        for (Map.Entry<String, int[]> positions : positionsByChromosome.entrySet()) {
+            BasicDBObject query = new BasicDBObject(VariantToDBObjectConverter.CHROMOSOME_FIELD, positions.getKey())
+                    .append(VariantToDBObjectConverter.START_FIELD,
+                            new BasicDBObject("$gte", positions.getValue()[0]).append("$lte", positions.getValue()[1]));
+            if (dbCollection.findOne(query, new BasicDBObject("_id", 1)) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Upserts of the same document (e.g. from duplicated lines, or multiallelic variants that are normalized to the
+     * same one) are merged before building the bulk, so each document is only updated once.
+     */
+    private void writeBulk(List<? extends Variant> variants, boolean insert) {
+        List<Upsert> upserts = new ArrayList<>(variants.size());
+        Map<Object, Upsert> upsertsById = new HashMap<>();
+        for (Variant variant : variants) {
+            Object id = variantToMongoDbObjectConverter.buildStorageId(variant);
+            DBObject update = variantToMongoDbObjectConverter.convert(variant);
+
+            Upsert previousUpsert = upsertsById.get(getKey(id));
+            if (previousUpsert != null) {
+                previousUpsert.update = MongoDBHelper.toMutable(previousUpsert.update);
+                if (MongoDBHelper.mergeUpserts(previousUpsert.update, update)) {
+                    continue;
+                }
+            }
 
             // the chromosome and start appear just as shard keys, in an unsharded cluster they wouldn't be needed
             BasicDBObject query = new BasicDBObject("_id", id)
                     .append(VariantToDBObjectConverter.CHROMOSOME_FIELD, variant.getChromosome())
                     .append(VariantToDBObjectConverter.START_FIELD, variant.getStart());
+            if (variantToMongoDbObjectConverter.isCompactIds()) {
+                query.append(VariantToDBObjectConverter.REFERENCE_FIELD, variant.getReference())
+                     .append(VariantToDBObjectConverter.ALTERNATE_FIELD, variant.getAlternate());
+            }
 
-            DBObject update = variantToMongoDbObjectConverter.convert(variant);
+            Upsert upsert = new Upsert(query, update);
+            upserts.add(upsert);
+            upsertsById.put(getKey(id), upsert);
+        }
 
-            bulk.find(query).upsert().updateOne(update);
+        if (upserts.size() < variants.size()) {
+            logger.trace("Merged {} upserts of the same variants", variants.size() - upserts.size());
+        }
+
+        if (insert) {
+            upserts = insertDocuments(upserts);
+        }
+
+        logger.trace("Execute bulk. BulkSize : " + upserts.size());
+        bulkWriteReplayer.execute(mongoOperations.getCollection(collection), upserts,
+                                  (bulk, upsert) -> bulk.find(upsert.query).upsert().updateOne(upsert.update),
+                                  writeConcern);
+    }
+
+    /**
+     * @return a key with the same equals and hashCode for equal ids, which arrays don't have
+     */
+    private static Object getKey(Object id) {
+        return id instanceof byte[] ? ByteBuffer.wrap((byte[]) id) : id;
+    }
 
+    /**
+     * Inserts the documents that the upserts would create.
+     *
+     * @return the upserts that couldn't be inserted because their document already existed, or because they can't
+     * be turned into a document, and have to be applied as upserts
+     */
+    private List<Upsert> insertDocuments(List<Upsert> upserts) {
+        List<Upsert> pendingUpserts = new ArrayList<>();
+        List<Upsert> insertedUpserts = new ArrayList<>(upserts.size());
+        List<DBObject> documents = new ArrayList<>(upserts.size());
+        for (Upsert upsert : upserts) {
+            DBObject document = MongoDBHelper.buildInsertedDocument(upsert.update);
+            if (document == null) {
+                pendingUpserts.add(upsert);
+            } else {
+                documents.add(document);
+                insertedUpserts.add(upsert);
+            }
         }
 
-        executeBulk(bulk, variants.size());
+        // a replayed insert that had been applied fails with a duplicate key too, and the upsert won't change it
+        logger.trace("Execute bulk. BulkSize : " + documents.size());
+        List<BulkWriteError> errors = bulkWriteReplayer.executeAndCollectErrors(
+                mongoOperations.getCollection(collection), documents, BulkWriteOperation::insert, writeConcern);
+        for (BulkWriteError error : errors) {
+            if (error.getCode() != DUPLICATE_KEY_ERROR_CODE) {
+                throw new MongoException(error.getCode(), "Insert of a variant failed: " + error.getMessage());
+            }
+            pendingUpserts.add(insertedUpserts.get(error.getIndex()));
+        }
+        if (!errors.isEmpty()) {
+            logger.debug("{} variants were already in the collection, they will be upserted", errors.size());
+        }
+        return pendingUpserts;
     }
 
-    private void executeBulk(BulkWriteOperation bulk, int currentBulkSize) {
-        if (currentBulkSize != 0) {
-            logger.trace("Execute bulk. BulkSize : " + currentBulkSize);
-            bulk.execute();
+    /**
+     * Waits for all the bulks, even if one of them fails, so none is still running when the chunk is rolled back.
+     * Then the first error is thrown.
+     */
+    private void waitForBulks(List<Future<?>> pendingBulks) {
+        RuntimeException firstError = null;
+        boolean interrupted = false;
+        for (Future<?> pendingBulk : pendingBulks) {
+            while (true) {
+                try {
+                    pendingBulk.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (firstError == null) {
+                        Throwable cause = e.getCause();
+                        firstError = cause instanceof RuntimeException ? (RuntimeException) cause
+                                : new IllegalStateException("Bulk write failed", cause);
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (firstError != null) {
+            throw firstError;
         }
     }
 
+    /**
+     * The region index is needed to look for new regions, so it is not deferred when inserting new variants.
+     */
     private void createIndexes() {
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(VariantToDBObjectConverter.CHROMOSOME_FIELD, 1)
-                    .append(VariantToDBObjectConverter.START_FIELD, 1).append(VariantToDBObjectConverter.END_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+        for (DBObject index : getIndexes()) {
+            if (!deferIndexes || (insertNewVariants && index.equals(REGION_INDEX))) {
+                mongoOperations.getCollection(collection).createIndex(
+                        index, new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+            }
+        }
+    }
 
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(VariantToDBObjectConverter.IDS_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+    private void checkIndexesCanBeDeferred() {
+        List<DBObject> deferredIndexes = new ArrayList<>(getIndexes());
+        if (insertNewVariants) {
+            deferredIndexes.remove(REGION_INDEX);
+        }
+        for (DBObject indexInfo : mongoOperations.getCollection(collection).getIndexInfo()) {
+            if (deferredIndexes.contains(indexInfo.get("key"))) {
+                throw new IllegalStateException(
+                        "The creation of the indexes can't be deferred because the collection '" + collection
+                                + "' already has the index " + indexInfo.get("key") + ", so it may be in use");
+            }
+        }
+    }
 
-        String filesStudyIdField = String.format("%s.%s", VariantToDBObjectConverter.FILES_FIELD,
-                                                 VariantSourceEntryToDBObjectConverter.STUDYID_FIELD);
-        String filesFileIdField = String.format("%s.%s", VariantToDBObjectConverter.FILES_FIELD,
-                                                 VariantSourceEntryToDBObjectConverter.FILEID_FIELD);
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(filesStudyIdField, 1).append(filesFileIdField, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+    private static class Upsert {
 
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(ANNOTATION_XREF_ID_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(ANNOTATION_CT_SO_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+        private final DBObject query;
+
+        private DBObject update;
+
+        Upsert(DBObject query, DBObject update) {
+            this.query = query;
+            this.update = update;
+        }
     }
-}
\ No newline at end of file
+}
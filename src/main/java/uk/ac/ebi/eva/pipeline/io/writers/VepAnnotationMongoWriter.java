@@ -18,14 +18,15 @@ package uk.ac.ebi.eva.pipeline.io.writers;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.batch.item.data.MongoItemWriter;
 import org.springframework.data.mongodb.core.MongoOperations;
 
 import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
 import uk.ac.ebi.eva.commons.models.converters.data.VariantAnnotationToDBObjectConverter;
+import uk.ac.ebi.eva.utils.BulkWriteReplayer;
 import uk.ac.ebi.eva.utils.MongoDBHelper;
 
 import java.util.ArrayList;
@@ -55,16 +56,20 @@ import java.util.Map;
  *      { "id" : "ENST00000608838", "src" : "ensemblTranscript" },
  *      { "id" : "ENSG00000178591", "src" : "ensemblGene"
  */
-public class VepAnnotationMongoWriter extends MongoItemWriter<VariantAnnotation> {
+public class VepAnnotationMongoWriter extends SynchronousMongoItemWriter<VariantAnnotation> {
     private static final Logger logger = LoggerFactory.getLogger(VepAnnotationMongoWriter.class);
 
     private MongoOperations mongoOperations;
     private String collection;
     private VariantAnnotationToDBObjectConverter converter;
+    private WriteConcern writeConcern;
+    private boolean compactIds;
+    private BulkWriteReplayer bulkWriteReplayer;
 
     public VepAnnotationMongoWriter(MongoOperations mongoOperations) {
         this.mongoOperations = mongoOperations;
         this.converter = new VariantAnnotationToDBObjectConverter();
+        this.bulkWriteReplayer = new BulkWriteReplayer(0);
     }
 
     public VepAnnotationMongoWriter(MongoOperations mongoOperations, String collection){
@@ -73,12 +78,40 @@ public class VepAnnotationMongoWriter extends MongoItemWriter<VariantAnnotation>
         setTemplate(mongoOperations);
     }
 
+    /**
+     * @param compactIds whether the variants of the collection have the ids of
+     *                   {@link MongoDBHelper#buildCompactStorageId(String, int, String, String)}
+     * @throws IllegalStateException if the variants of the collection have the other kind of ids
+     */
+    public VepAnnotationMongoWriter(MongoOperations mongoOperations, String collection, boolean compactIds) {
+        this(mongoOperations, collection);
+        this.compactIds = compactIds;
+        MongoDBHelper.checkStorageIdFormat(mongoOperations.getCollection(collection), compactIds);
+    }
+
     @Override
     public void setCollection(String collection) {
         super.setCollection(collection);
         this.collection = collection;
     }
 
+    /**
+     * @param writeConcern write concern of the updates, or null to use the one of the collection
+     */
+    public void setWriteConcern(WriteConcern writeConcern) {
+        this.writeConcern = writeConcern;
+    }
+
+    /**
+     * The updates only add elements to sets, so they can be sent again when it's not known whether they were applied.
+     *
+     * @param writeRetries maximum number of times that an update that failed with a transient error is sent again,
+     *                     0 (the default) to fail the write straight away
+     */
+    public void setWriteRetries(int writeRetries) {
+        this.bulkWriteReplayer = new BulkWriteReplayer(writeRetries);
+    }
+
     private Map<String, List<VariantAnnotation>> groupVariantAnnotationById(List<? extends VariantAnnotation> variantAnnotations){
         // The following method is not working with java8 .<40. Should be resuscitated when travis is updated to a
         // more recent java version (1.8.0_31 atm)
@@ -97,76 +130,65 @@ public class VepAnnotationMongoWriter extends MongoItemWriter<VariantAnnotation>
         return variantAnnotationsByStorageId;
     }
 
+    /**
+     * The annotations of each variant are merged into a single update, and the updates of the whole chunk are sent
+     * in one unordered bulk.
+     */
     @Override
     protected void doWrite(List<? extends VariantAnnotation> variantAnnotations) {
 
         Map<String, List<VariantAnnotation>> variantAnnotationsByStorageId = groupVariantAnnotationById(variantAnnotations);
 
+        List<Update> updates = new ArrayList<>(variantAnnotationsByStorageId.size());
         for (Map.Entry<String, List<VariantAnnotation>> annotationsIn : variantAnnotationsByStorageId.entrySet()){
             String storageId = annotationsIn.getKey();
             List<VariantAnnotation> annotations = annotationsIn.getValue();
 
             VariantAnnotation variantAnnotation = annotations.get(0);
-
-            if(annotations.size()>1){
-                variantAnnotation = concatenateOtherAnnotations(
-                        variantAnnotation, annotations.subList(1, annotations.size()));
+            for (VariantAnnotation otherAnnotation : annotations.subList(1, annotations.size())) {
+                variantAnnotation.concatenate(otherAnnotation);
             }
 
-            writeVariantAnnotationInMongoDb(storageId, variantAnnotation);
+            Update update = buildUpdate(storageId, variantAnnotation);
+            if (update != null) {
+                updates.add(update);
+            }
         }
 
+        if (!updates.isEmpty()) {
+            logger.trace("Execute bulk. BulkSize : " + updates.size());
+            bulkWriteReplayer.execute(mongoOperations.getCollection(collection), updates,
+                                      (bulk, update) -> bulk.find(update.query).updateOne(update.update),
+                                      writeConcern);
+        }
     }
 
     /**
-     * Append multiple annotation into a single {@link VariantAnnotation}
-     * Updated fields are ConsequenceTypes and Hgvs
-     *
-     * @param variantAnnotation annotation where other annotations will be appended
-     * @param otherAnnotationsToConcatenate annotations to be appended
-     * @return a single {@link VariantAnnotation} ready to be persisted
+     * @return an update that adds the consequence types and the xrefs of the annotation to the variant, or null if
+     * there is nothing to add
      */
-    private VariantAnnotation concatenateOtherAnnotations(VariantAnnotation variantAnnotation,
-                                                          List<VariantAnnotation> otherAnnotationsToConcatenate){
-
-        for (VariantAnnotation annotationToAppend : otherAnnotationsToConcatenate) {
-
-            //update ConsequenceTypes
-            if(annotationToAppend.getConsequenceTypes() != null){
-                variantAnnotation.getConsequenceTypes().addAll(annotationToAppend.getConsequenceTypes());
-            }
-
-            //update Hgvs
-            if(annotationToAppend.getHgvs() != null){
-                if(variantAnnotation.getHgvs() == null){
-                    variantAnnotation.setHgvs(new ArrayList<>());
-                }
-                variantAnnotation.getHgvs().addAll(annotationToAppend.getHgvs());
-            }
-        }
-
-        return variantAnnotation;
-    }
-
-    private void writeVariantAnnotationInMongoDb(String storageId, VariantAnnotation variantAnnotation){
+    private Update buildUpdate(String storageId, VariantAnnotation variantAnnotation){
         logger.trace("Writing annotations into mongo id: {}", storageId);
 
         DBObject storageVariantAnnotation = converter.convert(variantAnnotation);
 
-        BasicDBObject find = new BasicDBObject("_id", storageId);
+        Object id = compactIds ? MongoDBHelper.buildCompactStorageId(variantAnnotation.getChromosome(),
+                                                                     variantAnnotation.getStart(),
+                                                                     variantAnnotation.getReferenceAllele(),
+                                                                     variantAnnotation.getAlternativeAllele())
+                : storageId;
+        BasicDBObject find = new BasicDBObject("_id", id);
 
+        BasicDBObject addToSet = new BasicDBObject();
         if(storageVariantAnnotation.get("ct") != null){
-            BasicDBObject updateCt = new BasicDBObject("$addToSet", new BasicDBObject("annot.ct",
-                    new BasicDBObject("$each", storageVariantAnnotation.get("ct")) ));
-            mongoOperations.getCollection(collection).update(find, updateCt);
+            addToSet.append("annot.ct", new BasicDBObject("$each", storageVariantAnnotation.get("ct")));
         }
 
         if(storageVariantAnnotation.get("xrefs") != null){
-            BasicDBObject updateXrefs = new BasicDBObject("$addToSet", new BasicDBObject("annot.xrefs",
-                    new BasicDBObject("$each", storageVariantAnnotation.get("xrefs"))));
-            mongoOperations.getCollection(collection).update(find, updateXrefs);
+            addToSet.append("annot.xrefs", new BasicDBObject("$each", storageVariantAnnotation.get("xrefs")));
         }
 
+        return addToSet.isEmpty() ? null : new Update(find, new BasicDBObject("$addToSet", addToSet));
     }
 
     private String buildStorageIdFromVariantAnnotation(VariantAnnotation variantAnnotation){
@@ -177,4 +199,15 @@ public class VepAnnotationMongoWriter extends MongoItemWriter<VariantAnnotation>
                 variantAnnotation.getAlternativeAllele());
     }
 
+    private static class Update {
+
+        private final DBObject query;
+
+        private final DBObject update;
+
+        Update(DBObject query, DBObject update) {
+            this.query = query;
+            this.update = update;
+        }
+    }
 }
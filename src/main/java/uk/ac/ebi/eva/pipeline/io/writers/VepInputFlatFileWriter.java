@@ -18,6 +18,7 @@ package uk.ac.ebi.eva.pipeline.io.writers;
 import org.springframework.batch.item.file.FlatFileItemWriter;
 import org.springframework.batch.item.file.transform.BeanWrapperFieldExtractor;
 import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
+import org.springframework.batch.item.file.transform.LineAggregator;
 import org.springframework.core.io.FileSystemResource;
 import uk.ac.ebi.eva.pipeline.model.VariantWrapper;
 
@@ -46,21 +47,27 @@ public class VepInputFlatFileWriter extends FlatFileItemWriter<VariantWrapper> {
     public VepInputFlatFileWriter(File file) {
         super();
 
-        BeanWrapperFieldExtractor<VariantWrapper> fieldExtractor = new BeanWrapperFieldExtractor<>();
-        fieldExtractor.setNames(new String[]{"chr", "start", "end", "refAlt", "strand"});
-
-        DelimitedLineAggregator<VariantWrapper> delLineAgg = new DelimitedLineAggregator<>();
-        delLineAgg.setDelimiter("\t");
-        delLineAgg.setFieldExtractor(fieldExtractor);
-
         setResource(new FileSystemResource(file));
         setAppendAllowed(false);
         setShouldDeleteIfExists(true);
-        setLineAggregator(delLineAgg);
+        setLineAggregator(buildLineAggregator());
     }
 
     public VepInputFlatFileWriter(String filePath) {
         this(new File(filePath));
     }
 
+    /**
+     * @return aggregator that formats a variant as a line of the VEP input, without the line separator
+     */
+    public static LineAggregator<VariantWrapper> buildLineAggregator() {
+        BeanWrapperFieldExtractor<VariantWrapper> fieldExtractor = new BeanWrapperFieldExtractor<>();
+        fieldExtractor.setNames(new String[]{"chr", "start", "end", "refAlt", "strand"});
+
+        DelimitedLineAggregator<VariantWrapper> delLineAgg = new DelimitedLineAggregator<>();
+        delLineAgg.setDelimiter("\t");
+        delLineAgg.setFieldExtractor(fieldExtractor);
+        return delLineAgg;
+    }
+
 }
@@ -32,13 +32,13 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
 import uk.ac.ebi.eva.pipeline.jobs.flows.AnnotationFlowOptional;
+import uk.ac.ebi.eva.pipeline.jobs.flows.VariantLoaderFlow;
 import uk.ac.ebi.eva.pipeline.jobs.steps.LoadFileStep;
-import uk.ac.ebi.eva.pipeline.jobs.steps.VariantLoaderStep;
 import uk.ac.ebi.eva.pipeline.parameters.validation.job.AggregatedVcfJobParametersValidator;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.AGGREGATED_VCF_JOB;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_FILE_STEP;
-import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_FLOW;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_OPTIONAL_FLOW;
 
 /**
@@ -51,7 +51,7 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_OPTI
  */
 @Configuration
 @EnableBatchProcessing
-@Import({VariantLoaderStep.class, LoadFileStep.class, AnnotationFlowOptional.class})
+@Import({VariantLoaderFlow.class, LoadFileStep.class, AnnotationFlowOptional.class})
 public class AggregatedVcfJob {
 
     private static final Logger logger = LoggerFactory.getLogger(AggregatedVcfJob.class);
@@ -61,8 +61,8 @@ public class AggregatedVcfJob {
     private Flow annotationFlowOptional;
 
     @Autowired
-    @Qualifier(LOAD_VARIANTS_STEP)
-    private Step variantLoaderStep;
+    @Qualifier(LOAD_VARIANTS_FLOW)
+    private Flow variantLoaderFlow;
 
     @Autowired
     @Qualifier(LOAD_FILE_STEP)
@@ -78,7 +78,7 @@ public class AggregatedVcfJob {
                 .incrementer(new RunIdIncrementer())
                 .validator(new AggregatedVcfJobParametersValidator());
         FlowJobBuilder builder = jobBuilder
-                .flow(variantLoaderStep)
+                .start(variantLoaderFlow)
                 .next(loadFileStep)
                 .next(annotationFlowOptional)
                 .end();
@@ -32,13 +32,13 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
 import uk.ac.ebi.eva.pipeline.jobs.flows.ParallelStatisticsAndAnnotationFlow;
+import uk.ac.ebi.eva.pipeline.jobs.flows.VariantLoaderFlow;
 import uk.ac.ebi.eva.pipeline.jobs.steps.LoadFileStep;
-import uk.ac.ebi.eva.pipeline.jobs.steps.VariantLoaderStep;
 import uk.ac.ebi.eva.pipeline.parameters.validation.job.GenotypedVcfJobParametersValidator;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENOTYPED_VCF_JOB;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_FILE_STEP;
-import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_FLOW;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.PARALLEL_STATISTICS_AND_ANNOTATION;
 
 /**
@@ -52,7 +52,7 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.PARALLEL_STATISTICS
  */
 @Configuration
 @EnableBatchProcessing
-@Import({VariantLoaderStep.class, LoadFileStep.class, ParallelStatisticsAndAnnotationFlow.class})
+@Import({VariantLoaderFlow.class, LoadFileStep.class, ParallelStatisticsAndAnnotationFlow.class})
 public class GenotypedVcfJob {
 
     private static final Logger logger = LoggerFactory.getLogger(GenotypedVcfJob.class);
@@ -62,8 +62,8 @@ public class GenotypedVcfJob {
     private Flow parallelStatisticsAndAnnotation;
 
     @Autowired
-    @Qualifier(LOAD_VARIANTS_STEP)
-    private Step variantLoaderStep;
+    @Qualifier(LOAD_VARIANTS_FLOW)
+    private Flow variantLoaderFlow;
 
     @Autowired
     @Qualifier(LOAD_FILE_STEP)
@@ -79,7 +79,7 @@ public class GenotypedVcfJob {
                 .incrementer(new RunIdIncrementer())
                 .validator(new GenotypedVcfJobParametersValidator());
         FlowJobBuilder builder = jobBuilder
-                .flow(variantLoaderStep)
+                .start(variantLoaderFlow)
                 .next(loadFileStep)
                 .next(parallelStatisticsAndAnnotation)
                 .end();
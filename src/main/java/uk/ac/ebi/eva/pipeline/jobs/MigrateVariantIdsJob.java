@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Scope;
+
+import uk.ac.ebi.eva.pipeline.jobs.steps.CreateCompactVariantIndexesStep;
+import uk.ac.ebi.eva.pipeline.jobs.steps.MigrateVariantIdsStep;
+import uk.ac.ebi.eva.pipeline.parameters.validation.job.MigrateVariantIdsJobParametersValidator;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.CREATE_COMPACT_VARIANT_INDEXES_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.MIGRATE_VARIANT_IDS_JOB;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.MIGRATE_VARIANT_IDS_STEP;
+
+/**
+ * Job that migrates a variants collection with string ids to compact ids. As the _id of a document can't be
+ * modified, the variants are copied into another collection:
+ * <p>
+ * copy the variants with compact ids --> create the indexes of the new collection
+ * <p>
+ * The original collection is not modified, so it can still be used while the job runs, and replaced with the new one
+ * (for instance, renaming them) when it finishes. The statistics of the variants are copied, but new statistics can't
+ * be loaded into compact ids.
+ */
+@Configuration
+@EnableBatchProcessing
+@Import({MigrateVariantIdsStep.class, CreateCompactVariantIndexesStep.class})
+public class MigrateVariantIdsJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrateVariantIdsJob.class);
+
+    @Autowired
+    @Qualifier(MIGRATE_VARIANT_IDS_STEP)
+    private Step migrateVariantIdsStep;
+
+    @Autowired
+    @Qualifier(CREATE_COMPACT_VARIANT_INDEXES_STEP)
+    private Step createCompactVariantIndexesStep;
+
+    @Bean(MIGRATE_VARIANT_IDS_JOB)
+    @Scope("prototype")
+    public Job migrateVariantIdsJob(JobBuilderFactory jobBuilderFactory) {
+        logger.debug("Building '" + MIGRATE_VARIANT_IDS_JOB + "'");
+
+        return jobBuilderFactory
+                .get(MIGRATE_VARIANT_IDS_JOB)
+                .incrementer(new RunIdIncrementer())
+                .validator(new MigrateVariantIdsJobParametersValidator())
+                .start(migrateVariantIdsStep)
+                .next(createCompactVariantIndexesStep)
+                .build();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.deciders;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+
+/**
+ * Decider used to create the indexes of the variants collection after loading the variants, if their creation was
+ * deferred by the writer.
+ */
+public class DeferredIndexesDecider implements JobExecutionDecider {
+
+    public static final String CREATE_INDEXES = "CREATE_INDEXES";
+
+    public static final String INDEXES_CREATED = "INDEXES_CREATED";
+
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+        String deferIndexes = jobExecution.getJobParameters().getString(JobParametersNames.CONFIG_DB_DEFER_INDEXES);
+        if (Boolean.parseBoolean(deferIndexes)) {
+            return new FlowExecutionStatus(CREATE_INDEXES);
+        }
+        return new FlowExecutionStatus(INDEXES_CREATED);
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.deciders;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+
+/**
+ * Decider used to annotate the variants streaming them through VEP, instead of generating the VEP input and output
+ * files and loading the annotations from them.
+ * <p>
+ * When streaming, an annotation cache is only filled with the annotations written by VEP: only the generation of the
+ * VEP input looks up the variants in the cache to avoid annotating them again.
+ */
+public class StreamingAnnotationDecider implements JobExecutionDecider {
+
+    public static final String STREAM_ANNOTATION = "STREAM_ANNOTATION";
+
+    public static final String GENERATE_FILES = "GENERATE_FILES";
+
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+        String streaming = jobExecution.getJobParameters().getString(JobParametersNames.CONFIG_ANNOTATION_STREAMING);
+        if (Boolean.parseBoolean(streaming)) {
+            return new FlowExecutionStatus(STREAM_ANNOTATION);
+        }
+        return new FlowExecutionStatus(GENERATE_FILES);
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.deciders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+
+import uk.ac.ebi.eva.pipeline.io.VcfIndex;
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.utils.CompressionHelper;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Decider used to load the variants in parallel by chromosome if the VCF is compressed with bgzip and has a tabix
+ * or CSI index next to it.
+ */
+public class VcfIndexDecider implements JobExecutionDecider {
+
+    private static final Logger logger = LoggerFactory.getLogger(VcfIndexDecider.class);
+
+    public static final String PARTITIONED_LOAD = "PARTITIONED_LOAD";
+
+    public static final String SEQUENTIAL_LOAD = "SEQUENTIAL_LOAD";
+
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+        File vcfFile = new File(jobExecution.getJobParameters().getString(JobParametersNames.INPUT_VCF));
+        File indexFile = VcfIndex.findIndexFile(vcfFile);
+
+        if (indexFile != null && isBgzip(vcfFile)) {
+            logger.info("Index {} found, variants will be loaded in parallel by chromosome", indexFile);
+            return new FlowExecutionStatus(PARTITIONED_LOAD);
+        }
+
+        return new FlowExecutionStatus(SEQUENTIAL_LOAD);
+    }
+
+    private boolean isBgzip(File vcfFile) {
+        try {
+            return CompressionHelper.isBgzip(vcfFile);
+        } catch (IOException e) {
+            throw new RuntimeException("File " + vcfFile + " is not readable", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.deciders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+
+/**
+ * Decider used to run several VEP processes over shards of the VEP input, instead of a single one over the whole
+ * input, when more than one process is requested.
+ */
+public class VepProcessesDecider implements JobExecutionDecider {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepProcessesDecider.class);
+
+    public static final String PARTITIONED_ANNOTATION = "PARTITIONED_ANNOTATION";
+
+    public static final String SINGLE_PROCESS_ANNOTATION = "SINGLE_PROCESS_ANNOTATION";
+
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+        String vepNumProcesses = jobExecution.getJobParameters().getString(JobParametersNames.APP_VEP_NUM_PROCESSES);
+        if (vepNumProcesses != null && Integer.parseInt(vepNumProcesses) > 1) {
+            logger.info("The variants will be annotated by {} VEP processes in parallel", vepNumProcesses);
+            return new FlowExecutionStatus(PARTITIONED_ANNOTATION);
+        }
+        return new FlowExecutionStatus(SINGLE_PROCESS_ANNOTATION);
+    }
+
+}
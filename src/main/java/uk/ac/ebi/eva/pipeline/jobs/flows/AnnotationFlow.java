@@ -27,13 +27,20 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
 import uk.ac.ebi.eva.pipeline.jobs.deciders.EmptyVepInputDecider;
+import uk.ac.ebi.eva.pipeline.jobs.deciders.StreamingAnnotationDecider;
+import uk.ac.ebi.eva.pipeline.jobs.deciders.VepProcessesDecider;
 import uk.ac.ebi.eva.pipeline.jobs.steps.AnnotationLoaderStep;
 import uk.ac.ebi.eva.pipeline.jobs.steps.GenerateVepAnnotationStep;
+import uk.ac.ebi.eva.pipeline.jobs.steps.MergeVepAnnotationStep;
+import uk.ac.ebi.eva.pipeline.jobs.steps.StreamVepAnnotationStep;
 import uk.ac.ebi.eva.pipeline.jobs.steps.VepInputGeneratorStep;
 
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_ANNOTATION_PARTITIONED_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_ANNOTATION_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_INPUT_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VEP_ANNOTATION_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.MERGE_VEP_ANNOTATION_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.STREAM_VEP_ANNOTATION_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_FLOW;
 
 /**
@@ -41,10 +48,16 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_FLOW
  * <p>
  * This flow generates a vep input file, then if this file contains results then it starts the annotation process.
  * In the case that the file is empty this flow process ends.
+ * <p>
+ * When several VEP processes are requested, the input is split in shards that are annotated in parallel, and their
+ * outputs are merged before loading them.
+ * <p>
+ * If the annotation is streamed, the variants are annotated and loaded in a single step instead, without files.
  */
 @Configuration
 @EnableBatchProcessing
-@Import({VepInputGeneratorStep.class, AnnotationLoaderStep.class, GenerateVepAnnotationStep.class})
+@Import({VepInputGeneratorStep.class, AnnotationLoaderStep.class, GenerateVepAnnotationStep.class,
+        MergeVepAnnotationStep.class, StreamVepAnnotationStep.class})
 public class AnnotationFlow {
 
     @Autowired
@@ -59,15 +72,37 @@ public class AnnotationFlow {
     @Qualifier(GENERATE_VEP_ANNOTATION_STEP)
     private Step generateVepAnnotationStep;
 
+    @Autowired
+    @Qualifier(GENERATE_VEP_ANNOTATION_PARTITIONED_STEP)
+    private Step generateVepAnnotationPartitionedStep;
+
+    @Autowired
+    @Qualifier(MERGE_VEP_ANNOTATION_STEP)
+    private Step mergeVepAnnotationStep;
+
+    @Autowired
+    @Qualifier(STREAM_VEP_ANNOTATION_STEP)
+    private Step streamVepAnnotationStep;
+
     @Bean(VEP_ANNOTATION_FLOW)
     public Flow vepAnnotationFlow() {
+        StreamingAnnotationDecider streamingAnnotationDecider = new StreamingAnnotationDecider();
         EmptyVepInputDecider emptyVepInputDecider = new EmptyVepInputDecider();
+        VepProcessesDecider vepProcessesDecider = new VepProcessesDecider();
 
         return new FlowBuilder<Flow>(VEP_ANNOTATION_FLOW)
-                .start(generateVepInputStep)
+                .start(streamingAnnotationDecider).on(StreamingAnnotationDecider.STREAM_ANNOTATION)
+                .to(streamVepAnnotationStep)
+                .from(streamingAnnotationDecider).on(StreamingAnnotationDecider.GENERATE_FILES)
+                .to(generateVepInputStep)
                 .next(emptyVepInputDecider).on(EmptyVepInputDecider.CONTINUE_FLOW)
+                .to(vepProcessesDecider).on(VepProcessesDecider.SINGLE_PROCESS_ANNOTATION)
                 .to(generateVepAnnotationStep)
                 .next(annotationLoadStep)
+                .from(vepProcessesDecider).on(VepProcessesDecider.PARTITIONED_ANNOTATION)
+                .to(generateVepAnnotationPartitionedStep)
+                .next(mergeVepAnnotationStep)
+                .next(annotationLoadStep)
                 .from(emptyVepInputDecider).on(EmptyVepInputDecider.STOP_FLOW)
                 .end(BatchStatus.COMPLETED.toString())
                 .build();
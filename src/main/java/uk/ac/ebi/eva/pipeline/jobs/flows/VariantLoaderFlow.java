@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.flows;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import uk.ac.ebi.eva.pipeline.jobs.deciders.DeferredIndexesDecider;
+import uk.ac.ebi.eva.pipeline.jobs.deciders.VcfIndexDecider;
+import uk.ac.ebi.eva.pipeline.jobs.steps.CreateVariantIndexesStep;
+import uk.ac.ebi.eva.pipeline.jobs.steps.VariantLoaderStep;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.CREATE_VARIANT_INDEXES_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_FLOW;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_PARTITIONED_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_STEP;
+
+/**
+ * Configuration class that describes the flow to load the variants of a VCF.
+ * <p>
+ * If the VCF is bgzipped and indexed, the variants are loaded in parallel, a partition per chromosome. Otherwise
+ * the whole file is loaded by a single step.
+ * <p>
+ * If the creation of the indexes of the variants collection was deferred, they are created once all the variants
+ * are loaded.
+ */
+@Configuration
+@EnableBatchProcessing
+@Import({VariantLoaderStep.class, CreateVariantIndexesStep.class})
+public class VariantLoaderFlow {
+
+    @Autowired
+    @Qualifier(LOAD_VARIANTS_STEP)
+    private Step variantLoaderStep;
+
+    @Autowired
+    @Qualifier(LOAD_VARIANTS_PARTITIONED_STEP)
+    private Step variantLoaderPartitionedStep;
+
+    @Autowired
+    @Qualifier(CREATE_VARIANT_INDEXES_STEP)
+    private Step createVariantIndexesStep;
+
+    @Bean(LOAD_VARIANTS_FLOW)
+    public Flow loadVariantsFlow() {
+        VcfIndexDecider vcfIndexDecider = new VcfIndexDecider();
+        DeferredIndexesDecider deferredIndexesDecider = new DeferredIndexesDecider();
+
+        return new FlowBuilder<Flow>(LOAD_VARIANTS_FLOW)
+                .start(vcfIndexDecider).on(VcfIndexDecider.SEQUENTIAL_LOAD)
+                .to(variantLoaderStep)
+                .from(vcfIndexDecider).on(VcfIndexDecider.PARTITIONED_LOAD)
+                .to(variantLoaderPartitionedStep)
+                .from(variantLoaderStep).on(ExitStatus.COMPLETED.getExitCode())
+                .to(deferredIndexesDecider)
+                .from(variantLoaderPartitionedStep).on(ExitStatus.COMPLETED.getExitCode())
+                .to(deferredIndexesDecider)
+                .from(deferredIndexesDecider).on(DeferredIndexesDecider.CREATE_INDEXES)
+                .to(createVariantIndexesStep)
+                .from(deferredIndexesDecider).on(DeferredIndexesDecider.INDEXES_CREATED)
+                .end(BatchStatus.COMPLETED.toString())
+                .build();
+    }
+
+}
@@ -19,13 +19,14 @@ package uk.ac.ebi.eva.pipeline.jobs.steps;
 import org.opencb.datastore.core.ObjectMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileParseException;
-import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -38,6 +39,8 @@ import uk.ac.ebi.eva.pipeline.configuration.readers.VariantAnnotationReaderConfi
 import uk.ac.ebi.eva.pipeline.configuration.writers.VariantAnnotationWriterConfiguration;
 import uk.ac.ebi.eva.pipeline.io.readers.AnnotationFlatFileReader;
 import uk.ac.ebi.eva.pipeline.io.writers.VepAnnotationMongoWriter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
+import uk.ac.ebi.eva.pipeline.listeners.JournalBarrierListener;
 import uk.ac.ebi.eva.pipeline.listeners.SkippedItemListener;
 import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
 
@@ -77,7 +80,8 @@ public class AnnotationLoaderStep {
 
     @Bean(LOAD_VEP_ANNOTATION_STEP)
     public Step loadVepAnnotationStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
-                                      SimpleCompletionPolicy chunkSizeCompletionPolicy) {
+                                      AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy,
+                                      JournalBarrierListener journalBarrierListener) {
         logger.debug("Building '" + LOAD_VEP_ANNOTATION_STEP + "'");
 
         return stepBuilderFactory.get(LOAD_VEP_ANNOTATION_STEP)
@@ -87,6 +91,9 @@ public class AnnotationLoaderStep {
                 .faultTolerant().skipLimit(50).skip(FlatFileParseException.class)
                 .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
                 .listener(new SkippedItemListener())
+                .listener(journalBarrierListener)
+                .listener((ItemWriteListener<Object>) chunkSizeCompletionPolicy)
+                .listener((ChunkListener) chunkSizeCompletionPolicy)
                 .build();
     }
 
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.VariantIndexesGeneratorStep;
+import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
+import uk.ac.ebi.eva.utils.TaskletUtils;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.CREATE_COMPACT_VARIANT_INDEXES_STEP;
+
+/**
+ * Configuration class that inject a step created with the tasklet {@link VariantIndexesGeneratorStep}, to index the
+ * collection of the variants migrated to compact ids
+ */
+@Configuration
+@EnableBatchProcessing
+public class CreateCompactVariantIndexesStep {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreateCompactVariantIndexesStep.class);
+
+    @Bean
+    @StepScope
+    public VariantIndexesGeneratorStep compactVariantIndexesGeneratorStep() {
+        return new VariantIndexesGeneratorStep(true);
+    }
+
+    @Bean(CREATE_COMPACT_VARIANT_INDEXES_STEP)
+    public TaskletStep createCompactVariantIndexesStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions) {
+        logger.debug("Building '" + CREATE_COMPACT_VARIANT_INDEXES_STEP + "'");
+        return TaskletUtils.generateStep(stepBuilderFactory, CREATE_COMPACT_VARIANT_INDEXES_STEP,
+                compactVariantIndexesGeneratorStep(), jobOptions.isAllowStartIfComplete());
+    }
+
+}
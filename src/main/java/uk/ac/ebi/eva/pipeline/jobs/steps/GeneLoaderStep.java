@@ -18,13 +18,14 @@ package uk.ac.ebi.eva.pipeline.jobs.steps;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileParseException;
-import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -37,7 +38,9 @@ import uk.ac.ebi.eva.pipeline.configuration.writers.GeneWriterConfiguration;
 import uk.ac.ebi.eva.pipeline.io.mappers.GeneLineMapper;
 import uk.ac.ebi.eva.pipeline.io.readers.GeneReader;
 import uk.ac.ebi.eva.pipeline.io.writers.GeneWriter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
 import uk.ac.ebi.eva.pipeline.jobs.steps.processors.GeneFilterProcessor;
+import uk.ac.ebi.eva.pipeline.listeners.JournalBarrierListener;
 import uk.ac.ebi.eva.pipeline.listeners.SkippedItemListener;
 import uk.ac.ebi.eva.pipeline.model.FeatureCoordinates;
 import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
@@ -76,7 +79,8 @@ public class GeneLoaderStep {
 
     @Bean(GENES_LOAD_STEP)
     public Step genesLoadStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
-                              SimpleCompletionPolicy chunkSizeCompletionPolicy) {
+                              AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy,
+                              JournalBarrierListener journalBarrierListener) {
         logger.debug("Building '" + GENES_LOAD_STEP + "'");
 
         return stepBuilderFactory.get(GENES_LOAD_STEP)
@@ -87,6 +91,9 @@ public class GeneLoaderStep {
                 .faultTolerant().skipLimit(50).skip(FlatFileParseException.class)
                 .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
                 .listener(new SkippedItemListener())
+                .listener(journalBarrierListener)
+                .listener((ItemWriteListener<Object>) chunkSizeCompletionPolicy)
+                .listener((ChunkListener) chunkSizeCompletionPolicy)
                 .build();
     }
 
@@ -17,20 +17,34 @@ package uk.ac.ebi.eva.pipeline.jobs.steps;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VepInputPartitioner;
 import uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.VepAnnotationGeneratorStep;
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
 import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
 import uk.ac.ebi.eva.utils.TaskletUtils;
 
+import java.io.File;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_ANNOTATION_PARTITIONED_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_ANNOTATION_PARTITION_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_ANNOTATION_STEP;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.VEP_INPUT;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.VEP_OUTPUT;
 
 /**
- * Configuration class that inject a step created with the tasklet {@link VepAnnotationGeneratorStep}
+ * Configuration class that inject a step created with the tasklet {@link VepAnnotationGeneratorStep}, and a step that
+ * runs that tasklet in parallel over shards of the VEP input.
  */
 @Configuration
 @EnableBatchProcessing
@@ -38,6 +52,9 @@ public class GenerateVepAnnotationStep {
 
     private static final Logger logger = LoggerFactory.getLogger(GenerateVepAnnotationStep.class);
 
+    private static final String STEP_CONTEXT = "#{stepExecutionContext['";
+    private static final String END = "']}";
+
     @Bean
     @StepScope
     public VepAnnotationGeneratorStep vepAnnotationGeneratorStep() {
@@ -51,4 +68,66 @@ public class GenerateVepAnnotationStep {
                 vepAnnotationGeneratorStep(), jobOptions.isAllowStartIfComplete());
     }
 
+    /**
+     * Step that splits the VEP input in a shard per VEP process, and annotates each shard in a partition of the
+     * generate-vep-annotation-partition-step, running as many VEP processes at the same time as shards. The state of
+     * each partition is saved in the job repository, so a restart only annotates again the shards that failed.
+     */
+    @Bean(GENERATE_VEP_ANNOTATION_PARTITIONED_STEP)
+    public Step generateVepAnnotationPartitionedStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+                                                     VepInputPartitioner vepInputPartitioner,
+                                                     @Qualifier(GENERATE_VEP_ANNOTATION_PARTITION_STEP)
+                                                             Step generateVepAnnotationPartitionStep,
+                                                     TaskExecutor vepProcessesTaskExecutor) {
+        logger.debug("Building '" + GENERATE_VEP_ANNOTATION_PARTITIONED_STEP + "'");
+
+        return stepBuilderFactory.get(GENERATE_VEP_ANNOTATION_PARTITIONED_STEP)
+                .partitioner(GENERATE_VEP_ANNOTATION_PARTITION_STEP, vepInputPartitioner)
+                .step(generateVepAnnotationPartitionStep)
+                .taskExecutor(vepProcessesTaskExecutor)
+                .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .build();
+    }
+
+    @Bean(GENERATE_VEP_ANNOTATION_PARTITION_STEP)
+    public TaskletStep generateVepAnnotationPartitionStep(StepBuilderFactory stepBuilderFactory,
+                                                          JobOptions jobOptions,
+                                                          @Qualifier("vepAnnotationShardGeneratorStep")
+                                                                  VepAnnotationGeneratorStep shardGeneratorStep) {
+        logger.debug("Building '" + GENERATE_VEP_ANNOTATION_PARTITION_STEP + "'");
+        return TaskletUtils.generateStep(stepBuilderFactory, GENERATE_VEP_ANNOTATION_PARTITION_STEP,
+                shardGeneratorStep, jobOptions.isAllowStartIfComplete());
+    }
+
+    @Bean
+    @StepScope
+    public VepAnnotationGeneratorStep vepAnnotationShardGeneratorStep(@Value(STEP_CONTEXT + VEP_INPUT + END)
+                                                                              String vepInput,
+                                                                      @Value(STEP_CONTEXT + VEP_OUTPUT + END)
+                                                                              String vepOutput) {
+        return new VepAnnotationGeneratorStep(vepInput, vepOutput);
+    }
+
+    @Bean
+    @StepScope
+    public VepInputPartitioner vepInputPartitioner(AnnotationParameters annotationParameters) {
+        return new VepInputPartitioner(new File(annotationParameters.getVepInput()),
+                                       new File(annotationParameters.getVepOutput()),
+                                       annotationParameters.getVepNumProcesses());
+    }
+
+    /**
+     * Pool of threads that wait for a VEP process each. It's created when the step starts, and shut down when it
+     * ends.
+     */
+    @Bean
+    @StepScope
+    public ThreadPoolTaskExecutor vepProcessesTaskExecutor(AnnotationParameters annotationParameters) {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(annotationParameters.getVepNumProcesses());
+        taskExecutor.setMaxPoolSize(annotationParameters.getVepNumProcesses());
+        taskExecutor.setThreadNamePrefix(GENERATE_VEP_ANNOTATION_PARTITION_STEP + "-");
+        return taskExecutor;
+    }
+
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps;
+
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import uk.ac.ebi.eva.pipeline.configuration.ChunkSizeCompletionPolicyConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.readers.StringIdVariantsMongoReaderConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.writers.CompactIdVariantsMongoWriterConfiguration;
+import uk.ac.ebi.eva.pipeline.io.readers.StringIdVariantsMongoReader;
+import uk.ac.ebi.eva.pipeline.io.writers.CompactIdVariantsMongoWriter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
+import uk.ac.ebi.eva.pipeline.jobs.steps.processors.CompactStorageIdProcessor;
+import uk.ac.ebi.eva.pipeline.listeners.JournalBarrierListener;
+import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.COMPACT_ID_VARIANTS_WRITER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.MIGRATE_VARIANT_IDS_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.STRING_ID_VARIANTS_READER;
+
+/**
+ * This step copies the variants of a collection with string ids into another collection, with compact ids.
+ * <p>
+ * input: the variants collection
+ * output: the collection of compact variants, with the same documents but their ids
+ * <p>
+ * To do so, this step performs the next stages:
+ * - reader: A {@link StringIdVariantsMongoReader} reads the whole documents in the order of their ids.
+ * - processor: A {@link CompactStorageIdProcessor} replaces each id.
+ * - writer: A {@link CompactIdVariantsMongoWriter} inserts them into the other collection.
+ */
+@Configuration
+@EnableBatchProcessing
+@Import({StringIdVariantsMongoReaderConfiguration.class, CompactIdVariantsMongoWriterConfiguration.class,
+        ChunkSizeCompletionPolicyConfiguration.class})
+public class MigrateVariantIdsStep {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrateVariantIdsStep.class);
+
+    @Autowired
+    @Qualifier(STRING_ID_VARIANTS_READER)
+    private ItemStreamReader<DBObject> reader;
+
+    @Autowired
+    @Qualifier(COMPACT_ID_VARIANTS_WRITER)
+    private ItemWriter<DBObject> writer;
+
+    @Bean(MIGRATE_VARIANT_IDS_STEP)
+    public Step migrateVariantIdsStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+                                      AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy,
+                                      JournalBarrierListener journalBarrierListener) {
+        logger.debug("Building '" + MIGRATE_VARIANT_IDS_STEP + "'");
+
+        return stepBuilderFactory.get(MIGRATE_VARIANT_IDS_STEP)
+                .<DBObject, DBObject>chunk(chunkSizeCompletionPolicy)
+                .reader(reader)
+                .processor(new CompactStorageIdProcessor())
+                .writer(writer)
+                .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(journalBarrierListener)
+                .listener((ItemWriteListener<Object>) chunkSizeCompletionPolicy)
+                .listener((ChunkListener) chunkSizeCompletionPolicy)
+                .build();
+    }
+
+}
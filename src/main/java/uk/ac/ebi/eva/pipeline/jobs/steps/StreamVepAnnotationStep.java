@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.configuration.ChunkSizeCompletionPolicyConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.readers.VepAnnotationStreamReaderConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.writers.VariantAnnotationWriterConfiguration;
+import uk.ac.ebi.eva.pipeline.io.writers.VepAnnotationMongoWriter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
+import uk.ac.ebi.eva.pipeline.listeners.JournalBarrierListener;
+import uk.ac.ebi.eva.pipeline.listeners.SkippedItemListener;
+import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.STREAM_VEP_ANNOTATION_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_ANNOTATION_WRITER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_STREAM_READER;
+
+/**
+ * This step annotates the variants without annotation, streaming them through VEP, and loads the annotations into
+ * MongoDB while VEP is still running.
+ * <p>
+ * input: mongo collection with the variants.
+ * output: the same collection, with the annotations of the variants ({@link VepAnnotationMongoWriter})
+ * <p>
+ * It replaces {@link VepInputGeneratorStep}, {@link GenerateVepAnnotationStep} and {@link AnnotationLoaderStep}, which
+ * write and read again the list of variants and the VEP output.
+ */
+@Configuration
+@EnableBatchProcessing
+@Import({VepAnnotationStreamReaderConfiguration.class, VariantAnnotationWriterConfiguration.class,
+        ChunkSizeCompletionPolicyConfiguration.class})
+public class StreamVepAnnotationStep {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamVepAnnotationStep.class);
+
+    @Autowired
+    @Qualifier(VEP_ANNOTATION_STREAM_READER)
+    private ItemStreamReader<VariantAnnotation> vepAnnotationStreamReader;
+
+    @Autowired
+    @Qualifier(VARIANT_ANNOTATION_WRITER)
+    private ItemWriter<VariantAnnotation> variantAnnotationItemWriter;
+
+    @Bean(STREAM_VEP_ANNOTATION_STEP)
+    public Step streamVepAnnotationStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+                                        AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy,
+                                        JournalBarrierListener journalBarrierListener) {
+        logger.debug("Building '" + STREAM_VEP_ANNOTATION_STEP + "'");
+
+        return stepBuilderFactory.get(STREAM_VEP_ANNOTATION_STEP)
+                .<VariantAnnotation, VariantAnnotation>chunk(chunkSizeCompletionPolicy)
+                .reader(vepAnnotationStreamReader)
+                .writer(variantAnnotationItemWriter)
+                .faultTolerant().skipLimit(50).skip(FlatFileParseException.class)
+                .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(new SkippedItemListener())
+                .listener(journalBarrierListener)
+                .listener((ItemWriteListener<Object>) chunkSizeCompletionPolicy)
+                .listener((ChunkListener) chunkSizeCompletionPolicy)
+                .build();
+    }
+
+}
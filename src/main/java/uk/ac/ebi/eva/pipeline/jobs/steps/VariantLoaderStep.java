@@ -15,29 +15,54 @@
  */
 package uk.ac.ebi.eva.pipeline.jobs.steps;
 
+import org.opencb.biodata.models.variant.VariantSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.step.builder.AbstractTaskletStepBuilder;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileParseException;
-import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.batch.item.file.LineMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.pipeline.configuration.ChunkSizeCompletionPolicyConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.readers.VcfReaderConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.writers.VariantWriterConfiguration;
+import uk.ac.ebi.eva.pipeline.io.mappers.AggregatedVcfLineMapper;
+import uk.ac.ebi.eva.pipeline.io.mappers.VcfLineMapper;
+import uk.ac.ebi.eva.pipeline.io.writers.UnwindingItemWriter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VcfIndexPartitioner;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
+import uk.ac.ebi.eva.pipeline.jobs.steps.processors.ParallelItemProcessor;
+import uk.ac.ebi.eva.pipeline.jobs.steps.processors.VcfLineProcessor;
 import uk.ac.ebi.eva.pipeline.listeners.VariantLoaderStepStatisticsListener;
+import uk.ac.ebi.eva.pipeline.listeners.JournalBarrierListener;
 import uk.ac.ebi.eva.pipeline.listeners.SkippedItemListener;
 import uk.ac.ebi.eva.pipeline.listeners.StepProgressListener;
+import uk.ac.ebi.eva.pipeline.model.VcfLine;
+import uk.ac.ebi.eva.pipeline.parameters.ConcurrencyParameters;
+import uk.ac.ebi.eva.pipeline.parameters.InputParameters;
 import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_PARTITIONED_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_PARTITION_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_READER;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_WRITER;
@@ -47,6 +72,12 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_WRITER;
  * <p>
  * Input: VCF file
  * Output: variants loaded into mongodb
+ * <p>
+ * The reader only splits the file in lines, which are parsed by a pool of threads. The lines of a chunk are parsed in
+ * parallel while the chunk is read, and the variants are written in the same order as in the file. Lines that can't
+ * be parsed are skipped when they are processed, without rolling back the chunk.
+ * <p>
+ * A partitioned version of the step is also provided for bgzipped VCFs with a tabix or CSI index.
  */
 @Configuration
 @EnableBatchProcessing
@@ -57,7 +88,7 @@ public class VariantLoaderStep {
 
     @Autowired
     @Qualifier(VARIANT_READER)
-    private ItemStreamReader<Variant> reader;
+    private ItemStreamReader<VcfLine> reader;
 
     @Autowired
     @Qualifier(VARIANT_WRITER)
@@ -65,19 +96,138 @@ public class VariantLoaderStep {
 
     @Bean(LOAD_VARIANTS_STEP)
     public Step loadVariantsStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
-                                 SimpleCompletionPolicy chunkSizeCompletionPolicy) {
+                                 AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy,
+                                 ParallelItemProcessor<VcfLine, List<Variant>> parseVcfLinesProcessor,
+                                 JournalBarrierListener journalBarrierListener) {
         logger.debug("Building '" + LOAD_VARIANTS_STEP + "'");
 
-        return stepBuilderFactory.get(LOAD_VARIANTS_STEP)
-                .<Variant, Variant>chunk(chunkSizeCompletionPolicy)
+        return buildLoadVariantsStep(LOAD_VARIANTS_STEP, stepBuilderFactory, jobOptions, chunkSizeCompletionPolicy,
+                                     parseVcfLinesProcessor, journalBarrierListener)
+                .listener(new VariantLoaderStepStatisticsListener())
+                .build();
+    }
+
+    /**
+     * Step that loads the variants of a bgzipped and indexed VCF in parallel, running a partition of the
+     * load-variants-partition-step per chromosome. The state of each partition is saved in the job
+     * repository, so a restart only resumes the chromosomes that didn't finish.
+     */
+    @Bean(LOAD_VARIANTS_PARTITIONED_STEP)
+    public Step loadVariantsPartitionedStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+                                            VcfIndexPartitioner vcfIndexPartitioner,
+                                            @Qualifier(LOAD_VARIANTS_PARTITION_STEP) Step loadVariantsPartitionStep,
+                                            TaskExecutor loadVariantsTaskExecutor) {
+        logger.debug("Building '" + LOAD_VARIANTS_PARTITIONED_STEP + "'");
+
+        return stepBuilderFactory.get(LOAD_VARIANTS_PARTITIONED_STEP)
+                .partitioner(LOAD_VARIANTS_PARTITION_STEP, vcfIndexPartitioner)
+                .step(loadVariantsPartitionStep)
+                .taskExecutor(loadVariantsTaskExecutor)
+                .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(new VariantLoaderStepStatisticsListener())
+                .build();
+    }
+
+    @Bean(LOAD_VARIANTS_PARTITION_STEP)
+    public Step loadVariantsPartitionStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+                                          AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy,
+                                          ParallelItemProcessor<VcfLine, List<Variant>> parseVcfLinesProcessor,
+                                          JournalBarrierListener journalBarrierListener) {
+        logger.debug("Building '" + LOAD_VARIANTS_PARTITION_STEP + "'");
+
+        return buildLoadVariantsStep(LOAD_VARIANTS_PARTITION_STEP, stepBuilderFactory, jobOptions,
+                                     chunkSizeCompletionPolicy, parseVcfLinesProcessor, journalBarrierListener)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public VcfIndexPartitioner vcfIndexPartitioner(InputParameters inputParameters) {
+        return new VcfIndexPartitioner(new File(inputParameters.getVcf()));
+    }
+
+    /**
+     * Pool of threads that run the partitions. It's created when the step starts, and shut down when it ends.
+     */
+    @Bean
+    @StepScope
+    public ThreadPoolTaskExecutor loadVariantsTaskExecutor(ConcurrencyParameters concurrencyParameters) {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(concurrencyParameters.getLoadThreads());
+        taskExecutor.setMaxPoolSize(concurrencyParameters.getLoadThreads());
+        taskExecutor.setThreadNamePrefix(LOAD_VARIANTS_PARTITION_STEP + "-");
+        return taskExecutor;
+    }
+
+    /**
+     * The aggregation type is read so that the lines are parsed with the right mapper for genotyped or aggregated
+     * VCFs.
+     *
+     * @throws IOException if the mapping file of an aggregated VCF can't be read
+     */
+    @Bean
+    @StepScope
+    public VcfLineProcessor vcfLineProcessor(InputParameters parameters) throws IOException {
+        String fileId = parameters.getVcfId();
+        String studyId = parameters.getStudyId();
+        VariantSource.Aggregation vcfAggregation = parameters.getVcfAggregation();
+
+        LineMapper<List<Variant>> lineMapper;
+        if (VariantSource.Aggregation.NONE.equals(vcfAggregation)) {
+            lineMapper = new VcfLineMapper(fileId, studyId);
+        } else {
+            lineMapper = new AggregatedVcfLineMapper(fileId, studyId, vcfAggregation,
+                                                     parameters.getAggregatedMappingFile());
+        }
+        return new VcfLineProcessor(lineMapper);
+    }
+
+    /**
+     * Parses the lines of each chunk in parallel. It's step scoped because it keeps the lines of the chunk being
+     * processed, so each partition needs its own.
+     */
+    @Bean
+    @StepScope
+    public ParallelItemProcessor<VcfLine, List<Variant>> parseVcfLinesProcessor(
+            VcfLineProcessor vcfLineProcessor, TaskExecutor parseVariantsTaskExecutor) {
+        return new ParallelItemProcessor<>(vcfLineProcessor, parseVariantsTaskExecutor);
+    }
+
+    /**
+     * Pool of threads that parse the lines of a chunk. It's created when the step (or each partition) starts, and
+     * shut down when it ends.
+     */
+    @Bean
+    @StepScope
+    public ThreadPoolTaskExecutor parseVariantsTaskExecutor(ConcurrencyParameters concurrencyParameters) {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(concurrencyParameters.getParseThreads());
+        taskExecutor.setMaxPoolSize(concurrencyParameters.getParseThreads());
+        taskExecutor.setThreadNamePrefix("parse-variants-");
+        return taskExecutor;
+    }
+
+    /**
+     * The parsing errors don't roll back the chunk, so the rest of the lines don't need to be parsed again.
+     */
+    private AbstractTaskletStepBuilder<SimpleStepBuilder<VcfLine, List<Variant>>> buildLoadVariantsStep(
+            String stepName, StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+            AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy,
+            ParallelItemProcessor<VcfLine, List<Variant>> parseVcfLinesProcessor,
+            JournalBarrierListener journalBarrierListener) {
+        return stepBuilderFactory.get(stepName)
+                .<VcfLine, List<Variant>>chunk(chunkSizeCompletionPolicy)
                 .reader(reader)
-                .writer(variantWriter)
+                .processor(parseVcfLinesProcessor)
+                .writer(new UnwindingItemWriter<>(variantWriter))
                 .faultTolerant().skipLimit(50).skip(FlatFileParseException.class)
+                .noRollback(FlatFileParseException.class)
                 .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
                 .listener(new SkippedItemListener())
                 .listener(new StepProgressListener())
-                .listener(new VariantLoaderStepStatisticsListener())
-                .build();
+                .listener(journalBarrierListener)
+                .listener((ItemWriteListener<Object>) chunkSizeCompletionPolicy)
+                .listener((ChunkListener) chunkSizeCompletionPolicy);
     }
 
 }
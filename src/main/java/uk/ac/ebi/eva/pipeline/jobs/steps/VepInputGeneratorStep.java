@@ -18,11 +18,12 @@ package uk.ac.ebi.eva.pipeline.jobs.steps;
 import com.mongodb.DBObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.item.ItemStreamWriter;
-import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -33,7 +34,9 @@ import uk.ac.ebi.eva.pipeline.configuration.readers.NonAnnotatedVariantsMongoRea
 import uk.ac.ebi.eva.pipeline.configuration.writers.VepInputFlatFileWriterConfiguration;
 import uk.ac.ebi.eva.pipeline.io.readers.NonAnnotatedVariantsMongoReader;
 import uk.ac.ebi.eva.pipeline.io.writers.VepInputFlatFileWriter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
 import uk.ac.ebi.eva.pipeline.jobs.steps.processors.AnnotationProcessor;
+import uk.ac.ebi.eva.pipeline.listeners.JournalBarrierListener;
 import uk.ac.ebi.eva.pipeline.model.VariantWrapper;
 import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
 
@@ -47,6 +50,9 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_INPUT_WRITER;
  * input: mongo collection with the variants.
  * output: file with the list of variants, in a format to feed VEP ({@link VepInputFlatFileWriter})
  * <p>
+ * If an annotation cache is used, the variants found in it are annotated in this step instead of being written to the
+ * file ({@link uk.ac.ebi.eva.pipeline.io.writers.AnnotationCacheVepInputWriter}).
+ * <p>
  * TODO:
  * - Handle the overwrite
  * - The variant list should be compressed. It is not possible to write into a zipped file with FlatFile item writer
@@ -74,7 +80,8 @@ public class VepInputGeneratorStep {
 
     @Bean(GENERATE_VEP_INPUT_STEP)
     public Step generateVepInputStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
-                                     SimpleCompletionPolicy chunkSizeCompletionPolicy) {
+                                     AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy,
+                                     JournalBarrierListener journalBarrierListener) {
         logger.debug("Building '" + GENERATE_VEP_INPUT_STEP + "'");
 
         return stepBuilderFactory.get(GENERATE_VEP_INPUT_STEP)
@@ -83,6 +90,9 @@ public class VepInputGeneratorStep {
                 .processor(new AnnotationProcessor())
                 .writer(writer)
                 .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(journalBarrierListener)
+                .listener((ItemWriteListener<Object>) chunkSizeCompletionPolicy)
+                .listener((ChunkListener) chunkSizeCompletionPolicy)
                 .build();
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.partitioners;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import uk.ac.ebi.eva.pipeline.io.VcfIndex;
+import uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates a partition per chromosome of a bgzipped VCF, using its tabix or CSI index.
+ * <p>
+ * Each partition receives in its execution context the range of BGZF virtual offsets that contains the records of
+ * the chromosome, so that the reader of the partition can seek directly to them. The grid size is ignored.
+ */
+public class VcfIndexPartitioner implements Partitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(VcfIndexPartitioner.class);
+
+    public static final String PARTITION_PREFIX = "chromosome-";
+
+    private final File vcfFile;
+
+    public VcfIndexPartitioner(File vcfFile) {
+        this.vcfFile = vcfFile;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        File indexFile = VcfIndex.findIndexFile(vcfFile);
+        if (indexFile == null) {
+            throw new IllegalStateException("No tabix or CSI index found for file " + vcfFile);
+        }
+
+        VcfIndex index;
+        try {
+            index = VcfIndex.read(indexFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Index file " + indexFile + " is not readable", e);
+        }
+
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        for (VcfIndex.Region region : index.getRegions()) {
+            ExecutionContext executionContext = new ExecutionContext();
+            executionContext.putString(ExecutionContextParametersNames.REGION_CHROMOSOME, region.getChromosome());
+            executionContext.putLong(ExecutionContextParametersNames.REGION_START_VIRTUAL_OFFSET,
+                                     region.getStartVirtualOffset());
+            executionContext.putLong(ExecutionContextParametersNames.REGION_END_VIRTUAL_OFFSET,
+                                     region.getEndVirtualOffset());
+            // the number of lines of each region is unknown, so the progress is logged without percentage
+            executionContext.putLong(ExecutionContextParametersNames.NUMBER_OF_LINES, 0L);
+            partitions.put(PARTITION_PREFIX + region.getChromosome(), executionContext);
+        }
+
+        logger.info("File {} split in {} partitions using index {}", vcfFile, partitions.size(), indexFile);
+        return partitions;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.partitioners;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits the VEP input in shards by region of the genome, so that each one can be annotated by a separate VEP process
+ * that only loads the VEP cache of the regions in its shard.
+ * <p>
+ * The variants are counted by region of {@value #REGION_SIZE} bases, the size of the regions of the VEP cache, and
+ * each shard takes consecutive regions in genomic order (see {@link #CHROMOSOME_ORDER}) with about the same number of
+ * variants in total. A region is never split between shards, so there are fewer shards than requested when there are
+ * fewer regions. The input doesn't need to be sorted, but the variants of each shard are written sorted by chromosome
+ * and start, so the outputs of the shards can be merged in genomic order. A shard whose variants were not already in
+ * order is sorted in memory, which needs a sorted input or enough shards for big inputs.
+ * <p>
+ * The shards are written next to the input, and each partition receives in its execution context the path of its
+ * shard and of the VEP output of the shard. The input is always split the same way, so a restarted step finds the
+ * same partitions and only runs again the ones that didn't finish. The outputs of the shards can then be merged with
+ * {@link #getShardOutputs}.
+ */
+public class VepInputPartitioner implements Partitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepInputPartitioner.class);
+
+    public static final String PARTITION_PREFIX = "shard-";
+
+    private static final String SHARD_SUFFIX = ".shard-";
+
+    static final int REGION_SIZE = 1000000;
+
+    private static final char FIELD_SEPARATOR = '\t';
+
+    private static final List<String> NAMED_CHROMOSOMES = Arrays.asList("X", "Y", "MT");
+
+    private static final int MAX_NUMERIC_CHROMOSOME_DIGITS = 18;
+
+    /**
+     * Numeric chromosomes first (by number), then X, Y and MT, and then any other by name.
+     */
+    static final Comparator<String> CHROMOSOME_ORDER = Comparator.comparingInt(VepInputPartitioner::getChromosomeRank)
+                                                                 .thenComparingLong(VepInputPartitioner::getNumber)
+                                                                 .thenComparing(Comparator.naturalOrder());
+
+    private static final Comparator<String> VARIANT_ORDER = Comparator.comparing(VepInputPartitioner::getChromosome,
+                                                                                 CHROMOSOME_ORDER)
+                                                                      .thenComparingLong(VepInputPartitioner::getStart);
+
+    private final File vepInput;
+
+    private final File vepOutput;
+
+    private final int shards;
+
+    /**
+     * @param shards maximum number of shards; there are fewer if the input has fewer regions
+     */
+    public VepInputPartitioner(File vepInput, File vepOutput, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("The VEP input must be split in 1 or more shards");
+        }
+        this.vepInput = vepInput;
+        this.vepOutput = vepOutput;
+        this.shards = shards;
+    }
+
+    /**
+     * The grid size is ignored, the number of shards is the one given to the constructor.
+     */
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        try {
+            Map<String, TreeMap<Long, Long>> variantsByRegion = countVariantsByRegion();
+            Map<String, Map<Long, Integer>> shardByRegion = new HashMap<>();
+            int numberOfShards = assignRegionsToShards(variantsByRegion, shardByRegion);
+            writeShards(shardByRegion, numberOfShards);
+            deleteShardsFrom(vepInput, vepOutput, numberOfShards);
+
+            Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+            for (int shard = 0; shard < numberOfShards; shard++) {
+                ExecutionContext executionContext = new ExecutionContext();
+                executionContext.putString(ExecutionContextParametersNames.VEP_INPUT,
+                                           getShardFile(vepInput, shard).getPath());
+                executionContext.putString(ExecutionContextParametersNames.VEP_OUTPUT,
+                                           getShardFile(vepOutput, shard).getPath());
+                partitions.put(PARTITION_PREFIX + shard, executionContext);
+            }
+
+            logger.info("File {} with variants in {} chromosomes split in {} shards", vepInput,
+                        variantsByRegion.size(), numberOfShards);
+            return partitions;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not split the VEP input " + vepInput, e);
+        }
+    }
+
+    /**
+     * @return number of variants in each region, by chromosome (in genomic order) and region (sorted by position)
+     */
+    private Map<String, TreeMap<Long, Long>> countVariantsByRegion() throws IOException {
+        Map<String, TreeMap<Long, Long>> variantsByRegion = new TreeMap<>(CHROMOSOME_ORDER);
+        try (BufferedReader reader = new BufferedReader(new FileReader(vepInput))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                variantsByRegion.computeIfAbsent(getChromosome(line), chromosome -> new TreeMap<>())
+                                .merge(getRegion(line), 1L, Long::sum);
+            }
+        }
+        return variantsByRegion;
+    }
+
+    /**
+     * Each region goes to the shard where its first variant would be if all the variants were split evenly, so the
+     * shards have about the same number of variants. A region bigger than a shard takes the place of the next ones,
+     * which are not created.
+     *
+     * @param shardByRegion filled with the shard of each region, by chromosome
+     * @return number of shards
+     */
+    private int assignRegionsToShards(Map<String, TreeMap<Long, Long>> variantsByRegion,
+                                      Map<String, Map<Long, Integer>> shardByRegion) {
+        long totalVariants = 0;
+        for (Map<Long, Long> regions : variantsByRegion.values()) {
+            for (long variants : regions.values()) {
+                totalVariants += variants;
+            }
+        }
+
+        int numberOfShards = 0;
+        long lastEvenShard = -1;
+        long previousVariants = 0;
+        for (Map.Entry<String, TreeMap<Long, Long>> chromosome : variantsByRegion.entrySet()) {
+            Map<Long, Integer> shardByChromosomeRegion = new HashMap<>();
+            for (Map.Entry<Long, Long> region : chromosome.getValue().entrySet()) {
+                long evenShard = previousVariants * shards / totalVariants;
+                if (evenShard != lastEvenShard) {
+                    lastEvenShard = evenShard;
+                    numberOfShards++;
+                }
+                shardByChromosomeRegion.put(region.getKey(), numberOfShards - 1);
+                previousVariants += region.getValue();
+            }
+            shardByRegion.put(chromosome.getKey(), shardByChromosomeRegion);
+        }
+        return Math.max(1, numberOfShards);
+    }
+
+    private void writeShards(Map<String, Map<Long, Integer>> shardByRegion, int numberOfShards) throws IOException {
+        List<BufferedWriter> writers = new ArrayList<>();
+        String[] lastLines = new String[numberOfShards];
+        BitSet unsortedShards = new BitSet(numberOfShards);
+        try (BufferedReader reader = new BufferedReader(new FileReader(vepInput))) {
+            for (int shard = 0; shard < numberOfShards; shard++) {
+                writers.add(new BufferedWriter(new FileWriter(getShardFile(vepInput, shard))));
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int shard = shardByRegion.get(getChromosome(line)).get(getRegion(line));
+                if (lastLines[shard] != null && VARIANT_ORDER.compare(lastLines[shard], line) > 0) {
+                    unsortedShards.set(shard);
+                }
+                lastLines[shard] = line;
+                BufferedWriter writer = writers.get(shard);
+                writer.write(line);
+                writer.newLine();
+            }
+        } finally {
+            for (BufferedWriter writer : writers) {
+                writer.close();
+            }
+        }
+
+        for (int shard = unsortedShards.nextSetBit(0); shard >= 0; shard = unsortedShards.nextSetBit(shard + 1)) {
+            sortShard(getShardFile(vepInput, shard));
+        }
+    }
+
+    /**
+     * The sort is stable, so variants in the same position keep their order of the input.
+     */
+    private static void sortShard(File shardFile) throws IOException {
+        List<String> lines = Files.readAllLines(shardFile.toPath());
+        lines.sort(VARIANT_ORDER);
+        Files.write(shardFile.toPath(), lines);
+    }
+
+    private static String getChromosome(String line) {
+        int separator = line.indexOf(FIELD_SEPARATOR);
+        return separator < 0 ? line : line.substring(0, separator);
+    }
+
+    /**
+     * @return region of the start of the variant, or 0 if the line doesn't have a valid start
+     */
+    private static long getRegion(String line) {
+        return getStart(line) / REGION_SIZE;
+    }
+
+    /**
+     * @return start of the variant, or 0 if the line doesn't have a valid start
+     */
+    private static long getStart(String line) {
+        int startBegin = line.indexOf(FIELD_SEPARATOR) + 1;
+        int startEnd = line.indexOf(FIELD_SEPARATOR, startBegin);
+        if (startBegin == 0 || startEnd < 0) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(line.substring(startBegin, startEnd));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int getChromosomeRank(String chromosome) {
+        if (isNumber(chromosome)) {
+            return 0;
+        }
+        int namedChromosome = NAMED_CHROMOSOMES.indexOf(chromosome);
+        return namedChromosome < 0 ? NAMED_CHROMOSOMES.size() + 1 : namedChromosome + 1;
+    }
+
+    /**
+     * @return the chromosome as a number, or 0 if it is not numeric
+     */
+    private static long getNumber(String chromosome) {
+        return isNumber(chromosome) ? Long.parseLong(chromosome) : 0;
+    }
+
+    private static boolean isNumber(String chromosome) {
+        if (chromosome.isEmpty() || chromosome.length() > MAX_NUMERIC_CHROMOSOME_DIGITS) {
+            return false;
+        }
+        for (int i = 0; i < chromosome.length(); i++) {
+            char digit = chromosome.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the shards left by a previous split in more shards, and their outputs, starting from the given one.
+     */
+    private static void deleteShardsFrom(File vepInput, File vepOutput, int firstShard) {
+        for (int shard = firstShard; getShardFile(vepInput, shard).exists(); shard++) {
+            getShardFile(vepOutput, shard).delete();
+            getShardFile(vepInput, shard).delete();
+        }
+    }
+
+    static File getShardFile(File file, int shard) {
+        return new File(file.getPath() + SHARD_SUFFIX + shard);
+    }
+
+    /**
+     * @return the VEP output of each shard of the VEP input, in the genomic order of their regions
+     */
+    public static List<File> getShardOutputs(File vepInput, File vepOutput) {
+        List<File> shardOutputs = new ArrayList<>();
+        for (int shard = 0; getShardFile(vepInput, shard).exists(); shard++) {
+            shardOutputs.add(getShardFile(vepOutput, shard));
+        }
+        return shardOutputs;
+    }
+
+    /**
+     * Deletes the shards of the VEP input and their VEP outputs.
+     */
+    public static void deleteShards(File vepInput, File vepOutput) {
+        deleteShardsFrom(vepInput, vepOutput, 0);
+    }
+}
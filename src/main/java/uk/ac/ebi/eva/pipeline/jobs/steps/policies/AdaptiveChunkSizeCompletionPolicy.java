@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.policies;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completion policy that resizes the chunks of a step while it runs, so that each chunk takes about
+ * {@link #TARGET_CHUNK_MILLIS}: big enough to amortize the round trips to MongoDB and the commits of the job
+ * repository, and small enough to keep the memory bounded and to repeat little work if the job is restarted.
+ * <p>
+ * After every chunk is committed, the time spent reading and processing it (from its start until the write begins)
+ * and the time spent writing and committing it are added up, and the next chunk is sized to fit the target at the
+ * same cost per item. The write is measured until the commit because some writers, like the transactional flat file
+ * ones, only send their items when the transaction commits. The size changes at most by a factor of 2 between chunks,
+ * and always stays within the configured bounds. If the heap is above {@link #HIGH_HEAP_OCCUPANCY} after the last
+ * garbage collection the chunks are not allowed to grow, and if it is above {@link #CRITICAL_HEAP_OCCUPANCY} they are
+ * halved, whatever the timings.
+ * <p>
+ * The size is only changed between chunks, and the readers save their position at every commit, so a restarted step
+ * resumes after the last committed item whatever size the chunks had. The restarted step starts again from the
+ * initial size. Writes that failed, and the item by item retries that follow them in fault tolerant steps, are not
+ * measured.
+ * <p>
+ * Must be registered as the completion policy, as an {@link ItemWriteListener} and as a {@link ChunkListener} of a
+ * chunk oriented {@link org.springframework.batch.core.Step}, and an instance can't be shared by steps running at the
+ * same time.
+ */
+public class AdaptiveChunkSizeCompletionPolicy extends SimpleCompletionPolicy
+        implements ItemWriteListener<Object>, ChunkListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveChunkSizeCompletionPolicy.class);
+
+    public static final long TARGET_CHUNK_MILLIS = 2000;
+
+    public static final double HIGH_HEAP_OCCUPANCY = 0.7;
+
+    public static final double CRITICAL_HEAP_OCCUPANCY = 0.85;
+
+    private static final int MAX_RESIZE_FACTOR = 2;
+
+    /**
+     * Weight of the last chunk in the average cost per item, so that a single slow write doesn't shrink the chunks
+     * too much.
+     */
+    private static final double LAST_CHUNK_WEIGHT = 0.5;
+
+    private final int minChunkSize;
+
+    private final int maxChunkSize;
+
+    private int chunkSize;
+
+    private double averageNanosPerItem;
+
+    private long chunkStartNanos;
+
+    private long writeStartNanos;
+
+    private int writtenItems;
+
+    private boolean failedWrite;
+
+    /**
+     * Policy that keeps the chunk size fixed.
+     */
+    public AdaptiveChunkSizeCompletionPolicy(int chunkSize) {
+        this(chunkSize, chunkSize, chunkSize);
+    }
+
+    /**
+     * @param chunkSize size of the first chunk, which is moved within the bounds if needed
+     * @throws IllegalArgumentException if the bounds are not positive or the minimum is greater than the maximum
+     */
+    public AdaptiveChunkSizeCompletionPolicy(int chunkSize, int minChunkSize, int maxChunkSize) {
+        if (minChunkSize < 1 || minChunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("The chunk size bounds must be positive and the minimum (" + minChunkSize
+                                                       + ") can't be greater than the maximum (" + maxChunkSize + ")");
+        }
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.averageNanosPerItem = -1;
+        setChunkSize(bound(chunkSize));
+    }
+
+    @Override
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+        super.setChunkSize(chunkSize);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public boolean isAdaptive() {
+        return minChunkSize != maxChunkSize;
+    }
+
+    @Override
+    public RepeatContext start(RepeatContext context) {
+        chunkStartNanos = System.nanoTime();
+        writtenItems = 0;
+        failedWrite = false;
+        return super.start(context);
+    }
+
+    @Override
+    public void beforeWrite(List<?> items) {
+        writeStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void afterWrite(List<?> items) {
+        writtenItems = items.size();
+    }
+
+    @Override
+    public void onWriteError(Exception exception, List<?> items) {
+        failedWrite = true;
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        if (!isAdaptive() || failedWrite || writtenItems == 0) {
+            return;
+        }
+        long commitEndNanos = System.nanoTime();
+        adapt(writtenItems, writeStartNanos - chunkStartNanos, commitEndNanos - writeStartNanos,
+              getHeapOccupancyAfterGc());
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        failedWrite = true;
+    }
+
+    /**
+     * Chooses the size of the next chunk.
+     *
+     * @param items number of items written in the last chunk
+     * @param processNanos time spent reading and processing the items of the last chunk
+     * @param writeNanos time spent writing the items of the last chunk and committing it
+     * @param heapOccupancy fraction of the maximum heap used after the last garbage collection
+     */
+    public void adapt(int items, long processNanos, long writeNanos, double heapOccupancy) {
+        if (items == 0) {
+            return;
+        }
+        double nanosPerItem = (double) (processNanos + writeNanos) / items;
+        if (averageNanosPerItem < 0) {
+            averageNanosPerItem = nanosPerItem;
+        } else {
+            averageNanosPerItem = LAST_CHUNK_WEIGHT * nanosPerItem + (1 - LAST_CHUNK_WEIGHT) * averageNanosPerItem;
+        }
+
+        long nextChunkSize;
+        if (heapOccupancy >= CRITICAL_HEAP_OCCUPANCY) {
+            nextChunkSize = chunkSize / MAX_RESIZE_FACTOR;
+        } else {
+            double targetNanos = TimeUnit.MILLISECONDS.toNanos(TARGET_CHUNK_MILLIS);
+            nextChunkSize = Math.round(targetNanos / Math.max(averageNanosPerItem, 1));
+            nextChunkSize = Math.max(nextChunkSize, chunkSize / MAX_RESIZE_FACTOR);
+            nextChunkSize = Math.min(nextChunkSize, (long) chunkSize * MAX_RESIZE_FACTOR);
+            if (heapOccupancy >= HIGH_HEAP_OCCUPANCY) {
+                nextChunkSize = Math.min(nextChunkSize, chunkSize);
+            }
+        }
+
+        int boundedChunkSize = bound(nextChunkSize);
+        if (boundedChunkSize != chunkSize) {
+            logger.debug("Chunk size changed from {} to {} (last chunk: {} items, {} ms processing, {} ms writing, "
+                                 + "heap {}% full)", chunkSize, boundedChunkSize, items,
+                         TimeUnit.NANOSECONDS.toMillis(processNanos), TimeUnit.NANOSECONDS.toMillis(writeNanos),
+                         Math.round(heapOccupancy * 100));
+            setChunkSize(boundedChunkSize);
+        }
+    }
+
+    private int bound(long chunkSize) {
+        return (int) Math.max(minChunkSize, Math.min(maxChunkSize, chunkSize));
+    }
+
+    /**
+     * The usage after the last collection of each heap pool discards the garbage that is still waiting to be
+     * collected, unlike the current usage.
+     *
+     * @return fraction of the maximum heap used after the last garbage collection, or 0 if it's not known
+     */
+    protected double getHeapOccupancyAfterGc() {
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        if (maxHeap == Long.MAX_VALUE) {
+            return 0;
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return (double) used / maxHeap;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.processors;
+
+import com.mongodb.DBObject;
+import org.springframework.batch.item.ItemProcessor;
+
+import uk.ac.ebi.eva.commons.models.converters.data.VariantToDBObjectConverter;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+/**
+ * Replaces the _id of a variant document by the compact one of
+ * {@link MongoDBHelper#buildCompactStorageId(String, int, String, String)}.
+ * <p>
+ * The new id is built from the coordinates and alleles of the document, not from its old id, because the string
+ * ids only keep a hash of the long alleles.
+ */
+public class CompactStorageIdProcessor implements ItemProcessor<DBObject, DBObject> {
+
+    @Override
+    public DBObject process(DBObject variant) throws Exception {
+        variant.put("_id", MongoDBHelper.buildCompactStorageId(
+                (String) variant.get(VariantToDBObjectConverter.CHROMOSOME_FIELD),
+                ((Number) variant.get(VariantToDBObjectConverter.START_FIELD)).intValue(),
+                (String) variant.get(VariantToDBObjectConverter.REFERENCE_FIELD),
+                (String) variant.get(VariantToDBObjectConverter.ALTERNATE_FIELD)));
+        return variant;
+    }
+}
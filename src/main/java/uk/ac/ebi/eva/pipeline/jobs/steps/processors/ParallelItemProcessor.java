@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.processors;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs the delegate processor in a {@link TaskExecutor}, so the items of a chunk are processed in parallel.
+ * <p>
+ * Each item is sent to the executor as soon as it is read, and {@link #process} waits for its result, so the whole
+ * chunk is being processed by the time the step starts processing it. Any exception of the delegate is thrown by
+ * {@link #process} for the item that caused it, so the step can skip it as a processing error, and the skip listeners
+ * receive the original item.
+ * <p>
+ * It must be registered as a listener of the step, which is done automatically when it's the processor of a chunk
+ * oriented step. It's not thread-safe, so a step run by several threads (e.g. the partitions of a partitioned step)
+ * needs one instance per step execution, such as a step scoped bean.
+ * <p>
+ * The step execution is registered in the worker threads, so the delegate can use step scoped beans.
+ *
+ * @param <I> type of the input items
+ * @param <O> type of the items returned by the delegate
+ */
+public class ParallelItemProcessor<I, O> implements ItemProcessor<I, O>, ItemReadListener<I>, ChunkListener {
+
+    private final ItemProcessor<I, O> delegate;
+
+    private final TaskExecutor taskExecutor;
+
+    private final Map<I, Future<O>> pendingItems;
+
+    public ParallelItemProcessor(ItemProcessor<I, O> delegate, TaskExecutor taskExecutor) {
+        this.delegate = delegate;
+        this.taskExecutor = taskExecutor;
+        this.pendingItems = new IdentityHashMap<>();
+    }
+
+    @Override
+    public void beforeRead() {
+    }
+
+    @Override
+    public void afterRead(I item) {
+        StepExecution stepExecution = getStepExecution();
+        FutureTask<O> task = new FutureTask<>(() -> {
+            if (stepExecution != null) {
+                StepSynchronizationManager.register(stepExecution);
+            }
+            try {
+                return delegate.process(item);
+            } finally {
+                if (stepExecution != null) {
+                    StepSynchronizationManager.close();
+                }
+            }
+        });
+        taskExecutor.execute(task);
+        pendingItems.put(item, task);
+    }
+
+    @Override
+    public void onReadError(Exception exception) {
+    }
+
+    /**
+     * Items that were not sent to the executor when they were read (e.g. the items of a chunk processed again after
+     * a rollback) are processed in the calling thread.
+     */
+    @Override
+    public O process(I item) throws Exception {
+        Future<O> result = pendingItems.remove(item);
+        if (result == null) {
+            return delegate.process(item);
+        }
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        pendingItems.clear();
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        for (Future<O> result : pendingItems.values()) {
+            result.cancel(false);
+        }
+        pendingItems.clear();
+    }
+
+    private StepExecution getStepExecution() {
+        StepContext context = StepSynchronizationManager.getContext();
+        return context == null ? null : context.getStepExecution();
+    }
+}
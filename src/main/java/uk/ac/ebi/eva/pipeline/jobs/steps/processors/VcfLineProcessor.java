@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.processors;
+
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.LineMapper;
+import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.pipeline.model.VcfLine;
+
+import java.util.List;
+
+/**
+ * Parses a line read by a {@link uk.ac.ebi.eva.pipeline.io.readers.VcfLineReader} into a list of variants, using
+ * a {@link uk.ac.ebi.eva.pipeline.io.mappers.VcfLineMapper} or an
+ * {@link uk.ac.ebi.eva.pipeline.io.mappers.AggregatedVcfLineMapper}.
+ * <p>
+ * Parsing errors are reported as a {@link FlatFileParseException}, like the reader would do if it parsed the line
+ * itself, so the same skip policies can be used. The mappers don't keep state, so this processor is thread-safe.
+ */
+public class VcfLineProcessor implements ItemProcessor<VcfLine, List<Variant>> {
+
+    private final LineMapper<List<Variant>> lineMapper;
+
+    public VcfLineProcessor(LineMapper<List<Variant>> lineMapper) {
+        this.lineMapper = lineMapper;
+    }
+
+    @Override
+    public List<Variant> process(VcfLine item) throws Exception {
+        try {
+            return lineMapper.mapLine(item.getLine(), item.getLineNumber());
+        } catch (Exception e) {
+            throw new FlatFileParseException("Parsing error at line: " + item.getLineNumber() + ", input=["
+                                                     + item.getLine() + "]", e, item.getLine(), item.getLineNumber());
+        }
+    }
+}
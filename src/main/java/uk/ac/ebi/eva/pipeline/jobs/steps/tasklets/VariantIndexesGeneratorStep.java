@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.tasklets;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import uk.ac.ebi.eva.pipeline.io.writers.VariantMongoWriter;
+import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This step creates the indexes of the variants collection when their creation was deferred while loading the
+ * variants, or of the collection that the variants are copied to when they are migrated to compact ids.
+ * <p>
+ * The indexes are built in foreground, which reads the collection only once and is much faster than building them
+ * in background, but blocks the database until each index is finished. Meanwhile, the progress of the build is
+ * logged periodically.
+ */
+public class VariantIndexesGeneratorStep implements Tasklet {
+
+    private static final Logger logger = LoggerFactory.getLogger(VariantIndexesGeneratorStep.class);
+
+    private static final long PROGRESS_PERIOD_SECONDS = 30;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private DatabaseParameters databaseParameters;
+
+    private final boolean compactVariantsCollection;
+
+    public VariantIndexesGeneratorStep() {
+        this(false);
+    }
+
+    /**
+     * @param compactVariantsCollection whether to index the collection of the variants migrated to compact ids
+     *                                  instead of the variants collection
+     */
+    public VariantIndexesGeneratorStep(boolean compactVariantsCollection) {
+        this.compactVariantsCollection = compactVariantsCollection;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        String collectionName = compactVariantsCollection ? databaseParameters.getCollectionCompactVariantsName()
+                : databaseParameters.getCollectionVariantsName();
+        DBCollection collection = mongoOperations.getCollection(collectionName);
+        List<DBObject> indexes = VariantMongoWriter.getIndexes();
+
+        ScheduledExecutorService progressLogger = Executors.newSingleThreadScheduledExecutor();
+        try {
+            for (int i = 0; i < indexes.size(); i++) {
+                logger.info("Creating index {} ({} of {}) in collection {}", indexes.get(i), i + 1, indexes.size(),
+                            collection.getFullName());
+                ScheduledFuture<?> progress = progressLogger.scheduleAtFixedRate(() -> logProgress(collection),
+                                                                                 PROGRESS_PERIOD_SECONDS,
+                                                                                 PROGRESS_PERIOD_SECONDS,
+                                                                                 TimeUnit.SECONDS);
+                try {
+                    collection.createIndex(indexes.get(i));
+                } finally {
+                    progress.cancel(false);
+                }
+                contribution.incrementWriteCount(1);
+            }
+        } finally {
+            progressLogger.shutdownNow();
+        }
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * The server reports the progress of an index build as a message like "Index Build: 1000/5000 20%" in the
+     * current operations.
+     */
+    private void logProgress(DBCollection collection) {
+        try {
+            BasicDBObject currentOperations = new BasicDBObject("currentOp", 1)
+                    .append("command.createIndexes", collection.getName());
+            CommandResult result = collection.getDB().getSisterDB("admin").command(currentOperations);
+            Object operations = result.get("inprog");
+            if (operations instanceof List) {
+                for (Object operation : (List<?>) operations) {
+                    Object message = ((DBObject) operation).get("msg");
+                    if (message != null) {
+                        logger.info("{}: {}", collection.getFullName(), message);
+                    }
+                }
+            }
+        } catch (MongoException e) {
+            logger.debug("Progress of the index build not available: {}", e.getMessage());
+        }
+    }
+}
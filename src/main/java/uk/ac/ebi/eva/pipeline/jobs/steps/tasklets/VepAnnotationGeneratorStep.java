@@ -59,22 +59,32 @@ public class VepAnnotationGeneratorStep implements Tasklet {
     @Autowired
     private AnnotationParameters annotationParameters;
 
+    private final String vepInput;
+
+    private final String vepOutput;
+
+    /**
+     * Annotates the whole VEP input of the job.
+     */
+    public VepAnnotationGeneratorStep() {
+        this(null, null);
+    }
+
+    /**
+     * Annotates a part of the VEP input, e.g. a shard created by
+     * {@link uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VepInputPartitioner}.
+     */
+    public VepAnnotationGeneratorStep(String vepInput, String vepOutput) {
+        this.vepInput = vepInput;
+        this.vepOutput = vepOutput;
+    }
+
     @Override
     public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        String vepInput = this.vepInput != null ? this.vepInput : annotationParameters.getVepInput();
+        String vepOutput = this.vepOutput != null ? this.vepOutput : annotationParameters.getVepOutput();
 
-        ProcessBuilder processBuilder = new ProcessBuilder("perl", annotationParameters.getVepPath(),
-                                                           "--cache",
-                                                           "--cache_version", annotationParameters.getVepCacheVersion(),
-                                                           "-dir", annotationParameters.getVepCachePath(),
-                                                           "--species", annotationParameters.getVepCacheSpecies(),
-                                                           "--fasta", annotationParameters.getInputFasta(),
-                                                           "--fork", annotationParameters.getVepNumForks(),
-                                                           "-i", annotationParameters.getVepInput(),
-                                                           "-o", "STDOUT",
-                                                           "--force_overwrite",
-                                                           "--offline",
-                                                           "--everything"
-        );
+        ProcessBuilder processBuilder = new ProcessBuilder(annotationParameters.getVepCommand(vepInput));
 
         logger.debug("VEP annotation parameters = " + Arrays.toString(processBuilder.command().toArray()));
 
@@ -82,13 +92,13 @@ public class VepAnnotationGeneratorStep implements Tasklet {
         Process process = processBuilder.start();
 
         long written = connectStreams(new BufferedInputStream(process.getInputStream()),
-                                      new GZIPOutputStream(new FileOutputStream(annotationParameters.getVepOutput())));
+                                      new GZIPOutputStream(new FileOutputStream(vepOutput)));
 
         int exitValue = process.waitFor();
         logger.info("Finishing read from VEP output, bytes written: " + written);
 
         if (exitValue > 0) {
-            String errorLog = annotationParameters.getVepOutput() + ".errors.txt";
+            String errorLog = vepOutput + ".errors.txt";
             connectStreams(new BufferedInputStream(process.getErrorStream()), new FileOutputStream(errorLog));
             throw new Exception("Error while running VEP (exit status " + exitValue + "). See "
                                         + errorLog + " for the errors description from VEP.");
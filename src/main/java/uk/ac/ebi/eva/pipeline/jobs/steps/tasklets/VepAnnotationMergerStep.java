@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.tasklets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VepInputPartitioner;
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Tasklet that merges the VEP outputs of the shards created by {@link VepInputPartitioner} into the VEP output of the
+ * job, in the genomic order of the regions of the shards, and deletes the shards.
+ * <p>
+ * The outputs are gzipped, and a file with several gzip members is read as the concatenation of all of them, so they
+ * are copied without uncompressing them.
+ */
+public class VepAnnotationMergerStep implements Tasklet {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepAnnotationMergerStep.class);
+
+    @Autowired
+    private AnnotationParameters annotationParameters;
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        File vepInput = new File(annotationParameters.getVepInput());
+        File vepOutput = new File(annotationParameters.getVepOutput());
+
+        List<File> shardOutputs = VepInputPartitioner.getShardOutputs(vepInput, vepOutput);
+        if (shardOutputs.isEmpty()) {
+            throw new IllegalStateException("No shards of the VEP input " + vepInput + " were found");
+        }
+
+        try (OutputStream outputStream = new FileOutputStream(vepOutput)) {
+            for (File shardOutput : shardOutputs) {
+                Files.copy(shardOutput.toPath(), outputStream);
+            }
+        }
+        logger.info("Merged the VEP output of {} shards into {}", shardOutputs.size(), vepOutput);
+
+        VepInputPartitioner.deleteShards(vepInput, vepOutput);
+        return RepeatStatus.FINISHED;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.listeners;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DB;
+import com.mongodb.MongoClient;
+import com.mongodb.WriteConcern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ItemWriteListener;
+
+import java.util.List;
+
+/**
+ * Waits until the writes of each chunk are in the journal of MongoDB, before the chunk is committed, when the step
+ * writes with a write concern that doesn't wait for the journal by itself.
+ * <p>
+ * This keeps the restart guarantees of the step with a relaxed write concern: a chunk is only recorded as committed
+ * in the job repository once its writes would survive a crash of the database, but only one journal commit is
+ * awaited per chunk instead of one per write. If the server doesn't have a journal, the data files are flushed
+ * instead.
+ * <p>
+ * The writers of the step must send their writes when they are called, like
+ * {@link uk.ac.ebi.eva.pipeline.io.writers.SynchronousMongoItemWriter}, because the barrier runs after the write and
+ * wouldn't cover the writes left in a buffer until the commit.
+ * <p>
+ * Should be wired into a chunk oriented {@link org.springframework.batch.core.Step}
+ */
+public class JournalBarrierListener implements ItemWriteListener<Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalBarrierListener.class);
+
+    private static final String ADMIN_DATABASE = "admin";
+
+    private final MongoClient mongoClient;
+
+    private final boolean enabled;
+
+    /**
+     * @param writeConcern write concern of the step, or null if it uses the one of the connection, and then no
+     *                     barrier is added. Unacknowledged writes don't get a barrier either, because they may not
+     *                     even have reached the server when the journal is committed
+     */
+    public JournalBarrierListener(MongoClient mongoClient, WriteConcern writeConcern) {
+        this.mongoClient = mongoClient;
+        this.enabled = writeConcern != null && writeConcern.callGetLastError() && !writeConcern.getJ()
+                && !writeConcern.getFsync();
+    }
+
+    @Override
+    public void beforeWrite(List<?> items) {
+    }
+
+    @Override
+    public void afterWrite(List<?> items) {
+        if (!enabled) {
+            return;
+        }
+        // the journal is shared by all the databases, so waiting for the next journal commit covers all the writes
+        DB adminDatabase = mongoClient.getDB(ADMIN_DATABASE);
+        CommandResult result = adminDatabase.command(new BasicDBObject("getLastError", 1).append("j", true));
+        if (!result.ok()) {
+            logger.debug("Journal not available ({}), flushing the data files", result.getErrorMessage());
+            adminDatabase.command(new BasicDBObject("fsync", 1)).throwOnError();
+        }
+    }
+
+    @Override
+    public void onWriteError(Exception exception, List<?> items) {
+    }
+}
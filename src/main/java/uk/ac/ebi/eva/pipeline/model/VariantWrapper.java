@@ -41,6 +41,14 @@ public class VariantWrapper {
         return variant.getEnd();
     }
 
+    public String getReference() {
+        return variant.getReference();
+    }
+
+    public String getAlternate() {
+        return variant.getAlternate();
+    }
+
     public String getRefAlt() {
         return String.format("%s/%s", variant.getReference(), variant.getAlternate());
     }
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.model.converters.data;
+
+import com.mongodb.BasicDBObject;
+import org.bson.BSON;
+import org.bson.BasicBSONEncoder;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.io.OutputBuffer;
+import org.opencb.biodata.models.feature.Genotype;
+import org.opencb.opencga.storage.mongodb.variant.VariantMongoDBWriter;
+
+import uk.ac.ebi.eva.commons.models.converters.data.SamplesToDBObjectConverter;
+import uk.ac.ebi.eva.commons.models.converters.data.VariantSourceEntryToDBObjectConverter;
+import uk.ac.ebi.eva.commons.models.converters.data.VariantStatsToDBObjectConverter;
+import uk.ac.ebi.eva.commons.models.converters.data.VariantToDBObjectConverter;
+import uk.ac.ebi.eva.commons.models.data.SamplesMatrix;
+import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the update document of a {@link Variant} straight into BSON, without building the tree of
+ * {@link com.mongodb.DBObject} that {@link VariantToMongoDbObjectConverter} returns.
+ * <p>
+ * The bytes are the same that the Mongo driver would produce serializing the tree, field by field and in the same
+ * order, so the stored documents don't change. Most of the allocations saved are the lists of samples indexes of
+ * each genotype, which are written straight from the {@link SamplesMatrix}. The small parts of the document that
+ * are rare or not worth it (statistics, or attributes whose keys clash after replacing the dots) are still built as
+ * a tree and serialized by the driver.
+ * <p>
+ * The buffer is reused between variants, so instances are not thread-safe.
+ */
+public class VariantToBsonEncoder extends BasicBSONEncoder {
+
+    private static final String DEFAULT_GENOTYPE_FIELD = "def";
+
+    private final boolean includeStats;
+
+    private final boolean includeSamples;
+
+    private final boolean compactIds;
+
+    private final VariantStatsToDBObjectConverter statsConverter;
+
+    private final SamplesToDBObjectConverter samplesConverter;
+
+    private final OutputBuffer buffer;
+
+    private final Set<String> keys;
+
+    public VariantToBsonEncoder(boolean includeStats, boolean includeSamples) {
+        this(includeStats, includeSamples, false);
+    }
+
+    /**
+     * @param compactIds whether the _id is built with {@link MongoDBHelper#buildCompactStorageId(Variant)}
+     */
+    public VariantToBsonEncoder(boolean includeStats, boolean includeSamples, boolean compactIds) {
+        this.includeStats = includeStats;
+        this.includeSamples = includeSamples;
+        this.compactIds = compactIds;
+        this.statsConverter = includeStats ? new VariantStatsToDBObjectConverter() : null;
+        this.samplesConverter = includeSamples ? new SamplesToDBObjectConverter() : null;
+        this.buffer = new BasicOutputBuffer();
+        this.keys = new HashSet<>();
+    }
+
+    /**
+     * @return the BSON of {$addToSet: {files, st, ids}, $setOnInsert: {...}} for the first source entry of the
+     * variant
+     */
+    public byte[] encode(Variant variant) {
+        VariantSourceEntry sourceEntry = variant.getSourceEntries().values().iterator().next();
+
+        buffer.truncateToPosition(0);
+        set(buffer);
+        try {
+            int update = startDocument(null);
+
+            int addToSet = startDocument(MongoDBHelper.ADD_TO_SET);
+            putSourceEntry(VariantToDBObjectConverter.FILES_FIELD, sourceEntry);
+            if (includeStats) {
+                putObject(VariantToDBObjectConverter.STATS_FIELD,
+                          new BasicDBObject(MongoDBHelper.EACH, statsConverter.convert(sourceEntry)));
+            }
+            if (variant.getIds() != null && !variant.getIds().isEmpty()) {
+                int ids = startDocument(VariantToDBObjectConverter.IDS_FIELD);
+                _putObjectField(MongoDBHelper.EACH, variant.getIds());
+                endDocument(ids);
+            }
+            endDocument(addToSet);
+
+            putVariant(MongoDBHelper.SET_ON_INSERT, variant);
+
+            endDocument(update);
+            return toByteArray();
+        } finally {
+            done();
+        }
+    }
+
+    /**
+     * Same fields as {@link VariantToDBObjectConverter} without source entries, annotation nor statistics
+     */
+    private void putVariant(String name, Variant variant) {
+        int document = startDocument(name);
+        _putObjectField("_id", MongoDBHelper.buildStorageId(variant.getChromosome(), variant.getStart(),
+                                                            variant.getReference(), variant.getAlternate(),
+                                                            compactIds));
+        _putObjectField(VariantToDBObjectConverter.TYPE_FIELD, variant.getType().name());
+        _putObjectField(VariantToDBObjectConverter.CHROMOSOME_FIELD, variant.getChromosome());
+        putInt(VariantToDBObjectConverter.START_FIELD, variant.getStart());
+        putInt(VariantToDBObjectConverter.END_FIELD, variant.getEnd());
+        putInt(VariantToDBObjectConverter.LENGTH_FIELD, variant.getLength());
+        _putObjectField(VariantToDBObjectConverter.REFERENCE_FIELD, variant.getReference());
+        _putObjectField(VariantToDBObjectConverter.ALTERNATE_FIELD, variant.getAlternate());
+
+        int at = startDocument("_at");
+        int chunkIds = startArray("chunkIds");
+        int smallChunkId = variant.getStart() / VariantMongoDBWriter.CHUNK_SIZE_SMALL;
+        int bigChunkId = variant.getStart() / VariantMongoDBWriter.CHUNK_SIZE_BIG;
+        putString(0, variant.getChromosome() + "_" + smallChunkId + "_"
+                + VariantToDBObjectConverter.ONE_THOUSAND_STRING);
+        putString(1, variant.getChromosome() + "_" + bigChunkId + "_"
+                + VariantToDBObjectConverter.TEN_THOUSAND_STRING);
+        endDocument(chunkIds);
+        endDocument(at);
+
+        int hgvs = startArray(VariantToDBObjectConverter.HGVS_FIELD);
+        int index = 0;
+        for (Map.Entry<String, Set<String>> entry : variant.getHgvs().entrySet()) {
+            for (String value : entry.getValue()) {
+                int hgvsEntry = startDocument(index++);
+                _putObjectField(VariantToDBObjectConverter.TYPE_FIELD, entry.getKey());
+                _putObjectField(VariantToDBObjectConverter.NAME_FIELD, value);
+                endDocument(hgvsEntry);
+            }
+        }
+        endDocument(hgvs);
+
+        endDocument(document);
+    }
+
+    /**
+     * Same fields as {@link VariantSourceEntryToDBObjectConverter}
+     */
+    private void putSourceEntry(String name, VariantSourceEntry sourceEntry) {
+        int document = startDocument(name);
+        _putObjectField(VariantSourceEntryToDBObjectConverter.FILEID_FIELD, sourceEntry.getFileId());
+        _putObjectField(VariantSourceEntryToDBObjectConverter.STUDYID_FIELD, sourceEntry.getStudyId());
+        if (sourceEntry.getSecondaryAlternates().length > 0) {
+            _putObjectField(VariantSourceEntryToDBObjectConverter.ALTERNATES_FIELD,
+                            sourceEntry.getSecondaryAlternates());
+        }
+        if (sourceEntry.getAttributes().size() > 0) {
+            putAttributes(VariantSourceEntryToDBObjectConverter.ATTRIBUTES_FIELD, sourceEntry.getAttributes());
+        }
+        if (includeSamples) {
+            _putObjectField(VariantSourceEntryToDBObjectConverter.FORMAT_FIELD, sourceEntry.getFormat());
+            putSamples(VariantSourceEntryToDBObjectConverter.SAMPLES_FIELD, sourceEntry);
+        }
+        endDocument(document);
+    }
+
+    private void putAttributes(String name, Map<String, String> attributes) {
+        keys.clear();
+        for (String key : attributes.keySet()) {
+            if (!keys.add(VariantSourceEntryToDBObjectConverter.convertAttributeKey(key))) {
+                // the converter would keep only the last value, in the position of the first one
+                BasicDBObject attrs = new BasicDBObject();
+                for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                    attrs.append(VariantSourceEntryToDBObjectConverter.convertAttributeKey(entry.getKey()),
+                                 VariantSourceEntryToDBObjectConverter.convertAttributeValue(entry.getKey(),
+                                                                                             entry.getValue()));
+                }
+                putObject(name, attrs);
+                return;
+            }
+        }
+
+        int document = startDocument(name);
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            _putObjectField(VariantSourceEntryToDBObjectConverter.convertAttributeKey(entry.getKey()),
+                            VariantSourceEntryToDBObjectConverter.convertAttributeValue(entry.getKey(),
+                                                                                        entry.getValue()));
+        }
+        endDocument(document);
+    }
+
+    /**
+     * Same document as {@link SamplesToDBObjectConverter}: the genotypes are grouped in a HashMap filled in the same
+     * order, so they are iterated in the same order too, but only the number of samples of each group is kept.
+     */
+    private void putSamples(String name, VariantSourceEntry sourceEntry) {
+        SamplesMatrix samples = sourceEntry.getSamplesMatrix();
+
+        Map<Genotype, Integer> groups = new HashMap<>();
+        int[] groupByCode = new int[samples.getNumberOfGenotypes() + 1];
+        for (int code = 1; code <= samples.getNumberOfGenotypes(); code++) {
+            Genotype genotype = new Genotype(samples.getGenotypeByCode(code));
+            Integer group = groups.get(genotype);
+            if (group == null) {
+                group = groups.size();
+                groups.put(genotype, group);
+            }
+            groupByCode[code] = group;
+        }
+
+        int[] samplesByGroup = new int[groups.size()];
+        int[] codes = samples.countGenotypeCodes();
+        for (int code = 1; code < codes.length; code++) {
+            samplesByGroup[groupByCode[code]] += codes[code];
+        }
+
+        Genotype defaultGenotype = null;
+        int defaultGroupSize = 0;
+        keys.clear();
+        for (Map.Entry<Genotype, Integer> group : groups.entrySet()) {
+            int groupSize = samplesByGroup[group.getValue()];
+            if (groupSize == 0) {
+                continue;
+            }
+            if (defaultGenotype == null || groupSize > defaultGroupSize) {
+                defaultGenotype = group.getKey();
+                defaultGroupSize = groupSize;
+            }
+            if (!keys.add(getGenotypeKey(group.getKey()))) {
+                // two genotypes written the same way, let the converter decide which one is kept
+                putObject(name, samplesConverter.convert(sourceEntry));
+                return;
+            }
+        }
+
+        int document = startDocument(name);
+        for (Map.Entry<Genotype, Integer> group : groups.entrySet()) {
+            int groupIndex = group.getValue();
+            if (samplesByGroup[groupIndex] == 0) {
+                continue;
+            }
+            String genotypeKey = getGenotypeKey(group.getKey());
+            if (group.getKey().equals(defaultGenotype)) {
+                _putObjectField(DEFAULT_GENOTYPE_FIELD, genotypeKey);
+            } else {
+                int samplesWithGenotype = startArray(genotypeKey);
+                int index = 0;
+                for (int i = 0; i < samples.getNumberOfSamples(); i++) {
+                    int code = samples.getGenotypeCode(i);
+                    if (code != SamplesMatrix.NO_GENOTYPE && groupByCode[code] == groupIndex) {
+                        putIndex(BSON.NUMBER_INT, index++);
+                        buffer.writeInt(i);
+                    }
+                }
+                endDocument(samplesWithGenotype);
+            }
+        }
+        endDocument(document);
+    }
+
+    /**
+     * Copies the buffer once, instead of the twice of {@link OutputBuffer#toByteArray()}
+     */
+    private byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.size()];
+        try {
+            buffer.pipe(new OutputStream() {
+                private int position = 0;
+
+                @Override
+                public void write(int b) {
+                    bytes[position++] = (byte) b;
+                }
+
+                @Override
+                public void write(byte[] b, int offset, int length) {
+                    System.arraycopy(b, offset, bytes, position, length);
+                    position += length;
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy the BSON buffer", e);
+        }
+        return bytes;
+    }
+
+    private static String getGenotypeKey(Genotype genotype) {
+        return genotype.toString().replace(".", "-1");
+    }
+
+    private void putInt(String name, int value) {
+        _put(BSON.NUMBER_INT, name);
+        buffer.writeInt(value);
+    }
+
+    private void putString(int index, String value) {
+        putIndex(BSON.STRING, index);
+        _putValueString(value);
+    }
+
+    /**
+     * @param name name of the field, or null for the top level document
+     * @return position of the size of the document, to be filled in by {@link #endDocument(int)}
+     */
+    private int startDocument(String name) {
+        if (name != null) {
+            _put(BSON.OBJECT, name);
+        }
+        int sizePosition = buffer.getPosition();
+        buffer.writeInt(0);
+        return sizePosition;
+    }
+
+    private int startDocument(int index) {
+        putIndex(BSON.OBJECT, index);
+        int sizePosition = buffer.getPosition();
+        buffer.writeInt(0);
+        return sizePosition;
+    }
+
+    private int startArray(String name) {
+        _put(BSON.ARRAY, name);
+        int sizePosition = buffer.getPosition();
+        buffer.writeInt(0);
+        return sizePosition;
+    }
+
+    private void endDocument(int sizePosition) {
+        buffer.write(BSON.EOO);
+        buffer.writeInt(sizePosition, buffer.getPosition() - sizePosition);
+    }
+
+    /**
+     * Writes the type and the key of an element of an array, which is its index, without creating a String
+     */
+    private void putIndex(byte type, int index) {
+        buffer.write(type);
+        if (index >= 10) {
+            int divisor = 1;
+            while (index / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                buffer.write('0' + (index / divisor) % 10);
+            }
+        } else {
+            buffer.write('0' + index);
+        }
+        buffer.write(0);
+    }
+}
@@ -28,6 +28,7 @@ import uk.ac.ebi.eva.commons.models.converters.data.SamplesToDBObjectConverter;
 import uk.ac.ebi.eva.commons.models.converters.data.VariantStatsToDBObjectConverter;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
 
 import java.util.List;
 
@@ -43,19 +44,44 @@ public class VariantToMongoDbObjectConverter implements Converter<Variant, DBObj
 
     private boolean includeStats;
 
+    private final boolean compactIds;
+
     public VariantToMongoDbObjectConverter(boolean includeStats, boolean includeSample) {
         this(includeStats, includeStats, includeSample);
     }
 
     public VariantToMongoDbObjectConverter(boolean includeStats, boolean calculateStats, boolean includeSample) {
+        this(includeStats, calculateStats, includeSample, false);
+    }
+
+    /**
+     * @param compactIds whether the _id of the variants is built with
+     *                   {@link MongoDBHelper#buildCompactStorageId(Variant)}
+     */
+    public VariantToMongoDbObjectConverter(boolean includeStats, boolean calculateStats, boolean includeSample,
+                                           boolean compactIds) {
 
         this.includeStats = includeStats;
+        this.compactIds = compactIds;
         this.statsConverter = calculateStats ? new VariantStatsToDBObjectConverter() : null;
 
 
         SamplesToDBObjectConverter sampleConverter = includeSample ? new SamplesToDBObjectConverter() : null;
         this.sourceEntryConverter = new VariantSourceEntryToDBObjectConverter(sampleConverter);
-        this.variantConverter = new VariantToDBObjectConverter(null, null, null);
+        this.variantConverter = new VariantToDBObjectConverter(null, null, null, compactIds);
+    }
+
+    public boolean isCompactIds() {
+        return compactIds;
+    }
+
+    /**
+     * @return the _id of the document that the update of the variant applies to, a String or a byte[] depending on
+     * {@link #isCompactIds()}
+     */
+    public Object buildStorageId(Variant variant) {
+        return MongoDBHelper.buildStorageId(variant.getChromosome(), variant.getStart(), variant.getReference(),
+                                            variant.getAlternate(), compactIds);
     }
 
     @Override
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.model.converters.data;
+
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBCallback;
+import com.mongodb.LazyDBObject;
+import org.springframework.util.Assert;
+
+import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.utils.RawDBObjectEncoder;
+
+/**
+ * Converts a {@link Variant} into the same update document as {@link VariantToMongoDbObjectConverter}, but already
+ * serialized to BSON with a {@link VariantToBsonEncoder}.
+ * <p>
+ * The result is a read-only {@link LazyDBObject}. Collections that receive it must use {@link RawDBObjectEncoder},
+ * so the bytes are sent as they are instead of being parsed again, and users that need to modify it can get a
+ * copy with {@link uk.ac.ebi.eva.utils.MongoDBHelper#toMutable(DBObject)}.
+ * <p>
+ * Each thread reuses its own encoder and buffer, so the converter can be shared.
+ */
+public class VariantToRawDBObjectConverter extends VariantToMongoDbObjectConverter {
+
+    private static final LazyDBCallback CALLBACK = new LazyDBCallback(null);
+
+    private final ThreadLocal<VariantToBsonEncoder> encoders;
+
+    public VariantToRawDBObjectConverter(boolean includeStats, boolean includeSample) {
+        this(includeStats, includeSample, false);
+    }
+
+    public VariantToRawDBObjectConverter(boolean includeStats, boolean includeSample, boolean compactIds) {
+        super(includeStats, includeStats, includeSample, compactIds);
+        this.encoders = ThreadLocal.withInitial(() -> new VariantToBsonEncoder(includeStats, includeSample,
+                                                                               compactIds));
+    }
+
+    @Override
+    public DBObject convert(Variant variant) {
+        Assert.notNull(variant, "Variant should not be null. Please provide a valid Variant object");
+        return new LazyDBObject(encoders.get().encode(variant), CALLBACK);
+    }
+}
@@ -21,6 +21,10 @@ import org.springframework.stereotype.Service;
 
 import uk.ac.ebi.eva.utils.URLHelper;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Service that holds access to the values for annotatation steps like VEP etc.
  *
@@ -59,9 +63,15 @@ public class AnnotationParameters {
     @Value(PARAMETER + JobParametersNames.APP_VEP_NUMFORKS + END)
     private String vepNumForks;
 
+    @Value(PARAMETER + JobParametersNames.APP_VEP_NUM_PROCESSES + "']?:1}")
+    private Integer vepNumProcesses;
+
     @Value(PARAMETER + JobParametersNames.INPUT_FASTA + END)
     private String inputFasta;
 
+    @Value(PARAMETER + JobParametersNames.CONFIG_ANNOTATION_CACHE_PATH + END)
+    private String annotationCachePath;
+
     public String getVepPath() {
         return vepPath;
     }
@@ -82,10 +92,24 @@ public class AnnotationParameters {
         return vepNumForks;
     }
 
+    /**
+     * @return number of VEP processes that annotate a shard of the VEP input each, at the same time
+     */
+    public Integer getVepNumProcesses() {
+        return vepNumProcesses;
+    }
+
     public String getInputFasta() {
         return inputFasta;
     }
 
+    /**
+     * @return directory of the cache of VEP output lines shared by all the jobs, or null if it's not used
+     */
+    public String getAnnotationCachePath() {
+        return annotationCachePath;
+    }
+
     public String getVepInput() {
         return URLHelper.resolveVepInput(outputDirAnnotation, studyId, fileId);
     }
@@ -94,6 +118,28 @@ public class AnnotationParameters {
         return URLHelper.resolveVepOutput(outputDirAnnotation, studyId, fileId);
     }
 
+    /**
+     * @param vepInput file with the variants to annotate, or null to read them from the standard input of VEP
+     * @return command line that runs VEP and writes the annotations to its standard output
+     */
+    public List<String> getVepCommand(String vepInput) {
+        List<String> command = new ArrayList<>(Arrays.asList("perl", vepPath,
+                                                             "--cache",
+                                                             "--cache_version", vepCacheVersion,
+                                                             "-dir", vepCachePath,
+                                                             "--species", vepCacheSpecies,
+                                                             "--fasta", inputFasta,
+                                                             "--fork", vepNumForks));
+        if (vepInput != null) {
+            command.addAll(Arrays.asList("-i", vepInput));
+        }
+        command.addAll(Arrays.asList("-o", "STDOUT",
+                                     "--force_overwrite",
+                                     "--offline",
+                                     "--everything"));
+        return command;
+    }
+
 }
 
 
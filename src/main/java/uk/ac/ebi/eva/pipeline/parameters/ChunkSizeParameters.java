@@ -29,7 +29,28 @@ public class ChunkSizeParameters {
     @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_SIZE + OR_DEFAULT)
     private Integer chunkSize;
 
+    @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_ADAPTIVE + "']?:false}")
+    private boolean adaptive;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_MIN_SIZE + "']?:'100'}")
+    private Integer minChunkSize;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_MAX_SIZE + "']?:'10000'}")
+    private Integer maxChunkSize;
+
     public Integer getChunkSize() {
         return chunkSize;
     }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public Integer getMinChunkSize() {
+        return minChunkSize;
+    }
+
+    public Integer getMaxChunkSize() {
+        return maxChunkSize;
+    }
 }
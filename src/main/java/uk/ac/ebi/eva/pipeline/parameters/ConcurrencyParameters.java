@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters;
+
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service that holds the number of threads that the steps can use. By default, one per available processor to load
+ * and parse the variants, and one to write them.
+ */
+@Service
+@StepScope
+public class ConcurrencyParameters {
+
+    private static final String PARAMETER = "#{jobParameters['";
+    private static final String OR_AVAILABLE_PROCESSORS =
+            "']?:T(java.lang.Runtime).getRuntime().availableProcessors()}";
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_THREADS + OR_AVAILABLE_PROCESSORS)
+    private Integer loadThreads;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_PARSE_THREADS + OR_AVAILABLE_PROCESSORS)
+    private Integer parseThreads;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_WRITE_THREADS + "']?:1}")
+    private Integer writeThreads;
+
+    public Integer getLoadThreads() {
+        return loadThreads;
+    }
+
+    public Integer getParseThreads() {
+        return parseThreads;
+    }
+
+    public Integer getWriteThreads() {
+        return writeThreads;
+    }
+}
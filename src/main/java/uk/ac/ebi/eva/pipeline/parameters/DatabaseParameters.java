@@ -15,11 +15,14 @@
  */
 package uk.ac.ebi.eva.pipeline.parameters;
 
+import com.mongodb.WriteConcern;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
 /**
  * Service that holds access to the values for database. This include the configuration
  * values for database connection that are got as values not parameters.
@@ -43,6 +46,27 @@ public class DatabaseParameters {
     @Value(PARAMETER + JobParametersNames.DB_COLLECTIONS_FEATURES_NAME + END)
     private String collectionFeaturesName;
 
+    @Value(PARAMETER + JobParametersNames.DB_COLLECTIONS_COMPACT_VARIANTS_NAME + END)
+    private String collectionCompactVariantsName;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_DB_INSERT_NEW_VARIANTS + "']?:false}")
+    private boolean insertNewVariants;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_DB_DEFER_INDEXES + "']?:false}")
+    private boolean deferIndexes;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_DB_COMPACT_IDS + "']?:false}")
+    private boolean compactIds;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_DB_WRITE_RETRIES + "']?:5}")
+    private int writeRetries;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN + END)
+    private String loadWriteConcern;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_DB_METADATA_WRITECONCERN + END)
+    private String metadataWriteConcern;
+
     @Autowired
     private MongoConnection mongoConnection;
 
@@ -65,4 +89,49 @@ public class DatabaseParameters {
     public String getCollectionFeaturesName() {
         return collectionFeaturesName;
     }
+
+    /**
+     * @return collection where the variants are copied with compact ids when migrating a collection
+     */
+    public String getCollectionCompactVariantsName() {
+        return collectionCompactVariantsName;
+    }
+
+    public boolean isInsertNewVariants() {
+        return insertNewVariants;
+    }
+
+    public boolean isDeferIndexes() {
+        return deferIndexes;
+    }
+
+    /**
+     * @return whether the _id of the variants is the compact binary one instead of a string
+     */
+    public boolean isCompactIds() {
+        return compactIds;
+    }
+
+    /**
+     * @return maximum number of times that the writes that failed with a transient error are sent again
+     */
+    public int getWriteRetries() {
+        return writeRetries;
+    }
+
+    /**
+     * @return write concern of the steps that load variants, annotations or features, or null to use the one of
+     * the connection
+     */
+    public WriteConcern getLoadWriteConcern() {
+        return MongoDBHelper.parseWriteConcern(loadWriteConcern, JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN);
+    }
+
+    /**
+     * @return write concern of the metadata of the files, or null to use the one of the connection
+     */
+    public WriteConcern getMetadataWriteConcern() {
+        return MongoDBHelper.parseWriteConcern(metadataWriteConcern,
+                                               JobParametersNames.CONFIG_DB_METADATA_WRITECONCERN);
+    }
 }
@@ -20,4 +20,14 @@ package uk.ac.ebi.eva.pipeline.parameters;
  */
 public class ExecutionContextParametersNames {
     public static final String NUMBER_OF_LINES = "line";
+
+    public static final String REGION_CHROMOSOME = "region.chromosome";
+
+    public static final String REGION_START_VIRTUAL_OFFSET = "region.start-virtual-offset";
+
+    public static final String REGION_END_VIRTUAL_OFFSET = "region.end-virtual-offset";
+
+    public static final String VEP_INPUT = "vep.input";
+
+    public static final String VEP_OUTPUT = "vep.output";
 }
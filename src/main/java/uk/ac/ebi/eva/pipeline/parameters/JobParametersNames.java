@@ -68,6 +68,14 @@ public class JobParametersNames {
 
     public static final String CONFIG_DB_READPREFERENCE = "config.db.read-preference";
 
+    public static final String CONFIG_DB_WRITECONCERN = "config.db.write-concern";
+
+    public static final String CONFIG_DB_CONNECTIONS_PER_HOST = "config.db.connections-per-host";
+
+    public static final String CONFIG_DB_CONNECT_TIMEOUT = "config.db.connect-timeout";
+
+    public static final String CONFIG_DB_SOCKET_TIMEOUT = "config.db.socket-timeout";
+
 
     /*
      * Database and collections
@@ -83,6 +91,8 @@ public class JobParametersNames {
 
     public static final String DB_COLLECTIONS_STATISTICS_NAME = "db.collections.stats.name";
 
+    public static final String DB_COLLECTIONS_COMPACT_VARIANTS_NAME = "db.collections.compact-variants.name";
+
 
     /*
      * Skip and overwrite steps
@@ -130,6 +140,8 @@ public class JobParametersNames {
 
     public static final String APP_VEP_NUMFORKS = "app.vep.num-forks";
 
+    public static final String APP_VEP_NUM_PROCESSES = "app.vep.num-processes";
+
 
     /*
      * Other configuration
@@ -139,6 +151,34 @@ public class JobParametersNames {
 
     public static final String CONFIG_CHUNK_SIZE = "config.chunk.size";
 
+    public static final String CONFIG_CHUNK_ADAPTIVE = "config.chunk.adaptive";
+
+    public static final String CONFIG_CHUNK_MIN_SIZE = "config.chunk.min-size";
+
+    public static final String CONFIG_CHUNK_MAX_SIZE = "config.chunk.max-size";
+
+    public static final String CONFIG_LOAD_THREADS = "config.load.threads";
+
+    public static final String CONFIG_PARSE_THREADS = "config.parse.threads";
+
+    public static final String CONFIG_WRITE_THREADS = "config.write.threads";
+
+    public static final String CONFIG_DB_INSERT_NEW_VARIANTS = "config.db.insert-new-variants";
+
+    public static final String CONFIG_DB_DEFER_INDEXES = "config.db.defer-indexes";
+
+    public static final String CONFIG_DB_LOAD_WRITECONCERN = "config.db.load-write-concern";
+
+    public static final String CONFIG_DB_METADATA_WRITECONCERN = "config.db.metadata-write-concern";
+
+    public static final String CONFIG_DB_COMPACT_IDS = "config.db.compact-ids";
+
+    public static final String CONFIG_DB_WRITE_RETRIES = "config.db.write-retries";
+
+    public static final String CONFIG_ANNOTATION_STREAMING = "config.annotation.streaming";
+
+    public static final String CONFIG_ANNOTATION_CACHE_PATH = "config.annotation.cache-path";
+
 
     public static final String PROPERTY_FILE_PROPERTY = "parameters.path";
 
@@ -16,13 +16,17 @@
 package uk.ac.ebi.eva.pipeline.parameters;
 
 import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
 /**
- * Container of credentials for a connection to mongo.
+ * Container of credentials and options for a connection to mongo.
  *
- * The values are injected directly from environment, not from JobParameters.
+ * The values are injected directly from environment, not from JobParameters. The options that are not provided
+ * keep the default value of the Mongo driver.
  */
 @Service
 public class MongoConnection {
@@ -42,6 +46,18 @@ public class MongoConnection {
     @Value("${" + JobParametersNames.CONFIG_DB_READPREFERENCE + ":#{null}}")
     private String readPreference;
 
+    @Value("${" + JobParametersNames.CONFIG_DB_WRITECONCERN + ":#{null}}")
+    private String writeConcern;
+
+    @Value("${" + JobParametersNames.CONFIG_DB_CONNECTIONS_PER_HOST + ":#{null}}")
+    private Integer connectionsPerHost;
+
+    @Value("${" + JobParametersNames.CONFIG_DB_CONNECT_TIMEOUT + ":#{null}}")
+    private Integer connectTimeout;
+
+    @Value("${" + JobParametersNames.CONFIG_DB_SOCKET_TIMEOUT + ":#{null}}")
+    private Integer socketTimeout;
+
     public String getHosts() {
         return hosts;
     }
@@ -65,4 +81,35 @@ public class MongoConnection {
     public ReadPreference getReadPreference() {
         return ReadPreference.valueOf(readPreference);
     }
+
+    public String getWriteConcernName() {
+        return writeConcern;
+    }
+
+    /**
+     * @return the write concern with the given name (case insensitive), such as "acknowledged", "majority" or
+     * "journaled", or null if it wasn't provided
+     * @throws IllegalArgumentException if there is no write concern with that name
+     */
+    public WriteConcern getWriteConcern() {
+        return MongoDBHelper.parseWriteConcern(writeConcern, JobParametersNames.CONFIG_DB_WRITECONCERN);
+    }
+
+    public Integer getConnectionsPerHost() {
+        return connectionsPerHost;
+    }
+
+    /**
+     * @return milliseconds to wait for a connection to be established
+     */
+    public Integer getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @return milliseconds to wait for an answer from the server, 0 to wait without limit
+     */
+    public Integer getSocketTimeout() {
+        return socketTimeout;
+    }
 }
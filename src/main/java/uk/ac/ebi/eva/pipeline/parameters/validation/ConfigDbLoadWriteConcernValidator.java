@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters.validation;
+
+import com.mongodb.WriteConcern;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.JobParametersValidator;
+
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+/**
+ * Checks that the write concern of the load steps has been filled in and it is the name of an acknowledged MongoDB
+ * write concern. Unacknowledged writes never report their errors, so the duplicated variants could not be updated
+ * instead of inserted and the failed writes could not be retried.
+ *
+ * @throws JobParametersInvalidException If the write concern is null or empty, not a known write concern or
+ * unacknowledged
+ */
+public class ConfigDbLoadWriteConcernValidator implements JobParametersValidator {
+
+    @Override
+    public void validate(JobParameters parameters) throws JobParametersInvalidException {
+        String writeConcernValue = parameters.getString(JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN);
+
+        ParametersValidatorUtil.checkIsValidString(writeConcernValue, JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN);
+        WriteConcern writeConcern;
+        try {
+            writeConcern = MongoDBHelper.parseWriteConcern(writeConcernValue,
+                                                           JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN);
+        } catch (IllegalArgumentException e) {
+            throw new JobParametersInvalidException(e.getMessage());
+        }
+        if (!writeConcern.callGetLastError()) {
+            throw new JobParametersInvalidException(
+                    JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN + " must be an acknowledged write concern, but is '"
+                            + writeConcernValue + "'");
+        }
+    }
+}
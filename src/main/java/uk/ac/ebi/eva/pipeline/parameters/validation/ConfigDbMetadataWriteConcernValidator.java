@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters.validation;
+
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.JobParametersValidator;
+
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+/**
+ * Checks that the write concern of the files metadata has been filled in and it is the name of a MongoDB write concern.
+ *
+ * @throws JobParametersInvalidException If the write concern is null or empty or not a known write concern
+ */
+public class ConfigDbMetadataWriteConcernValidator implements JobParametersValidator {
+
+    @Override
+    public void validate(JobParameters parameters) throws JobParametersInvalidException {
+        String writeConcernValue = parameters.getString(JobParametersNames.CONFIG_DB_METADATA_WRITECONCERN);
+
+        ParametersValidatorUtil.checkIsValidString(writeConcernValue,
+                                                   JobParametersNames.CONFIG_DB_METADATA_WRITECONCERN);
+        try {
+            MongoDBHelper.parseWriteConcern(writeConcernValue, JobParametersNames.CONFIG_DB_METADATA_WRITECONCERN);
+        } catch (IllegalArgumentException e) {
+            throw new JobParametersInvalidException(e.getMessage());
+        }
+    }
+}
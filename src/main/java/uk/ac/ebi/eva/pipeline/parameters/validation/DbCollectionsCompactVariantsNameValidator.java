@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters.validation;
+
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.JobParametersValidator;
+
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+
+/**
+ * Checks that the name of the collection of the variants migrated to compact ids has been filled in, and that it is
+ * not the variants collection they are read from.
+ *
+ * @throws JobParametersInvalidException If the compact variants collection name is null or empty, or the same as
+ * the variants collection name
+ */
+public class DbCollectionsCompactVariantsNameValidator implements JobParametersValidator {
+
+    @Override
+    public void validate(JobParameters parameters) throws JobParametersInvalidException {
+        String compactVariantsName = parameters.getString(JobParametersNames.DB_COLLECTIONS_COMPACT_VARIANTS_NAME);
+        ParametersValidatorUtil.checkIsValidString(compactVariantsName,
+                                                   JobParametersNames.DB_COLLECTIONS_COMPACT_VARIANTS_NAME);
+        if (compactVariantsName.equals(parameters.getString(JobParametersNames.DB_COLLECTIONS_VARIANTS_NAME))) {
+            throw new JobParametersInvalidException(
+                    JobParametersNames.DB_COLLECTIONS_COMPACT_VARIANTS_NAME + " must be different from "
+                            + JobParametersNames.DB_COLLECTIONS_VARIANTS_NAME);
+        }
+    }
+}
@@ -146,4 +146,15 @@ public class ParametersValidatorUtil {
                     String.format("%s is %s, please provide a positive number", jobParametersName, numberToValidate));
         }
     }
+
+    static void checkIsNonNegativeInteger(String numberToValidate,
+                                          String jobParametersName) throws JobParametersInvalidException {
+        int integer = checkIsInteger(numberToValidate, jobParametersName);
+
+        if (integer < 0) {
+            throw new JobParametersInvalidException(
+                    String.format("%s is %s, please provide zero or a positive number", jobParametersName,
+                                  numberToValidate));
+        }
+    }
 }
@@ -56,7 +56,16 @@ public class AnnotationLoaderStepParametersValidator extends DefaultJobParameter
                 new InputVcfIdValidator(),
                 new OptionalValidator(new ConfigRestartabilityAllowValidator(),
                                       JobParametersNames.CONFIG_RESTARTABILITY_ALLOW),
-                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE)
+                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE),
+                new OptionalValidator(new ConfigChunkAdaptiveValidator(), JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                new OptionalValidator(new ConfigChunkMinSizeValidator(), JobParametersNames.CONFIG_CHUNK_MIN_SIZE),
+                new OptionalValidator(new ConfigChunkMaxSizeValidator(), JobParametersNames.CONFIG_CHUNK_MAX_SIZE),
+                new OptionalValidator(new ConfigDbCompactIdsValidator(), JobParametersNames.CONFIG_DB_COMPACT_IDS),
+                new OptionalValidator(new ConfigDbWriteRetriesValidator(), JobParametersNames.CONFIG_DB_WRITE_RETRIES),
+                new OptionalValidator(new ConfigAnnotationCachePathValidator(),
+                                      JobParametersNames.CONFIG_ANNOTATION_CACHE_PATH),
+                new OptionalValidator(new ConfigDbLoadWriteConcernValidator(),
+                                      JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN)
         );
 
         CompositeJobParametersValidator compositeJobParametersValidator = new CompositeJobParametersValidator();
@@ -22,6 +22,7 @@ import org.springframework.batch.core.job.CompositeJobParametersValidator;
 import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigDbMetadataWriteConcernValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbCollectionsFilesNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputStudyIdValidator;
@@ -30,6 +31,7 @@ import uk.ac.ebi.eva.pipeline.parameters.validation.InputStudyTypeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfAggregationValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfIdValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.OptionalValidator;
 
 import java.util.Arrays;
 import java.util.List;
@@ -66,7 +68,9 @@ public class FileLoaderStepParametersValidator extends DefaultJobParametersValid
                 new InputStudyTypeValidator(),
                 new InputVcfValidator(),
                 new InputVcfIdValidator(),
-                new InputVcfAggregationValidator()
+                new InputVcfAggregationValidator(),
+                new OptionalValidator(new ConfigDbMetadataWriteConcernValidator(),
+                                      JobParametersNames.CONFIG_DB_METADATA_WRITECONCERN)
         );
 
         CompositeJobParametersValidator compositeJobParametersValidator = new CompositeJobParametersValidator();
@@ -22,7 +22,11 @@ import org.springframework.batch.core.job.CompositeJobParametersValidator;
 import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkAdaptiveValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkMaxSizeValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkMinSizeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkSizeValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigDbLoadWriteConcernValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigRestartabilityAllowValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbCollectionsFeaturesNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbNameValidator;
@@ -57,7 +61,12 @@ public class GeneLoaderStepParametersValidator extends DefaultJobParametersValid
                 new InputGtfValidator(),
                 new OptionalValidator(new ConfigRestartabilityAllowValidator(),
                                       JobParametersNames.CONFIG_RESTARTABILITY_ALLOW),
-                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE)
+                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE),
+                new OptionalValidator(new ConfigChunkAdaptiveValidator(), JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                new OptionalValidator(new ConfigChunkMinSizeValidator(), JobParametersNames.CONFIG_CHUNK_MIN_SIZE),
+                new OptionalValidator(new ConfigChunkMaxSizeValidator(), JobParametersNames.CONFIG_CHUNK_MAX_SIZE),
+                new OptionalValidator(new ConfigDbLoadWriteConcernValidator(),
+                                      JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN)
         );
 
         CompositeJobParametersValidator compositeJobParametersValidator = new CompositeJobParametersValidator();
@@ -51,10 +51,20 @@ public class PopulationStatisticsLoaderStepParametersValidator extends DefaultJo
               new String[]{ });
     }
 
+    /**
+     * The statistics are loaded by OpenCGA, which looks for the variants by their string ids, so they can't be
+     * loaded into a collection with compact ids.
+     */
     @Override
     public void validate(JobParameters parameters) throws JobParametersInvalidException {
         super.validate(parameters);
         compositeJobParametersValidator().validate(parameters);
+        if (Boolean.parseBoolean(parameters.getString(JobParametersNames.CONFIG_DB_COMPACT_IDS))) {
+            throw new JobParametersInvalidException(
+                    "Statistics can't be loaded into variants with compact ids, please set "
+                            + JobParametersNames.STATISTICS_SKIP + " or " + JobParametersNames.CONFIG_DB_COMPACT_IDS
+                            + "=false");
+        }
     }
 
     private CompositeJobParametersValidator compositeJobParametersValidator() {
@@ -22,8 +22,19 @@ import org.springframework.batch.core.job.CompositeJobParametersValidator;
 import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkAdaptiveValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkMaxSizeValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkMinSizeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkSizeValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigDbCompactIdsValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigDbDeferIndexesValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigDbInsertNewVariantsValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigDbLoadWriteConcernValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigDbWriteRetriesValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigLoadThreadsValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigParseThreadsValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigRestartabilityAllowValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigWriteThreadsValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbCollectionsVariantsNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputStudyIdValidator;
@@ -70,6 +81,19 @@ public class VariantLoaderStepParametersValidator extends DefaultJobParametersVa
                 new OptionalValidator(new InputVcfAggregationMappingPathValidator(),
                         JobParametersNames.INPUT_VCF_AGGREGATION_MAPPING_PATH),
                 new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE),
+                new OptionalValidator(new ConfigChunkAdaptiveValidator(), JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                new OptionalValidator(new ConfigChunkMinSizeValidator(), JobParametersNames.CONFIG_CHUNK_MIN_SIZE),
+                new OptionalValidator(new ConfigChunkMaxSizeValidator(), JobParametersNames.CONFIG_CHUNK_MAX_SIZE),
+                new OptionalValidator(new ConfigLoadThreadsValidator(), JobParametersNames.CONFIG_LOAD_THREADS),
+                new OptionalValidator(new ConfigParseThreadsValidator(), JobParametersNames.CONFIG_PARSE_THREADS),
+                new OptionalValidator(new ConfigWriteThreadsValidator(), JobParametersNames.CONFIG_WRITE_THREADS),
+                new OptionalValidator(new ConfigDbInsertNewVariantsValidator(),
+                        JobParametersNames.CONFIG_DB_INSERT_NEW_VARIANTS),
+                new OptionalValidator(new ConfigDbDeferIndexesValidator(), JobParametersNames.CONFIG_DB_DEFER_INDEXES),
+                new OptionalValidator(new ConfigDbCompactIdsValidator(), JobParametersNames.CONFIG_DB_COMPACT_IDS),
+                new OptionalValidator(new ConfigDbWriteRetriesValidator(), JobParametersNames.CONFIG_DB_WRITE_RETRIES),
+                new OptionalValidator(new ConfigDbLoadWriteConcernValidator(),
+                        JobParametersNames.CONFIG_DB_LOAD_WRITECONCERN),
                 new OptionalValidator(new ConfigRestartabilityAllowValidator(),
                         JobParametersNames.CONFIG_RESTARTABILITY_ALLOW)
         );
@@ -23,14 +23,18 @@ import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.VepAnnotationGeneratorStep;
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigAnnotationCachePathValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigAnnotationStreamingValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputFastaValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputStudyIdValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfIdValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.OptionalValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.OutputDirAnnotationValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.VepCachePathValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.VepCacheSpeciesValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.VepCacheVersionValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.VepNumForksValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.VepNumProcessesValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.VepPathValidator;
 
 import java.util.Arrays;
@@ -73,7 +77,12 @@ public class VepAnnotationGeneratorStepParametersValidator extends DefaultJobPar
                 new VepNumForksValidator(),
                 new OutputDirAnnotationValidator(),
                 new InputStudyIdValidator(),
-                new InputVcfIdValidator()
+                new InputVcfIdValidator(),
+                new OptionalValidator(new ConfigAnnotationStreamingValidator(),
+                                      JobParametersNames.CONFIG_ANNOTATION_STREAMING),
+                new OptionalValidator(new VepNumProcessesValidator(), JobParametersNames.APP_VEP_NUM_PROCESSES),
+                new OptionalValidator(new ConfigAnnotationCachePathValidator(),
+                                      JobParametersNames.CONFIG_ANNOTATION_CACHE_PATH)
         );
 
         CompositeJobParametersValidator compositeJobParametersValidator = new CompositeJobParametersValidator();
@@ -22,6 +22,10 @@ import org.springframework.batch.core.job.CompositeJobParametersValidator;
 import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigAnnotationCachePathValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkAdaptiveValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkMaxSizeValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkMinSizeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkSizeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigRestartabilityAllowValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbCollectionsVariantsNameValidator;
@@ -65,7 +69,13 @@ public class VepInputGeneratorStepParametersValidator extends DefaultJobParamete
                 new InputVcfIdValidator(),
                 new OutputDirAnnotationValidator(),
                 new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE),
-                new OptionalValidator(new ConfigRestartabilityAllowValidator(), JobParametersNames.CONFIG_RESTARTABILITY_ALLOW)
+                new OptionalValidator(new ConfigChunkAdaptiveValidator(), JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                new OptionalValidator(new ConfigChunkMinSizeValidator(), JobParametersNames.CONFIG_CHUNK_MIN_SIZE),
+                new OptionalValidator(new ConfigChunkMaxSizeValidator(), JobParametersNames.CONFIG_CHUNK_MAX_SIZE),
+                new OptionalValidator(new ConfigRestartabilityAllowValidator(),
+                                      JobParametersNames.CONFIG_RESTARTABILITY_ALLOW),
+                new OptionalValidator(new ConfigAnnotationCachePathValidator(),
+                                      JobParametersNames.CONFIG_ANNOTATION_CACHE_PATH)
         );
 
         CompositeJobParametersValidator compositeJobParametersValidator = new CompositeJobParametersValidator();
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.utils;
+
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.WriteConcern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Sends idempotent writes to MongoDB, replaying the ones that failed with a transient error (a network error, or the
+ * primary of the replica set stepping down) after an exponential backoff, up to a maximum number of retries.
+ * <p>
+ * The operations are sent in an unordered bulk. When it fails with a {@link BulkWriteException}, only the operations
+ * that failed are sent again, so a chunk doesn't lose the work already applied. If the bulk failed waiting for the
+ * write concern, or without knowing which operations were applied (like a broken connection), all of them are sent
+ * again, which is only safe because the operations can be applied twice with the same result: upserts with
+ * $addToSet and $setOnInsert, and inserts whose duplicate key errors are handled by the caller.
+ */
+public class BulkWriteReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkWriteReplayer.class);
+
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 500;
+
+    private static final long MAX_BACKOFF_MILLIS = 10000;
+
+    /**
+     * Server errors that a retry may not find: network errors, the node not being primary (anymore), or the
+     * operation being interrupted by a change in the replica set or a shutdown.
+     */
+    private static final Set<Integer> TRANSIENT_ERROR_CODES = new HashSet<>(Arrays.asList(
+            6,      // HostUnreachable
+            7,      // HostNotFound
+            64,     // WriteConcernFailed (wtimeout)
+            89,     // NetworkTimeout
+            91,     // ShutdownInProgress
+            112,    // WriteConflict
+            189,    // PrimarySteppedDown
+            9001,   // SocketException
+            10107,  // NotMaster
+            11600,  // InterruptedAtShutdown
+            11602,  // InterruptedDueToReplStateChange
+            13435,  // NotMasterNoSlaveOk
+            13436   // NotMasterOrSecondary
+    ));
+
+    private final int maxRetries;
+
+    private final long initialBackoffMillis;
+
+    public BulkWriteReplayer(int maxRetries) {
+        this(maxRetries, DEFAULT_INITIAL_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @param maxRetries maximum number of times that the failed operations are sent again, 0 to never retry
+     * @param initialBackoffMillis wait before the first retry, which doubles with every retry
+     */
+    public BulkWriteReplayer(int maxRetries, long initialBackoffMillis) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Writes all the operations, replaying the failed ones.
+     *
+     * @param addOperation adds an operation to a bulk
+     * @param writeConcern write concern of the bulks, or null to use the one of the collection
+     * @throws BulkWriteException if any operation fails with an error that is not transient, right after the attempt
+     * where it failed (its indexes refer to the operations sent in that attempt), or if the transient errors persist
+     * after all the retries
+     */
+    public <T> void execute(DBCollection collection, List<T> operations, BiConsumer<BulkWriteOperation, T> addOperation,
+                            WriteConcern writeConcern) {
+        replay(collection, operations, addOperation, writeConcern, false);
+    }
+
+    /**
+     * Writes all the operations, replaying the failed ones, and returns the ones that failed with an error that is
+     * not transient, so that the caller can handle them (e.g. duplicate keys of inserts).
+     *
+     * @return errors that are not transient, with the index in the given list of the operation that caused each one
+     * @throws MongoException if the transient errors persist after all the retries
+     */
+    public <T> List<BulkWriteError> executeAndCollectErrors(DBCollection collection, List<T> operations,
+                                                            BiConsumer<BulkWriteOperation, T> addOperation,
+                                                            WriteConcern writeConcern) {
+        return replay(collection, operations, addOperation, writeConcern, true);
+    }
+
+    private <T> List<BulkWriteError> replay(DBCollection collection, List<T> operations,
+                                            BiConsumer<BulkWriteOperation, T> addOperation, WriteConcern writeConcern,
+                                            boolean collectErrors) {
+        List<BulkWriteError> failedOperations = new ArrayList<>();
+        List<Integer> pendingOperations = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            pendingOperations.add(i);
+        }
+
+        for (int retry = 0; !pendingOperations.isEmpty(); retry++) {
+            BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+            for (int index : pendingOperations) {
+                addOperation.accept(bulk, operations.get(index));
+            }
+
+            MongoException transientError;
+            try {
+                if (writeConcern != null) {
+                    bulk.execute(writeConcern);
+                } else {
+                    bulk.execute();
+                }
+                break;
+            } catch (BulkWriteException e) {
+                List<Integer> retriedOperations = new ArrayList<>();
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    int index = pendingOperations.get(error.getIndex());
+                    if (TRANSIENT_ERROR_CODES.contains(error.getCode())) {
+                        retriedOperations.add(index);
+                    } else if (collectErrors) {
+                        failedOperations.add(new BulkWriteError(error.getCode(), error.getMessage(),
+                                                                error.getDetails(), index));
+                    } else {
+                        throw e;
+                    }
+                }
+                if (e.getWriteConcernError() != null) {
+                    if (!TRANSIENT_ERROR_CODES.contains(e.getWriteConcernError().getCode())) {
+                        throw e;
+                    }
+                    // the operations without errors were applied, but may be lost if the primary changes
+                    retriedOperations = removeFailed(pendingOperations, failedOperations);
+                }
+                pendingOperations = retriedOperations;
+                transientError = e;
+            } catch (MongoException e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                transientError = e;
+            }
+
+            if (!pendingOperations.isEmpty()) {
+                if (retry >= maxRetries) {
+                    throw transientError;
+                }
+                logger.warn("{} of {} operations failed ({}), retrying them", pendingOperations.size(),
+                            operations.size(), transientError.getMessage());
+                waitBeforeRetry(retry, transientError);
+            }
+        }
+        return failedOperations;
+    }
+
+    private static List<Integer> removeFailed(List<Integer> operations, List<BulkWriteError> failedOperations) {
+        Set<Integer> failedIndexes = new HashSet<>();
+        for (BulkWriteError error : failedOperations) {
+            failedIndexes.add(error.getIndex());
+        }
+        List<Integer> remainingOperations = new ArrayList<>(operations.size());
+        for (int index : operations) {
+            if (!failedIndexes.contains(index)) {
+                remainingOperations.add(index);
+            }
+        }
+        return remainingOperations;
+    }
+
+    private static boolean isTransient(MongoException e) {
+        return e instanceof MongoSocketException || e instanceof MongoTimeoutException
+                || TRANSIENT_ERROR_CODES.contains(e.getCode());
+    }
+
+    /**
+     * @throws MongoException the error that caused the retry, if the thread is interrupted while waiting
+     */
+    private void waitBeforeRetry(int retry, MongoException cause) {
+        long backoffMillis = Math.min(MAX_BACKOFF_MILLIS, initialBackoffMillis << Math.min(retry, 30));
+        try {
+            Thread.sleep(backoffMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package uk.ac.ebi.eva.utils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipException;
 
@@ -26,6 +27,11 @@ import java.util.zip.ZipException;
  */
 public class CompressionHelper {
 
+    /**
+     * Gzip header plus the BGZF "BC" extra subfield, as written by bgzip
+     */
+    private static final int BGZF_HEADER_LENGTH = 18;
+
     public static boolean isGzip(String file) throws IOException {
         return isGzip(new File(file));
     }
@@ -39,4 +45,32 @@ public class CompressionHelper {
         }
         return true;
     }
+
+    public static boolean isBgzip(String file) throws IOException {
+        return isBgzip(new File(file));
+    }
+
+    /**
+     * Checks whether the file starts with a BGZF block, that is, a gzip member with a "BC" extra subfield.
+     */
+    public static boolean isBgzip(File file) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            byte[] header = new byte[BGZF_HEADER_LENGTH];
+            if (readFully(inputStream, header) < BGZF_HEADER_LENGTH) {
+                return false;
+            }
+            return (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b && header[2] == 8
+                    && (header[3] & 4) != 0
+                    && header[12] == 'B' && header[13] == 'C' && header[14] == 2 && header[15] == 0;
+        }
+    }
+
+    private static int readFully(InputStream inputStream, byte[] buffer) throws IOException {
+        int total = 0;
+        int count;
+        while (total < buffer.length && (count = inputStream.read(buffer, total, buffer.length - total)) != -1) {
+            total += count;
+        }
+        return total;
+    }
 }
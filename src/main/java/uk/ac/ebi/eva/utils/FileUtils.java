@@ -19,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import uk.ac.ebi.eva.pipeline.io.BgzfLazyResource;
 import uk.ac.ebi.eva.pipeline.io.GzipLazyResource;
 
 import java.io.File;
@@ -57,7 +58,9 @@ public abstract class FileUtils {
 
     public static Resource getResource(File file) throws IOException {
         Resource resource;
-        if (CompressionHelper.isGzip(file)) {
+        if (CompressionHelper.isBgzip(file)) {
+            resource = new BgzfLazyResource(file);
+        } else if (CompressionHelper.isGzip(file)) {
             resource = new GzipLazyResource(file);
         } else {
             resource = new FileSystemResource(file);
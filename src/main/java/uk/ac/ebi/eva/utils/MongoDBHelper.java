@@ -15,14 +15,35 @@
  */
 package uk.ac.ebi.eva.utils;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
 import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import org.bson.LazyBSONObject;
 import org.opencb.commons.utils.CryptoUtils;
 
 import uk.ac.ebi.eva.commons.models.data.Variant;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 public class MongoDBHelper {
@@ -33,6 +54,40 @@ public class MongoDBHelper {
 
     public static final String INDEX_NAME = "name";
 
+    public static final String ADD_TO_SET = "$addToSet";
+
+    public static final String SET_ON_INSERT = "$setOnInsert";
+
+    public static final String EACH = "$each";
+
+    private static final Set<String> MERGEABLE_OPERATORS = new HashSet<>(Arrays.asList(ADD_TO_SET, SET_ON_INSERT));
+
+    private static final int MAX_NUMERIC_CHROMOSOME_CODE = 239;
+
+    private static final int OTHER_CHROMOSOME_CODE = 0;
+
+    private static final int MAX_CHROMOSOME_NAME_BYTES = 255;
+
+    private static final int ALLELES_HASH_BYTES = 8;
+
+    private static final Map<String, Integer> NAMED_CHROMOSOME_CODES = new HashMap<>();
+
+    static {
+        NAMED_CHROMOSOME_CODES.put("X", 240);
+        NAMED_CHROMOSOME_CODES.put("Y", 241);
+        NAMED_CHROMOSOME_CODES.put("Z", 242);
+        NAMED_CHROMOSOME_CODES.put("W", 243);
+        NAMED_CHROMOSOME_CODES.put("MT", 244);
+    }
+
+    private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    });
+
     private MongoDBHelper() {
         // Can't be instantiated
     }
@@ -51,6 +106,23 @@ public class MongoDBHelper {
         return serverAddresses;
     }
 
+    /**
+     * @param name name of a write concern (case insensitive), such as "acknowledged", "w1", "majority" or "journaled"
+     * @param parameterName parameter the name was taken from, to report errors
+     * @return the write concern, or null if no name is provided
+     * @throws IllegalArgumentException if there is no write concern with that name
+     */
+    public static WriteConcern parseWriteConcern(String name, String parameterName) {
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        WriteConcern writeConcern = WriteConcern.valueOf(name.trim().toUpperCase());
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown write concern '" + name + "' in " + parameterName);
+        }
+        return writeConcern;
+    }
+
     public static String buildStorageId(Variant v) {
         return buildStorageId(v.getChromosome(), v.getStart(), v.getReference(), v.getAlternate());
     }
@@ -86,4 +158,197 @@ public class MongoDBHelper {
         return builder.toString();
     }
 
+    /**
+     * @param compactIds whether to build the id with {@link #buildCompactStorageId(String, int, String, String)}
+     *                   instead of {@link #buildStorageId(String, int, String, String)}
+     * @return the _id of the variant, as a String or as a byte[]
+     */
+    public static Object buildStorageId(String chromosome, int start, String reference, String alternate,
+                                        boolean compactIds) {
+        if (compactIds) {
+            return buildCompactStorageId(chromosome, start, reference, alternate);
+        } else {
+            return buildStorageId(chromosome, start, reference, alternate);
+        }
+    }
+
+    public static byte[] buildCompactStorageId(Variant v) {
+        return buildCompactStorageId(v.getChromosome(), v.getStart(), v.getReference(), v.getAlternate());
+    }
+
+    /**
+     * Builds an _id that is stored as BSON binary data (generic subtype), which is smaller and faster to compare than
+     * the string of {@link #buildStorageId(String, int, String, String)}. The bytes are, in this order:
+     * <ul>
+     * <li>The chromosome code, 1 byte: 1 to 239 for chromosomes named with that number (without leading zeros),
+     * 240 for X, 241 for Y, 242 for Z, 243 for W and 244 for MT. Any other name is code 0, followed by 1 byte with
+     * the length of the name in UTF-8 and the name itself. Codes 245 to 255 are reserved.</li>
+     * <li>The start, 4 bytes, big-endian.</li>
+     * <li>The first 8 bytes of the SHA-1 of the UTF-8 string "reference_alternate", where an allele "-" is written
+     * as empty, like in the string ids.</li>
+     * </ul>
+     * The ids of the variants of the most common chromosomes are then 13 bytes long, regardless of the length of the
+     * alleles. As the chromosome and start are big-endian at the beginning, they also follow the genomic order of
+     * the variants, so variants loaded in order are close to each other in the _id index.
+     *
+     * @throws IllegalArgumentException if the name of the chromosome is longer than 255 bytes
+     */
+    public static byte[] buildCompactStorageId(String chromosome, int start, String reference, String alternate) {
+        int chromosomeCode = getChromosomeCode(chromosome);
+        byte[] chromosomeName = null;
+        int length = 1 + Integer.BYTES + ALLELES_HASH_BYTES;
+        if (chromosomeCode == OTHER_CHROMOSOME_CODE) {
+            chromosomeName = chromosome.getBytes(StandardCharsets.UTF_8);
+            if (chromosomeName.length > MAX_CHROMOSOME_NAME_BYTES) {
+                throw new IllegalArgumentException("Chromosome name '" + chromosome + "' is longer than "
+                                                           + MAX_CHROMOSOME_NAME_BYTES + " bytes");
+            }
+            length += 1 + chromosomeName.length;
+        }
+
+        ByteBuffer id = ByteBuffer.allocate(length);
+        id.put((byte) chromosomeCode);
+        if (chromosomeName != null) {
+            id.put((byte) chromosomeName.length);
+            id.put(chromosomeName);
+        }
+        id.putInt(start);
+
+        String alleles = (reference.equals("-") ? "" : reference) + "_" + (alternate.equals("-") ? "" : alternate);
+        MessageDigest sha1 = SHA1.get();
+        sha1.reset();
+        id.put(sha1.digest(alleles.getBytes(StandardCharsets.UTF_8)), 0, ALLELES_HASH_BYTES);
+        return id.array();
+    }
+
+    private static int getChromosomeCode(String chromosome) {
+        Integer namedCode = NAMED_CHROMOSOME_CODES.get(chromosome);
+        if (namedCode != null) {
+            return namedCode;
+        }
+        int length = chromosome.length();
+        if (length == 0 || length > 3 || chromosome.charAt(0) == '0') {
+            return OTHER_CHROMOSOME_CODE;
+        }
+        int number = 0;
+        for (int i = 0; i < length; i++) {
+            char digit = chromosome.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return OTHER_CHROMOSOME_CODE;
+            }
+            number = number * 10 + (digit - '0');
+        }
+        return number <= MAX_NUMERIC_CHROMOSOME_CODE ? number : OTHER_CHROMOSOME_CODE;
+    }
+
+    /**
+     * Checks that the variants already in a collection have the same kind of _id that is going to be written, so
+     * the same variant is never stored twice with different ids. Empty collections accept both.
+     *
+     * @throws IllegalStateException if the ids of the collection are of the other kind
+     */
+    public static void checkStorageIdFormat(DBCollection collection, boolean compactIds) {
+        DBObject document = collection.findOne(new BasicDBObject(), new BasicDBObject("_id", 1));
+        if (document != null && (document.get("_id") instanceof byte[]) != compactIds) {
+            String existingFormat = compactIds ? "string" : "compact";
+            String requestedFormat = compactIds ? "compact" : "string";
+            throw new IllegalStateException(
+                    "The variants in collection '" + collection.getName() + "' have " + existingFormat + " ids, but "
+                            + requestedFormat + " ids were requested (string ids can be converted to compact ones "
+                            + "with the job migrate-variant-ids-job)");
+        }
+    }
+
+    /**
+     * Merges two upserts of the same document into the first one, when they are made only of $addToSet and
+     * $setOnInsert, so that a single update does the same as the two of them in order: the values added to each
+     * array are joined without duplicates, and the $setOnInsert of the first one is kept, because the second one
+     * would not apply once the document is inserted.
+     *
+     * @return false if the updates can't be merged, and then the target is not modified
+     */
+    public static boolean mergeUpserts(DBObject target, DBObject source) {
+        if (!isMergeable(target) || !isMergeable(source)) {
+            return false;
+        }
+
+        DBObject targetAddToSet = (DBObject) target.get(ADD_TO_SET);
+        DBObject sourceAddToSet = (DBObject) source.get(ADD_TO_SET);
+        for (String field : sourceAddToSet.keySet()) {
+            Object targetValue = targetAddToSet.get(field);
+            Object sourceValue = sourceAddToSet.get(field);
+            if (targetValue == null) {
+                targetAddToSet.put(field, sourceValue);
+            } else {
+                Set<Object> values = new LinkedHashSet<>(getAddedValues(targetValue));
+                values.addAll(getAddedValues(sourceValue));
+                targetAddToSet.put(field, new BasicDBObject(EACH, new ArrayList<>(values)));
+            }
+        }
+
+        if (!target.containsField(SET_ON_INSERT) && source.containsField(SET_ON_INSERT)) {
+            target.put(SET_ON_INSERT, source.get(SET_ON_INSERT));
+        }
+        return true;
+    }
+
+    /**
+     * Documents that are already serialized, like the ones of
+     * {@link uk.ac.ebi.eva.pipeline.model.converters.data.VariantToRawDBObjectConverter}, are read-only.
+     *
+     * @return the same document if it can be modified, or a modifiable copy of it otherwise
+     */
+    public static DBObject toMutable(DBObject document) {
+        if (!(document instanceof LazyBSONObject)) {
+            return document;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(((LazyBSONObject) document).getBSONSize());
+        try {
+            ((LazyBSONObject) document).pipe(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy a serialized document", e);
+        }
+        return new DefaultDBDecoder().decode(bytes.toByteArray(), (DBCollection) null);
+    }
+
+    /**
+     * Builds the document that an upsert made of $addToSet and $setOnInsert would create if there was no document
+     * with the same _id yet: the fields of $setOnInsert, plus an array with the values added to each field of
+     * $addToSet, without duplicates. Inserting it directly saves the server the lookup of the upsert.
+     *
+     * @return null if the update has other operators, and then it can't be turned into a document
+     */
+    public static DBObject buildInsertedDocument(DBObject update) {
+        if (!isMergeable(update)) {
+            return null;
+        }
+
+        BasicDBObject document = new BasicDBObject();
+        if (update.containsField(SET_ON_INSERT)) {
+            document.putAll((DBObject) update.get(SET_ON_INSERT));
+        }
+        DBObject addToSet = (DBObject) update.get(ADD_TO_SET);
+        for (String field : addToSet.keySet()) {
+            document.put(field, new ArrayList<>(new LinkedHashSet<>(getAddedValues(addToSet.get(field)))));
+        }
+        return document;
+    }
+
+    private static boolean isMergeable(DBObject update) {
+        return update.get(ADD_TO_SET) instanceof DBObject && MERGEABLE_OPERATORS.containsAll(update.keySet());
+    }
+
+    /**
+     * @return the values of a field of $addToSet, which is either a single value or {$each: [values]}
+     */
+    private static Collection<?> getAddedValues(Object value) {
+        if (value instanceof DBObject) {
+            DBObject object = (DBObject) value;
+            if (object.keySet().size() == 1 && object.get(EACH) instanceof Collection) {
+                return (Collection<?>) object.get(EACH);
+            }
+        }
+        return Collections.singletonList(value);
+    }
+
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.utils;
+
+import com.mongodb.DBEncoderFactory;
+import com.mongodb.DefaultDBEncoder;
+import org.bson.BSON;
+import org.bson.BSONObject;
+import org.bson.LazyBSONObject;
+import org.bson.io.OutputBuffer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Encoder of the Mongo driver that copies the bytes of documents that are already serialized, such as
+ * {@link com.mongodb.LazyDBObject}, at any level of the document. Any other object is serialized as usual.
+ * <p>
+ * It must be set in a collection with {@link com.mongodb.DBCollection#setDBEncoderFactory(DBEncoderFactory)},
+ * otherwise the driver would walk every field of the raw documents to serialize them again. The handles of the
+ * collections are shared by everyone that uses the same client, so it is better set through a client that is only
+ * used to write those documents.
+ */
+public class RawDBObjectEncoder extends DefaultDBEncoder {
+
+    public static final DBEncoderFactory FACTORY = RawDBObjectEncoder::new;
+
+    @Override
+    protected int putObject(String name, BSONObject document) {
+        if (!(document instanceof LazyBSONObject)) {
+            return super.putObject(name, document);
+        }
+        OutputBuffer buffer = getOutputBuffer();
+        int start = buffer.getPosition();
+        if (name != null) {
+            buffer.write(document instanceof List ? BSON.ARRAY : BSON.OBJECT);
+            buffer.writeCString(name);
+        }
+        try {
+            ((LazyBSONObject) document).pipe(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy a serialized document", e);
+        }
+        return buffer.getPosition() - start;
+    }
+}
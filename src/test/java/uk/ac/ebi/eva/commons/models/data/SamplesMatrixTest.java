@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests {@link SamplesMatrix}
+ */
+public class SamplesMatrixTest {
+
+    private SamplesMatrix samples;
+
+    @Before
+    public void setUp() {
+        samples = new SamplesMatrix();
+        int genotypeColumn = samples.addColumn("GT");
+        int depthColumn = samples.addColumn("DP");
+
+        for (int i = 0; i < 40; i++) {
+            int sampleIndex = samples.addSample();
+            samples.set(sampleIndex, genotypeColumn, i % 4 == 0 ? "0/1" : "0/0");
+            if (i % 2 == 0) {
+                samples.set(sampleIndex, depthColumn, String.valueOf(i));
+            }
+        }
+    }
+
+    @Test
+    public void genotypesAreEncodedWithADictionary() {
+        assertEquals(SamplesMatrix.GENOTYPE_COLUMN, samples.addColumn("GT"));
+        assertEquals(40, samples.getNumberOfSamples());
+        assertEquals(2, samples.getNumberOfGenotypes());
+        assertEquals("0/1", samples.getGenotype(0));
+        assertEquals("0/0", samples.getGenotype(1));
+        assertEquals("0/1", samples.getGenotypeByCode(samples.getGenotypeCode(4)));
+        assertArrayEquals(new int[]{0, 10, 30}, samples.countGenotypeCodes());
+    }
+
+    @Test
+    public void missingFieldsAreNotInTheSampleMap() {
+        assertEquals("2", samples.get(2, "DP"));
+        assertNull(samples.get(3, "DP"));
+        assertNull(samples.get(3, "GQ"));
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("GT", "0/0");
+        assertEquals(expected, samples.getSample(3));
+
+        expected.put("DP", "4");
+        expected.put("GT", "0/1");
+        assertEquals(expected, samples.asList().get(4));
+    }
+
+    @Test
+    public void samplesAddedAsMapsAreEqualToSamplesAddedByColumn() {
+        SamplesMatrix fromMaps = new SamplesMatrix();
+        for (Map<String, String> sample : samples.asList()) {
+            fromMaps.addSample(new HashMap<>(sample));
+        }
+        assertEquals(samples, fromMaps);
+        assertEquals(samples.hashCode(), fromMaps.hashCode());
+    }
+
+    @Test
+    public void remappedGenotypesShareTheOtherColumns() {
+        SamplesMatrix remapped = samples.withGenotypes(genotype -> genotype.replace('1', '2'));
+        assertEquals("0/2", remapped.getGenotype(0));
+        assertEquals("0/0", remapped.getGenotype(1));
+        assertEquals("4", remapped.get(4, "DP"));
+        assertEquals("0/1", samples.getGenotype(0));
+
+        remapped.set(4, remapped.addColumn("DP"), "100");
+        remapped.set(5, remapped.addColumn("GT"), "2/2");
+        assertEquals("100", remapped.get(4, "DP"));
+        assertEquals("2/2", remapped.getGenotype(5));
+        assertEquals("4", samples.get(4, "DP"));
+        assertEquals("0/0", samples.getGenotype(5));
+    }
+
+    @Test
+    public void genotypesCanBeSetFromPartOfAText() {
+        String line = "0/0\t0|1\t0/0";
+        SamplesMatrix fromText = new SamplesMatrix();
+        fromText.setGenotype(fromText.addSample(), line, 0, 3);
+        fromText.setGenotype(fromText.addSample(), line, 4, 7);
+        fromText.setGenotype(fromText.addSample(), line, 8, 11);
+        assertEquals(2, fromText.getNumberOfGenotypes());
+        assertEquals("0|1", fromText.getGenotype(1));
+        assertEquals(fromText.getGenotypeCode(0), fromText.getGenotypeCode(2));
+    }
+
+    @Test
+    public void rawFieldsAreDecodedWhenRead() {
+        String line = "0/1:12:3,4\t0/0::5,6\t0/0:7:\t.";
+        SamplesMatrix raw = new SamplesMatrix(new String[]{"GT", "DP", "AD"}, line);
+        int start = 0;
+        for (String sample : line.split("\t")) {
+            int sampleIndex = raw.addRawSample(start, start + sample.length());
+            raw.setGenotype(sampleIndex, line, start, start + Math.min(3, sample.length()));
+            start += sample.length() + 1;
+        }
+
+        assertEquals("12", raw.get(0, "DP"));
+        assertEquals("", raw.get(1, "DP"));
+        assertEquals("7", raw.get(2, "DP"));
+        assertNull(raw.get(3, "DP"));
+        assertEquals("5,6", raw.get(1, "AD"));
+        assertNull(raw.get(2, "AD"));
+        assertNull(raw.get(0, "GQ"));
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("GT", "0/1");
+        expected.put("DP", "12");
+        expected.put("AD", "3,4");
+        assertEquals(expected, raw.getSample(0));
+    }
+
+    @Test
+    public void rawSamplesCanBeModified() {
+        String line = "0/1:12\t0/0:8";
+        SamplesMatrix raw = new SamplesMatrix(new String[]{"GT", "DP"}, line);
+        raw.addRawSample(0, 6);
+        raw.addRawSample(7, 12);
+        SamplesMatrix remapped = raw.withGenotypes(genotype -> genotype);
+
+        raw.set(1, raw.addColumn("DP"), "20");
+        int sampleIndex = raw.addSample();
+        raw.set(sampleIndex, raw.addColumn("DP"), "30");
+
+        assertEquals("12", raw.get(0, "DP"));
+        assertEquals("20", raw.get(1, "DP"));
+        assertEquals("30", raw.get(2, "DP"));
+        assertEquals("8", remapped.get(1, "DP"));
+        assertEquals(2, remapped.getNumberOfSamples());
+    }
+
+    @Test
+    public void rawColumnsDecodedByASharingMatrixDontChangeTheOthers() {
+        String line = "0/1:12\t0/0:8";
+        SamplesMatrix raw = new SamplesMatrix(new String[]{"GT", "DP"}, line);
+        raw.addRawSample(0, 6);
+        raw.addRawSample(7, 12);
+        SamplesMatrix remapped = raw.withGenotypes(genotype -> genotype);
+
+        assertEquals("12", remapped.get(0, "DP"));
+        raw.set(0, raw.addColumn("DP"), "20");
+
+        assertEquals("20", raw.get(0, "DP"));
+        assertEquals("12", remapped.get(0, "DP"));
+        assertEquals("8", remapped.get(1, "DP"));
+    }
+
+    @Test
+    public void manyDistinctGenotypesAreStillEncoded() {
+        SamplesMatrix polyallelic = new SamplesMatrix();
+        int genotypeColumn = polyallelic.addColumn("GT");
+        for (int i = 0; i < 300; i++) {
+            polyallelic.set(polyallelic.addSample(), genotypeColumn, "0/" + i);
+        }
+        assertEquals(300, polyallelic.getNumberOfGenotypes());
+        assertEquals("0/0", polyallelic.getGenotype(0));
+        assertEquals("0/254", polyallelic.getGenotype(254));
+        assertEquals("0/299", polyallelic.getGenotype(299));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void sampleOutOfRangeThrowsException() {
+        samples.getSample(40);
+    }
+}
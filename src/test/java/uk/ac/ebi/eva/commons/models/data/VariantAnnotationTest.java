@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.data;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.annotation.ConsequenceType;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests {@link VariantAnnotation}
+ */
+public class VariantAnnotationTest {
+
+    @Test
+    public void concatenateShouldAppendTheConsequenceTypesAndHgvs() {
+        VariantAnnotation variantAnnotation = new VariantAnnotation("20", 60343, 60343, "G", "A");
+        ConsequenceType firstConsequenceType = new ConsequenceType();
+        variantAnnotation.getConsequenceTypes().add(firstConsequenceType);
+        variantAnnotation.setHgvs(null);
+
+        VariantAnnotation otherAnnotation = new VariantAnnotation("20", 60343, 60343, "G", "A");
+        ConsequenceType secondConsequenceType = new ConsequenceType();
+        otherAnnotation.getConsequenceTypes().add(secondConsequenceType);
+        otherAnnotation.getHgvs().add("ENST00000382410.2:c.58+3101A>G");
+
+        variantAnnotation.concatenate(otherAnnotation);
+
+        assertEquals(2, variantAnnotation.getConsequenceTypes().size());
+        assertSame(firstConsequenceType, variantAnnotation.getConsequenceTypes().get(0));
+        assertSame(secondConsequenceType, variantAnnotation.getConsequenceTypes().get(1));
+        assertEquals(Collections.singletonList("ENST00000382410.2:c.58+3101A>G"), variantAnnotation.getHgvs());
+    }
+}
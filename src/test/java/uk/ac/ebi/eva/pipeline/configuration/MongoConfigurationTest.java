@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test {@link MongoConfiguration}
+ */
+@RunWith(SpringRunner.class)
+@TestPropertySource(properties = {"spring.data.mongodb.host=localhost:27017",
+        "config.db.read-preference=secondary",
+        "config.db.write-concern=majority",
+        "config.db.connections-per-host=5",
+        "config.db.connect-timeout=2000",
+        "config.db.socket-timeout=60000"})
+@ContextConfiguration(classes = {MongoConnection.class, MongoConfiguration.class})
+public class MongoConfigurationTest {
+
+    @Autowired
+    private MongoClient mongoClient;
+
+    @Test
+    public void clientShouldBeConfiguredWithTheConnectionOptions() {
+        MongoClientOptions options = mongoClient.getMongoClientOptions();
+
+        assertEquals(ReadPreference.secondary(), options.getReadPreference());
+        assertEquals(WriteConcern.MAJORITY, options.getWriteConcern());
+        assertEquals(5, options.getConnectionsPerHost());
+        assertEquals(2000, options.getConnectTimeout());
+        assertEquals(60000, options.getSocketTimeout());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link AnnotationCache}
+ * <p>
+ * input: VEP output lines of some variants
+ * output: the lines of each variant, for the same species and VEP cache version, after reopening the cache
+ */
+public class AnnotationCacheTest {
+
+    private static final String VARIANT_ID = "20_63360_C_T";
+
+    private static final String FIRST_LINE = "20_63360_C/T\t20:63360\tT\tENSG00000178591\tENST00000382410";
+
+    private static final String SECOND_LINE = "20_63360_C/T\t20:63360\tT\tENSG00000178591\tENST00000608838";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void linesShouldBeKeptAfterClosingTheCache() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        try (AnnotationCache annotationCache = new AnnotationCache(directory, "homo_sapiens", "82")) {
+            annotationCache.putLines(VARIANT_ID, Arrays.asList(FIRST_LINE, SECOND_LINE));
+        }
+
+        try (AnnotationCache annotationCache = new AnnotationCache(directory, "homo_sapiens", "82")) {
+            assertEquals(Arrays.asList(FIRST_LINE, SECOND_LINE), annotationCache.getLines(VARIANT_ID));
+            assertTrue(annotationCache.getLines("20_63351_A_G").isEmpty());
+        }
+    }
+
+    @Test
+    public void annotatingAVariantAgainShouldReplaceItsLines() throws Exception {
+        try (AnnotationCache annotationCache = new AnnotationCache(temporaryFolder.newFolder(), "homo_sapiens",
+                                                                   "82")) {
+            annotationCache.putLines(VARIANT_ID, Arrays.asList(FIRST_LINE, SECOND_LINE));
+            annotationCache.putLines(VARIANT_ID, Collections.singletonList(FIRST_LINE));
+
+            assertEquals(Collections.singletonList(FIRST_LINE), annotationCache.getLines(VARIANT_ID));
+        }
+    }
+
+    @Test
+    public void linesOfOtherVepCachesShouldNotBeFound() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        try (AnnotationCache annotationCache = new AnnotationCache(directory, "homo_sapiens", "82")) {
+            annotationCache.putLines(VARIANT_ID, Collections.singletonList(FIRST_LINE));
+        }
+
+        try (AnnotationCache annotationCache = new AnnotationCache(directory, "homo_sapiens", "83")) {
+            assertTrue(annotationCache.getLines(VARIANT_ID).isEmpty());
+        }
+        try (AnnotationCache annotationCache = new AnnotationCache(directory, "mus_musculus", "82")) {
+            assertTrue(annotationCache.getLines(VARIANT_ID).isEmpty());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cacheWithoutVepCacheVersionShouldFail() throws Exception {
+        new AnnotationCache(temporaryFolder.newFolder(), "homo_sapiens", null);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link MappedFileBufferedReader}
+ * <p>
+ * input: an uncompressed file, or a region of it
+ * <p>
+ * output: the lines of the file, and their positions
+ */
+public class MappedFileBufferedReaderTest {
+
+    private static final int LINES = 1000;
+
+    private static final int SMALL_MAP_SIZE = 64;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldReturnTheSameLinesThanABufferedReader() throws Exception {
+        String text = "first\nsecond\r\n\nfourth, with a very long line that doesn't fit in the mapped window "
+                + "and has to be mapped again\nlast line without newline";
+        File file = writeFile(text);
+
+        List<String> expected = new BufferedReader(new StringReader(text)).lines().collect(Collectors.toList());
+        assertEquals(expected, readAll(new MappedFileBufferedReader(file, 0, file.length(), StandardCharsets.UTF_8,
+                                                                    SMALL_MAP_SIZE)));
+        assertEquals(expected, readAll(new MappedFileBufferedReader(file, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void nonAsciiLinesShouldBeDecodedWithTheCharset() throws Exception {
+        File file = writeFile("ascii\nDescription=\"Größe\"\n");
+        try (MappedFileBufferedReader reader = new MappedFileBufferedReader(file, StandardCharsets.UTF_8)) {
+            assertEquals("ascii", reader.readLine());
+            assertEquals("Description=\"Größe\"", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void offsetsShouldBeTheEndOfTheLastLine() throws Exception {
+        File file = writeFile("first\nsecond\r\nthird\n");
+        try (MappedFileBufferedReader reader = new MappedFileBufferedReader(file, StandardCharsets.UTF_8)) {
+            assertEquals(0, reader.getOffset());
+            assertEquals("first", reader.readLine());
+            assertEquals(6, reader.getOffset());
+            assertEquals("second", reader.readLine());
+            assertEquals(14, reader.getOffset());
+            assertEquals("third", reader.readLine());
+            assertEquals(20, reader.getOffset());
+            assertNull(reader.readLine());
+        }
+
+        // restart from the offset after the first line
+        try (MappedFileBufferedReader reader = new MappedFileBufferedReader(file, 6, file.length(),
+                                                                            StandardCharsets.UTF_8)) {
+            assertEquals("second", reader.readLine());
+        }
+    }
+
+    @Test
+    public void regionsSplitAtLineStartsShouldReadEveryLineOnce() throws Exception {
+        List<String> expected = new ArrayList<>();
+        List<Long> regionStarts = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            if (i % (LINES / 7) == 0) {
+                regionStarts.add((long) text.length());
+            }
+            expected.add("line " + i);
+            text.append("line ").append(i).append('\n');
+        }
+        File file = writeFile(text.toString());
+        regionStarts.add(file.length());
+
+        List<String> actual = new ArrayList<>();
+        for (int i = 0; i + 1 < regionStarts.size(); i++) {
+            actual.addAll(readAll(new MappedFileBufferedReader(file, regionStarts.get(i), regionStarts.get(i + 1),
+                                                               StandardCharsets.UTF_8, SMALL_MAP_SIZE)));
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void charactersShouldBeReadFromTheLines() throws Exception {
+        File file = writeFile("first\nsecond\r\nthird");
+        try (MappedFileBufferedReader reader = new MappedFileBufferedReader(file, StandardCharsets.UTF_8)) {
+            assertEquals('f', reader.read());
+            assertEquals("irst", reader.readLine());
+
+            char[] chars = new char[10];
+            assertEquals(7, reader.read(chars, 0, chars.length));
+            assertEquals("second\n", new String(chars, 0, 7));
+            assertEquals(14, reader.getOffset());
+
+            assertEquals(3, reader.read(chars, 0, 3));
+            assertEquals("thi", new String(chars, 0, 3));
+            assertEquals("rd", reader.readLine());
+            assertEquals(-1, reader.read());
+            assertNull(reader.readLine());
+        }
+    }
+
+    private File writeFile(String text) throws Exception {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private List<String> readAll(MappedFileBufferedReader reader) throws Exception {
+        List<String> lines = new ArrayList<>();
+        try (MappedFileBufferedReader closedReader = reader) {
+            String line;
+            while ((line = closedReader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link OffsetTrackingBufferedReader}
+ * <p>
+ * input: an uncompressed stream
+ * <p>
+ * output: the lines of the stream, or their characters, and the offset of the next line
+ */
+public class OffsetTrackingBufferedReaderTest {
+
+    @Test
+    public void offsetShouldBeTheStartOfTheNextLine() throws Exception {
+        byte[] text = "first\nsecond\r\nthird".getBytes(StandardCharsets.UTF_8);
+        try (OffsetTrackingBufferedReader reader = new OffsetTrackingBufferedReader(new ByteArrayInputStream(text),
+                                                                                    100, StandardCharsets.UTF_8)) {
+            assertEquals(100, reader.getOffset());
+            assertEquals("first", reader.readLine());
+            assertEquals(106, reader.getOffset());
+            assertEquals("second", reader.readLine());
+            assertEquals(114, reader.getOffset());
+            assertEquals("third", reader.readLine());
+            assertEquals(119, reader.getOffset());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void charactersShouldBeReadFromTheLines() throws Exception {
+        byte[] text = "first\nsecond\r\nthird".getBytes(StandardCharsets.UTF_8);
+        try (OffsetTrackingBufferedReader reader = new OffsetTrackingBufferedReader(new ByteArrayInputStream(text),
+                                                                                    0, StandardCharsets.UTF_8)) {
+            assertEquals('f', reader.read());
+            assertEquals("irst", reader.readLine());
+
+            char[] chars = new char[10];
+            assertEquals(7, reader.read(chars, 0, chars.length));
+            assertEquals("second\n", new String(chars, 0, 7));
+            assertEquals(14, reader.getOffset());
+
+            assertEquals(3, reader.read(chars, 0, 3));
+            assertEquals("thi", new String(chars, 0, 3));
+            assertEquals("rd", reader.readLine());
+            assertEquals(-1, reader.read());
+            assertNull(reader.readLine());
+        }
+    }
+}
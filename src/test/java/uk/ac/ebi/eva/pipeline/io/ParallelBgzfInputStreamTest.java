@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Test;
+import uk.ac.ebi.eva.utils.CompressionHelper;
+import uk.ac.ebi.eva.utils.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ParallelBgzfInputStream}
+ * <p>
+ * input: a BGZF compressed file
+ * <p>
+ * output: the same bytes that a sequential {@link GZIPInputStream} returns
+ */
+public class ParallelBgzfInputStreamTest {
+
+    private static final String BGZF_FILE_PATH = "/input-files/vcf/genotyped_bgzf.vcf.gz";
+
+    private static final String GZIP_FILE_PATH = "/input-files/vcf/genotyped.vcf.gz";
+
+    @Test
+    public void bgzipFileShouldBeDetected() throws Exception {
+        assertTrue(CompressionHelper.isBgzip(FileUtils.getResource(BGZF_FILE_PATH)));
+        assertFalse(CompressionHelper.isBgzip(FileUtils.getResource(GZIP_FILE_PATH)));
+        assertTrue(FileUtils.getResource(FileUtils.getResource(BGZF_FILE_PATH)) instanceof BgzfLazyResource);
+        assertTrue(FileUtils.getResource(FileUtils.getResource(GZIP_FILE_PATH)) instanceof GzipLazyResource);
+    }
+
+    @Test
+    public void singleThreadShouldReturnSameContentAsGzip() throws Exception {
+        checkContent(1);
+    }
+
+    @Test
+    public void severalThreadsShouldReturnSameContentAsGzip() throws Exception {
+        checkContent(4);
+    }
+
+    @Test
+    public void singleByteReadsShouldReturnSameContentAsGzip() throws Exception {
+        File input = FileUtils.getResource(BGZF_FILE_PATH);
+        byte[] expected = readAll(new GZIPInputStream(new FileInputStream(input)));
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (InputStream inputStream = new ParallelBgzfInputStream(new FileInputStream(input), 2)) {
+            int value;
+            while ((value = inputStream.read()) != -1) {
+                actual.write(value);
+            }
+        }
+        assertArrayEquals(expected, actual.toByteArray());
+    }
+
+    @Test
+    public void readingShouldResumeFromTheVirtualOffset() throws Exception {
+        File input = FileUtils.getResource(BGZF_FILE_PATH);
+        byte[] expected = readAll(new GZIPInputStream(new FileInputStream(input)));
+
+        int bytesBeforeResuming = expected.length / 3;
+        long virtualOffset;
+        try (ParallelBgzfInputStream inputStream = new ParallelBgzfInputStream(new FileInputStream(input), 2)) {
+            byte[] buffer = new byte[bytesBeforeResuming];
+            int read = 0;
+            while (read < bytesBeforeResuming) {
+                read += inputStream.read(buffer, read, bytesBeforeResuming - read);
+            }
+            virtualOffset = inputStream.getVirtualOffset();
+        }
+
+        byte[] resumed = readAll(new BgzfLazyResource(input).fromVirtualOffset(virtualOffset).getInputStream());
+        assertEquals(expected.length - bytesBeforeResuming, resumed.length);
+        for (int i = 0; i < resumed.length; i++) {
+            assertEquals(expected[bytesBeforeResuming + i], resumed[i]);
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void plainGzipShouldFail() throws Exception {
+        File input = FileUtils.getResource(GZIP_FILE_PATH);
+        readAll(new ParallelBgzfInputStream(new FileInputStream(input), 2));
+    }
+
+    @Test(expected = ZipException.class)
+    public void truncatedFileShouldFail() throws Exception {
+        byte[] compressed = Files.readAllBytes(FileUtils.getResource(BGZF_FILE_PATH).toPath());
+        byte[] truncated = new byte[compressed.length / 2];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        readAll(new ParallelBgzfInputStream(new ByteArrayInputStream(truncated), 2));
+    }
+
+    private void checkContent(int threads) throws IOException {
+        File input = FileUtils.getResource(BGZF_FILE_PATH);
+        byte[] expected = readAll(new GZIPInputStream(new FileInputStream(input)));
+        byte[] actual = readAll(new ParallelBgzfInputStream(new FileInputStream(input), threads));
+
+        assertEquals(expected.length, actual.length);
+        assertArrayEquals(expected, actual);
+    }
+
+    private byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream in = inputStream) {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link PrefetchingBufferedReader}
+ * <p>
+ * input: a reader of lines
+ * <p>
+ * output: the same lines, read in a background thread
+ */
+public class PrefetchingBufferedReaderTest {
+
+    private static final int LINES = 1000;
+
+    @Test
+    public void shouldReturnAllLinesInOrder() throws Exception {
+        List<String> expected = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            expected.add("line " + i);
+            text.append("line ").append(i).append('\n');
+        }
+
+        List<String> actual = new ArrayList<>();
+        try (BufferedReader reader = new PrefetchingBufferedReader(
+                new BufferedReader(new StringReader(text.toString())), 7)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                actual.add(line);
+            }
+            assertNull(reader.readLine());
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void offsetShouldPointToTheNextLineToReturn() throws Exception {
+        byte[] text = "first\nsecond\r\nthird\n".getBytes(StandardCharsets.UTF_8);
+        OffsetTrackingBufferedReader source = new OffsetTrackingBufferedReader(new ByteArrayInputStream(text), 0,
+                                                                               StandardCharsets.UTF_8);
+        try (PrefetchingBufferedReader reader = new PrefetchingBufferedReader(source, 2)) {
+            assertEquals(0, reader.getOffset());
+            assertEquals("first", reader.readLine());
+            assertEquals(6, reader.getOffset());
+            assertEquals("second", reader.readLine());
+            assertEquals(14, reader.getOffset());
+            assertEquals("third", reader.readLine());
+            assertEquals(20, reader.getOffset());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void closeShouldStopTheBackgroundThreadWhenTheBufferIsFull() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            text.append(i).append('\n');
+        }
+        PrefetchingBufferedReader reader = new PrefetchingBufferedReader(
+                new BufferedReader(new StringReader(text.toString())), 3);
+        assertEquals("0", reader.readLine());
+        reader.close();
+    }
+
+    @Test
+    public void charactersShouldBeReadFromTheLines() throws Exception {
+        try (BufferedReader reader = new PrefetchingBufferedReader(
+                new BufferedReader(new StringReader("first\r\nsecond\nthird\n")), 2)) {
+            assertEquals('f', reader.read());
+            char[] chars = new char[4];
+            assertEquals(4, reader.read(chars, 0, 4));
+            assertEquals("irst", new String(chars));
+            assertEquals(1, reader.read(chars, 0, 4));
+            assertEquals('\n', chars[0]);
+            assertEquals('s', reader.read());
+            assertEquals("econd", reader.readLine());
+            assertEquals("third\n", readAll(reader));
+            assertEquals(-1, reader.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void sourceExceptionsShouldBeThrownByReadLine() throws Exception {
+        BufferedReader failingSource = new BufferedReader(new StringReader("")) {
+            private int lines = 0;
+
+            @Override
+            public String readLine() throws IOException {
+                if (lines++ < 5) {
+                    return "line";
+                }
+                throw new IOException("Corrupt input");
+            }
+        };
+        try (BufferedReader reader = new PrefetchingBufferedReader(failingSource, 2)) {
+            while (reader.readLine() != null) {
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void sourceRuntimeExceptionsShouldBeThrownByReadLine() throws Exception {
+        BufferedReader failingSource = new BufferedReader(new StringReader("")) {
+            @Override
+            public String readLine() throws IOException {
+                throw new IllegalStateException("Unexpected error");
+            }
+        };
+        try (BufferedReader reader = new PrefetchingBufferedReader(failingSource, 2)) {
+            reader.readLine();
+        }
+    }
+
+    private String readAll(BufferedReader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] chars = new char[3];
+        int count;
+        while ((count = reader.read(chars, 0, chars.length)) != -1) {
+            text.append(chars, 0, count);
+        }
+        return text.toString();
+    }
+}
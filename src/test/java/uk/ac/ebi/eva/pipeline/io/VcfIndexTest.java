@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * {@link VcfIndex}
+ * <p>
+ * input: a bgzipped VCF with variants in chromosomes 20 (100 lines), 21 (100 lines) and 22 (98 lines), and its
+ * tabix and CSI indexes
+ * <p>
+ * output: the region of each chromosome, which can be read with a {@link BgzfLazyResource}
+ */
+public class VcfIndexTest {
+
+    private static final String INDEXED_FILE_PATH = "/input-files/vcf/genotyped_indexed.vcf.gz";
+
+    private static final String NOT_INDEXED_FILE_PATH = "/input-files/vcf/genotyped.vcf.gz";
+
+    private static final String[] CHROMOSOMES = {"20", "21", "22"};
+
+    private static final int[] LINES_PER_CHROMOSOME = {100, 100, 98};
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
+
+    @Test
+    public void tabixIndexShouldBeFound() throws Exception {
+        File vcf = getResource(INDEXED_FILE_PATH);
+        assertEquals(new File(vcf.getPath() + VcfIndex.TABIX_EXTENSION), VcfIndex.findIndexFile(vcf));
+        assertNull(VcfIndex.findIndexFile(getResource(NOT_INDEXED_FILE_PATH)));
+    }
+
+    @Test
+    public void tabixRegionsShouldContainTheRecordsOfEachChromosome() throws Exception {
+        File vcf = getResource(INDEXED_FILE_PATH);
+        VcfIndex index = VcfIndex.read(new File(vcf.getPath() + VcfIndex.TABIX_EXTENSION));
+
+        checkRegions(vcf, index);
+    }
+
+    @Test
+    public void csiRegionsShouldContainTheRecordsOfEachChromosome() throws Exception {
+        File vcf = getResource(INDEXED_FILE_PATH);
+        File vcfCopy = new File(temporaryFolderRule.getRoot(), vcf.getName());
+        Files.copy(vcf.toPath(), vcfCopy.toPath());
+        Files.copy(new File(vcf.getPath() + VcfIndex.CSI_EXTENSION).toPath(),
+                   new File(vcfCopy.getPath() + VcfIndex.CSI_EXTENSION).toPath());
+
+        File indexFile = VcfIndex.findIndexFile(vcfCopy);
+        assertEquals(new File(vcfCopy.getPath() + VcfIndex.CSI_EXTENSION), indexFile);
+        checkRegions(vcfCopy, VcfIndex.read(indexFile));
+    }
+
+    @Test(expected = IOException.class)
+    public void vcfIsNotAnIndex() throws Exception {
+        VcfIndex.read(getResource(NOT_INDEXED_FILE_PATH));
+    }
+
+    private void checkRegions(File vcf, VcfIndex index) throws IOException {
+        List<VcfIndex.Region> regions = index.getRegions();
+        assertEquals(CHROMOSOMES.length, regions.size());
+
+        int totalLines = 0;
+        for (int i = 0; i < CHROMOSOMES.length; i++) {
+            VcfIndex.Region region = regions.get(i);
+            assertEquals(CHROMOSOMES[i], region.getChromosome());
+
+            BgzfLazyResource resource = new BgzfLazyResource(vcf, 2, region.getStartVirtualOffset(),
+                                                             region.getEndVirtualOffset());
+            List<String> lines = readLines(new BufferedReader(new InputStreamReader(resource.getInputStream())));
+            assertEquals(LINES_PER_CHROMOSOME[i], lines.size());
+            for (String line : lines) {
+                assertTrue(line, line.startsWith(CHROMOSOMES[i] + "\t"));
+            }
+            totalLines += lines.size();
+        }
+
+        List<String> allLines = readLines(new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(vcf)))));
+        assertEquals(allLines.stream().filter(line -> !line.startsWith("#")).count(), totalLines);
+    }
+
+    private List<String> readLines(BufferedReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader bufferedReader = reader) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
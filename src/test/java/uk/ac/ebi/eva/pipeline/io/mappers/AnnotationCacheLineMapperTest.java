@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.mappers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
+import uk.ac.ebi.eva.test.data.VepOutputContent;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link AnnotationCacheLineMapper}
+ * <p>
+ * input: VEP output lines, some of them malformed
+ * output: the lines of each variant are added to the cache once all of them have been mapped
+ */
+public class AnnotationCacheLineMapperTest {
+
+    private static final List<String> LINES = Arrays.asList(VepOutputContent.vepOutputContent.split("\n"));
+
+    private static final String MALFORMED_LINE = VepOutputContent.vepOutputContentMalformedCoordinates.trim();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AnnotationCache annotationCache;
+
+    private AnnotationCacheLineMapper lineMapper;
+
+    @Before
+    public void setUp() throws Exception {
+        annotationCache = new AnnotationCache(temporaryFolder.newFolder(), "homo_sapiens", "82");
+        lineMapper = new AnnotationCacheLineMapper(new AnnotationLineMapper(), annotationCache);
+    }
+
+    @After
+    public void tearDown() {
+        annotationCache.close();
+    }
+
+    @Test
+    public void variantsShouldBeCachedWhenAllTheirLinesHaveBeenMapped() throws Exception {
+        mapLines(0, 3);
+
+        assertEquals(LINES.subList(0, 1), annotationCache.getLines("20_63351_A_G"));
+        assertTrue(annotationCache.getLines("20_63360_C_T").isEmpty());
+
+        lineMapper.flush();
+        assertEquals(LINES.subList(1, 3), annotationCache.getLines("20_63360_C_T"));
+    }
+
+    @Test
+    public void malformedLineInsideAVariantShouldOnlyPreventCachingThatVariant() throws Exception {
+        mapLines(1, 2);
+        mapMalformedLine();
+        mapLines(2, 5);
+        lineMapper.flush();
+
+        assertTrue(annotationCache.getLines("20_63360_C_T").isEmpty());
+        assertEquals(LINES.subList(3, 5), annotationCache.getLines("20_63399_G_A"));
+    }
+
+    @Test
+    public void malformedLineBetweenVariantsShouldPreventCachingBothVariants() throws Exception {
+        mapLines(0, 1);
+        mapMalformedLine();
+        mapLines(1, 4);
+        lineMapper.flush();
+
+        assertTrue(annotationCache.getLines("20_63351_A_G").isEmpty());
+        assertTrue(annotationCache.getLines("20_63360_C_T").isEmpty());
+        assertEquals(LINES.subList(3, 4), annotationCache.getLines("20_63399_G_A"));
+    }
+
+    private void mapLines(int from, int to) throws Exception {
+        for (int i = from; i < to; i++) {
+            lineMapper.mapLine(LINES.get(i), i + 1);
+        }
+    }
+
+    private void mapMalformedLine() {
+        try {
+            lineMapper.mapLine(MALFORMED_LINE, 0);
+            fail("The malformed line should not have been mapped");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+}
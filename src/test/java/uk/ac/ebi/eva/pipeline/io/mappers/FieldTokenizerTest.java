@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.mappers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link FieldTokenizer}
+ * input: a delimited text
+ * output: the same tokens as {@link String#split(String)}
+ */
+public class FieldTokenizerTest {
+
+    @Test
+    public void tokensShouldMatchSplit() {
+        String[] inputs = {"a:b:c", "a", "", "a::b", ":a", "a:b:", "a::", ":", "::", "0/1:12:.:"};
+        for (String input : inputs) {
+            assertArrayEquals(input, input.split(":"), tokenize(new FieldTokenizer(':', input)));
+            assertEquals(input, input.split(":").length, new FieldTokenizer(':', input).countRemaining());
+        }
+    }
+
+    @Test
+    public void regionOfAnotherTokenizer() {
+        String line = "20\t60343\trs1;rs2\tG\tA,T";
+        FieldTokenizer columns = new FieldTokenizer('\t', line);
+        assertTrue(columns.skip(3));
+        assertArrayEquals(new String[]{"rs1", "rs2"}, tokenize(new FieldTokenizer(';').reset(columns)));
+
+        assertTrue(columns.skip(2));
+        assertTrue(columns.tokenEquals("A,T"));
+        assertArrayEquals(new String[]{"A", "T"}, tokenize(new FieldTokenizer(',').reset(columns)));
+        assertFalse(columns.next());
+    }
+
+    @Test
+    public void parseInt() {
+        assertEquals(60343, intToken("60343"));
+        assertEquals(-12, intToken("-12"));
+        assertEquals(7, intToken("+7"));
+        assertEquals(Integer.MAX_VALUE, intToken(String.valueOf(Integer.MAX_VALUE)));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseIntShouldRejectNonNumbers() {
+        intToken("12a");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseIntShouldRejectEmptyTokens() {
+        intToken("");
+    }
+
+    private int intToken(String text) {
+        FieldTokenizer tokenizer = new FieldTokenizer('\t', text);
+        tokenizer.next();
+        return tokenizer.tokenAsInt();
+    }
+
+    private String[] tokenize(FieldTokenizer tokenizer) {
+        List<String> tokens = new ArrayList<>();
+        while (tokenizer.next()) {
+            tokens.add(tokenizer.token());
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+}
@@ -226,6 +226,26 @@ public class VariantVcfFactoryTest {
                      getVar0.getSourceEntry(FILE_ID, STUDY_ID).getSamplesData());
     }
 
+    @Test
+    public void testCreateVariant_LowerCaseGenotypeField() {
+        String line = "1\t10040\trs123\tT\tC,G\t.\t.\t.\tgt:DP\t0/1:5\t1/2:7"; // 2 samples
+
+        List<Variant> result = factory.create(FILE_ID, STUDY_ID, line);
+        assertEquals(2, result.size());
+
+        Map<String, String> na001 = new HashMap<>();
+        na001.put("GT", "0/1");
+        na001.put("DP", "5");
+        Map<String, String> na002 = new HashMap<>();
+        na002.put("GT", "1/2");
+        na002.put("DP", "7");
+        assertEquals(na001, result.get(0).getSourceEntry(FILE_ID, STUDY_ID).getSampleData(0));
+        assertEquals(na002, result.get(0).getSourceEntry(FILE_ID, STUDY_ID).getSampleData(1));
+
+        assertEquals("0/2", result.get(1).getSourceEntry(FILE_ID, STUDY_ID).getSampleData(0).get("GT"));
+        assertEquals("2/1", result.get(1).getSourceEntry(FILE_ID, STUDY_ID).getSampleData(1).get("GT"));
+    }
+
     @Test
     public void testCreateVariantFromVcfMultiallelicVariants_Samples() {
         String line = "1\t123456\t.\tT\tC,G\t110\tPASS\t.\tGT:AD:DP:GQ:PL\t0/1:10,5:17:94:94,0,286\t0/2:3,8:15:43:222,0,43\t0/0:.:18:.:.\t1/2:7,6:13:99:162,0,180"; // 4 samples
@@ -22,6 +22,7 @@ import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.batch.test.MetaDataInstanceFactory;
 
 import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
 import uk.ac.ebi.eva.test.data.VepOutputContent;
 import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
 import uk.ac.ebi.eva.test.utils.JobTestUtils;
@@ -72,6 +73,25 @@ public class AnnotationFlatFileReaderTest {
         assertEquals(expectedCount, count);
     }
 
+    @Test
+    public void allVariantsShouldBeCachedAtTheEndOfTheFile() throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        File file = temporaryFolderRule.newGzipFile(VepOutputContent.vepOutputContent);
+        File cacheDirectory = temporaryFolderRule.newFolder();
+
+        AnnotationFlatFileReader annotationFlatFileReader = new AnnotationFlatFileReader(
+                file.getPath(), new AnnotationCache(cacheDirectory, "homo_sapiens", "82"));
+        annotationFlatFileReader.open(executionContext);
+        while (annotationFlatFileReader.read() != null) {
+        }
+        annotationFlatFileReader.close();
+
+        try (AnnotationCache annotationCache = new AnnotationCache(cacheDirectory, "homo_sapiens", "82")) {
+            assertEquals(1, annotationCache.getLines("20_63351_A_G").size());
+            assertEquals(2, annotationCache.getLines("20_63426_G_T").size());
+        }
+    }
+
     // Missing ':' in 20_63351 (should be 20:63351)
     @Test(expected = FlatFileParseException.class)
     public void malformedCoordinatesAnnotationLinesShouldBeSkipped() throws Exception {
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.test.data.VepOutputContent;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link GroupingVariantAnnotationReader}
+ * input: a File written by VEP, with several lines per variant
+ * output: a VariantAnnotation with all the consequence types of a variant each time its `.read()` is called
+ */
+public class GroupingVariantAnnotationReaderTest {
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
+
+    @Test
+    public void shouldReadOneAnnotationPerVariant() throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        File file = temporaryFolderRule.newGzipFile(VepOutputContent.vepOutputContent);
+
+        GroupingVariantAnnotationReader reader = newReader(file);
+        reader.open(executionContext);
+
+        VariantAnnotation variantAnnotation;
+        int count = 0;
+        int consequenceTypeCount = 0;
+        while ((variantAnnotation = reader.read()) != null) {
+            count++;
+            consequenceTypeCount += variantAnnotation.getConsequenceTypes().size();
+        }
+        reader.close();
+
+        List<String> lines = getLines(VepOutputContent.vepOutputContent);
+        Set<String> variants = new LinkedHashSet<>();
+        for (String line : lines) {
+            variants.add(line.split("\t")[0]);
+        }
+        assertEquals(variants.size(), count);
+        assertEquals(lines.size(), consequenceTypeCount);
+    }
+
+    @Test
+    public void restartShouldNotLoseThePeekedAnnotation() throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        File file = temporaryFolderRule.newGzipFile(VepOutputContent.vepOutputContent);
+
+        GroupingVariantAnnotationReader reader = newReader(file);
+        reader.open(executionContext);
+        VariantAnnotation firstAnnotation = reader.read();
+        reader.update(executionContext);
+        reader.close();
+
+        assertEquals(63351, firstAnnotation.getStart());
+        assertEquals(1, firstAnnotation.getConsequenceTypes().size());
+
+        reader = newReader(file);
+        reader.open(executionContext);
+        VariantAnnotation secondAnnotation = reader.read();
+        reader.close();
+
+        assertEquals(63360, secondAnnotation.getStart());
+        assertEquals(2, secondAnnotation.getConsequenceTypes().size());
+    }
+
+    @Test
+    public void malformedLineShouldBeThrownAfterThePreviousVariant() throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        List<String> lines = getLines(VepOutputContent.vepOutputContent);
+        String content = lines.get(0) + "\n" + VepOutputContent.vepOutputContentMalformedCoordinates
+                + String.join("\n", lines.subList(1, lines.size())) + "\n";
+        File file = temporaryFolderRule.newGzipFile(content);
+
+        GroupingVariantAnnotationReader reader = newReader(file);
+        reader.open(executionContext);
+
+        assertEquals(63351, reader.read().getStart());
+        try {
+            reader.read();
+            fail("The malformed line should have thrown a " + FlatFileParseException.class.getSimpleName());
+        } catch (FlatFileParseException e) {
+            // expected, the step skips it and reads again
+        }
+        assertEquals(63360, reader.read().getStart());
+        assertEquals(63399, reader.read().getStart());
+        assertEquals(63426, reader.read().getStart());
+        assertNull(reader.read());
+        reader.close();
+    }
+
+    private GroupingVariantAnnotationReader newReader(File file) {
+        return new GroupingVariantAnnotationReader(new AnnotationFlatFileReader(file));
+    }
+
+    private List<String> getLines(String content) {
+        return Arrays.asList(content.split("\n"));
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.pipeline.configuration.MongoConfiguration;
+import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
+import uk.ac.ebi.eva.test.rules.TemporaryMongoRule;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link StringIdVariantsMongoReader}
+ * input: a variants collection address
+ * output: the variant documents with string ids, sorted by id, each time `.read()` is called
+ */
+@RunWith(SpringRunner.class)
+@TestPropertySource({"classpath:test-mongo.properties"})
+@ContextConfiguration(classes = {MongoConnection.class, MongoMappingContext.class})
+public class StringIdVariantsMongoReaderTest {
+
+    private static final String COLLECTION_VARIANTS_NAME = "variants";
+
+    @Autowired
+    private MongoConnection mongoConnection;
+
+    @Autowired
+    private MongoMappingContext mongoMappingContext;
+
+    @Rule
+    public TemporaryMongoRule mongoRule = new TemporaryMongoRule();
+
+    @Test
+    public void shouldReadOnlyTheStringIdsInOrder() throws Exception {
+        String databaseName = insertVariants();
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+
+        assertEquals(Arrays.asList("1_1000_A_C", "1_2000_A_C", "2_1000_A_C"), readIds(databaseName, executionContext));
+    }
+
+    @Test
+    public void shouldRestartAfterTheLastIdRead() throws Exception {
+        String databaseName = insertVariants();
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+
+        StringIdVariantsMongoReader reader = getReader(databaseName);
+        reader.open(executionContext);
+        assertEquals("1_1000_A_C", reader.read().get("_id"));
+        reader.update(executionContext);
+        reader.close();
+
+        assertEquals(Arrays.asList("1_2000_A_C", "2_1000_A_C"), readIds(databaseName, executionContext));
+    }
+
+    private String insertVariants() {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+        DBCollection collection = mongoRule.getCollection(databaseName, COLLECTION_VARIANTS_NAME);
+        collection.insert(new BasicDBObject("_id", "2_1000_A_C"));
+        collection.insert(new BasicDBObject("_id", MongoDBHelper.buildCompactStorageId("1", 1500, "A", "C")));
+        collection.insert(new BasicDBObject("_id", "1_1000_A_C"));
+        collection.insert(new BasicDBObject("_id", "1_2000_A_C"));
+        return databaseName;
+    }
+
+    private List<Object> readIds(String databaseName, ExecutionContext executionContext) throws Exception {
+        StringIdVariantsMongoReader reader = getReader(databaseName);
+        reader.open(executionContext);
+        List<Object> ids = new ArrayList<>();
+        DBObject variant;
+        while ((variant = reader.read()) != null) {
+            ids.add(variant.get("_id"));
+        }
+        reader.close();
+        return ids;
+    }
+
+    private StringIdVariantsMongoReader getReader(String databaseName) throws Exception {
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(databaseName, mongoConnection,
+                                                                                mongoMappingContext);
+        return new StringIdVariantsMongoReader(mongoOperations, COLLECTION_VARIANTS_NAME);
+    }
+}
@@ -13,10 +13,12 @@ import uk.ac.ebi.eva.test.utils.JobTestUtils;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static uk.ac.ebi.eva.utils.FileUtils.getResource;
 
@@ -34,6 +36,8 @@ public class VcfReaderTest {
 
     private static final String INPUT_FILE_PATH = "/input-files/vcf/genotyped.vcf.gz";
 
+    private static final String INPUT_BGZF_FILE_PATH = "/input-files/vcf/genotyped_bgzf.vcf.gz";
+
     private static final String INPUT_WRONG_FILE_PATH = "/input-files/vcf/wrong_no_alt.vcf.gz";
 
     private static final String FILE_ID = "5";
@@ -57,6 +61,20 @@ public class VcfReaderTest {
         consumeReader(input, vcfReader);
     }
 
+    @Test
+    public void shouldReadAllLinesFromBgzipFile() throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+
+        // input vcf, compressed in BGZF blocks
+        File input = getResource(INPUT_BGZF_FILE_PATH);
+
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        vcfReader.setSaveState(false);
+        vcfReader.open(executionContext);
+
+        consumeReader(input, vcfReader);
+    }
+
     @Test
     public void invalidFileShouldFail() throws Exception {
         ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
@@ -90,6 +108,74 @@ public class VcfReaderTest {
         consumeReader(input, vcfReader);
     }
 
+    @Test
+    public void restartOfBgzipFileShouldSeekToTheSavedOffset() throws Exception {
+        File input = getResource(INPUT_BGZF_FILE_PATH);
+        ExecutionContext executionContext = readAndSaveState(input, 150);
+        assertTrue(executionContext.containsKey(getReadOffsetKey(input)));
+
+        assertRestartContinuesAfterLine(input, executionContext, 150);
+    }
+
+    @Test
+    public void restartOfUncompressedFileShouldSeekToTheSavedOffset() throws Exception {
+        File input = getResource(INPUT_FILE_PATH);
+        File tempFile = temporaryFolderRule.newFile();
+        JobTestUtils.uncompress(input.getAbsolutePath(), tempFile);
+
+        ExecutionContext executionContext = readAndSaveState(tempFile, 150);
+        assertTrue(executionContext.containsKey(getReadOffsetKey(tempFile)));
+
+        assertRestartContinuesAfterLine(tempFile, executionContext, 150);
+    }
+
+    @Test
+    public void restartOfGzipFileShouldSkipTheLinesAlreadyRead() throws Exception {
+        File input = getResource(INPUT_FILE_PATH);
+        ExecutionContext executionContext = readAndSaveState(input, 150);
+        assertFalse(executionContext.containsKey(getReadOffsetKey(input)));
+
+        assertRestartContinuesAfterLine(input, executionContext, 150);
+    }
+
+    private String getReadOffsetKey(File input) throws IOException {
+        return new VcfReader(FILE_ID, STUDY_ID, input).getExecutionContextKey("read.offset");
+    }
+
+    private ExecutionContext readAndSaveState(File input, int linesToRead) throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        vcfReader.open(executionContext);
+        for (int i = 0; i < linesToRead; i++) {
+            vcfReader.read();
+        }
+        vcfReader.update(executionContext);
+        vcfReader.close();
+        return executionContext;
+    }
+
+    private void assertRestartContinuesAfterLine(File input, ExecutionContext executionContext, int linesRead)
+            throws Exception {
+        VcfReader fullReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        fullReader.setSaveState(false);
+        fullReader.open(MetaDataInstanceFactory.createStepExecution().getExecutionContext());
+        for (int i = 0; i < linesRead; i++) {
+            fullReader.read();
+        }
+
+        VcfReader restartedReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        restartedReader.open(executionContext);
+
+        List<Variant> expected;
+        do {
+            expected = fullReader.read();
+            assertEquals(expected, restartedReader.read());
+        } while (expected != null);
+
+        fullReader.close();
+        restartedReader.close();
+    }
+
     private void consumeReader(File inputFile, VcfReader vcfReader) throws Exception {
         List<Variant> variants;
         int count = 0;
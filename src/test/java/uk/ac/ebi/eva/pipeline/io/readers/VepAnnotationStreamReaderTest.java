@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import com.mongodb.DBObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.test.data.VariantData;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static uk.ac.ebi.eva.test.rules.TemporaryMongoRule.constructDbObject;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * {@link VepAnnotationStreamReader}
+ * input: the variants read from MongoDB (replaced by a list), sent to a VEP process
+ * output: a VariantAnnotation for each line written by VEP, each time its `.read()` is called
+ */
+public class VepAnnotationStreamReaderTest {
+
+    private static final String MOCK_VEP = "/mockvep.pl";
+
+    /**
+     * Writes an intergenic annotation of each variant of the input, after a header like the one of VEP
+     */
+    private static final List<String> ECHO_VEP = Arrays.asList(
+            "perl", "-ne",
+            "BEGIN { print \"## ENSEMBL VARIANT EFFECT PREDICTOR\\n\" } chomp; my @f = split /\\t/; "
+                    + "print \"$f[0]_$f[1]_$f[3]\\t$f[0]:$f[1]\\t-\\t-\\t-\\t-\\tintergenic_variant"
+                    + "\\t-\\t-\\t-\\t-\\t-\\t-\\n\"");
+
+    private static final int BUFFER_SIZE = 10;
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
+
+    @Test
+    public void shouldAnnotateTheVariantsSentToVep() throws Exception {
+        ListVepAnnotationStreamReader reader = new ListVepAnnotationStreamReader(ECHO_VEP, newErrorLog());
+        reader.open(new ExecutionContext());
+
+        VariantAnnotation annotation = reader.read();
+        assertEquals("20", annotation.getChromosome());
+        assertEquals(60343, annotation.getStart());
+        assertEquals("G", annotation.getReferenceAllele());
+        assertEquals("A", annotation.getAlternativeAllele());
+        assertEquals(1, annotation.getConsequenceTypes().size());
+        assertNull(reader.read());
+        reader.close();
+    }
+
+    @Test
+    public void malformedLinesShouldBeReportedAndTheFollowingOnesRead() throws Exception {
+        // the mock VEP doesn't read the variants, so they are discarded before running it
+        List<String> mockVep = Arrays.asList("sh", "-c", "cat > /dev/null; perl " + getResource(MOCK_VEP).getPath());
+        ListVepAnnotationStreamReader reader = new ListVepAnnotationStreamReader(mockVep, newErrorLog());
+        reader.open(new ExecutionContext());
+
+        int count = 0;
+        int malformedCount = 0;
+        while (true) {
+            try {
+                if (reader.read() == null) {
+                    break;
+                }
+                count++;
+            } catch (FlatFileParseException e) {
+                malformedCount++;
+            }
+        }
+        reader.close();
+
+        assertEquals(536, count);
+        assertEquals(1, malformedCount);
+    }
+
+    @Test
+    public void vepErrorsShouldMakeTheReaderFail() throws Exception {
+        File errorLog = newErrorLog();
+        List<String> failingVep = Arrays.asList("perl", "-e", "print STDERR \"no cache found\\n\"; exit 2");
+        ListVepAnnotationStreamReader reader = new ListVepAnnotationStreamReader(failingVep, errorLog);
+        reader.open(new ExecutionContext());
+
+        try {
+            reader.read();
+            fail("The exit status of VEP should have been checked");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("exit status 2"));
+        }
+        reader.close();
+        assertTrue(errorLog.length() > 0);
+    }
+
+    @Test
+    public void vepFinishingWithoutReadingAllTheVariantsShouldMakeTheReaderFail() throws Exception {
+        // more variants than fit in the buffer of the standard input, so the writing fails when VEP exits
+        List<String> exitingVep = Arrays.asList("perl", "-e", "exit 0");
+        ListVepAnnotationStreamReader reader = new ListVepAnnotationStreamReader(exitingVep, newErrorLog(), 10000);
+        reader.open(new ExecutionContext());
+
+        try {
+            reader.read();
+            fail("The variants not sent to VEP should have been reported");
+        } catch (ItemStreamException e) {
+            assertTrue(e.getMessage().contains("without reading all the variants"));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void restartShouldSendAgainTheVariantsOfTheLastCommittedPosition() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        ListVepAnnotationStreamReader reader = new ListVepAnnotationStreamReader(ECHO_VEP, newErrorLog());
+        reader.open(executionContext);
+        assertNull(reader.lastChromosome);
+
+        reader.read();
+        reader.update(executionContext);
+        reader.close();
+
+        ListVepAnnotationStreamReader restartedReader = new ListVepAnnotationStreamReader(ECHO_VEP, newErrorLog());
+        restartedReader.open(executionContext);
+        assertEquals("20", restartedReader.lastChromosome);
+        assertEquals(Integer.valueOf(60343), restartedReader.lastStart);
+        restartedReader.close();
+    }
+
+    private File newErrorLog() throws Exception {
+        return new File(temporaryFolderRule.getRoot(), "vep.errors.txt");
+    }
+
+    /**
+     * Sends copies of a variant without annotation to VEP instead of querying MongoDB, and keeps the restart position.
+     */
+    private static class ListVepAnnotationStreamReader extends VepAnnotationStreamReader {
+
+        private String lastChromosome;
+
+        private Integer lastStart;
+
+        private final int variants;
+
+        ListVepAnnotationStreamReader(List<String> vepCommand, File errorLog) {
+            this(vepCommand, errorLog, 1);
+        }
+
+        ListVepAnnotationStreamReader(List<String> vepCommand, File errorLog, int variants) {
+            super(null, "variants", "", vepCommand, errorLog, BUFFER_SIZE);
+            this.variants = variants;
+        }
+
+        @Override
+        protected List<ItemStreamReader<DBObject>> createVariantReaders(String lastChromosome, Integer lastStart)
+                throws Exception {
+            this.lastChromosome = lastChromosome;
+            this.lastStart = lastStart;
+            DBObject variant = constructDbObject(VariantData.getVariantWithoutAnnotation());
+            return Collections.singletonList(new ListItemStreamReader(Collections.nCopies(variants, variant)));
+        }
+    }
+
+    private static class ListItemStreamReader extends AbstractItemCountingItemStreamItemReader<DBObject> {
+
+        private final List<DBObject> items;
+
+        private Iterator<DBObject> iterator;
+
+        ListItemStreamReader(List<DBObject> items) {
+            setName(ListItemStreamReader.class.getSimpleName());
+            this.items = items;
+        }
+
+        @Override
+        protected void doOpen() {
+            iterator = items.iterator();
+        }
+
+        @Override
+        protected DBObject doRead() {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        @Override
+        protected void doClose() {
+        }
+    }
+}
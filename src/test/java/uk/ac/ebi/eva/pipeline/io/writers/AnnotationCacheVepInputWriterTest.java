@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.variant.Variant;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import uk.ac.ebi.eva.commons.models.data.VariantAnnotation;
+import uk.ac.ebi.eva.pipeline.io.AnnotationCache;
+import uk.ac.ebi.eva.pipeline.model.VariantWrapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * {@link AnnotationCacheVepInputWriter}
+ * <p>
+ * input: a List of VariantWrapper to each call of `.write()`, some of them in the annotation cache
+ * output: the variants not in the cache are written to the VEP input, and the annotations of the rest are written
+ * with the annotation writer
+ */
+public class AnnotationCacheVepInputWriterTest {
+
+    private static final String CACHED_LINE = "20_60343_G/A\t20:60343\tA\t-\t-\t-\tintergenic_variant"
+            + "\t-\t-\t-\t-\t-\t-";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cachedVariantsShouldNotBeWrittenToTheVepInput() throws Exception {
+        AnnotationCache annotationCache = new AnnotationCache(temporaryFolder.newFolder(), "homo_sapiens", "82");
+        annotationCache.putLines("20_60343_G_A", Collections.singletonList(CACHED_LINE));
+
+        ItemStreamWriter<VariantWrapper> vepInputWriter = mock(ItemStreamWriter.class);
+        RecordingWriter annotationWriter = new RecordingWriter();
+        AnnotationCacheVepInputWriter writer = new AnnotationCacheVepInputWriter(vepInputWriter, annotationWriter,
+                                                                                 annotationCache);
+        writer.open(new ExecutionContext());
+
+        VariantWrapper cachedVariant = new VariantWrapper(new Variant("20", 60343, 60343, "G", "A"));
+        VariantWrapper notCachedVariant = new VariantWrapper(new Variant("20", 60419, 60419, "A", "G"));
+        writer.write(Arrays.asList(cachedVariant, notCachedVariant));
+        writer.close();
+
+        verify(vepInputWriter).write(Arrays.asList(notCachedVariant));
+        verify(vepInputWriter).close();
+        assertEquals(1, annotationWriter.annotations.size());
+        assertEquals(60343, annotationWriter.annotations.get(0).getStart());
+        assertEquals("A", annotationWriter.annotations.get(0).getAlternativeAllele());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void notCachedVariantsShouldOnlyBeWrittenToTheVepInput() throws Exception {
+        AnnotationCache annotationCache = new AnnotationCache(temporaryFolder.newFolder(), "homo_sapiens", "82");
+        ItemStreamWriter<VariantWrapper> vepInputWriter = mock(ItemStreamWriter.class);
+        ItemWriter<VariantAnnotation> annotationWriter = mock(ItemWriter.class);
+        AnnotationCacheVepInputWriter writer = new AnnotationCacheVepInputWriter(vepInputWriter, annotationWriter,
+                                                                                 annotationCache);
+        writer.open(new ExecutionContext());
+
+        List<VariantWrapper> variants = Arrays.asList(
+                new VariantWrapper(new Variant("20", 60343, 60343, "G", "A")));
+        writer.write(variants);
+        writer.close();
+
+        verify(vepInputWriter).write(variants);
+        verify(annotationWriter, never()).write(org.mockito.Matchers.anyList());
+    }
+
+    private static class RecordingWriter implements ItemWriter<VariantAnnotation> {
+
+        private final List<VariantAnnotation> annotations = new ArrayList<>();
+
+        @Override
+        public void write(List<? extends VariantAnnotation> items) {
+            annotations.addAll(items);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.commons.models.converters.data.VariantToDBObjectConverter;
+import uk.ac.ebi.eva.pipeline.configuration.MongoConfiguration;
+import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
+import uk.ac.ebi.eva.test.rules.TemporaryMongoRule;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link CompactIdVariantsMongoWriter}
+ * input: a List of variant documents with compact ids to each call of `.write()`
+ * output: the documents get inserted in mongo, once
+ */
+@RunWith(SpringRunner.class)
+@TestPropertySource({"classpath:test-mongo.properties"})
+@ContextConfiguration(classes = {MongoConnection.class, MongoMappingContext.class})
+public class CompactIdVariantsMongoWriterTest {
+
+    private static final String COLLECTION_VARIANTS_NAME = "compactVariants";
+
+    @Autowired
+    private MongoConnection mongoConnection;
+
+    @Autowired
+    private MongoMappingContext mongoMappingContext;
+
+    @Rule
+    public TemporaryMongoRule mongoRule = new TemporaryMongoRule();
+
+    @Test
+    public void shouldInsertTheDocuments() throws Exception {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+        CompactIdVariantsMongoWriter writer = getWriter(databaseName);
+
+        writer.write(Arrays.asList(buildVariant("1", 1000, "A", "C"), buildVariant("1", 1000, "A", "T")));
+
+        DBCollection collection = mongoRule.getCollection(databaseName, COLLECTION_VARIANTS_NAME);
+        assertEquals(2, collection.count());
+        DBObject variant = collection.findOne(new BasicDBObject(VariantToDBObjectConverter.ALTERNATE_FIELD, "C"));
+        assertArrayEquals(MongoDBHelper.buildCompactStorageId("1", 1000, "A", "C"), (byte[]) variant.get("_id"));
+    }
+
+    @Test
+    public void shouldSkipTheDocumentsAlreadyInserted() throws Exception {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+        CompactIdVariantsMongoWriter writer = getWriter(databaseName);
+
+        writer.write(Collections.singletonList(buildVariant("1", 1000, "A", "C")));
+        writer.write(Arrays.asList(buildVariant("1", 1000, "A", "C"), buildVariant("1", 1000, "A", "T")));
+
+        assertEquals(2, mongoRule.getCollection(databaseName, COLLECTION_VARIANTS_NAME).count());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailIfAnotherVariantHasTheSameId() throws Exception {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+        CompactIdVariantsMongoWriter writer = getWriter(databaseName);
+
+        DBObject variant = buildVariant("1", 1000, "A", "C");
+        DBObject otherVariant = buildVariant("1", 1000, "A", "T");
+        otherVariant.put("_id", variant.get("_id"));
+
+        writer.write(Collections.singletonList(variant));
+        writer.write(Collections.singletonList(otherVariant));
+    }
+
+    private CompactIdVariantsMongoWriter getWriter(String databaseName) throws Exception {
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(databaseName, mongoConnection,
+                                                                                mongoMappingContext);
+        return new CompactIdVariantsMongoWriter(mongoOperations, COLLECTION_VARIANTS_NAME);
+    }
+
+    private DBObject buildVariant(String chromosome, int start, String reference, String alternate) {
+        return new BasicDBObject("_id", MongoDBHelper.buildCompactStorageId(chromosome, start, reference, alternate))
+                .append(VariantToDBObjectConverter.CHROMOSOME_FIELD, chromosome)
+                .append(VariantToDBObjectConverter.START_FIELD, start)
+                .append(VariantToDBObjectConverter.REFERENCE_FIELD, reference)
+                .append(VariantToDBObjectConverter.ALTERNATE_FIELD, alternate);
+    }
+}
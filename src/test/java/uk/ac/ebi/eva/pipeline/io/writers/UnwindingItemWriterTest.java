@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link UnwindingItemWriter}
+ * input: a list of collections
+ * output: all the elements of the collections written in a single call to the delegate
+ */
+public class UnwindingItemWriterTest {
+
+    @Test
+    public void shouldWriteAllElementsInOrder() throws Exception {
+        List<List<? extends String>> writes = new ArrayList<>();
+        UnwindingItemWriter<String> writer = new UnwindingItemWriter<>(writes::add);
+
+        List<Collection<? extends String>> items = Arrays.asList(Arrays.asList("a", "b"),
+                                                                 Collections.<String>emptyList(),
+                                                                 null,
+                                                                 Collections.singletonList("c"));
+        writer.write(items);
+
+        assertEquals(1, writes.size());
+        assertEquals(Arrays.asList("a", "b", "c"), writes.get(0));
+    }
+
+}
@@ -26,6 +26,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -35,6 +36,7 @@ import uk.ac.ebi.eva.pipeline.model.converters.data.VariantToMongoDbObjectConver
 import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
 import uk.ac.ebi.eva.test.rules.TemporaryMongoRule;
 import uk.ac.ebi.eva.utils.MongoDBHelper;
+import uk.ac.ebi.eva.utils.RawDBObjectEncoder;
 
 import java.net.UnknownHostException;
 import java.util.ArrayList;
@@ -47,6 +49,7 @@ import java.util.stream.Collectors;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.when;
@@ -61,6 +64,10 @@ public class VariantMongoWriterTest {
 
     private static final List<? extends Variant> EMPTY_LIST = new ArrayList<>();
 
+    private static final int CONCURRENT_BULKS = 4;
+
+    private static final int VARIANTS_IN_CONCURRENT_BULKS = 100;
+
     private VariantToMongoDbObjectConverter variantToMongoDbObjectConverter =
             Mockito.mock(VariantToMongoDbObjectConverter.class);
 
@@ -111,6 +118,17 @@ public class VariantMongoWriterTest {
         assertEquals(2, dbCollection.count());
     }
 
+    @Test
+    public void theCollectionShouldSendTheSerializedDocumentsAsTheyAre() throws UnknownHostException {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                mongoMappingContext);
+
+        new VariantMongoWriter(collectionName, mongoOperations, variantToMongoDbObjectConverter);
+
+        assertSame(RawDBObjectEncoder.FACTORY, mongoOperations.getCollection(collectionName).getDBEncoderFactory());
+    }
+
     @Test
     public void indexesShouldBeCreatedInBackground() throws UnknownHostException {
         String dbName = mongoRule.getRandomTemporaryDatabaseName();
@@ -135,6 +153,33 @@ public class VariantMongoWriterTest {
                                                          index.get(MongoDBHelper.BACKGROUND_INDEX).toString()));
     }
 
+    @Test
+    public void deferredIndexesShouldNotBeCreated() throws UnknownHostException {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                mongoMappingContext);
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+        dbCollection.insert(new BasicDBObject("_id", "1_1_A_T"));
+
+        new VariantMongoWriter(collectionName, mongoOperations, variantToMongoDbObjectConverter, null, 1, false,
+                               true);
+
+        List<DBObject> indexInfo = dbCollection.getIndexInfo();
+        assertEquals(1, indexInfo.size());
+        assertEquals("_id_", indexInfo.get(0).get("name"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void indexesShouldNotBeDeferredIfTheCollectionHasThem() throws UnknownHostException {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                mongoMappingContext);
+
+        new VariantMongoWriter(collectionName, mongoOperations, variantToMongoDbObjectConverter);
+        new VariantMongoWriter(collectionName, mongoOperations, variantToMongoDbObjectConverter, null, 1, false,
+                               true);
+    }
+
     @Test
     public void testNoDuplicatesCanBeInserted() throws Exception {
         Variant variant1 = new Variant("1", 1, 2, "A", "T");
@@ -159,4 +204,136 @@ public class VariantMongoWriterTest {
         }
     }
 
+    @Test
+    public void variantsShouldBeWrittenInConcurrentBulks() throws Exception {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                mongoMappingContext);
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+
+        when(variantToMongoDbObjectConverter.convert(any(Variant.class))).thenReturn(new BasicDBObject());
+
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 1; i <= VARIANTS_IN_CONCURRENT_BULKS; i++) {
+            variants.add(new Variant("1", i, i, "A", "T"));
+        }
+
+        ThreadPoolTaskExecutor bulkExecutor = createBulkExecutor();
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations,
+                                                                       variantToMongoDbObjectConverter,
+                                                                       bulkExecutor, CONCURRENT_BULKS);
+        variantMongoWriter.write(variants);
+        bulkExecutor.shutdown();
+
+        assertEquals(VARIANTS_IN_CONCURRENT_BULKS, dbCollection.count());
+    }
+
+    @Test
+    public void errorInAConcurrentBulkShouldFailTheWrite() throws Exception {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                mongoMappingContext);
+
+        when(variantToMongoDbObjectConverter.convert(any(Variant.class))).thenReturn(new BasicDBObject());
+
+        Variant variant1 = new Variant("1", 1, 2, "A", "T");
+        Variant variant2 = new Variant("2", 3, 4, "C", "G");
+
+        ThreadPoolTaskExecutor bulkExecutor = createBulkExecutor();
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations,
+                                                                       variantToMongoDbObjectConverter,
+                                                                       bulkExecutor, CONCURRENT_BULKS);
+        variantMongoWriter.write(Collections.singletonList(variant1));
+
+        try {
+            variantMongoWriter.write(Arrays.asList(variant1, variant2));
+            fail("Should have thrown a mongo write exception due to duplicate key");
+        } catch (BulkWriteException e) {
+            assertTrue(e.getMessage().contains("duplicate key"));
+        } finally {
+            bulkExecutor.shutdown();
+        }
+    }
+
+    private ThreadPoolTaskExecutor createBulkExecutor() {
+        ThreadPoolTaskExecutor bulkExecutor = new ThreadPoolTaskExecutor();
+        bulkExecutor.setCorePoolSize(CONCURRENT_BULKS);
+        bulkExecutor.setMaxPoolSize(CONCURRENT_BULKS);
+        bulkExecutor.afterPropertiesSet();
+        return bulkExecutor;
+    }
+
+    @Test
+    public void duplicatedVariantsInAChunkShouldBeMergedIntoOneDocument() throws Exception {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                mongoMappingContext);
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+
+        DBObject update1 = new BasicDBObject(MongoDBHelper.ADD_TO_SET, new BasicDBObject("ids", "rs1"));
+        DBObject update2 = new BasicDBObject(MongoDBHelper.ADD_TO_SET, new BasicDBObject("ids", "rs2"));
+        when(variantToMongoDbObjectConverter.convert(any(Variant.class))).thenReturn(update1).thenReturn(update2);
+
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations,
+                                                                       variantToMongoDbObjectConverter);
+        variantMongoWriter.write(Arrays.asList(new Variant("1", 1, 2, "A", "T"), new Variant("1", 1, 2, "A", "T")));
+
+        assertEquals(1, dbCollection.count());
+        assertEquals(Arrays.asList("rs1", "rs2"), dbCollection.findOne().get("ids"));
+    }
+
+    @Test
+    public void variantsInANewRegionShouldBeInsertedAsWholeDocuments() throws Exception {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                mongoMappingContext);
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+
+        when(variantToMongoDbObjectConverter.convert(any(Variant.class)))
+                .thenReturn(buildUpsert("1_1_A_T", 1, "rs1"))
+                .thenReturn(buildUpsert("1_1_A_T", 1, "rs2"))
+                .thenReturn(buildUpsert("1_5_C_G", 5, "rs3"));
+
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations,
+                                                                       variantToMongoDbObjectConverter, null, 1,
+                                                                       true, false);
+        variantMongoWriter.write(Arrays.asList(new Variant("1", 1, 2, "A", "T"), new Variant("1", 1, 2, "A", "T"),
+                                               new Variant("1", 5, 5, "C", "G")));
+
+        assertEquals(2, dbCollection.count());
+        DBObject document = dbCollection.findOne(new BasicDBObject("_id", "1_1_A_T"));
+        assertEquals("1", document.get("chr"));
+        assertEquals(1, document.get("start"));
+        assertEquals(Arrays.asList("rs1", "rs2"), document.get("ids"));
+    }
+
+    @Test
+    public void variantsInAnExistingRegionShouldBeUpserted() throws Exception {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                mongoMappingContext);
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+
+        when(variantToMongoDbObjectConverter.convert(any(Variant.class)))
+                .thenReturn(buildUpsert("1_1_A_T", 1, "rs1"))
+                .thenReturn(buildUpsert("1_1_A_T", 1, "rs2"))
+                .thenReturn(buildUpsert("1_5_C_G", 5, "rs3"));
+
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations,
+                                                                       variantToMongoDbObjectConverter, null, 1,
+                                                                       true, false);
+        variantMongoWriter.write(Collections.singletonList(new Variant("1", 1, 2, "A", "T")));
+        variantMongoWriter.write(Arrays.asList(new Variant("1", 1, 2, "A", "T"), new Variant("1", 5, 5, "C", "G")));
+
+        assertEquals(2, dbCollection.count());
+        assertEquals(Arrays.asList("rs1", "rs2"),
+                     dbCollection.findOne(new BasicDBObject("_id", "1_1_A_T")).get("ids"));
+    }
+
+    private DBObject buildUpsert(String id, int start, String rsId) {
+        return new BasicDBObject(MongoDBHelper.ADD_TO_SET, new BasicDBObject("ids", rsId))
+                .append(MongoDBHelper.SET_ON_INSERT, new BasicDBObject("_id", id).append("chr", "1")
+                                                                                 .append("start", start));
+    }
+
 }
@@ -16,6 +16,8 @@
 package uk.ac.ebi.eva.pipeline.io.writers;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteRequestBuilder;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -50,6 +52,13 @@ import java.util.Set;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static uk.ac.ebi.eva.test.data.VepOutputContent.vepOutputContent;
 
 /**
@@ -179,6 +188,56 @@ public class VepAnnotationMongoWriterTest {
         }
     }
 
+    /**
+     * The consequence types and xrefs of each variant are added in a single update, and all the updates of a chunk
+     * are sent in a single bulk.
+     */
+    @Test
+    public void shouldSendOneUpdatePerVariantInASingleBulk() throws Exception {
+        List<VariantAnnotation> annotations = new ArrayList<>();
+        Set<Object> ids = new HashSet<>();
+        for (String annotLine : vepOutputContent.split("\n")) {
+            VariantAnnotation annotation = AnnotationLineMapper.mapLine(annotLine, 0);
+            annotations.add(annotation);
+            ids.add(MongoDBHelper.buildStorageId(annotation.getChromosome(), annotation.getStart(),
+                                                 annotation.getReferenceAllele(),
+                                                 annotation.getAlternativeAllele()));
+        }
+
+        MongoOperations operations = mock(MongoOperations.class);
+        DBCollection collection = mock(DBCollection.class);
+        BulkWriteOperation bulk = mock(BulkWriteOperation.class);
+        BulkWriteRequestBuilder requestBuilder = mock(BulkWriteRequestBuilder.class);
+        List<DBObject> queries = new ArrayList<>();
+        List<DBObject> updates = new ArrayList<>();
+        when(operations.getCollection(COLLECTION_VARIANTS_NAME)).thenReturn(collection);
+        when(collection.initializeUnorderedBulkOperation()).thenReturn(bulk);
+        when(bulk.find(any(DBObject.class))).thenAnswer(invocation -> {
+            queries.add((DBObject) invocation.getArguments()[0]);
+            return requestBuilder;
+        });
+        doAnswer(invocation -> updates.add((DBObject) invocation.getArguments()[0]))
+                .when(requestBuilder).updateOne(any(DBObject.class));
+
+        annotationWriter = new VepAnnotationMongoWriter(operations, COLLECTION_VARIANTS_NAME);
+        annotationWriter.write(annotations);
+
+        verify(collection, times(1)).initializeUnorderedBulkOperation();
+        verify(bulk, times(1)).execute();
+        verify(collection, never()).update(any(DBObject.class), any(DBObject.class));
+        assertEquals(ids.size(), queries.size());
+        Set<Object> updatedIds = new HashSet<>();
+        for (DBObject query : queries) {
+            updatedIds.add(query.get("_id"));
+        }
+        assertEquals(ids, updatedIds);
+        for (DBObject update : updates) {
+            DBObject addToSet = (DBObject) update.get("$addToSet");
+            assertNotNull(addToSet.get("annot.ct"));
+            assertNotNull(addToSet.get("annot.xrefs"));
+        }
+    }
+
     @Before
     public void setUp() throws Exception {
         converter = new DBObjectToVariantAnnotationConverter();
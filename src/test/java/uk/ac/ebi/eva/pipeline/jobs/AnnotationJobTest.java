@@ -53,6 +53,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static uk.ac.ebi.eva.test.utils.TestFileUtils.getResourceUrl;
@@ -156,6 +157,58 @@ public class AnnotationJobTest {
         assertEquals(1, variantAnnotationLoadStepExecution.get(0).getReadSkipCount());
     }
 
+    @Test
+    public void streamedAnnotationShouldBeLoadedInOneStep() throws Exception {
+        String dbName = mongoRule.restoreDumpInTemporaryDatabase(getResourceUrl(MONGO_DUMP));
+        String outputDirAnnot = temporaryFolderRule.getRoot().getAbsolutePath();
+
+        JobParameters jobParameters = new EvaJobParameterBuilder()
+                .annotationStreaming(true)
+                .collectionVariantsName(COLLECTION_VARIANTS_NAME)
+                .databaseName(dbName)
+                .inputFasta("")
+                .inputStudyId(INPUT_STUDY_ID)
+                .inputVcfId(INPUT_VCF_ID)
+                .outputDirAnnotation(outputDirAnnot)
+                .vepCachePath("")
+                .vepCacheSpecies("")
+                .vepCacheVersion("")
+                .vepNumForks("")
+                .vepPath(getResource(MOCK_VEP).getPath())
+                .toJobParameters();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob(jobParameters);
+
+        assertEquals(ExitStatus.COMPLETED, jobExecution.getExitStatus());
+        assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+
+        assertEquals(1, jobExecution.getStepExecutions().size());
+        StepExecution streamVepAnnotationStep = new ArrayList<>(jobExecution.getStepExecutions()).get(0);
+        assertEquals(BeanNames.STREAM_VEP_ANNOTATION_STEP, streamVepAnnotationStep.getStepName());
+
+        //no intermediate files are written
+        assertFalse(new File(URLHelper.resolveVepInput(outputDirAnnot, INPUT_STUDY_ID, INPUT_VCF_ID)).exists());
+        assertFalse(new File(URLHelper.resolveVepOutput(outputDirAnnot, INPUT_STUDY_ID, INPUT_VCF_ID)).exists());
+
+        //check that documents have the annotation
+        DBCursor cursor = mongoRule.getCollection(dbName, COLLECTION_VARIANTS_NAME).find();
+
+        int consequenceTypeCount = 0;
+        while (cursor.hasNext()) {
+            DBObject dbObject = (DBObject) cursor.next().get(VariantToDBObjectConverter.ANNOTATION_FIELD);
+            if (dbObject != null) {
+                VariantAnnotation annot = converter.convertToDataModelType(dbObject);
+                assertNotNull(annot.getConsequenceTypes());
+                consequenceTypeCount += annot.getConsequenceTypes().size();
+            }
+        }
+
+        assertEquals(536, consequenceTypeCount);
+
+        //check that one line is skipped because malformed
+        assertEquals(1, streamVepAnnotationStep.getReadSkipCount());
+    }
+
     @Test
     public void noVariantsToAnnotateOnlyFindVariantsToAnnotateStepShouldRun() throws Exception {
         String dbName = mongoRule.getRandomTemporaryDatabaseName();
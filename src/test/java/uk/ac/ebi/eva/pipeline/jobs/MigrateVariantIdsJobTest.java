@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.test.configuration.BatchTestConfiguration;
+import uk.ac.ebi.eva.test.data.VariantData;
+import uk.ac.ebi.eva.test.rules.TemporaryMongoRule;
+import uk.ac.ebi.eva.utils.EvaJobParameterBuilder;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link MigrateVariantIdsJob}
+ */
+@RunWith(SpringRunner.class)
+@TestPropertySource({"classpath:common-configuration.properties", "classpath:test-mongo.properties"})
+@ContextConfiguration(classes = {MigrateVariantIdsJob.class, BatchTestConfiguration.class})
+public class MigrateVariantIdsJobTest {
+
+    private static final String COLLECTION_VARIANTS_NAME = "variants";
+
+    private static final String COLLECTION_COMPACT_VARIANTS_NAME = "compactVariants";
+
+    private static final long EXPECTED_VARIANTS = 4;
+
+    @Rule
+    public TemporaryMongoRule mongoRule = new TemporaryMongoRule();
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Test
+    public void variantsShouldBeCopiedWithCompactIds() throws Exception {
+        String dbName = mongoRule.createDBAndInsertDocuments(COLLECTION_VARIANTS_NAME, Arrays.asList(
+                VariantData.getVariantWithOneStudyToDrop(),
+                VariantData.getOtherVariantWithOneStudyToDrop(),
+                VariantData.getVariantWithOneStudy(),
+                VariantData.getVariantWithTwoStudies()));
+
+        JobParameters jobParameters = new EvaJobParameterBuilder()
+                .collectionVariantsName(COLLECTION_VARIANTS_NAME)
+                .collectionCompactVariantsName(COLLECTION_COMPACT_VARIANTS_NAME)
+                .databaseName(dbName)
+                .timestamp()
+                .toJobParameters();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob(jobParameters);
+        assertEquals(ExitStatus.COMPLETED, jobExecution.getExitStatus());
+        assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+
+        DBCollection variantsCollection = mongoRule.getCollection(dbName, COLLECTION_VARIANTS_NAME);
+        DBCollection compactVariantsCollection = mongoRule.getCollection(dbName, COLLECTION_COMPACT_VARIANTS_NAME);
+        assertEquals(EXPECTED_VARIANTS, variantsCollection.count());
+        assertEquals(EXPECTED_VARIANTS, compactVariantsCollection.count());
+
+        for (DBObject variant : compactVariantsCollection.find()) {
+            byte[] expectedId = MongoDBHelper.buildCompactStorageId((String) variant.get("chr"),
+                                                                    (Integer) variant.get("start"),
+                                                                    (String) variant.get("ref"),
+                                                                    (String) variant.get("alt"));
+            assertArrayEquals(expectedId, (byte[]) variant.get("_id"));
+        }
+
+        Set<String> createdIndexes = compactVariantsCollection.getIndexInfo().stream()
+                .map(index -> index.get("name").toString())
+                .collect(Collectors.toSet());
+        assertTrue(createdIndexes.contains("chr_1_start_1_end_1"));
+    }
+
+}
@@ -60,6 +60,10 @@ public class VariantLoaderStepTest {
 
     private static final String SMALL_VCF_FILE = "/input-files/vcf/genotyped.vcf.gz";
 
+    private static final String INDEXED_VCF_FILE = "/input-files/vcf/genotyped_indexed.vcf.gz";
+
+    private static final int EXPECTED_PARTITIONS = 3;
+
     @Rule
     public TemporaryMongoRule mongoRule = new TemporaryMongoRule();
 
@@ -100,6 +104,41 @@ public class VariantLoaderStepTest {
         assertEquals(EXPECTED_VARIANTS, count(iterator));
     }
 
+    @Test
+    public void partitionedLoaderStepShouldLoadAllVariants() throws Exception {
+        Config.setOpenCGAHome(opencgaHome);
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+
+        // When the partitioned step is executed with an indexed VCF that has variants in 3 chromosomes
+        JobParameters jobParameters = new EvaJobParameterBuilder()
+                .collectionVariantsName("variants")
+                .databaseName(databaseName)
+                .inputStudyId("1")
+                .inputVcf(getResource(INDEXED_VCF_FILE).getAbsolutePath())
+                .inputVcfAggregation("NONE")
+                .inputVcfId("1")
+                .toJobParameters();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(BeanNames.LOAD_VARIANTS_PARTITIONED_STEP,
+                                                                    jobParameters);
+
+        //Then the step and a partition per chromosome should complete correctly
+        assertEquals(ExitStatus.COMPLETED, jobExecution.getExitStatus());
+        assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        long completedPartitions = jobExecution.getStepExecutions().stream()
+                .filter(stepExecution -> stepExecution.getStepName().startsWith(BeanNames.LOAD_VARIANTS_PARTITION_STEP))
+                .filter(stepExecution -> stepExecution.getStatus() == BatchStatus.COMPLETED)
+                .count();
+        assertEquals(EXPECTED_PARTITIONS, completedPartitions);
+
+        // And all the variants of all the chromosomes should be in the DB
+        VariantStorageManager variantStorageManager = StorageManagerFactory.getVariantStorageManager();
+        VariantDBAdaptor variantDBAdaptor = variantStorageManager.getDBAdaptor(databaseName, null);
+        VariantDBIterator iterator = variantDBAdaptor.iterator(new QueryOptions());
+
+        assertEquals(EXPECTED_VARIANTS, count(iterator));
+    }
+
     @Before
     public void setUp() throws Exception {
         input = getResource(SMALL_VCF_FILE).getAbsolutePath();
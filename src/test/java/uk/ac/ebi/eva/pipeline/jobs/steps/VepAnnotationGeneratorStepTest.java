@@ -22,6 +22,7 @@ import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.test.JobLauncherTestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ActiveProfiles;
@@ -31,6 +32,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import uk.ac.ebi.eva.pipeline.Application;
 import uk.ac.ebi.eva.pipeline.configuration.BeanNames;
 import uk.ac.ebi.eva.pipeline.jobs.AnnotationJob;
+import uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VepInputPartitioner;
 import uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.VepAnnotationGeneratorStep;
 import uk.ac.ebi.eva.test.configuration.BatchTestConfiguration;
 import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
@@ -40,6 +42,12 @@ import uk.ac.ebi.eva.utils.URLHelper;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
@@ -47,7 +55,7 @@ import static org.junit.Assert.assertTrue;
 import static uk.ac.ebi.eva.utils.FileUtils.getResource;
 
 /**
- * Test for {@link VepAnnotationGeneratorStep}
+ * Test for {@link VepAnnotationGeneratorStep}, run over the whole VEP input or over each shard of it
  */
 @RunWith(SpringRunner.class)
 @ActiveProfiles(Application.VARIANT_ANNOTATION_MONGO_PROFILE)
@@ -61,6 +69,12 @@ public class VepAnnotationGeneratorStepTest {
 
     private static final String FILE_ID = "5";
 
+    private static final String PARTITION_0 = BeanNames.GENERATE_VEP_ANNOTATION_PARTITION_STEP + ":"
+            + VepInputPartitioner.PARTITION_PREFIX + "0";
+
+    private static final String PARTITION_1 = BeanNames.GENERATE_VEP_ANNOTATION_PARTITION_STEP + ":"
+            + VepInputPartitioner.PARTITION_PREFIX + "1";
+
     @Rule
     public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
 
@@ -98,4 +112,109 @@ public class VepAnnotationGeneratorStepTest {
         assertEquals(537, JobTestUtils.getLines(new GZIPInputStream(new FileInputStream(vepOutputFile))));
     }
 
+    @Test
+    public void shouldGenerateVepAnnotationsOfEachShard() throws Exception {
+        File vepOutputFolder = temporaryFolderRule.newFolder();
+        File vepInput = writeVepInput(vepOutputFolder);
+        File vepOutput = new File(URLHelper.resolveVepOutput(vepOutputFolder.getAbsolutePath(), STUDY_ID, FILE_ID));
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(BeanNames.GENERATE_VEP_ANNOTATION_PARTITIONED_STEP,
+                                                                    getPartitionedJobParameters(vepOutputFolder));
+
+        assertEquals(ExitStatus.COMPLETED, jobExecution.getExitStatus());
+        assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        assertEquals(Arrays.asList(PARTITION_0, PARTITION_1), getPartitionStepNames(jobExecution));
+
+        // the mock VEP always writes the same annotations, whatever the variants in its shard
+        List<File> shardOutputs = VepInputPartitioner.getShardOutputs(vepInput, vepOutput);
+        assertEquals(2, shardOutputs.size());
+        for (File shardOutput : shardOutputs) {
+            assertEquals(537, JobTestUtils.getLines(new GZIPInputStream(new FileInputStream(shardOutput))));
+        }
+    }
+
+    @Test
+    public void restartShouldOnlyAnnotateTheShardsThatFailed() throws Exception {
+        File vepOutputFolder = temporaryFolderRule.newFolder();
+        File vepInput = writeVepInput(vepOutputFolder);
+        File vepOutput = new File(URLHelper.resolveVepOutput(vepOutputFolder.getAbsolutePath(), STUDY_ID, FILE_ID));
+        JobParameters jobParameters = getPartitionedJobParameters(vepOutputFolder);
+
+        // the VEP output of the second shard can't be written if there is a folder in its place
+        File blockedShardOutput = new File(vepOutput.getPath() + ".shard-1");
+        assertTrue(blockedShardOutput.mkdir());
+
+        JobExecution failedExecution = jobLauncherTestUtils.launchStep(
+                BeanNames.GENERATE_VEP_ANNOTATION_PARTITIONED_STEP, jobParameters);
+
+        assertEquals(BatchStatus.FAILED, failedExecution.getStatus());
+        assertEquals(Arrays.asList(PARTITION_0, PARTITION_1), getPartitionStepNames(failedExecution));
+        assertEquals(BatchStatus.COMPLETED, getPartitionStepExecution(failedExecution, PARTITION_0).getStatus());
+        assertEquals(BatchStatus.FAILED, getPartitionStepExecution(failedExecution, PARTITION_1).getStatus());
+
+        // the VEP output of the shard that completed is not written again in the restart
+        File completedShardOutput = new File(vepOutput.getPath() + ".shard-0");
+        assertTrue(completedShardOutput.setLastModified(0));
+        assertTrue(blockedShardOutput.delete());
+
+        JobExecution restartedExecution = jobLauncherTestUtils.launchStep(
+                BeanNames.GENERATE_VEP_ANNOTATION_PARTITIONED_STEP, jobParameters);
+
+        assertEquals(ExitStatus.COMPLETED, restartedExecution.getExitStatus());
+        assertEquals(BatchStatus.COMPLETED, restartedExecution.getStatus());
+        assertEquals(BatchStatus.COMPLETED, getPartitionStepExecution(restartedExecution, PARTITION_1).getStatus());
+        assertEquals(0, completedShardOutput.lastModified());
+        for (File shardOutput : VepInputPartitioner.getShardOutputs(vepInput, vepOutput)) {
+            assertEquals(537, JobTestUtils.getLines(new GZIPInputStream(new FileInputStream(shardOutput))));
+        }
+    }
+
+    /**
+     * Writes a VEP input with variants in two chromosomes, so that it's split in two shards.
+     */
+    private File writeVepInput(File vepOutputFolder) throws IOException {
+        File vepInput = new File(URLHelper.resolveVepInput(vepOutputFolder.getAbsolutePath(), STUDY_ID, FILE_ID));
+        Files.write(vepInput.toPath(), Arrays.asList("20\t60343\t60343\tG/A\t+",
+                                                     "20\t60419\t60419\tA/G\t+",
+                                                     "21\t60479\t60479\tC/T\t+",
+                                                     "21\t60522\t60522\tT/-\t+"));
+        return vepInput;
+    }
+
+    private JobParameters getPartitionedJobParameters(File vepOutputFolder) {
+        return new EvaJobParameterBuilder()
+                .inputFasta("")
+                .inputStudyId(STUDY_ID)
+                .inputVcfId(FILE_ID)
+                .outputDirAnnotation(vepOutputFolder.getAbsolutePath())
+                .vepCachePath("")
+                .vepCacheSpecies("")
+                .vepCacheVersion("")
+                .vepNumForks("")
+                .vepNumProcesses("2")
+                .vepPath(getResource(MOCKVEP).getPath())
+                .toJobParameters();
+    }
+
+    private static List<String> getPartitionStepNames(JobExecution jobExecution) {
+        List<String> partitionStepNames = new ArrayList<>();
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            if (stepExecution.getStepName().startsWith(BeanNames.GENERATE_VEP_ANNOTATION_PARTITION_STEP)) {
+                partitionStepNames.add(stepExecution.getStepName());
+            }
+        }
+        Collections.sort(partitionStepNames);
+        return partitionStepNames;
+    }
+
+    private static StepExecution getPartitionStepExecution(JobExecution jobExecution, String stepName) {
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            if (stepExecution.getStepName().equals(stepName)) {
+                return stepExecution;
+            }
+        }
+        throw new AssertionError("Partition " + stepName + " was not executed");
+    }
+
+
 }
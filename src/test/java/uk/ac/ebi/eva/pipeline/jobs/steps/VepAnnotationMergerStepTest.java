@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.pipeline.Application;
+import uk.ac.ebi.eva.pipeline.configuration.BeanNames;
+import uk.ac.ebi.eva.pipeline.jobs.AnnotationJob;
+import uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VepInputPartitioner;
+import uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.VepAnnotationMergerStep;
+import uk.ac.ebi.eva.test.configuration.BatchTestConfiguration;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+import uk.ac.ebi.eva.utils.EvaJobParameterBuilder;
+import uk.ac.ebi.eva.utils.URLHelper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link VepAnnotationMergerStep}
+ */
+@RunWith(SpringRunner.class)
+@ActiveProfiles(Application.VARIANT_ANNOTATION_MONGO_PROFILE)
+@TestPropertySource("classpath:common-configuration.properties")
+@ContextConfiguration(classes = {AnnotationJob.class, BatchTestConfiguration.class})
+public class VepAnnotationMergerStepTest {
+
+    private static final String STUDY_ID = "7";
+
+    private static final String FILE_ID = "5";
+
+    private static final List<String> VEP_INPUT = Arrays.asList("20\t60343\t60343\tG/A\t+",
+                                                                "21\t60419\t60419\tA/G\t+");
+
+    private static final List<String> SHARD_0_ANNOTATIONS = Arrays.asList(
+            "20_60343_G/A\t20:60343\tA\t-\t-\t-\tintergenic_variant\t-\t-\t-\t-\t-\t-",
+            "20_60343_G/A\t20:60343\tA\tENSG00000178591\tENST00000382410\tTranscript\tintron_variant\t-\t-\t-\t-\t-"
+                    + "\t-");
+
+    private static final List<String> SHARD_1_ANNOTATIONS = Arrays.asList(
+            "21_60419_A/G\t21:60419\tG\t-\t-\t-\tintergenic_variant\t-\t-\t-\t-\t-\t-");
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Test
+    public void shouldConcatenateTheGzippedShardOutputsInOrder() throws Exception {
+        File vepOutputFolder = temporaryFolderRule.newFolder();
+        File vepInput = new File(URLHelper.resolveVepInput(vepOutputFolder.getAbsolutePath(), STUDY_ID, FILE_ID));
+        File vepOutput = new File(URLHelper.resolveVepOutput(vepOutputFolder.getAbsolutePath(), STUDY_ID, FILE_ID));
+        Files.write(vepInput.toPath(), VEP_INPUT);
+        new VepInputPartitioner(vepInput, vepOutput, 2).partition(1);
+        List<File> shardOutputs = VepInputPartitioner.getShardOutputs(vepInput, vepOutput);
+        assertEquals(2, shardOutputs.size());
+        writeGzipped(shardOutputs.get(0), SHARD_0_ANNOTATIONS);
+        writeGzipped(shardOutputs.get(1), SHARD_1_ANNOTATIONS);
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(BeanNames.MERGE_VEP_ANNOTATION_STEP,
+                                                                    getJobParameters(vepOutputFolder));
+
+        assertEquals(ExitStatus.COMPLETED, jobExecution.getExitStatus());
+        assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+
+        // a file with several gzip members is read as the concatenation of all of them
+        List<String> expectedAnnotations = new ArrayList<>(SHARD_0_ANNOTATIONS);
+        expectedAnnotations.addAll(SHARD_1_ANNOTATIONS);
+        assertEquals(expectedAnnotations, readGzipped(vepOutput));
+
+        // and the shards are deleted, but not the VEP input
+        assertTrue(VepInputPartitioner.getShardOutputs(vepInput, vepOutput).isEmpty());
+        for (File shardOutput : shardOutputs) {
+            assertFalse(shardOutput.exists());
+        }
+        assertTrue(vepInput.exists());
+    }
+
+    @Test
+    public void shouldFailIfThereAreNoShards() throws Exception {
+        File vepOutputFolder = temporaryFolderRule.newFolder();
+        File vepInput = new File(URLHelper.resolveVepInput(vepOutputFolder.getAbsolutePath(), STUDY_ID, FILE_ID));
+        Files.write(vepInput.toPath(), VEP_INPUT);
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(BeanNames.MERGE_VEP_ANNOTATION_STEP,
+                                                                    getJobParameters(vepOutputFolder));
+
+        assertEquals(ExitStatus.FAILED.getExitCode(), jobExecution.getExitStatus().getExitCode());
+        assertEquals(BatchStatus.FAILED, jobExecution.getStatus());
+    }
+
+    private JobParameters getJobParameters(File vepOutputFolder) {
+        return new EvaJobParameterBuilder()
+                .inputStudyId(STUDY_ID)
+                .inputVcfId(FILE_ID)
+                .outputDirAnnotation(vepOutputFolder.getAbsolutePath())
+                .toJobParameters();
+    }
+
+    private static void writeGzipped(File file, List<String> lines) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write("\n");
+            }
+        }
+    }
+
+    private static List<String> readGzipped(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(new FileInputStream(file))))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.partitioners;
+
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * {@link VcfIndexPartitioner}
+ * <p>
+ * input: a bgzipped VCF with variants in chromosomes 20, 21 and 22, and its tabix index
+ * <p>
+ * output: a partition per chromosome, with contiguous ranges of virtual offsets
+ */
+public class VcfIndexPartitionerTest {
+
+    private static final String INDEXED_FILE_PATH = "/input-files/vcf/genotyped_indexed.vcf.gz";
+
+    private static final String NOT_INDEXED_FILE_PATH = "/input-files/vcf/genotyped.vcf.gz";
+
+    @Test
+    public void shouldCreateAPartitionPerChromosome() throws Exception {
+        VcfIndexPartitioner partitioner = new VcfIndexPartitioner(getResource(INDEXED_FILE_PATH));
+        Map<String, ExecutionContext> partitions = partitioner.partition(1);
+
+        assertEquals(Arrays.asList("chromosome-20", "chromosome-21", "chromosome-22"),
+                     new ArrayList<>(partitions.keySet()));
+
+        long previousEnd = 0;
+        for (Map.Entry<String, ExecutionContext> partition : partitions.entrySet()) {
+            ExecutionContext context = partition.getValue();
+            assertEquals(partition.getKey(), VcfIndexPartitioner.PARTITION_PREFIX
+                    + context.getString(ExecutionContextParametersNames.REGION_CHROMOSOME));
+
+            long start = context.getLong(ExecutionContextParametersNames.REGION_START_VIRTUAL_OFFSET);
+            long end = context.getLong(ExecutionContextParametersNames.REGION_END_VIRTUAL_OFFSET);
+            assertTrue(start < end);
+            assertTrue(previousEnd <= start);
+            previousEnd = end;
+
+            assertEquals(0L, context.getLong(ExecutionContextParametersNames.NUMBER_OF_LINES));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fileWithoutIndexShouldFail() throws Exception {
+        new VcfIndexPartitioner(getResource(NOT_INDEXED_FILE_PATH)).partition(1);
+    }
+}
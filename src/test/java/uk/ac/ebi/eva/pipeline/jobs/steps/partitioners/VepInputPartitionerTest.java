@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.partitioners;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.batch.item.ExecutionContext;
+
+import uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link VepInputPartitioner}
+ * <p>
+ * input: a VEP input file with a variant per line
+ * <p>
+ * output: shards with the variants of whole regions of the genome, and a partition per shard with the paths of its
+ * input and output
+ */
+public class VepInputPartitionerTest {
+
+    private static final List<String> VARIANTS = Arrays.asList("20\t60343\t60343\tG/A\t+",
+                                                               "1\t1500000\t1500000\tA/G\t+",
+                                                               "20\t2000000\t2000000\tC/T\t+",
+                                                               "2\t100\t100\tT/-\t+",
+                                                               "20\t60568\t60568\tC/T\t+");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldSplitTheInputByRegion() throws Exception {
+        File vepInput = writeVepInput(VARIANTS);
+        File vepOutput = new File(vepInput.getParent(), "vep_output.tsv.gz");
+
+        Map<String, ExecutionContext> partitions = new VepInputPartitioner(vepInput, vepOutput, 2).partition(1);
+
+        assertEquals(Arrays.asList("shard-0", "shard-1"), new ArrayList<>(partitions.keySet()));
+        for (ExecutionContext context : partitions.values()) {
+            assertTrue(context.getString(ExecutionContextParametersNames.VEP_OUTPUT)
+                              .startsWith(vepOutput.getPath()));
+        }
+        assertEquals(Arrays.asList(VARIANTS.get(1), VARIANTS.get(3), VARIANTS.get(0), VARIANTS.get(4)),
+                     readShard(partitions.get("shard-0")));
+        assertEquals(Collections.singletonList(VARIANTS.get(2)), readShard(partitions.get("shard-1")));
+    }
+
+    @Test
+    public void shouldNotSplitARegion() throws Exception {
+        List<String> variants = Arrays.asList(VARIANTS.get(0), VARIANTS.get(4));
+        File vepInput = writeVepInput(variants);
+        File vepOutput = new File(vepInput.getParent(), "vep_output.tsv.gz");
+
+        Map<String, ExecutionContext> partitions = new VepInputPartitioner(vepInput, vepOutput, 2).partition(1);
+
+        assertEquals(1, partitions.size());
+        assertEquals(variants, readShard(partitions.get("shard-0")));
+    }
+
+    @Test
+    public void shouldNotCreateMoreShardsThanRegions() throws Exception {
+        File vepInput = writeVepInput(VARIANTS);
+        File vepOutput = new File(vepInput.getParent(), "vep_output.tsv.gz");
+
+        Map<String, ExecutionContext> partitions = new VepInputPartitioner(vepInput, vepOutput, 10).partition(1);
+
+        assertEquals(4, partitions.size());
+        List<String> shardedLines = new ArrayList<>();
+        for (ExecutionContext context : partitions.values()) {
+            shardedLines.addAll(readShard(context));
+        }
+        assertEquals(Arrays.asList(VARIANTS.get(1), VARIANTS.get(3), VARIANTS.get(0), VARIANTS.get(4),
+                                   VARIANTS.get(2)),
+                     shardedLines);
+    }
+
+    @Test
+    public void chromosomesShouldBeInGenomicOrder() throws Exception {
+        List<String> variants = Arrays.asList("GL000192.1\t100\t100\tA/G\t+",
+                                              "MT\t100\t100\tA/G\t+",
+                                              "10\t100\t100\tA/G\t+",
+                                              "Y\t100\t100\tA/G\t+",
+                                              "2\t100\t100\tA/G\t+",
+                                              "X\t100\t100\tA/G\t+",
+                                              "1\t100\t100\tA/G\t+");
+        File vepInput = writeVepInput(variants);
+        File vepOutput = new File(vepInput.getParent(), "vep_output.tsv.gz");
+
+        Map<String, ExecutionContext> partitions = new VepInputPartitioner(vepInput, vepOutput, 3).partition(1);
+
+        List<String> shardedLines = new ArrayList<>();
+        for (ExecutionContext context : partitions.values()) {
+            shardedLines.addAll(readShard(context));
+        }
+        assertEquals(Arrays.asList(variants.get(6), variants.get(4), variants.get(2), variants.get(5),
+                                   variants.get(3), variants.get(1), variants.get(0)),
+                     shardedLines);
+    }
+
+    @Test
+    public void variantsShouldBeSortedInsideEachShard() throws Exception {
+        List<String> variants = Arrays.asList("1\t300\t300\tA/G\t+",
+                                              "2\t100\t100\tA/G\t+",
+                                              "1\t100\t100\tA/G\t+",
+                                              "1\t100\t100\tA/T\t+",
+                                              "1\t200\t200\tA/G\t+");
+        File vepInput = writeVepInput(variants);
+        File vepOutput = new File(vepInput.getParent(), "vep_output.tsv.gz");
+
+        Map<String, ExecutionContext> partitions = new VepInputPartitioner(vepInput, vepOutput, 1).partition(1);
+
+        assertEquals(Arrays.asList(variants.get(2), variants.get(3), variants.get(4), variants.get(0),
+                                   variants.get(1)),
+                     readShard(partitions.get("shard-0")));
+    }
+
+    @Test
+    public void shouldCreateOneShardForAnEmptyInput() throws Exception {
+        File vepInput = writeVepInput(new ArrayList<>());
+        File vepOutput = new File(vepInput.getParent(), "vep_output.tsv.gz");
+
+        Map<String, ExecutionContext> partitions = new VepInputPartitioner(vepInput, vepOutput, 4).partition(1);
+
+        assertEquals(1, partitions.size());
+    }
+
+    @Test
+    public void shouldDeleteShardsOfAPreviousSplit() throws Exception {
+        File vepInput = writeVepInput(VARIANTS);
+        File vepOutput = new File(vepInput.getParent(), "vep_output.tsv.gz");
+        new VepInputPartitioner(vepInput, vepOutput, 10).partition(1);
+        assertTrue(VepInputPartitioner.getShardFile(vepOutput, 3).createNewFile());
+
+        new VepInputPartitioner(vepInput, vepOutput, 2).partition(1);
+
+        assertFalse(VepInputPartitioner.getShardFile(vepInput, 2).exists());
+        assertFalse(VepInputPartitioner.getShardFile(vepInput, 3).exists());
+        assertFalse(VepInputPartitioner.getShardFile(vepOutput, 3).exists());
+        assertEquals(Arrays.asList(VepInputPartitioner.getShardFile(vepOutput, 0),
+                                   VepInputPartitioner.getShardFile(vepOutput, 1)),
+                     VepInputPartitioner.getShardOutputs(vepInput, vepOutput));
+    }
+
+    @Test
+    public void shouldDeleteTheShardsAndTheirOutputs() throws Exception {
+        File vepInput = writeVepInput(VARIANTS);
+        File vepOutput = new File(vepInput.getParent(), "vep_output.tsv.gz");
+        new VepInputPartitioner(vepInput, vepOutput, 2).partition(1);
+        assertTrue(VepInputPartitioner.getShardFile(vepOutput, 0).createNewFile());
+
+        VepInputPartitioner.deleteShards(vepInput, vepOutput);
+
+        assertTrue(VepInputPartitioner.getShardOutputs(vepInput, vepOutput).isEmpty());
+        assertFalse(VepInputPartitioner.getShardFile(vepOutput, 0).exists());
+        assertTrue(vepInput.exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroShardsShouldFail() throws Exception {
+        new VepInputPartitioner(temporaryFolder.newFile(), temporaryFolder.newFile(), 0);
+    }
+
+    private File writeVepInput(List<String> variants) throws IOException {
+        File vepInput = temporaryFolder.newFile("vep_input.txt");
+        Files.write(vepInput.toPath(), variants);
+        return vepInput;
+    }
+
+    private List<String> readShard(ExecutionContext partition) throws IOException {
+        return Files.readAllLines(new File(partition.getString(ExecutionContextParametersNames.VEP_INPUT)).toPath());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.policies;
+
+import org.junit.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.item.data.MongoItemWriter;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveChunkSizeCompletionPolicyTest {
+
+    private static final double LOW_HEAP = 0.1;
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void fixedPolicyShouldKeepTheChunkSize() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(1000);
+        assertFalse(policy.isAdaptive());
+
+        policy.adapt(1000, 10 * ONE_SECOND, 10 * ONE_SECOND, LOW_HEAP);
+        assertEquals(1000, policy.getChunkSize());
+    }
+
+    @Test
+    public void fastChunksShouldGrowAtMostTwice() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(1000, 100, 10000);
+
+        policy.adapt(1000, ONE_SECOND / 10, ONE_SECOND / 10, LOW_HEAP);
+        assertEquals(2000, policy.getChunkSize());
+    }
+
+    @Test
+    public void slowChunksShouldShrinkAtMostByHalf() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(1000, 100, 10000);
+
+        policy.adapt(1000, 2 * ONE_SECOND, 6 * ONE_SECOND, LOW_HEAP);
+        assertEquals(500, policy.getChunkSize());
+    }
+
+    @Test
+    public void chunkSizeShouldConvergeToTheTargetTime() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(100, 10, 100000);
+        long nanosPerItem = TimeUnit.MILLISECONDS.toNanos(1);
+
+        for (int i = 0; i < 10; i++) {
+            int items = policy.getChunkSize();
+            policy.adapt(items, items * nanosPerItem / 4, items * nanosPerItem * 3 / 4, LOW_HEAP);
+        }
+        assertEquals(AdaptiveChunkSizeCompletionPolicy.TARGET_CHUNK_MILLIS, policy.getChunkSize());
+    }
+
+    @Test
+    public void chunksShouldNotGrowWhenTheHeapIsAlmostFull() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(1000, 100, 10000);
+
+        policy.adapt(1000, ONE_SECOND / 10, ONE_SECOND / 10, AdaptiveChunkSizeCompletionPolicy.HIGH_HEAP_OCCUPANCY);
+        assertEquals(1000, policy.getChunkSize());
+    }
+
+    @Test
+    public void chunksShouldShrinkWhenTheHeapIsFull() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(1000, 100, 10000);
+
+        policy.adapt(1000, ONE_SECOND / 10, ONE_SECOND / 10,
+                     AdaptiveChunkSizeCompletionPolicy.CRITICAL_HEAP_OCCUPANCY);
+        assertEquals(500, policy.getChunkSize());
+    }
+
+    @Test
+    public void chunkSizeShouldStayWithinTheBounds() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(5000, 100, 1500);
+        assertEquals(1500, policy.getChunkSize());
+
+        policy.adapt(1500, ONE_SECOND / 10, ONE_SECOND / 10, LOW_HEAP);
+        assertEquals(1500, policy.getChunkSize());
+
+        for (int i = 0; i < 10; i++) {
+            policy.adapt(policy.getChunkSize(), 10 * ONE_SECOND, 10 * ONE_SECOND, LOW_HEAP);
+        }
+        assertEquals(100, policy.getChunkSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minimumGreaterThanMaximumShouldBeRejected() {
+        new AdaptiveChunkSizeCompletionPolicy(1000, 2000, 1000);
+    }
+
+    @Test
+    public void nextChunkShouldUseTheNewSize() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(10, 1, 100);
+        policy.adapt(10, ONE_SECOND / 10, ONE_SECOND / 10, LOW_HEAP);
+
+        RepeatContext context = policy.start(new RepeatContextSupport(null));
+        for (int i = 0; i < 19; i++) {
+            policy.update(context);
+        }
+        assertFalse(policy.isComplete(context));
+        policy.update(context);
+        assertTrue(policy.isComplete(context));
+    }
+
+    @Test
+    public void failedWritesShouldNotBeMeasured() {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(10, 1, 100);
+
+        policy.start(new RepeatContextSupport(null));
+        policy.beforeWrite(Collections.singletonList("item"));
+        policy.onWriteError(new RuntimeException(), Collections.singletonList("item"));
+        policy.afterWrite(Collections.singletonList("item"));
+        policy.afterChunk(null);
+        assertEquals(10, policy.getChunkSize());
+    }
+
+    /**
+     * The writer sends the items when the chunk is about to commit, as {@link MongoItemWriter} does inside a
+     * transaction, so the write takes almost no time and the slow part comes after the write listeners.
+     */
+    @Test
+    public void writesDoneAtTheCommitShouldBeMeasured() throws Exception {
+        AdaptiveChunkSizeCompletionPolicy policy = new AdaptiveChunkSizeCompletionPolicy(4, 1, 100);
+        MongoItemWriter<String> commitTimeWriter = new MongoItemWriter<String>() {
+            @Override
+            protected void doWrite(List<? extends String> items) {
+                try {
+                    // twice the target, so the next chunk has half the items
+                    Thread.sleep(2 * AdaptiveChunkSizeCompletionPolicy.TARGET_CHUNK_MILLIS + 100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        ResourcelessTransactionManager transactionManager = new ResourcelessTransactionManager();
+        JobRepository jobRepository = new MapJobRepositoryFactoryBean(transactionManager).getObject();
+        Step step = new StepBuilderFactory(jobRepository, transactionManager).get("step")
+                .<String, String>chunk(policy)
+                .reader(new ListItemReader<>(Arrays.asList("a", "b", "c", "d")))
+                .writer(commitTimeWriter)
+                .listener((ItemWriteListener<Object>) policy)
+                .listener((ChunkListener) policy)
+                .build();
+        JobExecution jobExecution = jobRepository.createJobExecution("job", new JobParameters());
+        StepExecution stepExecution = jobExecution.createStepExecution(step.getName());
+        jobRepository.add(stepExecution);
+
+        step.execute(stepExecution);
+
+        assertEquals(BatchStatus.COMPLETED, stepExecution.getStatus());
+        assertEquals(4, stepExecution.getWriteCount());
+        assertEquals(2, policy.getChunkSize());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.processor;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.junit.Test;
+
+import uk.ac.ebi.eva.commons.models.converters.data.VariantToDBObjectConverter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.processors.CompactStorageIdProcessor;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link CompactStorageIdProcessor}
+ * input: a variant document with a string id
+ * output: the same document with the compact id
+ */
+public class CompactStorageIdProcessorTest {
+
+    @Test
+    public void shouldReplaceTheIdKeepingTheOtherFields() throws Exception {
+        DBObject variant = new BasicDBObject("_id", "20_60000_TAG_A")
+                .append(VariantToDBObjectConverter.CHROMOSOME_FIELD, "20")
+                .append(VariantToDBObjectConverter.START_FIELD, 60000)
+                .append(VariantToDBObjectConverter.REFERENCE_FIELD, "TAG")
+                .append(VariantToDBObjectConverter.ALTERNATE_FIELD, "A")
+                .append(VariantToDBObjectConverter.IDS_FIELD, "rs1");
+
+        DBObject processedVariant = new CompactStorageIdProcessor().process(variant);
+
+        assertArrayEquals(MongoDBHelper.buildCompactStorageId("20", 60000, "TAG", "A"),
+                          (byte[]) processedVariant.get("_id"));
+        assertEquals("20", processedVariant.get(VariantToDBObjectConverter.CHROMOSOME_FIELD));
+        assertEquals("A", processedVariant.get(VariantToDBObjectConverter.ALTERNATE_FIELD));
+        assertEquals("rs1", processedVariant.get(VariantToDBObjectConverter.IDS_FIELD));
+    }
+}
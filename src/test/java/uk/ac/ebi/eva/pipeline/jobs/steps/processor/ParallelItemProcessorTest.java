@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.processor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import uk.ac.ebi.eva.pipeline.jobs.steps.processors.ParallelItemProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link ParallelItemProcessor}
+ * input: items, sent to the executor when they are read
+ * output: the result of the delegate processor, run in another thread
+ */
+public class ParallelItemProcessorTest {
+
+    private static final int THREADS = 4;
+
+    private ThreadPoolTaskExecutor taskExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setCorePoolSize(THREADS);
+        taskExecutor.setMaxPoolSize(THREADS);
+        taskExecutor.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskExecutor.shutdown();
+    }
+
+    @Test
+    public void resultsShouldKeepTheOrderOfTheItems() throws Exception {
+        ParallelItemProcessor<Integer, String> processor = new ParallelItemProcessor<>(item -> {
+            Thread.sleep((10 - item) * 5);
+            return "item " + item;
+        }, taskExecutor);
+
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(i);
+            processor.afterRead(items.get(i));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("item " + i, processor.process(items.get(i)));
+        }
+    }
+
+    @Test
+    public void delegateShouldRunInTheStepScope() throws Exception {
+        Thread stepThread = Thread.currentThread();
+        ParallelItemProcessor<Integer, StepExecution> processor = new ParallelItemProcessor<>(item -> {
+            assertNotEquals(stepThread, Thread.currentThread());
+            return StepSynchronizationManager.getContext().getStepExecution();
+        }, taskExecutor);
+
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        StepSynchronizationManager.register(stepExecution);
+        try {
+            Integer item = 1;
+            processor.afterRead(item);
+            assertSame(stepExecution, processor.process(item));
+        } finally {
+            StepSynchronizationManager.close();
+        }
+    }
+
+    @Test
+    public void exceptionsShouldBeThrownWhenTheFailedItemIsProcessed() throws Exception {
+        FlatFileParseException parseException = new FlatFileParseException("wrong line", "line", 2);
+        ParallelItemProcessor<Integer, String> processor = new ParallelItemProcessor<>(item -> {
+            if (item == 2) {
+                throw parseException;
+            }
+            return "item " + item;
+        }, taskExecutor);
+
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            items.add(i);
+            processor.afterRead(items.get(i));
+        }
+
+        assertEquals("item 0", processor.process(items.get(0)));
+        assertEquals("item 1", processor.process(items.get(1)));
+        try {
+            processor.process(items.get(2));
+            fail("The exception of the delegate should have been thrown");
+        } catch (FlatFileParseException e) {
+            assertSame(parseException, e);
+        }
+        assertEquals("item 3", processor.process(items.get(3)));
+    }
+
+    @Test
+    public void itemsNotSentWhenReadShouldBeProcessedInTheCallingThread() throws Exception {
+        Thread stepThread = Thread.currentThread();
+        AtomicInteger calls = new AtomicInteger();
+        ParallelItemProcessor<Integer, String> processor = new ParallelItemProcessor<>(item -> {
+            calls.incrementAndGet();
+            assertEquals(stepThread, Thread.currentThread());
+            return "item " + item;
+        }, taskExecutor);
+
+        processor.afterChunkError(null);
+        assertEquals("item 5", processor.process(5));
+        assertEquals(1, calls.get());
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.processor;
+
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.pipeline.io.mappers.VcfLineMapper;
+import uk.ac.ebi.eva.pipeline.io.readers.VcfLineReader;
+import uk.ac.ebi.eva.pipeline.jobs.steps.processors.VcfLineProcessor;
+import uk.ac.ebi.eva.pipeline.model.VcfLine;
+import uk.ac.ebi.eva.test.utils.JobTestUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * {@link VcfLineProcessor}
+ * input: the lines read by a {@link VcfLineReader}
+ * output: a list of variants for each line
+ */
+public class VcfLineProcessorTest {
+
+    private static final String INPUT_FILE_PATH = "/input-files/vcf/genotyped.vcf.gz";
+
+    private static final String INPUT_WRONG_FILE_PATH = "/input-files/vcf/wrong_no_alt.vcf.gz";
+
+    private static final String FILE_ID = "5";
+
+    private static final String STUDY_ID = "7";
+
+    @Test
+    public void shouldParseAllLines() throws Exception {
+        File input = getResource(INPUT_FILE_PATH);
+        VcfLineReader vcfLineReader = openReader(input);
+        VcfLineProcessor vcfLineProcessor = new VcfLineProcessor(new VcfLineMapper(FILE_ID, STUDY_ID));
+
+        VcfLine line;
+        int count = 0;
+        while ((line = vcfLineReader.read()) != null) {
+            List<Variant> variants = vcfLineProcessor.process(line);
+            assertTrue(variants.size() > 0);
+            assertTrue(variants.get(0).getSourceEntries().size() > 0);
+            count++;
+        }
+        vcfLineReader.close();
+
+        long expectedCount = JobTestUtils.getLines(new GZIPInputStream(new FileInputStream(input)));
+        assertEquals(expectedCount, count);
+    }
+
+    @Test
+    public void invalidLineShouldFailWithItsLineNumber() throws Exception {
+        VcfLineReader vcfLineReader = openReader(getResource(INPUT_WRONG_FILE_PATH));
+        VcfLineProcessor vcfLineProcessor = new VcfLineProcessor(new VcfLineMapper(FILE_ID, STUDY_ID));
+
+        VcfLine line;
+        while ((line = vcfLineReader.read()) != null) {
+            try {
+                vcfLineProcessor.process(line);
+            } catch (FlatFileParseException e) {
+                assertEquals(line.getLineNumber(), e.getLineNumber());
+                assertEquals(line.getLine(), e.getInput());
+                vcfLineReader.close();
+                return;
+            }
+        }
+        vcfLineReader.close();
+        fail("The invalid line should have thrown a " + FlatFileParseException.class.getSimpleName());
+    }
+
+    private VcfLineReader openReader(File input) throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        VcfLineReader vcfLineReader = new VcfLineReader(input);
+        vcfLineReader.setSaveState(false);
+        vcfLineReader.open(executionContext);
+        return vcfLineReader;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.listeners;
+
+import com.mongodb.CommandResult;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.WriteConcern;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import uk.ac.ebi.eva.pipeline.io.writers.GeneWriter;
+import uk.ac.ebi.eva.pipeline.model.FeatureCoordinates;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JournalBarrierListenerTest {
+
+    private MongoClient mongoClient;
+
+    private DB adminDatabase;
+
+    private CommandResult commandResult;
+
+    @Before
+    public void setUp() {
+        mongoClient = Mockito.mock(MongoClient.class);
+        adminDatabase = Mockito.mock(DB.class);
+        commandResult = Mockito.mock(CommandResult.class);
+        when(mongoClient.getDB(anyString())).thenReturn(adminDatabase);
+        when(adminDatabase.command(any(DBObject.class))).thenReturn(commandResult);
+    }
+
+    @Test
+    public void relaxedWriteConcernShouldWaitForTheJournal() {
+        when(commandResult.ok()).thenReturn(true);
+
+        new JournalBarrierListener(mongoClient, WriteConcern.ACKNOWLEDGED).afterWrite(Collections.emptyList());
+
+        ArgumentCaptor<DBObject> command = ArgumentCaptor.forClass(DBObject.class);
+        verify(adminDatabase).command(command.capture());
+        assertTrue(command.getValue().containsField("getLastError"));
+        assertEquals(true, command.getValue().get("j"));
+    }
+
+    @Test
+    public void serverWithoutJournalShouldFlushTheDataFiles() {
+        when(commandResult.ok()).thenReturn(false);
+
+        new JournalBarrierListener(mongoClient, WriteConcern.ACKNOWLEDGED).afterWrite(Collections.emptyList());
+
+        ArgumentCaptor<DBObject> command = ArgumentCaptor.forClass(DBObject.class);
+        verify(adminDatabase, times(2)).command(command.capture());
+        List<DBObject> commands = command.getAllValues();
+        assertTrue(commands.get(1).containsField("fsync"));
+    }
+
+    @Test
+    public void journaledWriteConcernShouldNotAddABarrier() {
+        new JournalBarrierListener(mongoClient, WriteConcern.JOURNALED).afterWrite(Collections.emptyList());
+        new JournalBarrierListener(mongoClient, null).afterWrite(Collections.emptyList());
+
+        verify(adminDatabase, never()).command(any(DBObject.class));
+    }
+
+    @Test
+    public void unacknowledgedWriteConcernShouldNotAddABarrier() {
+        new JournalBarrierListener(mongoClient, WriteConcern.UNACKNOWLEDGED).afterWrite(Collections.emptyList());
+
+        verify(adminDatabase, never()).command(any(DBObject.class));
+    }
+
+    @Test
+    public void barrierShouldRunAfterTheWritesOfEachChunk() throws Exception {
+        when(commandResult.ok()).thenReturn(true);
+        MongoOperations mongoOperations = Mockito.mock(MongoOperations.class);
+        FeatureCoordinates gene1 = new FeatureCoordinates("ENSG1", "GENE1", "gene", "1", 100, 200);
+        FeatureCoordinates gene2 = new FeatureCoordinates("ENSG2", "GENE2", "gene", "1", 300, 400);
+        FeatureCoordinates gene3 = new FeatureCoordinates("ENSG3", "GENE3", "gene", "2", 100, 200);
+
+        ResourcelessTransactionManager transactionManager = new ResourcelessTransactionManager();
+        JobRepository jobRepository = new MapJobRepositoryFactoryBean(transactionManager).getObject();
+        Step step = new StepBuilderFactory(jobRepository, transactionManager).get("geneStep")
+                .<FeatureCoordinates, FeatureCoordinates>chunk(2)
+                .reader(new ListItemReader<>(Arrays.asList(gene1, gene2, gene3)))
+                .writer(new GeneWriter(mongoOperations, "genes"))
+                .listener((ItemWriteListener<Object>) new JournalBarrierListener(mongoClient,
+                                                                                 WriteConcern.ACKNOWLEDGED))
+                .build();
+        JobExecution jobExecution = jobRepository.createJobExecution("geneJob", new JobParameters());
+        StepExecution stepExecution = jobExecution.createStepExecution(step.getName());
+        jobRepository.add(stepExecution);
+
+        step.execute(stepExecution);
+
+        assertEquals(BatchStatus.COMPLETED, stepExecution.getStatus());
+        InOrder inOrder = inOrder(mongoOperations, adminDatabase);
+        inOrder.verify(mongoOperations).save(gene1, "genes");
+        inOrder.verify(mongoOperations).save(gene2, "genes");
+        inOrder.verify(adminDatabase).command(any(DBObject.class));
+        inOrder.verify(mongoOperations).save(gene3, "genes");
+        inOrder.verify(adminDatabase).command(any(DBObject.class));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.model.converters.data;
+
+import com.mongodb.DefaultDBEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
+import uk.ac.ebi.eva.utils.RawDBObjectEncoder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the serialization of the update document of a genotyped variant through the tree of DBObjects and
+ * through {@link VariantToBsonEncoder}, as the Mongo driver does before sending a bulk.
+ * <p>
+ * Run with the GC profiler to compare the allocations as well, e.g. from the IDE or with:
+ * java -cp target/test-classes:target/classes:(dependencies) uk.ac.ebi.eva.pipeline.model.converters.data
+ * .VariantToRawDBObjectConverterBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantToRawDBObjectConverterBenchmark {
+
+    private static final String[] GENOTYPES = {"0|0", "0|0", "0|0", "0|0", "0|1", "1|0", "1|1", "./."};
+
+    @Param({"100", "2504"})
+    private int numberOfSamples;
+
+    private Variant variant;
+
+    private VariantToMongoDbObjectConverter converter;
+
+    private VariantToRawDBObjectConverter rawConverter;
+
+    private DefaultDBEncoder encoder;
+
+    private RawDBObjectEncoder rawEncoder;
+
+    @Setup
+    public void setUp() {
+        variant = new Variant("1", 1234567, 1234567, "A", "T");
+        VariantSourceEntry sourceEntry = new VariantSourceEntry("fileId", "studyId", new String[0], "GT");
+        sourceEntry.addAttribute("QUAL", "100.0");
+        sourceEntry.addAttribute("AC", "25");
+        for (int i = 0; i < numberOfSamples; i++) {
+            sourceEntry.addSampleData(Collections.singletonMap("GT", GENOTYPES[(i * 7) % GENOTYPES.length]));
+        }
+        variant.addSourceEntry(sourceEntry);
+
+        converter = new VariantToMongoDbObjectConverter(false, true);
+        rawConverter = new VariantToRawDBObjectConverter(false, true);
+        encoder = new DefaultDBEncoder();
+        rawEncoder = new RawDBObjectEncoder();
+    }
+
+    @Benchmark
+    public byte[] convertToDBObjectTree() {
+        return encoder.encode(converter.convert(variant));
+    }
+
+    @Benchmark
+    public byte[] encodeDirectlyToBson() {
+        return rawEncoder.encode(rawConverter.convert(variant));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VariantToRawDBObjectConverterBenchmark.class.getSimpleName())
+                                       .addProfiler("gc")
+                                       .build()).run();
+    }
+}
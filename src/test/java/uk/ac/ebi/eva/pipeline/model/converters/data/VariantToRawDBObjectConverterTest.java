@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.model.converters.data;
+
+import com.google.common.collect.Sets;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import org.junit.Test;
+import org.opencb.biodata.models.feature.Genotype;
+
+import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
+import uk.ac.ebi.eva.commons.models.data.VariantStats;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+import uk.ac.ebi.eva.utils.RawDBObjectEncoder;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test {@link VariantToRawDBObjectConverter}, which must produce the same bytes as the Mongo driver serializing the
+ * documents of {@link VariantToMongoDbObjectConverter}
+ */
+public class VariantToRawDBObjectConverterTest {
+
+    private static final String[] GENOTYPES = {"0|0", "0|1", "1|0", "1|1", "./.", "0/0", "0|2", "0|0"};
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertNullVariantShouldThrowAnException() {
+        new VariantToRawDBObjectConverter(false, true).convert(null);
+    }
+
+    @Test
+    public void genotypedVariantShouldBeEncodedAsTheConvertedDocument() {
+        Variant variant = buildGenotypedVariant(25);
+
+        assertSameBytes(new VariantToMongoDbObjectConverter(false, true),
+                        new VariantToRawDBObjectConverter(false, true), variant);
+    }
+
+    @Test
+    public void variantWithManySamplesShouldBeEncodedAsTheConvertedDocument() {
+        Variant variant = buildGenotypedVariant(2504);
+
+        assertSameBytes(new VariantToMongoDbObjectConverter(false, true),
+                        new VariantToRawDBObjectConverter(false, true), variant);
+    }
+
+    @Test
+    public void aggregatedVariantShouldBeEncodedAsTheConvertedDocument() {
+        Variant variant = new Variant("X", 100500, 100500, "A", "C");
+        VariantSourceEntry sourceEntry = new VariantSourceEntry("fileId", "studyId");
+        sourceEntry.addAttribute("AC", "10");
+        sourceEntry.addAttribute("AN", "200");
+        VariantStats stats = new VariantStats(null, -1, null, null, Variant.VariantType.SNV, 0.1f, 0.01f, "A", "A/A",
+                                              10, 5, -1, -1, -1, -1, -1);
+        stats.addGenotype(new Genotype("0/0"), 100);
+        stats.addGenotype(new Genotype("0/1"), 50);
+        sourceEntry.setCohortStats(VariantSourceEntry.DEFAULT_COHORT, stats);
+        variant.addSourceEntry(sourceEntry);
+
+        assertSameBytes(new VariantToMongoDbObjectConverter(true, false),
+                        new VariantToRawDBObjectConverter(true, false), variant);
+    }
+
+    @Test
+    public void attributesWithTheSameKeyAfterReplacingDotsShouldBeEncodedAsTheConvertedDocument() {
+        Variant variant = buildGenotypedVariant(3);
+        VariantSourceEntry sourceEntry = variant.getSourceEntries().values().iterator().next();
+        sourceEntry.addAttribute("A.B", "1");
+        sourceEntry.addAttribute("A£B", "2");
+
+        assertSameBytes(new VariantToMongoDbObjectConverter(false, true),
+                        new VariantToRawDBObjectConverter(false, true), variant);
+    }
+
+    @Test
+    public void rawDocumentsShouldBeCopiedInsideOtherDocuments() {
+        Variant variant = buildGenotypedVariant(10);
+        DBObject update = new VariantToMongoDbObjectConverter(false, true).convert(variant);
+        DBObject rawUpdate = new VariantToRawDBObjectConverter(false, true).convert(variant);
+
+        DBObject document = MongoDBHelper.buildInsertedDocument(update);
+        DBObject rawDocument = MongoDBHelper.buildInsertedDocument(rawUpdate);
+
+        assertArrayEquals(new DefaultDBEncoder().encode(document), new RawDBObjectEncoder().encode(rawDocument));
+    }
+
+    @Test
+    public void mutableCopyShouldBeEqualToTheConvertedDocument() {
+        Variant variant = buildGenotypedVariant(10);
+        DBObject update = new VariantToMongoDbObjectConverter(false, true).convert(variant);
+        DBObject rawUpdate = new VariantToRawDBObjectConverter(false, true).convert(variant);
+
+        DBObject mutableUpdate = MongoDBHelper.toMutable(rawUpdate);
+        assertEquals(BasicDBObject.class, mutableUpdate.getClass());
+        assertArrayEquals(new DefaultDBEncoder().encode(update), new DefaultDBEncoder().encode(mutableUpdate));
+    }
+
+    private void assertSameBytes(VariantToMongoDbObjectConverter converter,
+                                 VariantToRawDBObjectConverter rawConverter, Variant variant) {
+        byte[] expected = new DefaultDBEncoder().encode(converter.convert(variant));
+        byte[] actual = new RawDBObjectEncoder().encode(rawConverter.convert(variant));
+        assertArrayEquals(expected, actual);
+
+        // the buffer is reused, so a second variant can't be affected by the first one
+        assertArrayEquals(actual, new RawDBObjectEncoder().encode(rawConverter.convert(variant)));
+    }
+
+    private Variant buildGenotypedVariant(int numberOfSamples) {
+        Variant variant = new Variant("1", 1234567, 1234567, "A", "T");
+        variant.setIds(Sets.newHashSet("rs123", "ss456"));
+        variant.getHgvs().put("genomic", Sets.newHashSet("1:g.1234567A>T"));
+
+        VariantSourceEntry sourceEntry = new VariantSourceEntry("fileId", "studyId", new String[]{"G"}, "GT");
+        sourceEntry.addAttribute("QUAL", "100.0");
+        sourceEntry.addAttribute("src", "1\t1234567\trs123\tA\tT,G\t100\tPASS\tAC=3\tGT\t0|1");
+        sourceEntry.addAttribute("DP4.1", "20");
+        for (int i = 0; i < numberOfSamples; i++) {
+            String genotype = GENOTYPES[(i * 7 + i / 3) % GENOTYPES.length];
+            sourceEntry.addSampleData(Collections.singletonMap("GT", genotype));
+        }
+        variant.addSourceEntry(sourceEntry);
+        return variant;
+    }
+}
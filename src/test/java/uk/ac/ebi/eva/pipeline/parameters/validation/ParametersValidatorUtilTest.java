@@ -242,4 +242,15 @@ public class ParametersValidatorUtilTest {
     public void integerStringIsNull() throws JobParametersInvalidException {
         ParametersValidatorUtil.checkIsPositiveInteger(null, JOB_PARAMETER_NAME);
     }
+
+    @Test
+    public void integerStringIsZeroOrPositive() throws JobParametersInvalidException {
+        ParametersValidatorUtil.checkIsNonNegativeInteger("0", JOB_PARAMETER_NAME);
+        ParametersValidatorUtil.checkIsNonNegativeInteger("5", JOB_PARAMETER_NAME);
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void nonNegativeIntegerStringIsNegative() throws JobParametersInvalidException {
+        ParametersValidatorUtil.checkIsNonNegativeInteger("-1", JOB_PARAMETER_NAME);
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters.validation.job;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests that the arguments necessary to run a {@link uk.ac.ebi.eva.pipeline.jobs.MigrateVariantIdsJob} are
+ * correctly validated
+ */
+public class MigrateVariantIdsJobParametersValidatorTest {
+
+    private MigrateVariantIdsJobParametersValidator validator;
+
+    private Map<String, JobParameter> requiredParameters;
+
+    @Before
+    public void setUp() {
+        validator = new MigrateVariantIdsJobParametersValidator();
+
+        requiredParameters = new TreeMap<>();
+        requiredParameters.put(JobParametersNames.DB_NAME, new JobParameter("database"));
+        requiredParameters.put(JobParametersNames.DB_COLLECTIONS_VARIANTS_NAME, new JobParameter("variants"));
+        requiredParameters.put(JobParametersNames.DB_COLLECTIONS_COMPACT_VARIANTS_NAME,
+                               new JobParameter("compactVariants"));
+    }
+
+    @Test
+    public void allRequiredJobParametersAreValid() throws JobParametersInvalidException {
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void dbCollectionsCompactVariantsNameIsRequired() throws JobParametersInvalidException {
+        requiredParameters.remove(JobParametersNames.DB_COLLECTIONS_COMPACT_VARIANTS_NAME);
+        validator.validate(new JobParameters(requiredParameters));
+    }
+}
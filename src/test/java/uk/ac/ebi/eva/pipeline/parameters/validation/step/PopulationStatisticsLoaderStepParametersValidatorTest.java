@@ -111,4 +111,10 @@ public class PopulationStatisticsLoaderStepParametersValidatorTest {
         validator.validate(new JobParameters(requiredParameters));
     }
 
+    @Test(expected = JobParametersInvalidException.class)
+    public void compactIdsAreNotAllowed() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_DB_COMPACT_IDS, new JobParameter("true"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
 }
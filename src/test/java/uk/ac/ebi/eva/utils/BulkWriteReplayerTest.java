@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.utils;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcernError;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkWriteReplayerTest {
+
+    private static final int NOT_MASTER = 10107;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private static final int WRITE_CONCERN_TIMEOUT = 64;
+
+    private DBCollection collection;
+
+    private List<DBObject> operations;
+
+    private List<List<Object>> sentOperations;
+
+    private LinkedList<RuntimeException> failures;
+
+    @Before
+    public void setUp() {
+        operations = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            operations.add(new BasicDBObject("_id", i));
+        }
+        sentOperations = new ArrayList<>();
+        failures = new LinkedList<>();
+
+        collection = mock(DBCollection.class);
+        when(collection.initializeUnorderedBulkOperation()).thenAnswer(invocation -> {
+            List<Object> sent = new ArrayList<>();
+            sentOperations.add(sent);
+            BulkWriteOperation bulk = mock(BulkWriteOperation.class);
+            doAnswer(insert -> sent.add(insert.getArguments()[0])).when(bulk).insert(any(DBObject.class));
+            when(bulk.execute()).thenAnswer(execute -> {
+                RuntimeException failure = failures.poll();
+                if (failure != null) {
+                    throw failure;
+                }
+                return null;
+            });
+            return bulk;
+        });
+    }
+
+    @Test
+    public void onlyTheFailedOperationsShouldBeReplayed() {
+        failures.add(bulkWriteException(null, writeError(NOT_MASTER, 1), writeError(NOT_MASTER, 3)));
+
+        new BulkWriteReplayer(3, 0).execute(collection, operations, BulkWriteOperation::insert, null);
+
+        assertEquals(2, sentOperations.size());
+        assertEquals(operations, sentOperations.get(0));
+        assertEquals(Arrays.asList(operations.get(1), operations.get(3)), sentOperations.get(1));
+    }
+
+    @Test
+    public void errorsOfReplayedOperationsShouldHaveTheOriginalIndex() {
+        failures.add(bulkWriteException(null, writeError(NOT_MASTER, 1), writeError(NOT_MASTER, 3)));
+        failures.add(bulkWriteException(null, writeError(DUPLICATE_KEY, 1)));
+
+        List<BulkWriteError> errors = new BulkWriteReplayer(3, 0).executeAndCollectErrors(
+                collection, operations, BulkWriteOperation::insert, null);
+
+        assertEquals(2, sentOperations.size());
+        assertEquals(1, errors.size());
+        assertEquals(DUPLICATE_KEY, errors.get(0).getCode());
+        assertEquals(3, errors.get(0).getIndex());
+    }
+
+    @Test
+    public void allOperationsShouldBeReplayedAfterAWriteConcernError() {
+        failures.add(bulkWriteException(new WriteConcernError(WRITE_CONCERN_TIMEOUT, "waiting for replication",
+                                                                      new BasicDBObject())));
+
+        new BulkWriteReplayer(3, 0).execute(collection, operations, BulkWriteOperation::insert, null);
+
+        assertEquals(2, sentOperations.size());
+        assertEquals(operations, sentOperations.get(1));
+    }
+
+    @Test
+    public void allOperationsShouldBeReplayedAfterATransientError() {
+        failures.add(new MongoException(NOT_MASTER, "not master"));
+
+        new BulkWriteReplayer(3, 0).execute(collection, operations, BulkWriteOperation::insert, null);
+
+        assertEquals(2, sentOperations.size());
+        assertEquals(operations, sentOperations.get(1));
+    }
+
+    @Test
+    public void errorsThatAreNotTransientShouldNotBeReplayed() {
+        BulkWriteException exception = bulkWriteException(null, writeError(DUPLICATE_KEY, 0),
+                                                           writeError(NOT_MASTER, 1));
+        failures.add(exception);
+
+        try {
+            new BulkWriteReplayer(3, 0).execute(collection, operations, BulkWriteOperation::insert, null);
+            fail("The duplicate key should have been thrown");
+        } catch (BulkWriteException e) {
+            assertSame(exception, e);
+        }
+        assertEquals(1, sentOperations.size());
+    }
+
+    @Test
+    public void retriesShouldBeBounded() {
+        for (int i = 0; i < 10; i++) {
+            failures.add(new MongoException(NOT_MASTER, "not master"));
+        }
+
+        try {
+            new BulkWriteReplayer(2, 0).execute(collection, operations, BulkWriteOperation::insert, null);
+            fail("The error should have been thrown after all the retries");
+        } catch (MongoException e) {
+            assertEquals(NOT_MASTER, e.getCode());
+        }
+        assertEquals(3, sentOperations.size());
+    }
+
+    @Test
+    public void emptyListShouldNotBeSent() {
+        new BulkWriteReplayer(2, 0).execute(collection, Collections.emptyList(), BulkWriteOperation::insert, null);
+        assertEquals(0, sentOperations.size());
+    }
+
+    private static BulkWriteError writeError(int code, int index) {
+        return new BulkWriteError(code, "error " + code, new BasicDBObject(), index);
+    }
+
+    private static BulkWriteException bulkWriteException(WriteConcernError writeConcernError,
+                                                         BulkWriteError... writeErrors) {
+        BulkWriteException exception = mock(BulkWriteException.class);
+        when(exception.getWriteErrors()).thenReturn(Arrays.asList(writeErrors));
+        when(exception.getWriteConcernError()).thenReturn(writeConcernError);
+        when(exception.getMessage()).thenReturn("Bulk write failed");
+        return exception;
+    }
+}
@@ -74,6 +74,12 @@ public class EvaJobParameterBuilder extends JobParametersBuilder {
         return this;
     }
 
+    public EvaJobParameterBuilder collectionCompactVariantsName(String collectionCompactVariantsName) {
+        addParameter(JobParametersNames.DB_COLLECTIONS_COMPACT_VARIANTS_NAME,
+                     new JobParameter(collectionCompactVariantsName));
+        return this;
+    }
+
     public EvaJobParameterBuilder collectionFeaturesName(String collectionFeaturesName) {
         addParameter(JobParametersNames.DB_COLLECTIONS_FEATURES_NAME, new JobParameter(collectionFeaturesName));
         return this;
@@ -104,6 +110,11 @@ public class EvaJobParameterBuilder extends JobParametersBuilder {
         return this;
     }
 
+    public EvaJobParameterBuilder vepNumProcesses(String vepNumProcesses) {
+        addParameter(JobParametersNames.APP_VEP_NUM_PROCESSES, new JobParameter(vepNumProcesses));
+        return this;
+    }
+
     public EvaJobParameterBuilder inputFasta(String inputFasta) {
         addParameter(JobParametersNames.INPUT_FASTA, new JobParameter(inputFasta));
         return this;
@@ -124,6 +135,12 @@ public class EvaJobParameterBuilder extends JobParametersBuilder {
         return this;
     }
 
+    public EvaJobParameterBuilder annotationStreaming(boolean annotationStreaming) {
+        addParameter(JobParametersNames.CONFIG_ANNOTATION_STREAMING,
+                     new JobParameter(Boolean.toString(annotationStreaming)));
+        return this;
+    }
+
     public EvaJobParameterBuilder statisticsSkip(boolean statisticsSkip) {
         addParameter(JobParametersNames.STATISTICS_SKIP, new JobParameter(Boolean.toString(statisticsSkip)));
         return this;
@@ -1,11 +1,22 @@
 package uk.ac.ebi.eva.utils;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 import org.opencb.commons.utils.CryptoUtils;
 
 import uk.ac.ebi.eva.commons.models.data.Variant;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class MongoDBHelperTest {
 
@@ -27,4 +38,138 @@ public class MongoDBHelperTest {
         Variant variant = new Variant("1", 1000, 1002, "TAG", alt);
         assertEquals("1_1000_TAG_" + new String(CryptoUtils.encryptSha1(alt)), MongoDBHelper.buildStorageId(variant));
     }
+
+    @Test
+    public void mergeUpsertsShouldJoinTheAddedValues() {
+        DBObject target = new BasicDBObject(MongoDBHelper.ADD_TO_SET,
+                                            new BasicDBObject("files", new BasicDBObject("fid", "1"))
+                                                    .append("ids", new BasicDBObject(MongoDBHelper.EACH,
+                                                                                     Arrays.asList("rs1"))))
+                .append(MongoDBHelper.SET_ON_INSERT, new BasicDBObject("chr", "1"));
+        DBObject source = new BasicDBObject(MongoDBHelper.ADD_TO_SET,
+                                            new BasicDBObject("files", new BasicDBObject("fid", "2"))
+                                                    .append("ids", new BasicDBObject(MongoDBHelper.EACH,
+                                                                                     Arrays.asList("rs1", "rs2")))
+                                                    .append("st", new BasicDBObject(MongoDBHelper.EACH,
+                                                                                    Arrays.asList("stats"))))
+                .append(MongoDBHelper.SET_ON_INSERT, new BasicDBObject("chr", "2"));
+
+        assertTrue(MongoDBHelper.mergeUpserts(target, source));
+
+        DBObject addToSet = (DBObject) target.get(MongoDBHelper.ADD_TO_SET);
+        assertEquals(new BasicDBObject(MongoDBHelper.EACH, Arrays.asList(new BasicDBObject("fid", "1"),
+                                                                         new BasicDBObject("fid", "2"))),
+                     addToSet.get("files"));
+        assertEquals(new BasicDBObject(MongoDBHelper.EACH, Arrays.asList("rs1", "rs2")), addToSet.get("ids"));
+        assertEquals(new BasicDBObject(MongoDBHelper.EACH, Arrays.asList("stats")), addToSet.get("st"));
+        assertEquals(new BasicDBObject("chr", "1"), target.get(MongoDBHelper.SET_ON_INSERT));
+    }
+
+    @Test
+    public void mergeUpsertsShouldRemoveDuplicatedValues() {
+        DBObject target = new BasicDBObject(MongoDBHelper.ADD_TO_SET,
+                                            new BasicDBObject("files", new BasicDBObject("fid", "1")));
+        DBObject source = new BasicDBObject(MongoDBHelper.ADD_TO_SET,
+                                            new BasicDBObject("files", new BasicDBObject("fid", "1")));
+
+        assertTrue(MongoDBHelper.mergeUpserts(target, source));
+
+        DBObject addToSet = (DBObject) target.get(MongoDBHelper.ADD_TO_SET);
+        assertEquals(new BasicDBObject(MongoDBHelper.EACH, Arrays.asList(new BasicDBObject("fid", "1"))),
+                     addToSet.get("files"));
+    }
+
+    @Test
+    public void upsertsWithOtherOperatorsShouldNotBeMerged() {
+        DBObject target = new BasicDBObject(MongoDBHelper.ADD_TO_SET, new BasicDBObject("ids", "rs1"));
+        DBObject source = new BasicDBObject(MongoDBHelper.ADD_TO_SET, new BasicDBObject("ids", "rs2"))
+                .append("$set", new BasicDBObject("chr", "1"));
+        DBObject originalTarget = new BasicDBObject(MongoDBHelper.ADD_TO_SET, new BasicDBObject("ids", "rs1"));
+
+        assertFalse(MongoDBHelper.mergeUpserts(target, source));
+        assertEquals(originalTarget, target);
+    }
+
+    @Test
+    public void insertedDocumentShouldContainTheAddedValuesAsArrays() {
+        DBObject addedIds = new BasicDBObject(MongoDBHelper.EACH, Arrays.asList("rs1", "rs1", "rs2"));
+        DBObject update = new BasicDBObject(MongoDBHelper.ADD_TO_SET,
+                                            new BasicDBObject("files", new BasicDBObject("fid", "1"))
+                                                    .append("ids", addedIds))
+                .append(MongoDBHelper.SET_ON_INSERT, new BasicDBObject("_id", "1_1000_A_C").append("chr", "1"));
+
+        DBObject expected = new BasicDBObject("_id", "1_1000_A_C")
+                .append("chr", "1")
+                .append("files", Arrays.asList(new BasicDBObject("fid", "1")))
+                .append("ids", Arrays.asList("rs1", "rs2"));
+        assertEquals(expected, MongoDBHelper.buildInsertedDocument(update));
+    }
+
+    @Test
+    public void updatesWithOtherOperatorsShouldNotBeInserted() {
+        DBObject update = new BasicDBObject(MongoDBHelper.ADD_TO_SET, new BasicDBObject("ids", "rs1"))
+                .append("$set", new BasicDBObject("chr", "1"));
+
+        assertNull(MongoDBHelper.buildInsertedDocument(update));
+    }
+
+    @Test
+    public void writeConcernShouldBeParsedIgnoringCase() {
+        assertEquals(WriteConcern.JOURNALED, MongoDBHelper.parseWriteConcern(" journaled ", "parameter"));
+        assertEquals(WriteConcern.UNACKNOWLEDGED, MongoDBHelper.parseWriteConcern("UNACKNOWLEDGED", "parameter"));
+    }
+
+    @Test
+    public void blankWriteConcernShouldBeNull() {
+        assertNull(MongoDBHelper.parseWriteConcern(null, "parameter"));
+        assertNull(MongoDBHelper.parseWriteConcern(" ", "parameter"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownWriteConcernShouldBeRejected() {
+        MongoDBHelper.parseWriteConcern("blabla", "parameter");
+    }
+
+    @Test
+    public void compactStorageIdOfNumericChromosomeShouldHaveFixedLength() {
+        byte[] id = MongoDBHelper.buildCompactStorageId("1", 1000, "A", "C");
+        assertEquals(13, id.length);
+        assertEquals(1, id[0]);
+        assertArrayEquals(new byte[]{0, 0, 0x03, (byte) 0xe8}, Arrays.copyOfRange(id, 1, 5));
+
+        byte[] longAllelesId = MongoDBHelper.buildCompactStorageId("1", 1000, "ACGTACGTACGTACGTACGTACGTACGT", "A");
+        assertEquals(13, longAllelesId.length);
+        assertFalse(Arrays.equals(id, longAllelesId));
+    }
+
+    @Test
+    public void compactStorageIdShouldUseCodesForSexAndMitochondrialChromosomes() {
+        assertEquals((byte) 240, MongoDBHelper.buildCompactStorageId("X", 1000, "A", "C")[0]);
+        assertEquals((byte) 244, MongoDBHelper.buildCompactStorageId("MT", 1000, "A", "C")[0]);
+    }
+
+    @Test
+    public void compactStorageIdOfOtherChromosomesShouldContainTheName() {
+        byte[] id = MongoDBHelper.buildCompactStorageId("chrUn", 1000, "A", "C");
+        assertEquals(0, id[0]);
+        assertEquals(5, id[1]);
+        assertEquals("chrUn", new String(id, 2, 5, StandardCharsets.UTF_8));
+        assertEquals(19, id.length);
+
+        assertFalse(Arrays.equals(MongoDBHelper.buildCompactStorageId("1", 1000, "A", "C"),
+                                  MongoDBHelper.buildCompactStorageId("01", 1000, "A", "C")));
+    }
+
+    @Test
+    public void compactStorageIdShouldTreatDashAsEmptyAllele() {
+        assertArrayEquals(MongoDBHelper.buildCompactStorageId("1", 1000, "", "C"),
+                          MongoDBHelper.buildCompactStorageId("1", 1000, "-", "C"));
+        assertFalse(Arrays.equals(MongoDBHelper.buildCompactStorageId("1", 1000, "A", "C"),
+                                  MongoDBHelper.buildCompactStorageId("1", 1000, "C", "A")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compactStorageIdShouldRejectTooLongChromosomeNames() {
+        MongoDBHelper.buildCompactStorageId(StringUtils.repeat("c", 256), 1000, "A", "C");
+    }
 }